@@ -0,0 +1,99 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmark;
+
+import java.io.File;
+import java.util.Random;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.vehicle.FiniteFleetManagerFactory;
+import com.graphhopper.jsprit.core.problem.vehicle.InfiniteFleetManagerFactory;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+import com.graphhopper.jsprit.core.util.Solutions;
+import com.graphhopper.jsprit.instance.reader.CordeauReader;
+import com.graphhopper.jsprit.instance.reader.LiLimReader;
+import com.graphhopper.jsprit.instance.reader.SolomonReader;
+
+/**
+ * Reads the benchmark instances shipped in jsprit-instances.
+ * <p>
+ * <p>Instances are named by their directory and file name without extension, e.g. solomon/C101, lilim/lc101 or
+ * cordeau/p01. The instance directory is taken from the system property jsprit.instances. By default, it is looked up
+ * relative to the working directory, i.e. benchmarks can be run from the project root or from jsprit-benchmarks.
+ */
+public final class BenchmarkProblems {
+
+    public static final String INSTANCES_DIR_PROPERTY = "jsprit.instances";
+
+    private BenchmarkProblems() {
+    }
+
+    public static VehicleRoutingProblem read(String instance) {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        if (instance.startsWith("solomon/")) {
+            new SolomonReader(vrpBuilder).read(getFile(instance + ".txt"));
+        } else if (instance.startsWith("lilim/")) {
+            new LiLimReader(vrpBuilder).read(getFile(instance + ".txt"));
+        } else if (instance.startsWith("cordeau/")) {
+            new CordeauReader(vrpBuilder).read(getFile(instance));
+        } else {
+            throw new IllegalArgumentException("unknown benchmark instance " + instance + ". it must start with solomon/, lilim/ or cordeau/");
+        }
+        return vrpBuilder.build();
+    }
+
+    /**
+     * Solves vrp with the default algorithm and a fixed seed, i.e. the same solution is returned on every call.
+     */
+    public static VehicleRoutingProblemSolution solve(VehicleRoutingProblem vrp, int iterations) {
+        VehicleRoutingAlgorithm algorithm = Jsprit.Builder.newInstance(vrp).setRandom(new Random(4711)).buildAlgorithm();
+        algorithm.setMaxIterations(iterations);
+        return Solutions.bestOf(algorithm.searchSolutions());
+    }
+
+    public static VehicleFleetManager createFleetManager(VehicleRoutingProblem vrp) {
+        if (vrp.getFleetSize().equals(VehicleRoutingProblem.FleetSize.FINITE)) {
+            return new FiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+        }
+        return new InfiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+    }
+
+    private static String getFile(String name) {
+        File instancesDir = getInstancesDir();
+        File file = new File(instancesDir, name);
+        if (!file.exists()) {
+            throw new IllegalArgumentException("cannot find benchmark instance " + file.getAbsolutePath() + ". set -D" + INSTANCES_DIR_PROPERTY + "=<dir>");
+        }
+        return file.getPath();
+    }
+
+    private static File getInstancesDir() {
+        String dir = System.getProperty(INSTANCES_DIR_PROPERTY);
+        if (dir != null) {
+            return new File(dir);
+        }
+        File fromRoot = new File("jsprit-instances/instances");
+        if (fromRoot.isDirectory()) {
+            return fromRoot;
+        }
+        return new File("../jsprit-instances/instances");
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+
+/**
+ * A benchmark instance together with a good solution, which is found by a short run of the default algorithm.
+ */
+@State(Scope.Benchmark)
+public class ProblemState {
+
+    @Param({"solomon/C101", "solomon/R101", "solomon/RC101", "lilim/lc101", "lilim/lr101", "cordeau/p01"})
+    public String instance;
+
+    public VehicleRoutingProblem vrp;
+
+    public VehicleRoutingProblemSolution solution;
+
+    @Setup
+    public void setupProblem() {
+        vrp = BenchmarkProblems.read(instance);
+        solution = BenchmarkProblems.solve(vrp, 50);
+    }
+
+    /**
+     * Creates a state manager that updates load and time window states.
+     */
+    public StateManager createStateManager() {
+        StateManager stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        stateManager.updateTimeWindowStates();
+        return stateManager;
+    }
+
+    /**
+     * Creates a constraint manager with load and time window constraints.
+     */
+    public ConstraintManager createConstraintManager(StateManager stateManager) {
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addLoadConstraint();
+        constraintManager.addTimeWindowConstraint();
+        return constraintManager;
+    }
+
+    /**
+     * Returns a copy of the routes of solution.
+     */
+    public List<VehicleRoute> copyRoutes() {
+        return new ArrayList<>(VehicleRoutingProblemSolution.copyOf(solution).getRoutes());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmark;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.graphhopper.jsprit.core.algorithm.ruin.RuinRadial;
+import com.graphhopper.jsprit.core.algorithm.ruin.RuinWorst;
+import com.graphhopper.jsprit.core.algorithm.ruin.distance.DefaultJobDistance;
+import com.graphhopper.jsprit.core.problem.job.Job;
+
+/**
+ * Measures ruining a share of the jobs of a solution. Each invocation ruins a fresh copy of the solution, i.e. the
+ * results include {@link SolutionCopyBenchmark#copyOf(ProblemState)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RuinBenchmark {
+
+    @State(Scope.Thread)
+    public static class Ruins {
+
+        @Param({"0.1", "0.3"})
+        public double share;
+
+        RuinRadial ruinRadial;
+
+        RuinWorst ruinWorst;
+
+        @Setup
+        public void setup(ProblemState problem) {
+            int noJobs = Math.max(1, (int) (problem.vrp.getJobs().size() * share));
+            ruinRadial = new RuinRadial(problem.vrp, noJobs, new DefaultJobDistance(problem.vrp.getTransportCosts()));
+            ruinRadial.setRandom(new Random(4711));
+            ruinWorst = new RuinWorst(problem.vrp, noJobs);
+            ruinWorst.setRandom(new Random(4711));
+        }
+    }
+
+    @Benchmark
+    public Collection<Job> ruinRadial(ProblemState problem, Ruins ruins) {
+        return ruins.ruinRadial.ruin(problem.copyRoutes());
+    }
+
+    @Benchmark
+    public Collection<Job> ruinWorst(ProblemState problem, Ruins ruins) {
+        return ruins.ruinWorst.ruin(problem.copyRoutes());
+    }
+}
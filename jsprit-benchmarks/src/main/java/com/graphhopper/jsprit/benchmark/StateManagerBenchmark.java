@@ -0,0 +1,117 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.graphhopper.jsprit.core.algorithm.state.DoubleStateId;
+import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.SizeDimension;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+
+/**
+ * Measures putting and getting states of all activities and routes of a solution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StateManagerBenchmark {
+
+    @State(Scope.Thread)
+    public static class States {
+
+        StateManager stateManager;
+
+        DoubleStateId stateId;
+
+        List<VehicleRoute> routes;
+
+        TourActivity[] activities;
+
+        @Setup
+        public void setup(ProblemState problem) {
+            routes = problem.copyRoutes();
+            stateManager = problem.createStateManager();
+            stateManager.informInsertionStarts(routes, Collections.<Job>emptyList());
+            stateId = stateManager.createDoubleStateId("benchmark");
+            List<TourActivity> acts = new ArrayList<>();
+            for (VehicleRoute route : routes) {
+                acts.addAll(route.getActivities());
+            }
+            activities = acts.toArray(new TourActivity[acts.size()]);
+            for (int i = 0; i < activities.length; i++) {
+                stateManager.putDoubleActivityState(activities[i], stateId, i);
+            }
+        }
+    }
+
+    @Benchmark
+    public void putActivityStates(States states) {
+        for (int i = 0; i < states.activities.length; i++) {
+            states.stateManager.putDoubleActivityState(states.activities[i], states.stateId, i);
+        }
+    }
+
+    @Benchmark
+    public double getActivityStates(States states) {
+        double sum = 0;
+        for (TourActivity act : states.activities) {
+            sum += states.stateManager.getDoubleActivityState(act, states.stateId);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int getLoadActivityStates(States states) {
+        int sum = 0;
+        for (TourActivity act : states.activities) {
+            SizeDimension load = states.stateManager.getSizeDimensionActivityState(act, InternalStates.LOAD);
+            sum += load.get(0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double putAndGetRouteStates(States states) {
+        double sum = 0;
+        for (VehicleRoute route : states.routes) {
+            states.stateManager.putDoubleRouteState(route, states.stateId, route.getActivities().size());
+            sum += states.stateManager.getDoubleRouteState(route, states.stateId);
+        }
+        return sum;
+    }
+}
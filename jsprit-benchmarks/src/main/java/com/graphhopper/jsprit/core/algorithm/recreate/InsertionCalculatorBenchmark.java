@@ -0,0 +1,127 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.graphhopper.jsprit.benchmark.ProblemState;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+
+/**
+ * Measures the insertion calculators. Every tenth job is removed from the solution, and each invocation evaluates the
+ * insertion of all removed jobs into all routes, i.e. it corresponds to one full update round of regret insertion.
+ * <p>
+ * <p>The benchmark lives in the package of the calculators since they are package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InsertionCalculatorBenchmark {
+
+    @State(Scope.Thread)
+    public static class Insertions {
+
+        List<VehicleRoute> routes;
+
+        List<Job> removedJobs = new ArrayList<>();
+
+        GeneralJobInsertionCalculator insertionCalculator;
+
+        LocalActivityInsertionCostsCalculator activityInsertionCalculator;
+
+        List<JobInsertionContext> contexts = new ArrayList<>();
+
+        List<TourActivity[]> prevNewNextActs = new ArrayList<>();
+
+        @Setup
+        public void setup(ProblemState problem) {
+            VehicleRoutingProblem vrp = problem.vrp;
+            routes = problem.copyRoutes();
+            int count = 0;
+            for (VehicleRoute route : routes) {
+                for (Job job : new ArrayList<>(route.getTourActivities().getJobs())) {
+                    if (count++ % 10 == 0) {
+                        route.getTourActivities().removeJob(job);
+                        removedJobs.add(job);
+                    }
+                }
+            }
+            StateManager stateManager = problem.createStateManager();
+            ConstraintManager constraintManager = problem.createConstraintManager(stateManager);
+            stateManager.informInsertionStarts(routes, removedJobs);
+            activityInsertionCalculator = new LocalActivityInsertionCostsCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(), stateManager);
+            insertionCalculator = new GeneralJobInsertionCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(), activityInsertionCalculator, constraintManager);
+            for (Job job : removedJobs) {
+                for (VehicleRoute route : routes) {
+                    List<TourActivity> acts = route.getActivities();
+                    int index = acts.size() / 2;
+                    TourActivity prevAct = index == 0 ? route.getStart() : acts.get(index - 1);
+                    TourActivity nextAct = index == acts.size() ? route.getEnd() : acts.get(index);
+                    TourActivity newAct = vrp.copyAndGetActivities(job).get(0);
+                    contexts.add(new JobInsertionContext(route, job, route.getVehicle(), route.getDriver(), route.getDepartureTime()));
+                    prevNewNextActs.add(new TourActivity[]{prevAct, newAct, nextAct});
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public double getInsertionData(Insertions insertions) {
+        double sum = 0;
+        for (Job job : insertions.removedJobs) {
+            for (VehicleRoute route : insertions.routes) {
+                InsertionData iData = insertions.insertionCalculator.getInsertionData(route, job, route.getVehicle(), route.getDepartureTime(), route.getDriver(), Double.MAX_VALUE);
+                if (!(iData instanceof InsertionData.NoInsertionFound)) {
+                    sum += iData.getInsertionCost();
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double getActivityInsertionCosts(Insertions insertions) {
+        double sum = 0;
+        for (int i = 0; i < insertions.contexts.size(); i++) {
+            TourActivity[] acts = insertions.prevNewNextActs.get(i);
+            sum += insertions.activityInsertionCalculator.getCosts(insertions.contexts.get(i), acts[0], acts[2], acts[1], acts[0].getEndTime());
+        }
+        return sum;
+    }
+}
@@ -137,8 +137,23 @@ public class SearchStrategy {
      * @return discoveredSolution
      * @throws java.lang.IllegalStateException if selector cannot select any solution
      */
-    @SuppressWarnings("UnusedParameters")
     public DiscoveredSolution run(VehicleRoutingProblem vrp, Collection<VehicleRoutingProblemSolution> solutions) {
+        VehicleRoutingProblemSolution lastSolution = discover(vrp, solutions);
+        return accept(solutions, lastSolution);
+    }
+
+    /**
+     * Runs steps 1) and 2) of {@link #run(VehicleRoutingProblem, Collection)}, i.e. selects a solution, copies it and
+     * runs the modules on the copy. The returned solution is costed but neither accepted nor rejected, and solutions
+     * remain unchanged.
+     *
+     * @param vrp       the underlying vehicle routing problem
+     * @param solutions to select a solution from
+     * @return the new solution
+     * @throws java.lang.IllegalStateException if selector cannot select any solution
+     */
+    @SuppressWarnings("UnusedParameters")
+    public VehicleRoutingProblemSolution discover(VehicleRoutingProblem vrp, Collection<VehicleRoutingProblemSolution> solutions) {
         VehicleRoutingProblemSolution solution = solutionSelector.selectSolution(solutions);
         if (solution == null) {
             throw new IllegalStateException(getErrMsg());
@@ -153,9 +168,20 @@ public class SearchStrategy {
             ModularSolutionCostCalculator modCalc = (ModularSolutionCostCalculator) solutionCostCalculator;
             lastSolution.setDetailedCost(modCalc.calculate(lastSolution));
         }
+        return lastSolution;
+    }
 
-        boolean solutionAccepted = solutionAcceptor.acceptSolution(solutions, lastSolution);
-        return new DiscoveredSolution(lastSolution, solutionAccepted, getId());
+    /**
+     * Runs step 3) of {@link #run(VehicleRoutingProblem, Collection)}, i.e. lets the acceptor decide whether the new
+     * solution enters solutions.
+     *
+     * @param solutions   which will be modified
+     * @param newSolution the solution discovered by {@link #discover(VehicleRoutingProblem, Collection)}
+     * @return discoveredSolution
+     */
+    public DiscoveredSolution accept(Collection<VehicleRoutingProblemSolution> solutions, VehicleRoutingProblemSolution newSolution) {
+        boolean solutionAccepted = solutionAcceptor.acceptSolution(solutions, newSolution);
+        return new DiscoveredSolution(newSolution, solutionAccepted, getId());
     }
 
     private String getErrMsg() {
@@ -60,6 +60,18 @@ public class SearchStrategyManager {
         return weights.get(id2index.get(strategyId));
     }
 
+    /**
+     * Returns the search strategy with the specified id or null if there is none.
+     *
+     * @param strategyId id of the strategy
+     * @return search strategy
+     */
+    public SearchStrategy getStrategy(String strategyId) {
+        Integer index = id2index.get(strategyId);
+        if (index == null) return null;
+        return strategies.get(index);
+    }
+
     /**
      * adds a new search strategy with a certain weight.
      *
@@ -36,6 +36,12 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
@@ -110,6 +116,10 @@ public class VehicleRoutingAlgorithm {
 
     private final SolutionCostCalculator objectiveFunction;
 
+    private List<VehicleRoutingAlgorithm> speculativeWorkers = new ArrayList<VehicleRoutingAlgorithm>();
+
+    private ExecutorService speculativeExecutorService = null;
+
     public VehicleRoutingAlgorithm(VehicleRoutingProblem problem, SearchStrategyManager searchStrategyManager) {
         super();
         this.problem = problem;
@@ -188,6 +198,46 @@ public class VehicleRoutingAlgorithm {
         terminationManager.addTermination(terminationCriterion);
     }
 
+    /**
+     * Lets the algorithm run its iterations speculatively in parallel.
+     * <p>
+     * <p>Each batch of iterations runs the selected strategies concurrently, one per worker, against the solutions
+     * at the beginning of the batch. The new solutions are then passed to the acceptor in iteration order. Thus,
+     * for given random number generators and number of workers, results are reproducible.
+     * <p>
+     * <p>Workers must be algorithms of their own, i.e. with their own state manager, fleet manager and search
+     * strategies, and must provide a strategy for each strategy id of this algorithm. Strategies of this algorithm
+     * are only used to accept new solutions. Search strategy (module) listeners must be added to the workers.
+     *
+     * @param workers the workers running the strategies
+     * @throws java.lang.IllegalArgumentException if a worker lacks a strategy or is this algorithm
+     */
+    public void setSpeculativeWorkers(List<VehicleRoutingAlgorithm> workers) {
+        for (VehicleRoutingAlgorithm worker : workers) {
+            if (worker == this) {
+                throw new IllegalArgumentException("algorithm cannot be its own worker");
+            }
+            for (SearchStrategy strategy : searchStrategyManager.getStrategies()) {
+                if (worker.getSearchStrategyManager().getStrategy(strategy.getId()) == null) {
+                    throw new IllegalArgumentException("worker lacks strategy " + strategy.getId());
+                }
+            }
+        }
+        speculativeWorkers = new ArrayList<VehicleRoutingAlgorithm>(workers);
+    }
+
+    /**
+     * Same as {@link #setSpeculativeWorkers(List)} but runs the workers with the specified executorService. Otherwise,
+     * an executorService is set up and shut down internally each time the algorithm runs.
+     *
+     * @param workers         the workers running the strategies
+     * @param executorService the executorService
+     */
+    public void setSpeculativeWorkers(List<VehicleRoutingAlgorithm> workers, ExecutorService executorService) {
+        setSpeculativeWorkers(workers);
+        speculativeExecutorService = executorService;
+    }
+
     /**
      * Gets the {@link SearchStrategyManager}.
      *
@@ -210,7 +260,7 @@ public class VehicleRoutingAlgorithm {
     public Collection<VehicleRoutingProblemSolution> searchSolutions() {
         logger.info("algorithm starts: [maxIterations={}]", maxIterations);
         double now = System.currentTimeMillis();
-        int noIterationsThisAlgoIsRunning = maxIterations;
+        int noIterationsThisAlgoIsRunning;
         counter.reset();
         Collection<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>(initialSolutions);
         algorithmStarts(problem, solutions);
@@ -219,6 +269,19 @@ public class VehicleRoutingAlgorithm {
             log(solutions);
         }
         logger.info("iterations start");
+        if (speculativeWorkers.isEmpty()) {
+            noIterationsThisAlgoIsRunning = search(solutions);
+        } else {
+            noIterationsThisAlgoIsRunning = searchSpeculatively(solutions);
+        }
+        logger.info("iterations end at {} iterations", noIterationsThisAlgoIsRunning);
+        addBestEver(solutions);
+        algorithmEnds(problem, solutions);
+        logger.info("took {} seconds", ((System.currentTimeMillis() - now) / 1000.0));
+        return solutions;
+    }
+
+    private int search(Collection<VehicleRoutingProblemSolution> solutions) {
         for (int i = 0; i < maxIterations; i++) {
             iterationStarts(i + 1, problem, solutions);
             logger.debug("start iteration: {}", i);
@@ -232,16 +295,97 @@ public class VehicleRoutingAlgorithm {
             selectedStrategy(discoveredSolution, problem, solutions);
             if (terminationManager.isPrematureBreak(discoveredSolution)) {
                 logger.info("premature algorithm termination at iteration {}", (i + 1));
-                noIterationsThisAlgoIsRunning = (i + 1);
-                break;
+                return i + 1;
             }
             iterationEnds(i + 1, problem, solutions);
         }
-        logger.info("iterations end at {} iterations", noIterationsThisAlgoIsRunning);
-        addBestEver(solutions);
-        algorithmEnds(problem, solutions);
-        logger.info("took {} seconds", ((System.currentTimeMillis() - now) / 1000.0));
-        return solutions;
+        return maxIterations;
+    }
+
+    private int searchSpeculatively(Collection<VehicleRoutingProblemSolution> solutions) {
+        ExecutorService es = speculativeExecutorService;
+        if (es == null) {
+            es = Executors.newFixedThreadPool(speculativeWorkers.size());
+        }
+        List<Collection<VehicleRoutingProblemSolution>> workerSolutions = new ArrayList<Collection<VehicleRoutingProblemSolution>>();
+        for (VehicleRoutingAlgorithm worker : speculativeWorkers) {
+            Collection<VehicleRoutingProblemSolution> copy = new ArrayList<VehicleRoutingProblemSolution>(solutions);
+            worker.algorithmStarts(problem, copy);
+            workerSolutions.add(copy);
+        }
+        try {
+            int i = 0;
+            while (i < maxIterations) {
+                int batchSize = Math.min(speculativeWorkers.size(), maxIterations - i);
+                Collection<VehicleRoutingProblemSolution> snapshot = new ArrayList<VehicleRoutingProblemSolution>(solutions);
+                List<SearchStrategy> strategies = new ArrayList<SearchStrategy>(batchSize);
+                List<Future<VehicleRoutingProblemSolution>> futures = new ArrayList<Future<VehicleRoutingProblemSolution>>(batchSize);
+                for (int w = 0; w < batchSize; w++) {
+                    SearchStrategy strategy = searchStrategyManager.getRandomStrategy();
+                    strategies.add(strategy);
+                    futures.add(es.submit(speculativeWorkers.get(w).speculate(i + w + 1, strategy.getId(), snapshot)));
+                }
+                for (int w = 0; w < batchSize; w++) {
+                    VehicleRoutingProblemSolution newSolution = getSpeculated(futures.get(w));
+                    i++;
+                    iterationStarts(i, problem, solutions);
+                    logger.debug("start iteration: {}", i - 1);
+                    counter.incCounter();
+                    DiscoveredSolution discoveredSolution = strategies.get(w).accept(solutions, newSolution);
+                    if (logger.isTraceEnabled()) {
+                        log(discoveredSolution);
+                    }
+                    memorizeIfBestEver(discoveredSolution);
+                    selectedStrategy(discoveredSolution, problem, solutions);
+                    if (terminationManager.isPrematureBreak(discoveredSolution)) {
+                        logger.info("premature algorithm termination at iteration {}", i);
+                        for (int remaining = w + 1; remaining < batchSize; remaining++) {
+                            getSpeculated(futures.get(remaining));
+                        }
+                        return i;
+                    }
+                    iterationEnds(i, problem, solutions);
+                }
+            }
+            return i;
+        } finally {
+            for (int w = 0; w < speculativeWorkers.size(); w++) {
+                speculativeWorkers.get(w).algorithmEnds(problem, workerSolutions.get(w));
+            }
+            if (speculativeExecutorService == null) {
+                es.shutdown();
+            }
+        }
+    }
+
+    /*
+     * runs the specified strategy of this worker without accepting its new solution
+     */
+    private Callable<VehicleRoutingProblemSolution> speculate(final int iteration, String strategyId, final Collection<VehicleRoutingProblemSolution> solutions) {
+        final SearchStrategy strategy = searchStrategyManager.getStrategy(strategyId);
+        return new Callable<VehicleRoutingProblemSolution>() {
+
+            @Override
+            public VehicleRoutingProblemSolution call() throws Exception {
+                Collection<VehicleRoutingProblemSolution> workerSolutions = new ArrayList<VehicleRoutingProblemSolution>(solutions);
+                iterationStarts(iteration, problem, workerSolutions);
+                VehicleRoutingProblemSolution newSolution = strategy.discover(problem, workerSolutions);
+                iterationEnds(iteration, problem, workerSolutions);
+                return newSolution;
+            }
+
+        };
+    }
+
+    private VehicleRoutingProblemSolution getSpeculated(Future<VehicleRoutingProblemSolution> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for speculative iteration", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private void addBestEver(Collection<VehicleRoutingProblemSolution> solutions) {
@@ -65,6 +65,11 @@ class InsertionNoiseMaker implements SoftActivityConstraint, IterationStartsList
         } else makeNoise = false;
     }
 
+    @Override
+    public boolean hasNonNegativeCosts() {
+        return true;
+    }
+
     @Override
     public double getCosts(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
         if (makeNoise) {
@@ -18,7 +18,10 @@
 
 package com.graphhopper.jsprit.core.algorithm.box;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
@@ -27,8 +30,10 @@ import java.util.concurrent.Executors;
 import com.graphhopper.jsprit.core.algorithm.PrettyAlgorithmBuilder;
 import com.graphhopper.jsprit.core.algorithm.SearchStrategy;
 import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithmFactory;
 import com.graphhopper.jsprit.core.algorithm.acceptor.SchrimpfAcceptance;
 import com.graphhopper.jsprit.core.algorithm.acceptor.SolutionAcceptor;
+import com.graphhopper.jsprit.core.algorithm.island.IslandVehicleRoutingAlgorithm;
 import com.graphhopper.jsprit.core.algorithm.listener.AlgorithmEndsListener;
 import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
 import com.graphhopper.jsprit.core.algorithm.module.RuinAndRecreateModule;
@@ -60,13 +65,16 @@ import com.graphhopper.jsprit.core.algorithm.ruin.RuinWorst;
 import com.graphhopper.jsprit.core.algorithm.ruin.distance.DefaultJobDistance;
 import com.graphhopper.jsprit.core.algorithm.selector.SelectBest;
 import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
 import com.graphhopper.jsprit.core.problem.vehicle.FiniteFleetManagerFactory;
 import com.graphhopper.jsprit.core.problem.vehicle.InfiniteFleetManagerFactory;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+import com.graphhopper.jsprit.core.util.Coordinate;
 import com.graphhopper.jsprit.core.util.NoiseMaker;
 import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
 import com.graphhopper.jsprit.core.util.Solutions;
@@ -93,6 +101,23 @@ public class Jsprit {
 
     }
 
+    public enum Neighborhoods {
+
+        DISTANCES("distances"), SPATIAL("spatial");
+
+        String name;
+
+        Neighborhoods(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
     public enum Strategy {
 
         RADIAL_BEST("radial_best"),
@@ -121,6 +146,7 @@ public class Jsprit {
         FIXED_COST_PARAM("fixed_cost_param"), VEHICLE_SWITCH("vehicle_switch"), REGRET_TIME_WINDOW_SCORER("regret.tw_scorer"),
         REGRET_DISTANCE_SCORER("regret.distance_scorer"), INITIAL_THRESHOLD("initial_threshold"), ITERATIONS("iterations"),
         THREADS("threads"),
+        SPECULATIVE_WORKERS("speculative_workers"),
         RANDOM_REGRET_MIN_SHARE("random_regret.min_share"),
         RANDOM_REGRET_MAX_SHARE("random_regret.max_share"),
         RANDOM_BEST_MIN_SHARE("random_best.min_share"),
@@ -140,7 +166,8 @@ public class Jsprit {
         FAST_REGRET("regret.fast"),
         MAX_TRANSPORT_COSTS("max_transport_costs"),
         CONSTRUCTION("construction"),
-        BREAK_SCHEDULING("break_scheduling");
+        BREAK_SCHEDULING("break_scheduling"),
+        NEIGHBORHOODS("neighborhoods");
 
         String paraName;
 
@@ -185,6 +212,8 @@ public class Jsprit {
 
         private ScoringFunction regretScorer = null;
 
+        private JobNeighborhoods jobNeighborhoods = null;
+
         public static Builder newInstance(VehicleRoutingProblem vrp) {
             return new Builder(vrp);
         }
@@ -210,6 +239,7 @@ public class Jsprit {
             defaults.put(Parameter.REGRET_DISTANCE_SCORER.toString(), ".05");
             defaults.put(Parameter.REGRET_TIME_WINDOW_SCORER.toString(), "-.1");
             defaults.put(Parameter.THREADS.toString(), "1");
+            defaults.put(Parameter.SPECULATIVE_WORKERS.toString(), "1");
             int minShare = (int) Math.min(20, Math.max(3, vrp.getJobs().size() * 0.05));
             int maxShare = (int) Math.min(50, Math.max(5, vrp.getJobs().size() * 0.3));
             defaults.put(Parameter.RADIAL_MIN_SHARE.toString(), String.valueOf(minShare));
@@ -234,6 +264,7 @@ public class Jsprit {
             defaults.put(Parameter.FAST_REGRET.toString(), String.valueOf(false));
             defaults.put(Parameter.BREAK_SCHEDULING.toString(), String.valueOf(true));
             defaults.put(Parameter.CONSTRUCTION.toString(), Construction.REGRET_INSERTION.toString());
+            defaults.put(Parameter.NEIGHBORHOODS.toString(), Neighborhoods.DISTANCES.toString());
             return defaults;
         }
 
@@ -295,8 +326,87 @@ public class Jsprit {
             return this;
         }
 
+        /**
+         * Sets the neighborhoods to be used by radial and cluster ruin instead of creating and initialising them, e.g.
+         * {@link com.graphhopper.jsprit.core.algorithm.ruin.DynamicJobNeighborhoods} that are kept up to date while
+         * re-planning. They must be initialised and contain all jobs of the problem.
+         *
+         * @param jobNeighborhoods initialised neighborhoods
+         * @return builder
+         */
+        public Builder setJobNeighborhoods(JobNeighborhoods jobNeighborhoods) {
+            this.jobNeighborhoods = jobNeighborhoods;
+            return this;
+        }
+
+        /**
+         * Builds the algorithm. If {@link Parameter#SPECULATIVE_WORKERS} is greater than 1, the algorithm runs its
+         * iterations speculatively in parallel with that many workers, see
+         * {@link VehicleRoutingAlgorithm#setSpeculativeWorkers(List)}. Each worker is configured like the algorithm
+         * and gets its own random number generator seeded from the random number generator of this builder. The job
+         * neighborhoods are created once and shared by the algorithm and its workers.
+         *
+         * @return algorithm
+         */
         public VehicleRoutingAlgorithm buildAlgorithm() {
-            return new Jsprit(this).create(vrp);
+            int noWorkers = Integer.valueOf(properties.getProperty(Parameter.SPECULATIVE_WORKERS.toString()));
+            if (noWorkers > 1) {
+                verifyNothingShared("speculative workers");
+            }
+            Jsprit jsprit = new Jsprit(this);
+            VehicleRoutingAlgorithm vra = jsprit.create(vrp);
+            if (noWorkers > 1) {
+                List<VehicleRoutingAlgorithm> workers = new ArrayList<VehicleRoutingAlgorithm>(noWorkers);
+                for (int i = 0; i < noWorkers; i++) {
+                    workers.add(buildIndependentAlgorithm(new Random(random.nextLong()), jsprit.jobNeighborhoods));
+                }
+                vra.setSpeculativeWorkers(workers);
+            }
+            return vra;
+        }
+
+        /**
+         * Builds an island algorithm whose islands are configured like the algorithm of {@link #buildAlgorithm()}.
+         * Each island gets its own state manager, constraint manager, fleet manager and random number generator
+         * seeded from the random number generator of this builder. The job neighborhoods are created once and shared by
+         * all islands.
+         * <p>
+         * <p>Since islands run in parallel, neither state and constraint manager nor a custom acceptor can be set.
+         *
+         * @param noIslands number of islands
+         * @return island algorithm
+         */
+        public IslandVehicleRoutingAlgorithm buildIslandAlgorithm(int noIslands) {
+            verifyNothingShared("islands");
+            final Random seeds = random;
+            final JobNeighborhoods sharedNeighborhoods = jobNeighborhoods != null ? jobNeighborhoods : new Jsprit(this).createJobNeighborhoods(vrp);
+            return IslandVehicleRoutingAlgorithm.Builder.newInstance(vrp, new VehicleRoutingAlgorithmFactory() {
+
+                @Override
+                public VehicleRoutingAlgorithm createAlgorithm(VehicleRoutingProblem vrp) {
+                    return buildIndependentAlgorithm(new Random(seeds.nextLong()), sharedNeighborhoods);
+                }
+
+            }).setNumberOfIslands(noIslands).build();
+        }
+
+        /*
+         * job neighborhoods are read-only while searching, thus they can be shared
+         */
+        private VehicleRoutingAlgorithm buildIndependentAlgorithm(Random random, JobNeighborhoods jobNeighborhoods) {
+            Jsprit jsprit = new Jsprit(this);
+            jsprit.random = random;
+            jsprit.jobNeighborhoods = jobNeighborhoods;
+            return jsprit.create(vrp);
+        }
+
+        private void verifyNothingShared(String algorithms) {
+            if (stateManager != null || constraintManager != null) {
+                throw new IllegalStateException(algorithms + " cannot share state and constraint manager. do not set them explicitly.");
+            }
+            if (solutionAcceptor != null) {
+                throw new IllegalStateException(algorithms + " cannot share an acceptor. do not set a custom acceptor.");
+            }
         }
 
     }
@@ -361,6 +471,8 @@ public class Jsprit {
 
     private ScoringFunction regretScorer;
 
+    private JobNeighborhoods jobNeighborhoods;
+
     private Jsprit(Builder builder) {
         stateManager = builder.stateManager;
         constraintManager = builder.constraintManager;
@@ -373,6 +485,7 @@ public class Jsprit {
         activityInsertion = builder.activityInsertionCalculator;
         acceptor = builder.solutionAcceptor;
         regretScorer = builder.regretScorer;
+        jobNeighborhoods = builder.jobNeighborhoods;
     }
 
     private void ini(VehicleRoutingProblem vrp) {
@@ -381,6 +494,70 @@ public class Jsprit {
         }
     }
 
+    private JobNeighborhoods createJobNeighborhoods(VehicleRoutingProblem vrp) {
+        JobNeighborhoods jobNeighborhoods;
+        if (getProperty(Parameter.NEIGHBORHOODS.toString()).equals(Neighborhoods.SPATIAL.toString())) {
+            jobNeighborhoods = new JobNeighborhoodsFactory().createSpatialNeighborhoods(vrp);
+        } else {
+            DefaultJobDistance jobDistance = new DefaultJobDistance(vrp.getTransportCosts());
+            int capacity = (int) (vrp.getJobs().values().size() * 0.5);
+            if (es != null && noThreads != null && noThreads > 1) {
+                jobNeighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(vrp, jobDistance, capacity, es, noThreads);
+            } else {
+                jobNeighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(vrp, jobDistance, capacity);
+            }
+        }
+        jobNeighborhoods.initialise();
+        return jobNeighborhoods;
+    }
+
+    /*
+     * spatial neighborhoods measure distances between coordinates, which are not in the unit of the transport costs (see
+     * JobNeighborhoods.hasMaxDistanceInCostUnits()). thus the max costs are the max job distance from the jobs at the extremes of the bounding box to all jobs, i.e. they need
+     * 4n instead of n^2 calculations.
+     */
+    static double estimateMaxCosts(VehicleRoutingProblem vrp) {
+        Collection<Job> jobs = vrp.getJobsInclusiveInitialJobsInRoutes().values();
+        Job[] extremes = new Job[4];
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Job job : jobs) {
+            for (Location location : job.getAllLocations()) {
+                Coordinate coordinate = location.getCoordinate();
+                if (coordinate == null) continue;
+                if (coordinate.getX() < minX) {
+                    minX = coordinate.getX();
+                    extremes[0] = job;
+                }
+                if (coordinate.getX() > maxX) {
+                    maxX = coordinate.getX();
+                    extremes[1] = job;
+                }
+                if (coordinate.getY() < minY) {
+                    minY = coordinate.getY();
+                    extremes[2] = job;
+                }
+                if (coordinate.getY() > maxY) {
+                    maxY = coordinate.getY();
+                    extremes[3] = job;
+                }
+            }
+        }
+        DefaultJobDistance jobDistance = new DefaultJobDistance(vrp.getTransportCosts());
+        double maxCosts = 0.;
+        for (int e = 0; e < extremes.length; e++) {
+            Job extreme = extremes[e];
+            if (extreme == null || Arrays.asList(extremes).subList(0, e).contains(extreme)) continue;
+            for (Job job : jobs) {
+                if (job == extreme) continue;
+                maxCosts = Math.max(maxCosts, jobDistance.getDistance(extreme, job));
+            }
+        }
+        return maxCosts;
+    }
+
     private VehicleRoutingAlgorithm create(final VehicleRoutingProblem vrp) {
         ini(vrp);
         VehicleFleetManager fm;
@@ -412,12 +589,15 @@ public class Jsprit {
         double noiseLevel = toDouble(getProperty(Parameter.INSERTION_NOISE_LEVEL.toString()));
         double noiseProbability = toDouble(getProperty(Parameter.INSERTION_NOISE_PROB.toString()));
 
-        JobNeighborhoods jobNeighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(vrp, new DefaultJobDistance(vrp.getTransportCosts()), (int) (vrp.getJobs().values().size() * 0.5));
-        jobNeighborhoods.initialise();
+        if (jobNeighborhoods == null) {
+            jobNeighborhoods = createJobNeighborhoods(vrp);
+        }
 
         final double maxCosts;
         if(properties.containsKey(Parameter.MAX_TRANSPORT_COSTS.toString())){
             maxCosts = Double.parseDouble(getProperty(Parameter.MAX_TRANSPORT_COSTS.toString()));
+        } else if (!jobNeighborhoods.hasMaxDistanceInCostUnits()) {
+            maxCosts = estimateMaxCosts(vrp);
         } else {
             maxCosts = jobNeighborhoods.getMaxDistance();
         }
@@ -0,0 +1,281 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.island;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithmFactory;
+import com.graphhopper.jsprit.core.algorithm.SearchStrategy;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationEndsListener;
+import com.graphhopper.jsprit.core.algorithm.termination.PrematureAlgorithmTermination;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Island model of {@link VehicleRoutingAlgorithm}.
+ * <p>
+ * <p>Runs a number of independent algorithms, i.e. islands, in parallel. Each island is created by the specified
+ * {@link VehicleRoutingAlgorithmFactory} and must own its state manager, fleet manager and search strategies. Whenever
+ * an island ends an iteration, its best solution is compared to the best solution of all islands. According to the
+ * {@link MigrationPolicy}, islands that are behind then receive a copy of the best solution found by another island.
+ * <p>
+ * <p>Termination criteria and listeners must be added to each island separately, see {@link #getIslands()}. Use
+ * <code>addTerminationCriterion(...)</code> rather than <code>setPrematureAlgorithmTermination(...)</code>, since the
+ * latter also removes the criterion that stops the remaining islands if one island fails or the search is interrupted.
+ */
+public class IslandVehicleRoutingAlgorithm {
+
+    public static class Builder {
+
+        private final VehicleRoutingProblem vrp;
+
+        private final VehicleRoutingAlgorithmFactory algorithmFactory;
+
+        private int noIslands = Runtime.getRuntime().availableProcessors();
+
+        private MigrationPolicy migrationPolicy = new PeriodicBestSolutionMigration(100);
+
+        private ExecutorService executorService = null;
+
+        public static Builder newInstance(VehicleRoutingProblem vrp, VehicleRoutingAlgorithmFactory algorithmFactory) {
+            return new Builder(vrp, algorithmFactory);
+        }
+
+        private Builder(VehicleRoutingProblem vrp, VehicleRoutingAlgorithmFactory algorithmFactory) {
+            this.vrp = vrp;
+            this.algorithmFactory = algorithmFactory;
+        }
+
+        /**
+         * Sets the number of islands. Default is the number of available processors.
+         *
+         * @param noIslands number of islands
+         * @return this builder
+         */
+        public Builder setNumberOfIslands(int noIslands) {
+            if (noIslands < 1) throw new IllegalArgumentException("number of islands must be greater than 0");
+            this.noIslands = noIslands;
+            return this;
+        }
+
+        /**
+         * Sets the migration policy. Default is {@link PeriodicBestSolutionMigration} with an interval of 100 iterations.
+         *
+         * @param migrationPolicy the migration policy
+         * @return this builder
+         */
+        public Builder setMigrationPolicy(MigrationPolicy migrationPolicy) {
+            this.migrationPolicy = migrationPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the executorService the islands run in. It should provide at least one thread per island since islands
+         * wait for nothing but their own iterations. If no executorService is set, one is set up and shut down internally.
+         *
+         * @param executorService the executorService
+         * @return this builder
+         */
+        public Builder setExecutorService(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        public IslandVehicleRoutingAlgorithm build() {
+            return new IslandVehicleRoutingAlgorithm(this);
+        }
+
+    }
+
+    private class Migration implements IterationEndsListener {
+
+        private final int island;
+
+        Migration(int island) {
+            this.island = island;
+        }
+
+        @Override
+        public void informIterationEnds(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+            VehicleRoutingProblemSolution migrant = exchangeBest(island, i, Solutions.bestOf(solutions));
+            if (migrant != null) {
+                logger.debug("island {} receives solution with costs {} at iteration {}", island, migrant.getCost(), i);
+                migrationPolicy.migrate(migrant, solutions);
+            }
+        }
+
+    }
+
+    private final static Logger logger = LoggerFactory.getLogger(IslandVehicleRoutingAlgorithm.class);
+
+    private final List<VehicleRoutingAlgorithm> islands;
+
+    private final MigrationPolicy migrationPolicy;
+
+    private final ExecutorService executorService;
+
+    private VehicleRoutingProblemSolution bestEver = null;
+
+    private int bestEverIsland = -1;
+
+    private volatile boolean cancelled = false;
+
+    private IslandVehicleRoutingAlgorithm(Builder builder) {
+        migrationPolicy = builder.migrationPolicy;
+        executorService = builder.executorService;
+        islands = new ArrayList<VehicleRoutingAlgorithm>(builder.noIslands);
+        for (int i = 0; i < builder.noIslands; i++) {
+            VehicleRoutingAlgorithm island = builder.algorithmFactory.createAlgorithm(builder.vrp);
+            if (islands.contains(island)) {
+                throw new IllegalStateException("algorithmFactory must create a new algorithm for each island");
+            }
+            island.addListener(new Migration(i));
+            island.addTerminationCriterion(new PrematureAlgorithmTermination() {
+
+                @Override
+                public boolean isPrematureBreak(SearchStrategy.DiscoveredSolution discoveredSolution) {
+                    return cancelled;
+                }
+
+            });
+            islands.add(island);
+        }
+    }
+
+    /**
+     * Returns the islands, e.g. to add termination criteria or listeners.
+     *
+     * @return unmodifiable list of islands
+     */
+    public List<VehicleRoutingAlgorithm> getIslands() {
+        return Collections.unmodifiableList(islands);
+    }
+
+    /**
+     * Sets max number of iterations each island runs.
+     *
+     * @param maxIterations max number of iterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        for (VehicleRoutingAlgorithm island : islands) {
+            island.setMaxIterations(maxIterations);
+        }
+    }
+
+    /**
+     * Returns the best solution found by all islands so far or null if there is none yet.
+     *
+     * @return best solution
+     */
+    public synchronized VehicleRoutingProblemSolution getBestEver() {
+        return bestEver;
+    }
+
+    /**
+     * Runs all islands in parallel and returns the solutions of all islands, including each island's best solution.
+     * <p>
+     * <p>If an island fails or the calling thread is interrupted, the remaining islands are stopped at the end of
+     * their current iteration.
+     *
+     * @return Collection<VehicleRoutingProblemSolution> the solutions
+     * @throws java.lang.IllegalStateException if interrupted while waiting for the islands
+     */
+    public Collection<VehicleRoutingProblemSolution> searchSolutions() {
+        logger.info("island algorithm starts: [noIslands={}][migrationPolicy={}]", islands.size(), migrationPolicy);
+        synchronized (this) {
+            bestEver = null;
+            bestEverIsland = -1;
+        }
+        ExecutorService es = executorService;
+        if (es == null) {
+            es = Executors.newFixedThreadPool(islands.size());
+        }
+        cancelled = false;
+        Collection<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>();
+        List<Future<Collection<VehicleRoutingProblemSolution>>> futures = new ArrayList<Future<Collection<VehicleRoutingProblemSolution>>>();
+        try {
+            for (final VehicleRoutingAlgorithm island : islands) {
+                futures.add(es.submit(new Callable<Collection<VehicleRoutingProblemSolution>>() {
+
+                    @Override
+                    public Collection<VehicleRoutingProblemSolution> call() throws Exception {
+                        return island.searchSolutions();
+                    }
+
+                }));
+            }
+            for (Future<Collection<VehicleRoutingProblemSolution>> future : futures) {
+                solutions.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for islands", e);
+        } catch (ExecutionException e) {
+            cancel(futures);
+            throw new RuntimeException(e);
+        } finally {
+            if (executorService == null) {
+                es.shutdown();
+            }
+        }
+        VehicleRoutingProblemSolution best = getBestEver();
+        logger.info("island algorithm ends: [bestEver={}]", best == null ? null : best.getCost());
+        return solutions;
+    }
+
+    /*
+     * stops the islands at the end of their current iteration and cancels those that have not started yet
+     */
+    private void cancel(List<Future<Collection<VehicleRoutingProblemSolution>>> futures) {
+        cancelled = true;
+        for (Future<Collection<VehicleRoutingProblemSolution>> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /*
+     * memorizes islandBest if it is the best solution of all islands and returns a copy of the best solution if the
+     * island should receive it
+     */
+    private synchronized VehicleRoutingProblemSolution exchangeBest(int island, int iteration, VehicleRoutingProblemSolution islandBest) {
+        if (islandBest == null) return null;
+        if (bestEver == null || islandBest.getCost() < bestEver.getCost()) {
+            bestEver = VehicleRoutingProblemSolution.copyOf(islandBest);
+            bestEverIsland = island;
+            return null;
+        }
+        if (bestEverIsland == island || !migrationPolicy.isMigrationIteration(island, iteration)) return null;
+        if (islandBest.getCost() <= bestEver.getCost()) return null;
+        return VehicleRoutingProblemSolution.copyOf(bestEver);
+    }
+
+}
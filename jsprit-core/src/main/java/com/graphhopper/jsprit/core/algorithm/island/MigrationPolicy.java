@@ -0,0 +1,49 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.island;
+
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+
+import java.util.Collection;
+
+
+/**
+ * Determines when and how an island of {@link IslandVehicleRoutingAlgorithm} receives the best solution found by
+ * the other islands.
+ */
+public interface MigrationPolicy {
+
+    /**
+     * Returns true if the island should receive the best solution of the other islands at the end of the specified
+     * iteration.
+     *
+     * @param island    the index of the island
+     * @param iteration the iteration that ends
+     * @return true if a migration should take place
+     */
+    public boolean isMigrationIteration(int island, int iteration);
+
+    /**
+     * Integrates the migrant into the solutions the island currently works with.
+     *
+     * @param migrant   a copy of the best solution found by another island, it is cheaper than all solutions of the island
+     * @param solutions the solutions of the island
+     */
+    public void migrate(VehicleRoutingProblemSolution migrant, Collection<VehicleRoutingProblemSolution> solutions);
+
+}
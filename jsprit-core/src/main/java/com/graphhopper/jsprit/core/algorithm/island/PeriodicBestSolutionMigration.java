@@ -0,0 +1,64 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.island;
+
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+
+import java.util.Collection;
+
+
+/**
+ * Migrates the best solution every <code>migrationInterval</code> iterations by replacing the worst solution of
+ * the island.
+ */
+public class PeriodicBestSolutionMigration implements MigrationPolicy {
+
+    private final int migrationInterval;
+
+    public PeriodicBestSolutionMigration(int migrationInterval) {
+        if (migrationInterval < 1) {
+            throw new IllegalArgumentException("migrationInterval must be greater than 0");
+        }
+        this.migrationInterval = migrationInterval;
+    }
+
+    @Override
+    public boolean isMigrationIteration(int island, int iteration) {
+        return iteration % migrationInterval == 0;
+    }
+
+    @Override
+    public void migrate(VehicleRoutingProblemSolution migrant, Collection<VehicleRoutingProblemSolution> solutions) {
+        VehicleRoutingProblemSolution worst = null;
+        for (VehicleRoutingProblemSolution solution : solutions) {
+            if (worst == null || solution.getCost() > worst.getCost()) {
+                worst = solution;
+            }
+        }
+        if (worst != null) {
+            solutions.remove(worst);
+        }
+        solutions.add(migrant);
+    }
+
+    @Override
+    public String toString() {
+        return "[name=periodicBestSolutionMigration][migrationInterval=" + migrationInterval + "]";
+    }
+
+}
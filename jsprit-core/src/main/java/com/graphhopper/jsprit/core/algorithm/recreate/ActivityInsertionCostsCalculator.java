@@ -53,4 +53,32 @@ public interface ActivityInsertionCostsCalculator {
 
     public double getCosts(JobInsertionContext iContext, TourActivity prevAct, TourActivity nextAct, TourActivity newAct, double depTimeAtPrevAct);
 
+    /**
+     * Returns true if the costs are never negative, i.e. inserting an activity never lowers the costs of a route. Then
+     * insertions of jobs with several activities are not extended once their partial costs exceed the best known costs.
+     * <p>
+     * <p>Default is false, since marginal costs are negative whenever waiting time is saved or transport costs do not
+     * satisfy the triangle inequality.
+     *
+     * @return true if costs are never negative
+     */
+    public default boolean hasNonNegativeCosts() {
+        return false;
+    }
+
+    /**
+     * Returns a lower bound of the costs of inserting a single activity into the route of the specified context, i.e.
+     * {@link #getCosts(JobInsertionContext, TourActivity, TourActivity, TourActivity, double)} never returns less for
+     * this context. Insertions of jobs with several activities are not extended once their partial costs plus this
+     * bound for each remaining activity exceed the best known costs.
+     * <p>
+     * <p>Default is 0 if costs are non-negative, and negative infinity, i.e. no bound, otherwise.
+     *
+     * @param iContext the insertion context
+     * @return a lower bound of the costs of a single activity insertion
+     */
+    public default double getCostsLowerBound(JobInsertionContext iContext) {
+        return hasNonNegativeCosts() ? 0. : Double.NEGATIVE_INFINITY;
+    }
+
 }
@@ -30,182 +30,96 @@ import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
 
 
 final class GeneralJobInsertionCalculator implements JobInsertionCostsCalculator {
 
-    static class ActAndIndex {
+    /**
+     * Per-thread working memory of the insertion search.
+     * <p>
+     * The search does not copy the route. It walks the activities of the existing route and tracks, per activity to
+     * insert (level), the index of the route activity it is inserted before (the end is at index route size) and the
+     * time window it is evaluated with. The activities to insert are duplicated once per job and their time windows are
+     * overwritten in place while positions are evaluated.
+     * <p>
+     * Only the cheapest complete insertion found so far is memorized. Its costs serve as the bound of the search.
+     */
+    static final class InsertionScratch {
 
-        private int index;
+        final Start start = new Start(null, 0.0, 0.0);
 
-        private TourActivity act;
+        final End end = new End(null, 0.0, 0.0);
 
-        public ActAndIndex(int index, TourActivity act) {
-            this.index = index;
-            this.act = act;
-        }
-    }
+        int size;
 
-    static class IndexedTourActivity {
+        JobActivity[] sources = new JobActivity[0];
 
-        int index;
+        JobActivity[] acts = new JobActivity[0];
 
-        TourActivity act;
+        TimeWindow[][] timeWindows = new TimeWindow[0][];
 
-        public IndexedTourActivity(int index, TourActivity act) {
-            this.index = index;
-            this.act = act;
-        }
+        ActivityContext[] activityContexts = new ActivityContext[0];
 
-        void setTourActivity(TourActivity act) {
-            this.act = act;
-        }
-    }
+        int[] positions = new int[0];
 
-    static class Route {
+        int[] timeWindowIndices = new int[0];
 
-        private IndexedTourActivity[] acts;
+        int[] bestPositions = new int[0];
 
-        private int[] successors;
+        int[] bestTimeWindowIndices = new int[0];
 
-        private int[] predecessors;
+        double bestCosts;
 
-        private IndexedTourActivity first;
+        boolean bestFound;
 
-        private List<IndexedTourActivity> actsToInsert;
+        boolean bounded;
 
-        public Route(List<IndexedTourActivity> currentRoute, List<IndexedTourActivity> toInsert) {
-            actsToInsert = toInsert;
-            successors = new int[currentRoute.size() + toInsert.size()];
-            predecessors = new int[currentRoute.size() + toInsert.size()];
-            for (int i = 0; i < successors.length; i++) {
-                successors[i] = -1;
-                predecessors[i] = -1;
-            }
-            first = currentRoute.get(0);
-            ini(currentRoute, toInsert);
-        }
+        double minActivityCosts;
 
-        private void ini(List<IndexedTourActivity> currentRoute, List<IndexedTourActivity> toInsert) {
-            acts = new IndexedTourActivity[currentRoute.size() + toInsert.size()];
-            IndexedTourActivity prevAct = currentRoute.get(0);
-            acts[prevAct.index] = prevAct;
-            for (int i = 1; i < currentRoute.size(); i++) {
-                acts[currentRoute.get(i).index] = currentRoute.get(i);
-                setSuccessor(prevAct, currentRoute.get(i));
-                setPredecessor(currentRoute.get(i), prevAct);
-                prevAct = currentRoute.get(i);
-            }
-            for (IndexedTourActivity actToInsert : toInsert) {
-                acts[actToInsert.index] = actToInsert;
+        void prepare(List<JobActivity> jobActivities, double bestKnownCosts) {
+            size = jobActivities.size();
+            if (sources.length < size) {
+                sources = Arrays.copyOf(sources, size);
+                acts = Arrays.copyOf(acts, size);
+                timeWindows = Arrays.copyOf(timeWindows, size);
+                activityContexts = Arrays.copyOf(activityContexts, size);
+                positions = new int[size];
+                timeWindowIndices = new int[size];
+                bestPositions = new int[size];
+                bestTimeWindowIndices = new int[size];
             }
-        }
-
-        public IndexedTourActivity getFirst() {
-            return first;
-        }
-
-        void addAfter(IndexedTourActivity toInsert, IndexedTourActivity after) {
-            IndexedTourActivity actAfterAfter = getSuccessor(after);
-            setSuccessor(after, toInsert);
-            setSuccessor(toInsert, actAfterAfter);
-            setPredecessor(toInsert, after);
-            setPredecessor(actAfterAfter, toInsert);
-        }
-
-        IndexedTourActivity addAfter(JobActivity toInsert_, IndexedTourActivity after) {
-            IndexedTourActivity toInsert = find(toInsert_);
-            toInsert.setTourActivity(toInsert_);
-            IndexedTourActivity actAfterAfter = getSuccessor(after);
-            setSuccessor(after, toInsert);
-            setSuccessor(toInsert, actAfterAfter);
-            setPredecessor(toInsert, after);
-            setPredecessor(actAfterAfter, toInsert);
-            return toInsert;
-        }
-
-        private IndexedTourActivity find(JobActivity toInsert_) {
-            for (IndexedTourActivity a : actsToInsert) {
-                if (a.act.getIndex() == toInsert_.getIndex()) {
-                    return a;
+            for (int i = 0; i < size; i++) {
+                JobActivity source = jobActivities.get(i);
+                if (sources[i] != source) {
+                    JobActivity act = (JobActivity) source.duplicate();
+                    sources[i] = source;
+                    acts[i] = act;
+                    timeWindows[i] = act.getTimeWindows().toArray(new TimeWindow[act.getTimeWindows().size()]);
+                }
+                if (activityContexts[i] == null) {
+                    activityContexts[i] = new ActivityContext();
                 }
             }
-            throw new IllegalStateException("should not be");
-        }
-
-
-        void setSuccessor(IndexedTourActivity act, IndexedTourActivity successor) {
-            if (successor == null) successors[act.index] = -1;
-            else successors[act.index] = successor.index;
-        }
-
-        void setPredecessor(IndexedTourActivity act, IndexedTourActivity predecessor) {
-            if (predecessor == null) predecessors[act.index] = -1;
-            else predecessors[act.index] = predecessor.index;
-        }
-
-        void remove(IndexedTourActivity toRemove) {
-            IndexedTourActivity predecessor = getPredecessor(toRemove);
-            IndexedTourActivity successor = getSuccessor(toRemove);
-            setSuccessor(toRemove, null);
-            setPredecessor(toRemove, null);
-            setSuccessor(predecessor, successor);
-            setPredecessor(successor, predecessor);
-        }
-
-        void remove(JobActivity toRemove_) {
-            IndexedTourActivity toRemove = find(toRemove_);
-            IndexedTourActivity predecessor = getPredecessor(toRemove);
-            IndexedTourActivity successor = getSuccessor(toRemove);
-            setSuccessor(toRemove, null);
-            setPredecessor(toRemove, null);
-            setSuccessor(predecessor, successor);
-            setPredecessor(successor, predecessor);
-        }
-
-        IndexedTourActivity getSuccessor(IndexedTourActivity act) {
-            if (hasSuccessor(act)) {
-                return acts[successors[act.index]];
-            }
-            return null;
-        }
-
-        IndexedTourActivity getPredecessor(IndexedTourActivity act) {
-            if (hasPredecessor(act)) {
-                return acts[predecessors[act.index]];
-            }
-            return null;
-        }
-
-        boolean hasSuccessor(IndexedTourActivity act) {
-            return successors[act.index] != -1;
+            bestCosts = bestKnownCosts;
+            bestFound = false;
         }
 
-        boolean hasPredecessor(IndexedTourActivity act) {
-            return predecessors[act.index] != -1;
+        void memorizeBest(double costs) {
+            bestCosts = costs;
+            bestFound = true;
+            System.arraycopy(positions, 0, bestPositions, 0, size);
+            System.arraycopy(timeWindowIndices, 0, bestTimeWindowIndices, 0, size);
         }
 
-        Route copy() {
-            return null;
+        JobActivity createBestActivity(int level) {
+            JobActivity act = (JobActivity) sources[level].duplicate();
+            TimeWindow timeWindow = timeWindows[level][bestTimeWindowIndices[level]];
+            act.setTheoreticalEarliestOperationStartTime(timeWindow.getStart());
+            act.setTheoreticalLatestOperationStartTime(timeWindow.getEnd());
+            return act;
         }
-
-        public ActAndIndex indexOf(TourActivity activity) {
-            int i = 0;
-            IndexedTourActivity prev = getFirst();
-            while (hasSuccessor(prev)) {
-                IndexedTourActivity succ = getSuccessor(prev);
-                if (succ.act.getIndex() == activity.getIndex()) {
-                    return new ActAndIndex(i + 1, succ.act);
-                }
-                i++;
-                prev = succ;
-            }
-            return null;
-        }
-
     }
 
     private static final Logger logger = LoggerFactory.getLogger(GeneralJobInsertionCalculator.class);
@@ -226,6 +140,8 @@ final class GeneralJobInsertionCalculator implements JobInsertionCostsCalculator
 
     private AdditionalAccessEgressCalculator additionalAccessEgressCalculator;
 
+    private final ThreadLocal<InsertionScratch> scratch = ThreadLocal.withInitial(InsertionScratch::new);
+
     public GeneralJobInsertionCalculator(VehicleRoutingTransportCosts routingCosts, VehicleRoutingActivityCosts activityCosts, ActivityInsertionCostsCalculator activityInsertionCostsCalculator, ConstraintManager constraintManager) {
         super();
         this.activityInsertionCostsCalculator = activityInsertionCostsCalculator;
@@ -247,12 +163,27 @@ final class GeneralJobInsertionCalculator implements JobInsertionCostsCalculator
     /**
      * Calculates the marginal cost of inserting job i locally. This is based on the
      * assumption that cost changes can entirely covered by only looking at the predecessors i-1 and its successor i+1.
+     * <p>
+     * Positions are evaluated directly on the activities of currentRoute; apart from the result, nothing is allocated per
+     * evaluated position.
+     * <p>
+     * Only insertions cheaper than bestKnownCosts are returned. If the activity insertion costs are bounded from below
+     * and the soft activity constraints declare non-negative costs, the search is a branch-and-bound over the positions
+     * of the job's activities: a partial insertion is not extended any further once its costs plus the lower bound of
+     * each remaining activity exceed the cheapest known insertion. Otherwise all positions are evaluated.
      */
     @Override
     public InsertionData getInsertionData(final VehicleRoute currentRoute, final Job jobToInsert, final Vehicle newVehicle, double newVehicleDepartureTime, final Driver newDriver, final double bestKnownCosts) {
+        InsertionScratch s = scratch.get();
+        s.prepare(jobToInsert.getActivityList().getAll(), bestKnownCosts);
         JobInsertionContext insertionContext = new JobInsertionContext(currentRoute, jobToInsert, newVehicle, newDriver, newVehicleDepartureTime);
-        List<JobActivity> actList = jobToInsert.getActivityList().getAllDuplicated();
-        insertionContext.getAssociatedActivities().addAll(actList);
+        double minActivityCosts = activityInsertionCostsCalculator.getCostsLowerBound(insertionContext);
+        s.bounded = minActivityCosts > Double.NEGATIVE_INFINITY && softActivityConstraint.hasNonNegativeCosts();
+        s.minActivityCosts = Math.min(0., minActivityCosts);
+        List<TourActivity> associatedActivities = insertionContext.getAssociatedActivities();
+        for (int i = 0; i < s.size; i++) {
+            associatedActivities.add(s.acts[i]);
+        }
         /*
         check hard route constraints
          */
@@ -264,93 +195,85 @@ final class GeneralJobInsertionCalculator implements JobInsertionCostsCalculator
          */
         double additionalICostsAtRouteLevel = softRouteConstraint.getCosts(insertionContext);
         additionalICostsAtRouteLevel += additionalAccessEgressCalculator.getCosts(insertionContext);
+        if (s.bounded && additionalICostsAtRouteLevel + s.size * s.minActivityCosts > s.bestCosts) {
+            return InsertionData.createEmptyInsertionData();
+        }
 
-        Start start = new Start(newVehicle.getStartLocation(), newVehicle.getEarliestDeparture(), newVehicle.getLatestArrival());
+        Start start = s.start;
+        start.setLocation(newVehicle.getStartLocation());
+        start.setTheoreticalEarliestOperationStartTime(newVehicle.getEarliestDeparture());
+        start.setTheoreticalLatestOperationStartTime(newVehicle.getLatestArrival());
         start.setEndTime(newVehicleDepartureTime);
-        End end = new End(newVehicle.getEndLocation(), 0.0, newVehicle.getLatestArrival());
-
-        List<TourActivity> newRoute = new ArrayList<>();
-        newRoute.add(start);
-        newRoute.addAll(currentRoute.getTourActivities().getActivities());
-        newRoute.add(end);
+        End end = s.end;
+        end.setLocation(newVehicle.getEndLocation());
+        end.setTheoreticalEarliestOperationStartTime(0.0);
+        end.setTheoreticalLatestOperationStartTime(newVehicle.getLatestArrival());
 
-        List<IndexedTourActivity> current = makeIndices(newRoute, 0);
-        List<IndexedTourActivity> actsToInsert = makeIndices(actList, current.size());
-        Route route = new Route(current, actsToInsert);
-
-        List<Integer> insertionIndices = new ArrayList<>();
-        List<InsertionData> bestData = calculateInsertionCosts(insertionContext, 0, route.getFirst(), route, actList, additionalICostsAtRouteLevel, newVehicleDepartureTime, insertionIndices);
-        if (bestData.isEmpty()) {
+        calculateInsertionCosts(insertionContext, s, 0, start, 0, currentRoute.getTourActivities().getActivities(), additionalICostsAtRouteLevel, newVehicleDepartureTime);
+        if (!s.bestFound) {
             return InsertionData.createEmptyInsertionData();
-        } else {
-            InsertionData best = InsertionData.createEmptyInsertionData();
-            for (InsertionData iD : bestData) {
-                if (iD.getInsertionCost() < best.getInsertionCost()) {
-                    best = iD;
-                }
-            }
-            return best;
         }
-    }
-
-    private List<IndexedTourActivity> makeIndices(List<? extends TourActivity> acts, int startIndex) {
-        int index = startIndex;
-        List<IndexedTourActivity> indexed = new ArrayList<>();
-        for (TourActivity act : acts) {
-            indexed.add(new IndexedTourActivity(index, act));
-            index++;
+        InsertionData best = new InsertionData(s.bestCosts, newVehicleDepartureTime, newVehicle, newDriver);
+        best.getEvents().add(new SwitchVehicle(currentRoute, newVehicle, newVehicleDepartureTime));
+        /*
+        activities are inserted last to first, thus the insertion index of each activity is the number of activities of the
+        existing route in front of it
+         */
+        for (int i = s.size - 1; i >= 0; i--) {
+            best.getEvents().add(new InsertActivity(currentRoute, newVehicle, s.createBestActivity(i), s.bestPositions[i]));
         }
-        return indexed;
+        return best;
     }
 
-    private List<InsertionData> calculateInsertionCosts(JobInsertionContext insertionContext, int startIndex, IndexedTourActivity startAct, Route route, List<JobActivity> actList, double additionalCosts, double departureTime, List<Integer> insertionIndeces) {
-        List<InsertionData> iData = new ArrayList<>();
+    /**
+     * Inserts the activity of the given level in front of each route activity from routeIndex on (and in front of the
+     * end), and recurses to the next level right after it. Complete insertions cheaper than the best so far are
+     * memorized in the scratch. If costs are bounded, partial insertions that cannot beat the best so far are pruned.
+     */
+    private void calculateInsertionCosts(JobInsertionContext insertionContext, InsertionScratch s, int level, TourActivity startAct, int routeIndex, List<TourActivity> routeActivities, double additionalCosts, double departureTime) {
+        JobActivity jobActivity = s.acts[level];
+        TimeWindow[] timeWindows = s.timeWindows[level];
+        if (timeWindows.length == 0) {
+            throw new IllegalStateException("at least a single time window must be set");
+        }
+        ActivityContext activityContext = s.activityContexts[level];
+        boolean lastLevel = level == s.size - 1;
+        int noActivities = routeActivities.size();
         double departureTimeAtPrevAct = departureTime;
-        IndexedTourActivity prevAct = startAct;
-        int index = startIndex;
-        while (route.hasSuccessor(prevAct)) {
-            JobActivity jobActivity = actList.get(0);
-            if (jobActivity.getTimeWindows().isEmpty()) {
-                throw new IllegalStateException("at least a single time window must be set");
-            }
-            for (TimeWindow timeWindow : jobActivity.getTimeWindows()) {
-                JobActivity copiedJobActivity = (JobActivity) jobActivity.duplicate();
-                copiedJobActivity.setTheoreticalEarliestOperationStartTime(timeWindow.getStart());
-                copiedJobActivity.setTheoreticalLatestOperationStartTime(timeWindow.getEnd());
+        TourActivity prevAct = startAct;
+        for (int index = routeIndex; index <= noActivities; index++) {
+            TourActivity nextAct = index < noActivities ? routeActivities.get(index) : s.end;
+            for (int tw = 0; tw < timeWindows.length; tw++) {
+                jobActivity.setTheoreticalEarliestOperationStartTime(timeWindows[tw].getStart());
+                jobActivity.setTheoreticalLatestOperationStartTime(timeWindows[tw].getEnd());
                 //Todo: add correct info, e.g. arrival and end time - assure functionality by unit tests - current no info set, but no unit test fails -> this should not be
-                ActivityContext activityContext = new ActivityContext();
-                activityContext.setInsertionIndex(index + 1);
-//                activityContext.setArrivalTime();
+                activityContext.setInsertionIndex(index + level + 1);
                 insertionContext.setActivityContext(activityContext);
-                HardActivityConstraint.ConstraintsStatus constraintStatus = hardActivityLevelConstraint.fulfilled(insertionContext, prevAct.act, copiedJobActivity, route.getSuccessor(prevAct).act, departureTimeAtPrevAct);
+                HardActivityConstraint.ConstraintsStatus constraintStatus = hardActivityLevelConstraint.fulfilled(insertionContext, prevAct, jobActivity, nextAct, departureTimeAtPrevAct);
                 if (constraintStatus.equals(HardActivityConstraint.ConstraintsStatus.NOT_FULFILLED)) {
                     continue;
                 } else if (constraintStatus.equals(HardActivityConstraint.ConstraintsStatus.NOT_FULFILLED_BREAK)) {
-                    return iData;
+                    return;
                 }
-                double miscCosts = softActivityConstraint.getCosts(insertionContext, prevAct.act, copiedJobActivity, route.getSuccessor(prevAct).act, departureTimeAtPrevAct);
-                double c = calculate(insertionContext, prevAct.act, copiedJobActivity, route.getSuccessor(prevAct).act, departureTimeAtPrevAct);
-                IndexedTourActivity toInsert = route.addAfter(copiedJobActivity, prevAct);
+                double miscCosts = softActivityConstraint.getCosts(insertionContext, prevAct, jobActivity, nextAct, departureTimeAtPrevAct);
+                double c = calculate(insertionContext, prevAct, jobActivity, nextAct, departureTimeAtPrevAct);
                 double totalCosts = additionalCosts + c + miscCosts;
-                if (actList.size() == 1) {
-                    InsertionData iD = new InsertionData(totalCosts, insertionContext.getNewDepTime(), insertionContext.getNewVehicle(), insertionContext.getNewDriver());
-                    iD.getEvents().add(new SwitchVehicle(insertionContext.getRoute(), insertionContext.getNewVehicle(), insertionContext.getNewDepTime()));
-                    iD.getEvents().addAll(getInsertActivityEvents(insertionContext, route));
-                    iData.add(iD);
-
-                } else {
-                    double departureTimeFromJobActivity = getDeparture(prevAct.act, copiedJobActivity, departureTimeAtPrevAct, insertionContext.getNewDriver(), insertionContext.getNewVehicle());
-                    insertionIndeces.add(index + 1);
-                    List<InsertionData> insertions = calculateInsertionCosts(insertionContext, index + 1, toInsert, route, actList.subList(1, actList.size()), totalCosts, departureTimeFromJobActivity, insertionIndeces);
-                    iData.addAll(insertions);
+                s.positions[level] = index;
+                s.timeWindowIndices[level] = tw;
+                if (lastLevel) {
+                    if (totalCosts < s.bestCosts) {
+                        s.memorizeBest(totalCosts);
+                    }
+                } else if (!s.bounded || totalCosts + (s.size - level - 1) * s.minActivityCosts <= s.bestCosts) {
+                    double departureTimeFromJobActivity = getDeparture(prevAct, jobActivity, departureTimeAtPrevAct, insertionContext.getNewDriver(), insertionContext.getNewVehicle());
+                    calculateInsertionCosts(insertionContext, s, level + 1, jobActivity, index, routeActivities, totalCosts, departureTimeFromJobActivity);
                 }
-                route.remove(toInsert);
             }
-            departureTimeAtPrevAct = getDeparture(prevAct.act, route.getSuccessor(prevAct).act, departureTimeAtPrevAct, insertionContext.getNewDriver(), insertionContext.getNewVehicle());
-            prevAct = route.getSuccessor(prevAct);
-            index++;
+            if (index < noActivities) {
+                departureTimeAtPrevAct = getDeparture(prevAct, nextAct, departureTimeAtPrevAct, insertionContext.getNewDriver(), insertionContext.getNewVehicle());
+                prevAct = nextAct;
+            }
         }
-        return iData;
     }
 
     private double getDeparture(TourActivity prevAct, TourActivity activity, double departureTimeAtPrevAct, Driver driver, Vehicle vehicle) {
@@ -359,17 +282,6 @@ final class GeneralJobInsertionCalculator implements JobInsertionCostsCalculator
         return actStart + activityCosts.getActivityDuration(activity, actArrTime, driver, vehicle);
     }
 
-    private Collection<? extends Event> getInsertActivityEvents(JobInsertionContext insertionContext, Route modifiedRoute) {
-        List<InsertActivity> insertActivities = new ArrayList<>();
-        for (int i = insertionContext.getAssociatedActivities().size() - 1; i >= 0; i--) {
-            TourActivity activity = insertionContext.getAssociatedActivities().get(i);
-            ActAndIndex actAndIndex = modifiedRoute.indexOf(activity);
-            insertActivities.add(new InsertActivity(insertionContext.getRoute(), insertionContext.getNewVehicle(),
-                actAndIndex.act, actAndIndex.index - i - 1));
-        }
-        return insertActivities;
-    }
-
     private double calculate(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double departureTimeAtPrevAct) {
         return activityInsertionCostsCalculator.getCosts(iFacts, prevAct, nextAct, newAct, departureTimeAtPrevAct);
 
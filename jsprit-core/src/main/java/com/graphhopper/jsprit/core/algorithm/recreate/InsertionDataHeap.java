@@ -0,0 +1,215 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of the insertion data of a single job, ordered by insertion costs and, for equal costs, by the order
+ * in which they were added.
+ * <p>
+ * Costs, route slots and route versions are kept in parallel primitive arrays that only grow, so refilling the heap does
+ * not allocate. While scanning, entries can be put aside ({@link #putAside()}) and are returned afterwards by
+ * {@link #restore(RouteSlots)}, which drops outdated entries on the way.
+ */
+final class InsertionDataHeap {
+
+    private double[] costs;
+
+    private int[] order;
+
+    private int[] routeSlots;
+
+    private int[] versions;
+
+    private InsertionData[] data;
+
+    private int size;
+
+    private int nuPutAside;
+
+    private int counter;
+
+    private int compactionSize = 16;
+
+    InsertionDataHeap() {
+        this(8);
+    }
+
+    InsertionDataHeap(int initialCapacity) {
+        costs = new double[initialCapacity];
+        order = new int[initialCapacity];
+        routeSlots = new int[initialCapacity];
+        versions = new int[initialCapacity];
+        data = new InsertionData[initialCapacity];
+    }
+
+    void add(InsertionData iData, int routeSlot, int version) {
+        if (nuPutAside > 0) throw new IllegalStateException("cannot add while entries are put aside");
+        if (size == costs.length) grow();
+        costs[size] = iData.getInsertionCost();
+        order[size] = counter++;
+        routeSlots[size] = routeSlot;
+        versions[size] = version;
+        data[size] = iData;
+        siftUp(size++);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double peekCosts() {
+        return costs[0];
+    }
+
+    InsertionData peekInsertionData() {
+        return data[0];
+    }
+
+    int peekRouteSlot() {
+        return routeSlots[0];
+    }
+
+    int peekVersion() {
+        return versions[0];
+    }
+
+    /**
+     * Removes the cheapest entry from the heap, but keeps it until the next {@link #restore(RouteSlots)}.
+     */
+    void putAside() {
+        swap(0, size - 1);
+        size--;
+        nuPutAside++;
+        siftDown(0);
+    }
+
+    /**
+     * Returns all entries put aside to the heap, except those that are outdated.
+     */
+    void restore(RouteSlots slots) {
+        int end = size + nuPutAside;
+        nuPutAside = 0;
+        for (int i = size; i < end; i++) {
+            if (versions[i] != slots.getVersion(routeSlots[i])) continue;
+            move(i, size);
+            siftUp(size++);
+        }
+        Arrays.fill(data, size, end, null);
+    }
+
+    /**
+     * Drops all outdated entries if the heap has doubled in size since the last time this has been done. This keeps the
+     * heap small without scanning it in every update round.
+     */
+    void compact(RouteSlots slots) {
+        if (size < compactionSize) return;
+        removeOutdated(slots);
+        compactionSize = Math.max(16, 2 * size);
+    }
+
+    /**
+     * Drops all outdated entries.
+     */
+    void removeOutdated(RouteSlots slots) {
+        int end = size;
+        size = 0;
+        for (int i = 0; i < end; i++) {
+            if (versions[i] != slots.getVersion(routeSlots[i])) continue;
+            move(i, size++);
+        }
+        Arrays.fill(data, size, end, null);
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(data, 0, size + nuPutAside, null);
+        size = 0;
+        nuPutAside = 0;
+        compactionSize = 16;
+    }
+
+    private boolean less(int i, int j) {
+        return costs[i] < costs[j] || (costs[i] == costs[j] && order[i] < order[j]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && less(left, smallest)) smallest = left;
+            if (right < size && less(right, smallest)) smallest = right;
+            if (smallest == i) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void move(int from, int to) {
+        if (from == to) return;
+        costs[to] = costs[from];
+        order[to] = order[from];
+        routeSlots[to] = routeSlots[from];
+        versions[to] = versions[from];
+        data[to] = data[from];
+    }
+
+    private void swap(int i, int j) {
+        double c = costs[i];
+        costs[i] = costs[j];
+        costs[j] = c;
+        int o = order[i];
+        order[i] = order[j];
+        order[j] = o;
+        int s = routeSlots[i];
+        routeSlots[i] = routeSlots[j];
+        routeSlots[j] = s;
+        int v = versions[i];
+        versions[i] = versions[j];
+        versions[j] = v;
+        InsertionData d = data[i];
+        data[i] = data[j];
+        data[j] = d;
+    }
+
+    private void grow() {
+        int capacity = costs.length * 2;
+        costs = Arrays.copyOf(costs, capacity);
+        order = Arrays.copyOf(order, capacity);
+        routeSlots = Arrays.copyOf(routeSlots, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        data = Arrays.copyOf(data, capacity);
+    }
+}
@@ -20,12 +20,7 @@ package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
@@ -38,8 +33,56 @@ import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
  */
 class InsertionDataUpdater {
 
-    static boolean update(boolean addAllAvailable, Set<String> initialVehicleIds, VehicleFleetManager fleetManager, JobInsertionCostsCalculator insertionCostsCalculator, TreeSet<VersionedInsertionData> insertionDataSet, int updateRound, Job unassignedJob, Collection<VehicleRoute> routes) {
-        for (VehicleRoute route : routes) {
+    /**
+     * Best and second best insertion of a job found in its heap, i.e. in existing routes. Second best is always in
+     * another route than best. Instances are meant to be reused.
+     */
+    static class BestAndSecondBest {
+
+        private InsertionData best;
+
+        private VehicleRoute bestRoute;
+
+        private InsertionData secondBest;
+
+        private VehicleRoute secondBestRoute;
+
+        InsertionData getBest() {
+            return best;
+        }
+
+        VehicleRoute getBestRoute() {
+            return bestRoute;
+        }
+
+        InsertionData getSecondBest() {
+            return secondBest;
+        }
+
+        VehicleRoute getSecondBestRoute() {
+            return secondBestRoute;
+        }
+
+        void clear() {
+            best = null;
+            bestRoute = null;
+            secondBest = null;
+            secondBestRoute = null;
+        }
+    }
+
+    /**
+     * Calculates the insertion data of unassignedJob for the routes in the slots [fromSlot, toSlot) and adds them to
+     * heap with version updateRound.
+     *
+     * @return the lowest insertion costs added to heap (Double.MAX_VALUE if nothing was added)
+     */
+    static double update(boolean addAllAvailable, Set<String> initialVehicleIds, VehicleFleetManager fleetManager, JobInsertionCostsCalculator insertionCostsCalculator,
+            InsertionDataHeap heap, int updateRound, Job unassignedJob, RouteSlots routeSlots, int fromSlot, int toSlot) {
+        heap.compact(routeSlots);
+        double lowestCosts = Double.MAX_VALUE;
+        for (int slot = fromSlot; slot < toSlot; slot++) {
+            VehicleRoute route = routeSlots.getRoute(slot);
             Collection<Vehicle> relevantVehicles = new ArrayList<>();
             if (!(route.getVehicle() instanceof VehicleImpl.NoVehicle)) {
                 relevantVehicles.add(route.getVehicle());
@@ -55,10 +98,11 @@ class InsertionDataUpdater {
                 if (iData instanceof InsertionData.NoInsertionFound) {
                     continue;
                 }
-                insertionDataSet.add(new VersionedInsertionData(iData, updateRound, route));
+                heap.add(iData, slot, updateRound);
+                lowestCosts = Math.min(lowestCosts, iData.getInsertionCost());
             }
         }
-        return true;
+        return lowestCosts;
     }
 
 
@@ -69,107 +113,134 @@ class InsertionDataUpdater {
         return null;
     }
 
-    static Comparator<VersionedInsertionData> getComparator() {
-        return (o1, o2) -> {
-            if (o1.getiData().getInsertionCost() < o2.getiData().getInsertionCost()) return -1;
-            return 1;
-        };
-    }
-
+    /**
+     * Scores the unassigned jobs jobs[unassigned[0]], ..., jobs[unassigned[nuUnassigned - 1]] and returns the one with
+     * the highest score. Jobs that cannot be inserted at all are marked in rejected.
+     */
     static ScoredJob getBest(boolean switchAllowed, Set<String> initialVehicleIds, VehicleFleetManager fleetManager,
             JobInsertionCostsCalculator insertionCostsCalculator, ScoringFunction scoringFunction,
-            Map<String, TreeSet<VersionedInsertionData>> priorityQueues, Map<VehicleRoute, Integer> updates,
-            List<Job> unassignedJobList, List<Job> badJobs) {
+            Job[] jobs, InsertionDataHeap[] heaps, int[] unassigned, int nuUnassigned, RouteSlots routeSlots, boolean[] rejected) {
         ScoredJob bestScoredJob = null;
-        for (Job j : unassignedJobList) {
-            VehicleRoute bestRoute = null;
-            InsertionData best = null;
-            InsertionData secondBest = null;
-            TreeSet<VersionedInsertionData> priorityQueue = priorityQueues.get(j.getId());
-            Iterator<VersionedInsertionData> iterator = priorityQueue.iterator();
-            while (iterator.hasNext()) {
-                VersionedInsertionData versionedIData = iterator.next();
-                if (bestRoute != null) {
-                    if (versionedIData.getRoute() == bestRoute) {
+        BestAndSecondBest alternatives = new BestAndSecondBest();
+        for (int i = 0; i < nuUnassigned; i++) {
+            int index = unassigned[i];
+            Job j = jobs[index];
+            getBestAndSecondBest(switchAllowed, initialVehicleIds, fleetManager, heaps[index], routeSlots, alternatives);
+            VehicleRoute emptyRoute = VehicleRoute.emptyRoute();
+            InsertionData iData = insertionCostsCalculator.getInsertionData(emptyRoute, j, null, -1, null, Double.MAX_VALUE);
+            ScoredJob scoredJob = score(j, alternatives, iData, emptyRoute, scoringFunction);
+            if (scoredJob == null) {
+                rejected[index] = true;
+                continue;
+            }
+            if (bestScoredJob == null) {
+                bestScoredJob = scoredJob;
+            } else if (scoredJob.getScore() > bestScoredJob.getScore()) {
+                bestScoredJob = scoredJob;
+            }
+        }
+        return bestScoredJob;
+    }
+
+    /**
+     * Determines the best and second best valid insertion in heap and stores them in result. An insertion is valid if
+     * it belongs to the current version of its route and its vehicle may be used. Insertions with a vehicle that got
+     * locked are switched to an available vehicle of the same type. Outdated insertions met on the way are dropped.
+     */
+    static void getBestAndSecondBest(boolean switchAllowed, Set<String> initialVehicleIds, VehicleFleetManager fleetManager,
+            InsertionDataHeap heap, RouteSlots routeSlots, BestAndSecondBest result) {
+        result.clear();
+        while (!heap.isEmpty()) {
+            int slot = heap.peekRouteSlot();
+            if (heap.peekVersion() != routeSlots.getVersion(slot)) {
+                heap.putAside();
+                continue;
+            }
+            VehicleRoute route = routeSlots.getRoute(slot);
+            InsertionData iData = heap.peekInsertionData();
+            heap.putAside();
+            if (route == result.bestRoute) {
+                continue;
+            }
+            if (!(route.getVehicle() instanceof VehicleImpl.NoVehicle)) {
+                if (iData.getSelectedVehicle() != route.getVehicle()) {
+                    if (!switchAllowed) {
                         continue;
                     }
-                }
-                if (versionedIData.getiData() instanceof InsertionData.NoInsertionFound) {
-                    continue;
-                }
-                if (!(versionedIData.getRoute().getVehicle() instanceof VehicleImpl.NoVehicle)) {
-                    if (versionedIData.getiData().getSelectedVehicle() != versionedIData.getRoute().getVehicle()) {
-                        if (!switchAllowed) {
-                            continue;
-                        }
-                        if (initialVehicleIds.contains(versionedIData.getRoute().getVehicle().getId())) {
-                            continue;
-                        }
-                    }
-                }
-                if (versionedIData.getiData().getSelectedVehicle() != versionedIData.getRoute().getVehicle()) {
-                    if (fleetManager.isLocked(versionedIData.getiData().getSelectedVehicle())) {
-                        Vehicle available = fleetManager.getAvailableVehicle(versionedIData.getiData().getSelectedVehicle().getVehicleTypeIdentifier());
-                        if (available != null) {
-                            InsertionData oldData = versionedIData.getiData();
-                            InsertionData newData = new InsertionData(oldData.getInsertionCost(), oldData.getVehicleDepartureTime(), available, oldData.getSelectedDriver());
-                            for (Event e : oldData.getEvents()) {
-                                if (e instanceof SwitchVehicle) {
-                                    newData.getEvents().add(new SwitchVehicle(versionedIData.getRoute(), available, oldData.getVehicleDepartureTime()));
-                                } else {
-                                    newData.getEvents().add(e);
-                                }
-                            }
-                            versionedIData = new VersionedInsertionData(newData, versionedIData.getVersion(), versionedIData.getRoute());
-                        } else {
-                            continue;
-                        }
+                    if (initialVehicleIds.contains(route.getVehicle().getId())) {
+                        continue;
                     }
                 }
-                int currentDataVersion = updates.get(versionedIData.getRoute());
-                if (versionedIData.getVersion() == currentDataVersion) {
-                    if (best == null) {
-                        best = versionedIData.getiData();
-                        bestRoute = versionedIData.getRoute();
+            }
+            if (iData.getSelectedVehicle() != route.getVehicle()) {
+                if (fleetManager.isLocked(iData.getSelectedVehicle())) {
+                    Vehicle available = fleetManager.getAvailableVehicle(iData.getSelectedVehicle().getVehicleTypeIdentifier());
+                    if (available != null) {
+                        iData = switchVehicle(iData, route, available);
                     } else {
-                        secondBest = versionedIData.getiData();
-                        break;
+                        continue;
                     }
                 }
             }
-            VehicleRoute emptyRoute = VehicleRoute.emptyRoute();
-            InsertionData iData = insertionCostsCalculator.getInsertionData(emptyRoute, j, null, -1, null, Double.MAX_VALUE);
-            if (!(iData instanceof InsertionData.NoInsertionFound)) {
-                if (best == null) {
-                    best = iData;
-                    bestRoute = emptyRoute;
-                } else if (iData.getInsertionCost() < best.getInsertionCost()) {
-                    secondBest = best;
-                    best = iData;
-                    bestRoute = emptyRoute;
-                } else if (secondBest == null || (iData.getInsertionCost() < secondBest.getInsertionCost())) {
-                    secondBest = iData;
-                }
-            }
-            if (best == null) {
-                badJobs.add(j);
-                continue;
+            if (result.best == null) {
+                result.best = iData;
+                result.bestRoute = route;
+            } else {
+                result.secondBest = iData;
+                result.secondBestRoute = route;
+                break;
             }
-            double score = score(j, best, secondBest, scoringFunction);
-            ScoredJob scoredJob;
-            if (bestRoute == emptyRoute) {
-                scoredJob = new ScoredJob(j, score, best, bestRoute, true);
+        }
+        heap.restore(routeSlots);
+    }
+
+    /**
+     * Returns a copy of oldData that switches route to the vehicle available instead of the one selected in oldData.
+     */
+    static InsertionData switchVehicle(InsertionData oldData, VehicleRoute route, Vehicle available) {
+        InsertionData newData = new InsertionData(oldData.getInsertionCost(), oldData.getVehicleDepartureTime(), available, oldData.getSelectedDriver());
+        for (Event e : oldData.getEvents()) {
+            if (e instanceof SwitchVehicle) {
+                newData.getEvents().add(new SwitchVehicle(route, available, oldData.getVehicleDepartureTime()));
             } else {
-                scoredJob = new ScoredJob(j, score, best, bestRoute, false);
+                newData.getEvents().add(e);
             }
+        }
+        return newData;
+    }
 
-            if (bestScoredJob == null) {
-                bestScoredJob = scoredJob;
-            } else if (scoredJob.getScore() > bestScoredJob.getScore()) {
-                bestScoredJob = scoredJob;
+    /**
+     * Scores a job based on the alternatives found in existing routes and the insertion into newRoute, which is an empty
+     * route. Returns null if there is no insertion at all.
+     */
+    static ScoredJob score(Job j, BestAndSecondBest alternatives, InsertionData newRouteData, VehicleRoute newRoute, ScoringFunction scoringFunction) {
+        VehicleRoute bestRoute = null;
+        InsertionData best = null;
+        InsertionData secondBest = null;
+        if (alternatives.best != null) {
+            best = alternatives.best;
+            bestRoute = alternatives.bestRoute;
+        }
+        if (alternatives.secondBest != null) {
+            secondBest = alternatives.secondBest;
+        }
+        if (newRouteData != null && !(newRouteData instanceof InsertionData.NoInsertionFound)) {
+            if (best == null) {
+                best = newRouteData;
+                bestRoute = newRoute;
+            } else if (newRouteData.getInsertionCost() < best.getInsertionCost()) {
+                secondBest = best;
+                best = newRouteData;
+                bestRoute = newRoute;
+            } else if (secondBest == null || (newRouteData.getInsertionCost() < secondBest.getInsertionCost())) {
+                secondBest = newRouteData;
             }
         }
-        return bestScoredJob;
+        if (best == null) {
+            return null;
+        }
+        double score = score(j, best, secondBest, scoringFunction);
+        return new ScoredJob(j, score, best, bestRoute, bestRoute == newRoute);
     }
 
     static double score(Job unassignedJob, InsertionData best, InsertionData secondBest, ScoringFunction scoringFunction) {
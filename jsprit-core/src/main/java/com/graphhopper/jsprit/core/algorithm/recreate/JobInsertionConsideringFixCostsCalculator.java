@@ -56,7 +56,7 @@ final class JobInsertionConsideringFixCostsCalculator implements JobInsertionCos
         if (fixcost_contribution > bestKnownPrice) {
             return InsertionData.createEmptyInsertionData();
         }
-        InsertionData iData = standardServiceInsertion.getInsertionData(currentRoute, jobToInsert, newVehicle, newVehicleDepartureTime, newDriver, bestKnownPrice);
+        InsertionData iData = standardServiceInsertion.getInsertionData(currentRoute, jobToInsert, newVehicle, newVehicleDepartureTime, newDriver, bestKnownPrice - fixcost_contribution);
         if (iData instanceof InsertionData.NoInsertionFound) {
             return iData;
         }
@@ -19,9 +19,12 @@
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.WaitingTimeCosts;
 import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.AbstractActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.DeliveryActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
@@ -50,11 +53,14 @@ class LocalActivityInsertionCostsCalculator implements ActivityInsertionCostsCal
 
     private RouteAndActivityStateGetter stateManager;
 
+    private StateManager typedStateManager;
+
     public LocalActivityInsertionCostsCalculator(VehicleRoutingTransportCosts routingCosts, VehicleRoutingActivityCosts actCosts, RouteAndActivityStateGetter stateManager) {
         super();
         this.routingCosts = routingCosts;
         activityCosts = actCosts;
         this.stateManager = stateManager;
+        if (stateManager instanceof StateManager) typedStateManager = (StateManager) stateManager;
     }
 
     @Override
@@ -93,10 +99,7 @@ class LocalActivityInsertionCostsCalculator implements ActivityInsertionCostsCal
             double actCost_nextAct = activityCosts.getActivityCost(nextAct, arrTime_nextAct, iFacts.getRoute().getDriver(), iFacts.getRoute().getVehicle());
 
             double endTimeDelay_nextAct = Math.max(0, endTime_nextAct_new - endTime_nextAct_old);
-            Double futureWaiting = stateManager.getActivityState(nextAct, iFacts.getRoute().getVehicle(), InternalStates.FUTURE_WAITING, Double.class);
-            if (futureWaiting == null) {
-                futureWaiting = 0.;
-            }
+            double futureWaiting = getFutureWaiting(nextAct, iFacts.getRoute().getVehicle());
             double waitingTime_savings_timeUnit = Math.min(futureWaiting, endTimeDelay_nextAct);
             double waitingTime_savings = waitingTime_savings_timeUnit * iFacts.getRoute().getVehicle().getType().getVehicleCostParams().perWaitingTimeUnit;
             oldCosts += solutionCompletenessRatio * activityCostsWeight * waitingTime_savings;
@@ -105,6 +108,38 @@ class LocalActivityInsertionCostsCalculator implements ActivityInsertionCostsCal
         return totalCosts - oldCosts;
     }
 
+    /**
+     * Bounds the costs of inserting an activity, provided the transport costs of a vehicle satisfy the triangle
+     * inequality and activity costs are {@link WaitingTimeCosts}. Then the only negative contributions are the waiting
+     * costs saved at the next activity and behind it, which never exceed the waiting costs of the whole route. Without
+     * waiting costs, or into an empty route, costs are non-negative.
+     * <p>
+     * <p>If the route is operated by another vehicle than the new one, costs are not bounded.
+     */
+    @Override
+    public double getCostsLowerBound(JobInsertionContext iFacts) {
+        if (!(activityCosts instanceof WaitingTimeCosts)) return Double.NEGATIVE_INFINITY;
+        VehicleRoute route = iFacts.getRoute();
+        if (route.isEmpty()) return 0.;
+        if (route.getVehicle() != iFacts.getNewVehicle()) return Double.NEGATIVE_INFINITY;
+        double perWaitingTimeUnit = route.getVehicle().getType().getVehicleCostParams().perWaitingTimeUnit;
+        if (perWaitingTimeUnit == 0.) return 0.;
+        double routeWaiting = 0.;
+        for (TourActivity act : route.getActivities()) {
+            routeWaiting += Math.max(0., act.getTheoreticalEarliestOperationStartTime() - act.getArrTime());
+        }
+        return -solutionCompletenessRatio * activityCostsWeight * perWaitingTimeUnit * routeWaiting;
+    }
+
+    private double getFutureWaiting(TourActivity act, Vehicle vehicle) {
+        if (typedStateManager != null) {
+            double futureWaiting = typedStateManager.getDoubleActivityState(act, vehicle, InternalStates.FUTURE_WAITING);
+            return Double.isNaN(futureWaiting) ? 0. : futureWaiting;
+        }
+        Double futureWaiting = stateManager.getActivityState(act, vehicle, InternalStates.FUTURE_WAITING, Double.class);
+        return futureWaiting == null ? 0. : futureWaiting;
+    }
+
     private boolean toDepot(Vehicle newVehicle) {
         return newVehicle.isReturnToDepot();
     }
@@ -25,9 +25,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 
@@ -48,6 +46,10 @@ import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
  * between secondBest and firstBest, plus additional scoring variables that can defined in this.ScoringFunction.
  * The idea is that if the cost of the secondBest alternative is way higher than the first best, it seems to be important to insert this
  * customer immediatedly. If difference is not that high, it might not impact solution if this customer is inserted later.
+ * <p>
+ * <p>The insertion data of each job is kept in a primitive heap indexed by the position of the job in the list of
+ * unassigned jobs, and routes are identified by slots whose version tells whether insertion data is outdated. The heaps
+ * are reused by subsequent runs.
  *
  * @author stefan schroeder
  */
@@ -70,6 +72,8 @@ public class RegretInsertionConcurrentFast extends AbstractInsertionStrategy {
 
     private HashMap<String, DependencyType> dependencyTypes = null;
 
+    private InsertionDataHeap[] heaps = new InsertionDataHeap[0];
+
 
     /**
      * Sets the scoring function.
@@ -145,77 +149,89 @@ public class RegretInsertionConcurrentFast extends AbstractInsertionStrategy {
             }
         }
 
-        List<Job> jobs = new ArrayList<>(unassignedJobs);
-        Map<String, TreeSet<VersionedInsertionData>> priorityQueues = new HashMap<>(vrp.getJobs().values().size() + 2);
+        Job[] jobs = unassignedJobs.toArray(new Job[0]);
+        int[] unassigned = new int[jobs.length];
+        for (int i = 0; i < jobs.length; i++) {
+            unassigned[i] = i;
+        }
+        int nuUnassigned = jobs.length;
+        boolean[] rejected = new boolean[jobs.length];
+        InsertionDataHeap[] heaps = getHeaps(jobs.length);
+        RouteSlots routeSlots = new RouteSlots(routes);
         VehicleRoute lastModified = null;
         boolean firstRun = true;
         int updateRound = 0;
-        Map<VehicleRoute, Integer> updates = new HashMap<>();
-        while (!jobs.isEmpty()) {
-            List<Job> unassignedJobList = new ArrayList<>(jobs);
-            List<Job> badJobList = new ArrayList<>();
+        while (nuUnassigned > 0) {
             if (!firstRun && lastModified == null) throw new IllegalStateException("ho. this must not be.");
-            updateInsertionData(priorityQueues, routes, unassignedJobList, updateRound, firstRun, lastModified, updates);
+            updateInsertionData(heaps, routeSlots, jobs, unassigned, nuUnassigned, updateRound, firstRun, lastModified);
             if (firstRun) {
                 firstRun = false;
             }
             updateRound++;
-            ScoredJob bestScoredJob = InsertionDataUpdater.getBest(switchAllowed, initialVehicleIds, fleetManager, insertionCostsCalculator, scoringFunction, priorityQueues, updates, unassignedJobList, badJobList);
+            ScoredJob bestScoredJob = InsertionDataUpdater.getBest(switchAllowed, initialVehicleIds, fleetManager, insertionCostsCalculator, scoringFunction,
+                    jobs, heaps, unassigned, nuUnassigned, routeSlots, rejected);
             if (bestScoredJob != null) {
                 if (bestScoredJob.isNewRoute()) {
                     routes.add(bestScoredJob.getRoute());
+                    routeSlots.add(bestScoredJob.getRoute());
                 }
                 insertJob(bestScoredJob.getJob(), bestScoredJob.getInsertionData(), bestScoredJob.getRoute());
-                jobs.remove(bestScoredJob.getJob());
                 lastModified = bestScoredJob.getRoute();
             } else {
                 lastModified = null;
             }
-            for (Job bad : badJobList) {
-                jobs.remove(bad);
-                badJobs.add(bad);
+            int remaining = 0;
+            for (int i = 0; i < nuUnassigned; i++) {
+                int index = unassigned[i];
+                if (rejected[index]) {
+                    badJobs.add(jobs[index]);
+                } else if (bestScoredJob == null || jobs[index] != bestScoredJob.getJob()) {
+                    unassigned[remaining++] = index;
+                }
             }
+            nuUnassigned = remaining;
         }
         return badJobs;
     }
 
-    private void updateInsertionData(final Map<String, TreeSet<VersionedInsertionData>> priorityQueues,
-            final Collection<VehicleRoute> routes, List<Job> unassignedJobList, final int updateRound,
-            final boolean firstRun, final VehicleRoute lastModified, Map<VehicleRoute, Integer> updates) {
-        List<Callable<Boolean>> tasks = new ArrayList<>();
-        boolean updatedAllRoutes = false;
-        for (final Job unassignedJob : unassignedJobList) {
-            String unassignedJobId = unassignedJob.getId();
-            if (priorityQueues.get(unassignedJobId) == null) {
-                priorityQueues.put(unassignedJobId, new TreeSet<>(InsertionDataUpdater.getComparator()));
+    private InsertionDataHeap[] getHeaps(int nuJobs) {
+        if (heaps.length < nuJobs) {
+            int oldLength = heaps.length;
+            heaps = Arrays.copyOf(heaps, Math.max(nuJobs, 2 * oldLength));
+            for (int i = oldLength; i < heaps.length; i++) {
+                heaps[i] = new InsertionDataHeap();
             }
+        }
+        for (int i = 0; i < nuJobs; i++) {
+            heaps[i].clear();
+        }
+        return heaps;
+    }
+
+    private void updateInsertionData(final InsertionDataHeap[] heaps, final RouteSlots routeSlots, Job[] jobs, int[] unassigned,
+            int nuUnassigned, final int updateRound, final boolean firstRun, final VehicleRoute lastModified) {
+        List<Callable<Double>> tasks = new ArrayList<>();
+        boolean updatedAllRoutes = false;
+        int lastModifiedSlot = firstRun ? -1 : routeSlots.indexOf(lastModified);
+        for (int i = 0; i < nuUnassigned; i++) {
+            Job unassignedJob = jobs[unassigned[i]];
+            InsertionDataHeap heap = heaps[unassigned[i]];
             if (firstRun) {
                 updatedAllRoutes = true;
-                makeCallables(tasks, updatedAllRoutes, priorityQueues.get(unassignedJobId), updateRound, unassignedJob,
-                        routes, lastModified);
-            } else {
-                if (dependencyTypes == null || dependencyTypes.get(unassignedJobId) == null) {
-                    makeCallables(tasks, updatedAllRoutes, priorityQueues.get(unassignedJobId), updateRound,
-                            unassignedJob, routes, lastModified);
-                } else {
-                    DependencyType dependencyType = dependencyTypes.get(unassignedJobId);
-                    if (dependencyType.equals(DependencyType.INTER_ROUTE) || dependencyType.equals(DependencyType.INTRA_ROUTE)) {
-                        updatedAllRoutes = true;
-                        makeCallables(tasks, updatedAllRoutes, priorityQueues.get(unassignedJobId), updateRound,
-                                unassignedJob, routes, lastModified);
-                    } else {
-                        makeCallables(tasks, updatedAllRoutes, priorityQueues.get(unassignedJobId), updateRound,
-                                unassignedJob, routes, lastModified);
-                    }
+            } else if (dependencyTypes != null && dependencyTypes.get(unassignedJob.getId()) != null) {
+                DependencyType dependencyType = dependencyTypes.get(unassignedJob.getId());
+                if (dependencyType.equals(DependencyType.INTER_ROUTE) || dependencyType.equals(DependencyType.INTRA_ROUTE)) {
+                    updatedAllRoutes = true;
                 }
             }
+            makeCallables(tasks, updatedAllRoutes, heap, updateRound, unassignedJob, routeSlots, lastModifiedSlot);
         }
         if (updatedAllRoutes) {
-            for (VehicleRoute r : routes) {
-                updates.put(r, updateRound);
+            for (int slot = 0; slot < routeSlots.size(); slot++) {
+                routeSlots.setVersion(slot, updateRound);
             }
         } else {
-            updates.put(lastModified, updateRound);
+            routeSlots.setVersion(lastModifiedSlot, updateRound);
         }
         try {
             executor.invokeAll(tasks);
@@ -225,11 +241,12 @@ public class RegretInsertionConcurrentFast extends AbstractInsertionStrategy {
         }
     }
 
-    private void makeCallables(List<Callable<Boolean>> tasks, boolean updateAll, final TreeSet<VersionedInsertionData> priorityQueue, final int updateRound, final Job unassignedJob, final Collection<VehicleRoute> routes, final VehicleRoute lastModified) {
+    private void makeCallables(List<Callable<Double>> tasks, boolean updateAll, final InsertionDataHeap heap, final int updateRound, final Job unassignedJob, final RouteSlots routeSlots, final int lastModifiedSlot) {
         if (updateAll) {
-            tasks.add(() -> InsertionDataUpdater.update(switchAllowed, initialVehicleIds, fleetManager, insertionCostsCalculator, priorityQueue, updateRound, unassignedJob, routes));
+            final int nuSlots = routeSlots.size();
+            tasks.add(() -> InsertionDataUpdater.update(switchAllowed, initialVehicleIds, fleetManager, insertionCostsCalculator, heap, updateRound, unassignedJob, routeSlots, 0, nuSlots));
         } else {
-            tasks.add(() -> InsertionDataUpdater.update(switchAllowed, initialVehicleIds, fleetManager, insertionCostsCalculator, priorityQueue, updateRound, unassignedJob, Arrays.asList(lastModified)));
+            tasks.add(() -> InsertionDataUpdater.update(switchAllowed, initialVehicleIds, fleetManager, insertionCostsCalculator, heap, updateRound, unassignedJob, routeSlots, lastModifiedSlot, lastModifiedSlot + 1));
         }
     }
 
@@ -19,14 +19,14 @@
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.TreeSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +35,9 @@ import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.constraint.DependencyType;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeKey;
 
 /**
  * Insertion based on regret approach.
@@ -44,11 +46,89 @@ import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
  * between secondBest and firstBest, plus additional scoring variables that can defined in this.ScoringFunction.
  * The idea is that if the cost of the secondBest alternative is way higher than the first best, it seems to be important to insert this
  * customer immediatedly. If difference is not that high, it might not impact solution if this customer is inserted later.
+ * <p>
+ * <p>Scores are maintained lazily. After an insertion, every job is only re-evaluated for the modified route, and its score
+ * is only recalculated if its best or second best route was the modified one, if the modified route now offers a cheaper
+ * alternative than the second best, or if the available vehicles changed. Insertions into a new route are cached per job
+ * and vehicle type. The best job is taken from a global heap of scores. The insertion data of each job is kept in a
+ * primitive heap, and routes are identified by slots whose version tells whether insertion data is outdated. The heaps
+ * are reused by subsequent runs.
  *
  * @author stefan schroeder
  */
 public class RegretInsertionFast extends AbstractInsertionStrategy {
 
+    /**
+     * Score of an unassigned job together with the routes it is based on.
+     */
+    static class JobScore {
+
+        private Job job;
+
+        private int order;
+
+        private boolean routeDependent;
+
+        private final InsertionDataHeap insertions = new InsertionDataHeap();
+
+        private int version;
+
+        private VehicleRoute bestRoute;
+
+        private VehicleRoute secondBestRoute;
+
+        private double secondBestCosts = Double.MAX_VALUE;
+
+        private double lowestUpdatedCosts = Double.MAX_VALUE;
+
+        private final Map<VehicleTypeKey, VersionedInsertionData> newRouteInsertions = new HashMap<>();
+
+        void reset(Job job, int order, boolean routeDependent) {
+            this.job = job;
+            this.order = order;
+            this.routeDependent = routeDependent;
+            version++;
+            bestRoute = null;
+            secondBestRoute = null;
+            secondBestCosts = Double.MAX_VALUE;
+            lowestUpdatedCosts = Double.MAX_VALUE;
+            insertions.clear();
+            newRouteInsertions.clear();
+        }
+
+        boolean isAffectedBy(VehicleRoute modifiedRoute) {
+            return bestRoute == modifiedRoute || secondBestRoute == modifiedRoute || lowestUpdatedCosts < secondBestCosts;
+        }
+    }
+
+    /**
+     * Entry of the score heap. It is outdated as soon as the job is re-scored, inserted or rejected.
+     */
+    static class ScoreEntry {
+
+        private final JobScore jobScore;
+
+        private final ScoredJob scoredJob;
+
+        private final int version;
+
+        ScoreEntry(JobScore jobScore, ScoredJob scoredJob) {
+            this.jobScore = jobScore;
+            this.scoredJob = scoredJob;
+            this.version = jobScore.version;
+        }
+
+        boolean isOutdated() {
+            return version != jobScore.version;
+        }
+    }
+
+    private static final Comparator<ScoreEntry> SCORE_COMPARATOR = (o1, o2) -> {
+        int comparison = Double.compare(o2.scoredJob.getScore(), o1.scoredJob.getScore());
+        if (comparison != 0) return comparison;
+        return Integer.compare(o1.jobScore.order, o2.jobScore.order);
+    };
+
     private static Logger logger = LoggerFactory.getLogger(RegretInsertionFast.class);
 
     private ScoringFunction scoringFunction;
@@ -63,6 +143,10 @@ public class RegretInsertionFast extends AbstractInsertionStrategy {
 
     private Map<String, DependencyType> dependencyTypes = null;
 
+    private final List<JobScore> jobScorePool = new ArrayList<>();
+
+    private final InsertionDataUpdater.BestAndSecondBest alternatives = new InsertionDataUpdater.BestAndSecondBest();
+
     public RegretInsertionFast(JobInsertionCostsCalculator jobInsertionCalculator, VehicleRoutingProblem vehicleRoutingProblem, VehicleFleetManager fleetManager) {
         super(vehicleRoutingProblem);
         this.scoringFunction = new DefaultScorer(vehicleRoutingProblem);
@@ -135,84 +219,160 @@ public class RegretInsertionFast extends AbstractInsertionStrategy {
         //            }
         //        }
 
-        List<Job> jobs = new ArrayList<>(unassignedJobs);
-        Map<String, TreeSet<VersionedInsertionData>> priorityQueues = new HashMap<>(vrp.getJobs().values().size() + 2);
+        List<JobScore> jobs = new ArrayList<>(unassignedJobs.size());
+        for (Job job : unassignedJobs) {
+            if (jobScorePool.size() == jobs.size()) {
+                jobScorePool.add(new JobScore());
+            }
+            JobScore jobScore = jobScorePool.get(jobs.size());
+            jobScore.reset(job, jobs.size(), isRouteDependent(job.getId()));
+            jobs.add(jobScore);
+        }
+        PriorityQueue<ScoreEntry> scores = new PriorityQueue<>(jobs.size() + 2, SCORE_COMPARATOR);
+        RouteSlots routeSlots = new RouteSlots(routes);
         VehicleRoute lastModified = null;
         boolean firstRun = true;
+        boolean fleetChanged = false;
         int updateRound = 0;
-        Map<VehicleRoute, Integer> updates = new HashMap<>();
         while (!jobs.isEmpty()) {
-            List<Job> unassignedJobList = new ArrayList<>(jobs);
-            List<Job> badJobList = new ArrayList<>();
+            List<JobScore> badJobList = new ArrayList<>();
             if (!firstRun && lastModified == null)
                 throw new IllegalStateException("last modified route is null. this should not be.");
-            if (firstRun) {
-                updateInsertionData(priorityQueues, routes, unassignedJobList, updateRound, firstRun, lastModified, updates);
-                firstRun = false;
-            } else {
-                //update for all routes || remove history and only update modified route
-                updateInsertionData(priorityQueues, routes, unassignedJobList, updateRound, firstRun, lastModified, updates);
-                //                updates.put(lastModified,updateRound);
-            }
+            boolean allRoutesUpdated = updateInsertionData(jobs, routeSlots, updateRound, firstRun, lastModified);
+            firstRun = false;
             updateRound++;
-            ScoredJob bestScoredJob = InsertionDataUpdater.getBest(switchAllowed, initialVehicleIds, fleetManager, insertionCostsCalculator, scoringFunction, priorityQueues, updates, unassignedJobList, badJobList);
-            if (bestScoredJob != null) {
+            for (JobScore jobScore : jobs) {
+                if (allRoutesUpdated || fleetChanged || jobScore.routeDependent || jobScore.isAffectedBy(lastModified)) {
+                    if (!rescore(jobScore, routeSlots, scores)) {
+                        badJobList.add(jobScore);
+                    }
+                }
+            }
+            ScoreEntry best = pollBest(scores);
+            if (best != null) {
+                ScoredJob bestScoredJob = best.scoredJob;
                 if (bestScoredJob.isNewRoute()) {
                     routes.add(bestScoredJob.getRoute());
+                    routeSlots.add(bestScoredJob.getRoute());
                 }
+                fleetChanged = !bestScoredJob.getRoute().getVehicle().getId().equals(bestScoredJob.getInsertionData().getSelectedVehicle().getId());
                 insertJob(bestScoredJob.getJob(), bestScoredJob.getInsertionData(), bestScoredJob.getRoute());
-                jobs.remove(bestScoredJob.getJob());
+                jobs.remove(best.jobScore);
+                best.jobScore.version++;
                 lastModified = bestScoredJob.getRoute();
             } else {
                 lastModified = null;
             }
-            for (Job bad : badJobList) {
+            for (JobScore bad : badJobList) {
                 jobs.remove(bad);
-                badJobs.add(bad);
+                badJobs.add(bad.job);
+                bad.version++;
             }
         }
         return badJobs;
     }
 
-    private void updateInsertionData(Map<String, TreeSet<VersionedInsertionData>> priorityQueues,
-            Collection<VehicleRoute> routes, List<Job> unassignedJobList, int updateRound, boolean firstRun,
-            VehicleRoute lastModified, Map<VehicleRoute, Integer> updates) {
-        for (Job unassignedJob : unassignedJobList) {
-            String unassignedJobId = unassignedJob.getId();
-            if (priorityQueues.get(unassignedJobId) == null) {
-                priorityQueues.put(unassignedJobId,
-                        new TreeSet<>(InsertionDataUpdater.getComparator()));
+    private boolean isRouteDependent(String jobId) {
+        if (dependencyTypes == null || dependencyTypes.get(jobId) == null) return false;
+        DependencyType dependencyType = dependencyTypes.get(jobId);
+        return dependencyType.equals(DependencyType.INTER_ROUTE) || dependencyType.equals(DependencyType.INTRA_ROUTE);
+    }
+
+    private static ScoreEntry pollBest(PriorityQueue<ScoreEntry> scores) {
+        while (!scores.isEmpty()) {
+            ScoreEntry entry = scores.poll();
+            if (!entry.isOutdated()) {
+                entry.jobScore.version++;
+                return entry;
             }
-            if (firstRun) {
-                InsertionDataUpdater.update(switchAllowed, initialVehicleIds, fleetManager, insertionCostsCalculator,
-                        priorityQueues.get(unassignedJobId), updateRound, unassignedJob, routes);
-                for (VehicleRoute r : routes) {
-                    updates.put(r, updateRound);
-                }
+        }
+        return null;
+    }
+
+    /**
+     * Recalculates the score of a job and pushes it to the score heap.
+     *
+     * @return false if the job cannot be inserted at all
+     */
+    private boolean rescore(JobScore jobScore, RouteSlots routeSlots, PriorityQueue<ScoreEntry> scores) {
+        jobScore.version++;
+        InsertionDataUpdater.getBestAndSecondBest(switchAllowed, initialVehicleIds, fleetManager, jobScore.insertions, routeSlots, alternatives);
+        jobScore.bestRoute = alternatives.getBestRoute();
+        jobScore.secondBestRoute = alternatives.getSecondBestRoute();
+        jobScore.secondBestCosts = alternatives.getSecondBest() == null ? Double.MAX_VALUE : alternatives.getSecondBest().getInsertionCost();
+        VersionedInsertionData newRouteInsertion = getNewRouteInsertion(jobScore);
+        ScoredJob scoredJob = InsertionDataUpdater.score(jobScore.job, alternatives, newRouteInsertion.getiData(), newRouteInsertion.getRoute(), scoringFunction);
+        if (scoredJob == null) {
+            return false;
+        }
+        scores.add(new ScoreEntry(jobScore, scoredJob));
+        return true;
+    }
+
+    /**
+     * Returns the cheapest insertion of the job into a new route with one of the available vehicles. Insertions are
+     * calculated once per vehicle type, unless the job depends on other routes.
+     */
+    private VersionedInsertionData getNewRouteInsertion(JobScore jobScore) {
+        if (jobScore.routeDependent) {
+            VehicleRoute emptyRoute = VehicleRoute.emptyRoute();
+            InsertionData iData = insertionCostsCalculator.getInsertionData(emptyRoute, jobScore.job, null, -1, null, Double.MAX_VALUE);
+            return new VersionedInsertionData(iData, 0, emptyRoute);
+        }
+        VersionedInsertionData best = null;
+        Vehicle bestVehicle = null;
+        for (Vehicle v : fleetManager.getAvailableVehicles()) {
+            VersionedInsertionData insertion = jobScore.newRouteInsertions.get(v.getVehicleTypeIdentifier());
+            if (insertion == null) {
+                VehicleRoute emptyRoute = VehicleRoute.emptyRoute();
+                InsertionData iData = insertionCostsCalculator.getInsertionData(emptyRoute, jobScore.job, v, v.getEarliestDeparture(), emptyRoute.getDriver(), Double.MAX_VALUE);
+                insertion = new VersionedInsertionData(iData, 0, emptyRoute);
+                jobScore.newRouteInsertions.put(v.getVehicleTypeIdentifier(), insertion);
+            }
+            if (insertion.getiData() instanceof InsertionData.NoInsertionFound) {
+                continue;
+            }
+            if (best == null || insertion.getiData().getInsertionCost() < best.getiData().getInsertionCost()) {
+                best = insertion;
+                bestVehicle = v;
+            }
+        }
+        if (best == null) {
+            return new VersionedInsertionData(null, 0, null);
+        }
+        if (best.getiData().getSelectedVehicle() != bestVehicle) {
+            return new VersionedInsertionData(InsertionDataUpdater.switchVehicle(best.getiData(), best.getRoute(), bestVehicle), 0, best.getRoute());
+        }
+        return best;
+    }
+
+    /**
+     * Updates the insertion data of all jobs, either for all routes or for lastModified only.
+     *
+     * @return true if all routes were updated, i.e. all previous insertion data are outdated
+     */
+    private boolean updateInsertionData(List<JobScore> jobs, RouteSlots routeSlots, int updateRound, boolean firstRun,
+            VehicleRoute lastModified) {
+        boolean allRoutesUpdated = firstRun;
+        int lastModifiedSlot = firstRun ? -1 : routeSlots.indexOf(lastModified);
+        for (JobScore jobScore : jobs) {
+            int fromSlot;
+            int toSlot;
+            if (firstRun || jobScore.routeDependent) {
+                fromSlot = 0;
+                toSlot = routeSlots.size();
+                allRoutesUpdated = true;
             } else {
-                if (dependencyTypes == null || dependencyTypes.get(unassignedJobId) == null) {
-                    InsertionDataUpdater.update(switchAllowed, initialVehicleIds, fleetManager,
-                            insertionCostsCalculator, priorityQueues.get(unassignedJobId), updateRound, unassignedJob,
-                            Arrays.asList(lastModified));
-                    updates.put(lastModified, updateRound);
-                } else {
-                    DependencyType dependencyType = dependencyTypes.get(unassignedJobId);
-                    if (dependencyType.equals(DependencyType.INTER_ROUTE) || dependencyType.equals(DependencyType.INTRA_ROUTE)) {
-                        InsertionDataUpdater.update(switchAllowed, initialVehicleIds, fleetManager,
-                                insertionCostsCalculator, priorityQueues.get(unassignedJobId), updateRound,
-                                unassignedJob, routes);
-                        for (VehicleRoute r : routes) {
-                            updates.put(r, updateRound);
-                        }
-                    } else {
-                        InsertionDataUpdater.update(switchAllowed, initialVehicleIds, fleetManager,
-                                insertionCostsCalculator, priorityQueues.get(unassignedJobId), updateRound,
-                                unassignedJob, Arrays.asList(lastModified));
-                        updates.put(lastModified, updateRound);
-                    }
-                }
+                fromSlot = lastModifiedSlot;
+                toSlot = lastModifiedSlot + 1;
+            }
+            for (int slot = fromSlot; slot < toSlot; slot++) {
+                routeSlots.setVersion(slot, updateRound);
             }
+            jobScore.lowestUpdatedCosts = InsertionDataUpdater.update(switchAllowed, initialVehicleIds, fleetManager,
+                    insertionCostsCalculator, jobScore.insertions, updateRound, jobScore.job, routeSlots, fromSlot, toSlot);
         }
+        return allRoutesUpdated;
     }
 
 
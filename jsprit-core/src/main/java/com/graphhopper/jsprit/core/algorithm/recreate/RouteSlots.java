@@ -0,0 +1,85 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+
+/**
+ * Routes of a regret insertion run, each with a fixed slot and the version of its insertion data.
+ * <p>
+ * The version of a route is the update round in which insertion data has last been calculated for it. Insertion data
+ * recorded with an older version is outdated.
+ */
+final class RouteSlots {
+
+    private VehicleRoute[] routes;
+
+    private int[] versions;
+
+    private int size;
+
+    RouteSlots(Collection<VehicleRoute> routes) {
+        this.routes = new VehicleRoute[Math.max(8, routes.size() * 2)];
+        this.versions = new int[this.routes.length];
+        for (VehicleRoute route : routes) {
+            add(route);
+        }
+    }
+
+    /**
+     * Adds a route and returns its slot.
+     */
+    int add(VehicleRoute route) {
+        if (size == routes.length) {
+            routes = Arrays.copyOf(routes, size * 2);
+            versions = Arrays.copyOf(versions, size * 2);
+        }
+        routes[size] = route;
+        versions[size] = -1;
+        return size++;
+    }
+
+    /**
+     * Returns the slot of route, or -1 if it has no slot.
+     */
+    int indexOf(VehicleRoute route) {
+        for (int i = 0; i < size; i++) {
+            if (routes[i] == route) return i;
+        }
+        return -1;
+    }
+
+    VehicleRoute getRoute(int slot) {
+        return routes[slot];
+    }
+
+    int getVersion(int slot) {
+        return versions[slot];
+    }
+
+    void setVersion(int slot, int version) {
+        versions[slot] = version;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -26,87 +26,79 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.JobActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
 import com.graphhopper.jsprit.core.util.RandomUtils;
-import org.apache.commons.math3.ml.clustering.Cluster;
-import org.apache.commons.math3.ml.clustering.Clusterable;
-import org.apache.commons.math3.ml.distance.DistanceMeasure;
 
 import java.util.*;
 
 /**
+ * Density based clustering of the jobs of a route.
+ * <p>The distance between two jobs is the average transport cost between their locations. The distances of a route are
+ * computed once and stored in a compact lower triangle array. They are cached and reused as long as the route visits
+ * the same jobs at the same locations in the same order, i.e. the clusterer should be kept instead of re-created
+ * for every ruin.
+ * <p>
  * Created by schroeder on 04/02/15.
  */
 public class DBSCANClusterer {
 
-    private static class LocationWrapper implements Clusterable {
+    private static final byte UNVISITED = 0;
 
-        private static int objCounter = 0;
+    private static final byte NOISE = 1;
 
-        private final Job job;
+    private static final byte PART_OF_CLUSTER = 2;
 
-        private List<Location> locations;
+    /**
+     * Identifies the distances of a route, i.e. the jobs and locations of its job activities.
+     */
+    private static final class RouteKey {
 
-        private int id;
+        private final Job[] jobs;
 
-        public LocationWrapper(Job job, List<Location> locations) {
-            this.locations = locations;
-            objCounter++;
-            this.job = job;
-            this.id = objCounter;
-        }
+        private final Location[] locations;
 
-//        private List<Location> getLocations(Job job){
-//            List<Location> locs = new ArrayList<Location>();
-//            if(job instanceof Service) {
-//                locs.add(((Service) job).getLocation());
-//            }
-//            else if(job instanceof Shipment){
-//                locs.add(((Shipment) job).getPickupLocation());
-//                locs.add(((Shipment) job).getDeliveryLocation());
-//            }
-//            return locs;
-//        }
+        private final int hashCode;
 
-        public List<Location> getLocations() {
-            return locations;
+        RouteKey(Job[] jobs, Location[] locations) {
+            this.jobs = jobs;
+            this.locations = locations;
+            this.hashCode = 31 * Arrays.hashCode(jobs) + Arrays.hashCode(locations);
         }
 
         @Override
-        public double[] getPoint() {
-            return new double[]{id};
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RouteKey)) return false;
+            RouteKey key = (RouteKey) o;
+            return hashCode == key.hashCode && Arrays.equals(jobs, key.jobs) && Arrays.equals(locations, key.locations);
         }
 
-        public Job getJob() {
-            return job;
+        @Override
+        public int hashCode() {
+            return hashCode;
         }
     }
 
-    private static class MyDistance implements DistanceMeasure {
+    /**
+     * Jobs of a route and their pairwise distances. The distance between i and j with i &gt; j is stored at
+     * i * (i - 1) / 2 + j.
+     */
+    private static final class RouteDistances {
 
-        private Map<Integer, LocationWrapper> locations;
+        private final Job[] jobs;
 
-        private VehicleRoutingTransportCosts costs;
+        private final double[] distances;
 
-        public MyDistance(List<LocationWrapper> locations, VehicleRoutingTransportCosts costs) {
-            this.locations = new HashMap<Integer, LocationWrapper>();
-            for (LocationWrapper lw : locations) {
-                this.locations.put((int) lw.getPoint()[0], lw);
-            }
-            this.costs = costs;
+        RouteDistances(Job[] jobs, double[] distances) {
+            this.jobs = jobs;
+            this.distances = distances;
         }
 
-        @Override
-        public double compute(double[] doubles, double[] doubles1) {
-            LocationWrapper l1 = locations.get((int) doubles[0]);
-            LocationWrapper l2 = locations.get((int) doubles1[0]);
-            int count = 0;
-            double sum = 0;
-            for (Location loc_1 : l1.getLocations()) {
-                for (Location loc_2 : l2.getLocations()) {
-                    sum += costs.getTransportCost(loc_1, loc_2, 0, null, null);
-                    count++;
-                }
-            }
-            return sum / (double) count;
+        int getNoJobs() {
+            return jobs.length;
+        }
+
+        double getDistance(int i, int j) {
+            if (i > j) return distances[i * (i - 1) / 2 + j];
+            return distances[j * (j - 1) / 2 + i];
         }
     }
 
@@ -122,6 +114,17 @@ public class DBSCANClusterer {
 
     private Random random = RandomNumberGeneration.getRandom();
 
+    private int maxNoCachedRoutes = 100;
+
+    private final Map<RouteKey, RouteDistances> cachedDistances = new LinkedHashMap<RouteKey, RouteDistances>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RouteKey, RouteDistances> eldest) {
+            return size() > maxNoCachedRoutes;
+        }
+
+    };
+
     public void setRandom(Random random) {
         this.random = random;
     }
@@ -142,63 +145,174 @@ public class DBSCANClusterer {
         this.epsDistance = epsDistance;
     }
 
+    /**
+     * Sets the maximum number of routes whose distances are cached. Default is 100.
+     *
+     * @param maxNoCachedRoutes max number of cached routes
+     */
+    public void setMaxNoCachedRoutes(int maxNoCachedRoutes) {
+        if (maxNoCachedRoutes < 0) throw new IllegalArgumentException("max number of cached routes must not be negative");
+        synchronized (cachedDistances) {
+            this.maxNoCachedRoutes = maxNoCachedRoutes;
+            cachedDistances.clear();
+        }
+    }
+
+    /**
+     * Returns the number of routes whose distances are cached.
+     *
+     * @return number of cached routes
+     */
+    public int getNoCachedRoutes() {
+        synchronized (cachedDistances) {
+            return cachedDistances.size();
+        }
+    }
+
     public List<List<Job>> getClusters(VehicleRoute route) {
-        List<LocationWrapper> locations = getLocationWrappers(route);
-        List<Cluster<LocationWrapper>> clusterResults = getClusters(route, locations);
-        return makeList(clusterResults);
+        if (route.isEmpty()) return new ArrayList<List<Job>>();
+        RouteDistances distances = getDistances(route);
+        return cluster(distances, getEps(route));
+    }
+
+    public List<Job> getRandomCluster(VehicleRoute route) {
+        if (route.isEmpty()) return Collections.emptyList();
+        RouteDistances distances = getDistances(route);
+        List<List<Job>> clusters = cluster(distances, getEps(route));
+        if (clusters.isEmpty()) return Collections.emptyList();
+        return RandomUtils.nextItem(clusters, random);
     }
 
-    private List<LocationWrapper> getLocationWrappers(VehicleRoute route) {
-        List<LocationWrapper> locations = new ArrayList<LocationWrapper>(route.getTourActivities().getJobs().size());
-        Map<Job, List<Location>> jobs2locations = new HashMap<Job, List<Location>>();
-        for (TourActivity act : route.getActivities()) {
+    private double getEps(VehicleRoute route) {
+        if (epsDistance != null) return epsDistance;
+        return Math.max(0, sample(costs, route));
+    }
+
+    private RouteDistances getDistances(VehicleRoute route) {
+        List<TourActivity> activities = route.getActivities();
+        int noJobActs = 0;
+        for (TourActivity act : activities) {
+            if (act instanceof JobActivity) noJobActs++;
+        }
+        Job[] actJobs = new Job[noJobActs];
+        Location[] actLocations = new Location[noJobActs];
+        int a = 0;
+        for (TourActivity act : activities) {
             if (act instanceof JobActivity) {
-                Job job = ((JobActivity) act).getJob();
-                if (!jobs2locations.containsKey(job)) {
-                    jobs2locations.put(job, new ArrayList<Location>());
-                }
-                jobs2locations.get(job).add(act.getLocation());
+                actJobs[a] = ((JobActivity) act).getJob();
+                actLocations[a] = act.getLocation();
+                a++;
             }
         }
-        for (Job j : jobs2locations.keySet()) {
-            locations.add(new LocationWrapper(j, jobs2locations.get(j)));
+        RouteKey key = new RouteKey(actJobs, actLocations);
+        synchronized (cachedDistances) {
+            RouteDistances distances = cachedDistances.get(key);
+            if (distances != null) return distances;
+        }
+        RouteDistances distances = computeDistances(actJobs, actLocations);
+        synchronized (cachedDistances) {
+            cachedDistances.put(key, distances);
         }
-        return locations;
+        return distances;
     }
 
-    private List<Cluster<LocationWrapper>> getClusters(VehicleRoute route, List<LocationWrapper> locations) {
-        double sampledDistance;
-        if (epsDistance != null) sampledDistance = epsDistance;
-        else sampledDistance = Math.max(0, sample(costs, route));
-        org.apache.commons.math3.ml.clustering.DBSCANClusterer<LocationWrapper> clusterer = new org.apache.commons.math3.ml.clustering.DBSCANClusterer<LocationWrapper>(sampledDistance, minNoOfJobsInCluster, new MyDistance(locations, costs));
-        return clusterer.cluster(locations);
+    private RouteDistances computeDistances(Job[] actJobs, Location[] actLocations) {
+        Map<Job, List<Location>> jobs2locations = new LinkedHashMap<Job, List<Location>>();
+        for (int a = 0; a < actJobs.length; a++) {
+            List<Location> locations = jobs2locations.get(actJobs[a]);
+            if (locations == null) {
+                locations = new ArrayList<Location>(2);
+                jobs2locations.put(actJobs[a], locations);
+            }
+            locations.add(actLocations[a]);
+        }
+        int noJobs = jobs2locations.size();
+        Job[] jobs = new Job[noJobs];
+        Location[][] locations = new Location[noJobs][];
+        int i = 0;
+        for (Map.Entry<Job, List<Location>> e : jobs2locations.entrySet()) {
+            jobs[i] = e.getKey();
+            locations[i] = e.getValue().toArray(new Location[e.getValue().size()]);
+            i++;
+        }
+        double[] distances = new double[noJobs * (noJobs - 1) / 2];
+        int cell = 0;
+        for (i = 1; i < noJobs; i++) {
+            for (int j = 0; j < i; j++) {
+                distances[cell++] = getDistance(locations[i], locations[j]);
+            }
+        }
+        return new RouteDistances(jobs, distances);
     }
 
-    private List<List<Job>> makeList(List<Cluster<LocationWrapper>> clusterResults) {
-        List<List<Job>> l = new ArrayList<List<Job>>();
-        for (Cluster<LocationWrapper> c : clusterResults) {
-            List<Job> l_ = getJobList(c);
-            l.add(l_);
+    private double getDistance(Location[] locations1, Location[] locations2) {
+        double sum = 0;
+        for (Location loc_1 : locations1) {
+            for (Location loc_2 : locations2) {
+                sum += costs.getTransportCost(loc_1, loc_2, 0, null, null);
+            }
         }
-        return l;
+        return sum / (double) (locations1.length * locations2.length);
     }
 
-    private List<Job> getJobList(Cluster<LocationWrapper> c) {
-        List<Job> l_ = new ArrayList<Job>();
-        if (c == null) return l_;
-        for (LocationWrapper lw : c.getPoints()) {
-            l_.add(lw.getJob());
+    /**
+     * DBSCAN over job indices. Neighbors of a job are all other jobs within eps. A job with at least minPts neighbors
+     * starts or expands a cluster, jobs with less neighbors are noise unless they are reached by a cluster.
+     */
+    private List<List<Job>> cluster(RouteDistances distances, double eps) {
+        int noJobs = distances.getNoJobs();
+        byte[] status = new byte[noJobs];
+        int[] seeds = new int[noJobs];
+        int[] neighbors = new int[noJobs];
+        int[] seedOfCluster = new int[noJobs];
+        List<List<Job>> clusters = new ArrayList<List<Job>>();
+        int clusterId = 0;
+        for (int p = 0; p < noJobs; p++) {
+            if (status[p] != UNVISITED) continue;
+            int noNeighbors = getNeighbors(distances, p, eps, neighbors);
+            if (noNeighbors < minNoOfJobsInCluster) {
+                status[p] = NOISE;
+                continue;
+            }
+            clusterId++;
+            List<Job> cluster = new ArrayList<Job>();
+            cluster.add(distances.jobs[p]);
+            status[p] = PART_OF_CLUSTER;
+            int noSeeds = 0;
+            for (int n = 0; n < noNeighbors; n++) {
+                seeds[noSeeds++] = neighbors[n];
+                seedOfCluster[neighbors[n]] = clusterId;
+            }
+            for (int s = 0; s < noSeeds; s++) {
+                int current = seeds[s];
+                if (status[current] == UNVISITED) {
+                    int noCurrentNeighbors = getNeighbors(distances, current, eps, neighbors);
+                    if (noCurrentNeighbors >= minNoOfJobsInCluster) {
+                        for (int n = 0; n < noCurrentNeighbors; n++) {
+                            int neighbor = neighbors[n];
+                            if (seedOfCluster[neighbor] != clusterId) {
+                                seeds[noSeeds++] = neighbor;
+                                seedOfCluster[neighbor] = clusterId;
+                            }
+                        }
+                    }
+                }
+                if (status[current] != PART_OF_CLUSTER) {
+                    status[current] = PART_OF_CLUSTER;
+                    cluster.add(distances.jobs[current]);
+                }
+            }
+            clusters.add(cluster);
         }
-        return l_;
+        return clusters;
     }
 
-    public List<Job> getRandomCluster(VehicleRoute route) {
-        if (route.isEmpty()) return Collections.emptyList();
-        List<LocationWrapper> locations = getLocationWrappers(route);
-        List<Cluster<LocationWrapper>> clusterResults = getClusters(route, locations);
-        if (clusterResults.isEmpty()) return Collections.emptyList();
-        Cluster<LocationWrapper> randomCluster = RandomUtils.nextItem(clusterResults, random);
-        return getJobList(randomCluster);
+    private static int getNeighbors(RouteDistances distances, int p, double eps, int[] neighbors) {
+        int noNeighbors = 0;
+        for (int j = 0; j < distances.getNoJobs(); j++) {
+            if (j != p && distances.getDistance(p, j) <= eps) neighbors[noNeighbors++] = j;
+        }
+        return noNeighbors;
     }
 
     private double sample(VehicleRoutingTransportCosts costs, VehicleRoute r) {
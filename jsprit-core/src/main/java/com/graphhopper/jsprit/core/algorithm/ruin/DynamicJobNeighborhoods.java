@@ -0,0 +1,60 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.ruin;
+
+import com.graphhopper.jsprit.core.problem.job.Job;
+
+/**
+ * Neighborhoods whose set of jobs can change after they have been initialised, e.g. if jobs arrive or are cancelled
+ * while re-planning. This avoids rebuilding the neighborhoods from scratch.
+ * <p>Jobs must not be added or removed while the neighborhoods are searched, i.e. while an algorithm runs.
+ */
+public interface DynamicJobNeighborhoods extends JobNeighborhoods {
+
+    /**
+     * Adds a job to the neighborhoods. If it is already contained, nothing changes.
+     *
+     * @param job the job to be added
+     * @return true if the job has been added, false if it is already contained
+     */
+    public boolean addJob(Job job);
+
+    /**
+     * Removes a job from the neighborhoods.
+     *
+     * @param job the job to be removed
+     * @return true if the job has been removed, false if it is not contained
+     */
+    public boolean removeJob(Job job);
+
+    /**
+     * Returns true if the job is contained.
+     *
+     * @param job the job
+     * @return true if contained, false otherwise
+     */
+    public boolean containsJob(Job job);
+
+    /**
+     * Returns the number of contained jobs.
+     *
+     * @return number of jobs
+     */
+    public int getNoJobs();
+
+}
@@ -33,4 +33,14 @@ public interface JobNeighborhoods {
 
     public double getMaxDistance();
 
+    /**
+     * Returns true if {@link #getMaxDistance()} is in units of transport costs, false if it is not, e.g. if distances are
+     * measured between coordinates. Default is true.
+     *
+     * @return true if the max distance is in units of transport costs
+     */
+    public default boolean hasMaxDistanceInCostUnits() {
+        return true;
+    }
+
 }
@@ -21,6 +21,8 @@ package com.graphhopper.jsprit.core.algorithm.ruin;
 import com.graphhopper.jsprit.core.algorithm.ruin.distance.JobDistance;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * Created by schroeder on 05/03/15.
  */
@@ -35,4 +37,31 @@ public class JobNeighborhoodsFactory {
         return new JobNeighborhoodsOptimized(vrp, jobDistance, capacity);
     }
 
+    /**
+     * Creates neighborhoods whose neighbors are calculated by noThreads tasks of the specified executor service. The
+     * job distance must be thread-safe.
+     *
+     * @param vrp             the problem
+     * @param jobDistance     distance between jobs
+     * @param capacity        max number of neighbors per job
+     * @param executorService executor service that calculates the neighbors
+     * @param noThreads       number of tasks the calculation is split into
+     * @return neighborhoods
+     */
+    public JobNeighborhoods createNeighborhoods(VehicleRoutingProblem vrp, JobDistance jobDistance, int capacity, ExecutorService executorService, int noThreads) {
+        return new JobNeighborhoodsOptimized(vrp, jobDistance, capacity, executorService, noThreads);
+    }
+
+    /**
+     * Creates neighborhoods that are based on a kd-tree over the coordinates of the jobs. They neither calculate nor
+     * memorize distances between all jobs, thus they suit large problems where jobs have coordinates and distances
+     * are roughly geometric. Jobs can be added and removed later on.
+     *
+     * @param vrp the problem
+     * @return neighborhoods
+     */
+    public DynamicJobNeighborhoods createSpatialNeighborhoods(VehicleRoutingProblem vrp) {
+        return new JobNeighborhoodsKDTree(vrp);
+    }
+
 }
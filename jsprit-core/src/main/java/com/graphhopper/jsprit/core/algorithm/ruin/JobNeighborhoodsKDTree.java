@@ -0,0 +1,551 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.ruin;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.graphhopper.jsprit.core.distance.SphericalDistanceCalculator;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.util.CachedVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.util.DefaultCosts;
+import com.graphhopper.jsprit.core.util.StopWatch;
+
+/**
+ * Neighborhoods that are based on a kd-tree over the coordinates of the jobs, i.e. they need neither n^2 distance
+ * calculations nor n^2 memory. The tree is built in O(n log n), and neighbors are searched best-first while iterating,
+ * i.e. requesting the m nearest neighbors costs about O(m log n).
+ * <p>The position of a job is the centroid of the coordinates of its locations, and the distance between jobs is the
+ * euclidean distance between their positions. All locations must have coordinates. Coordinates are taken as planar,
+ * unless the transport costs of the problem are {@link DefaultCosts} with a {@link SphericalDistanceCalculator} (possibly
+ * cached). Then x and y are longitude and latitude, and the longitude is scaled by the cosine of the mean latitude of
+ * the jobs, such that neighbors are ranked by their approximate distance on the sphere. This neither accounts for the
+ * antimeridian nor for the poles.
+ * <p>Jobs can be added and removed in O(log n) amortized. Added jobs go to the leaf of their position, which is split
+ * if it gets too large, and removed jobs are dropped from their leaf while the boxes of the nodes are kept. The tree is
+ * rebuilt once as many jobs have been added or removed as it contained when it was built.
+ * <p>{@link #getMaxDistance()} returns the diagonal of the bounding box of the tree, which is an upper bound of the max
+ * distance between two jobs in units of the (scaled) coordinates.
+ */
+class JobNeighborhoodsKDTree implements DynamicJobNeighborhoods {
+
+    private static final int LEAF_SIZE = 8;
+
+    private static Logger logger = LoggerFactory.getLogger(JobNeighborhoodsKDTree.class);
+
+    private final Map<Job, Integer> jobIndexMapping = new HashMap<>();
+
+    /**
+     * Jobs by index. Indices of removed jobs are null until the tree is rebuilt.
+     */
+    private Job[] jobs;
+
+    private double[] xs;
+
+    private double[] ys;
+
+    private int[] leafOfJob;
+
+    private int noIndices;
+
+    /**
+     * Factor x coordinates are scaled by, i.e. 1 for planar coordinates.
+     */
+    private final double xScale;
+
+    private int[] nodeLeft;
+
+    private int[] nodeRight;
+
+    private boolean[] nodeSplitsX;
+
+    private double[] nodeSplitValue;
+
+    private double[] nodeMinX;
+
+    private double[] nodeMaxX;
+
+    private double[] nodeMinY;
+
+    private double[] nodeMaxY;
+
+    private int[][] leafJobs;
+
+    private int[] leafSize;
+
+    private int noNodes;
+
+    private boolean initialised = false;
+
+    private int noChangesSinceBuild = 0;
+
+    private int noJobsAtBuild = 0;
+
+    public JobNeighborhoodsKDTree(VehicleRoutingProblem vrp) {
+        super();
+        int n = vrp.getJobsInclusiveInitialJobsInRoutes().size();
+        xScale = hasSphericalCosts(vrp) ? Math.cos(Math.toRadians(getMeanY(vrp.getJobsInclusiveInitialJobsInRoutes().values()))) : 1.;
+        jobs = new Job[Math.max(n, 16)];
+        xs = new double[jobs.length];
+        ys = new double[jobs.length];
+        leafOfJob = new int[jobs.length];
+        for (Job job : vrp.getJobsInclusiveInitialJobsInRoutes().values()) {
+            register(job);
+        }
+        logger.debug("initialize {}", this);
+    }
+
+    static boolean hasSphericalCosts(VehicleRoutingProblem vrp) {
+        VehicleRoutingTransportCosts costs = vrp.getTransportCosts();
+        if (costs instanceof CachedVehicleRoutingTransportCosts) {
+            costs = ((CachedVehicleRoutingTransportCosts) costs).getCachedCosts();
+        }
+        return costs instanceof DefaultCosts && ((DefaultCosts) costs).getDistanceCalculator() instanceof SphericalDistanceCalculator;
+    }
+
+    private static double getMeanY(Collection<Job> jobs) {
+        double sum = 0.;
+        int noCoordinates = 0;
+        for (Job job : jobs) {
+            for (Location location : job.getAllLocations()) {
+                if (location.getCoordinate() == null) continue;
+                sum += location.getCoordinate().getY();
+                noCoordinates++;
+            }
+        }
+        return noCoordinates == 0 ? 0. : sum / noCoordinates;
+    }
+
+    private int register(Job job) {
+        if (noIndices == jobs.length) {
+            int capacity = 2 * noIndices;
+            jobs = Arrays.copyOf(jobs, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            leafOfJob = Arrays.copyOf(leafOfJob, capacity);
+        }
+        int index = noIndices++;
+        jobs[index] = job;
+        setPosition(index);
+        jobIndexMapping.put(job, index);
+        return index;
+    }
+
+    private void setPosition(int i) {
+        List<Location> locations = jobs[i].getAllLocations();
+        if (locations.isEmpty()) {
+            throw new IllegalArgumentException("job " + jobs[i].getId() + " has no location. kd-tree neighborhoods need locations.");
+        }
+        double x = 0.;
+        double y = 0.;
+        for (Location location : locations) {
+            if (location.getCoordinate() == null) {
+                throw new IllegalArgumentException("location " + location + " of job " + jobs[i].getId()
+                    + " has no coordinate. kd-tree neighborhoods need coordinates.");
+            }
+            x += location.getCoordinate().getX();
+            y += location.getCoordinate().getY();
+        }
+        xs[i] = xScale * x / locations.size();
+        ys[i] = y / locations.size();
+    }
+
+    @Override
+    public void initialise() {
+        logger.debug("build kd-tree over {} jobs", jobIndexMapping.size());
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        rebuild();
+        initialised = true;
+        stopWatch.stop();
+        logger.debug("kd-tree comp-time: {}; nodes: {}", stopWatch, noNodes);
+    }
+
+    /**
+     * Compacts the job indices and builds a balanced tree.
+     */
+    private void rebuild() {
+        int n = jobIndexMapping.size();
+        int noOld = noIndices;
+        Job[] oldJobs = jobs;
+        double[] oldXs = xs;
+        double[] oldYs = ys;
+        jobs = new Job[Math.max(2 * n, 16)];
+        xs = new double[jobs.length];
+        ys = new double[jobs.length];
+        leafOfJob = new int[jobs.length];
+        noIndices = 0;
+        for (int i = 0; i < noOld; i++) {
+            if (oldJobs[i] == null) continue;
+            jobs[noIndices] = oldJobs[i];
+            xs[noIndices] = oldXs[i];
+            ys[noIndices] = oldYs[i];
+            jobIndexMapping.put(oldJobs[i], noIndices);
+            noIndices++;
+        }
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        int maxNoNodes = 2 * (n / ((LEAF_SIZE + 1) / 2) + 1);
+        nodeLeft = new int[maxNoNodes];
+        nodeRight = new int[maxNoNodes];
+        nodeSplitsX = new boolean[maxNoNodes];
+        nodeSplitValue = new double[maxNoNodes];
+        nodeMinX = new double[maxNoNodes];
+        nodeMaxX = new double[maxNoNodes];
+        nodeMinY = new double[maxNoNodes];
+        nodeMaxY = new double[maxNoNodes];
+        leafJobs = new int[maxNoNodes][];
+        leafSize = new int[maxNoNodes];
+        noNodes = 0;
+        build(perm, 0, n);
+        noJobsAtBuild = n;
+        noChangesSinceBuild = 0;
+    }
+
+    private int build(int[] perm, int from, int to) {
+        int node = newNode();
+        for (int p = from; p < to; p++) {
+            expand(node, perm[p]);
+        }
+        if (to - from <= LEAF_SIZE) {
+            leafJobs[node] = new int[2 * LEAF_SIZE];
+            for (int p = from; p < to; p++) {
+                addToLeaf(node, perm[p]);
+            }
+            return node;
+        }
+        boolean splitsX = nodeMaxX[node] - nodeMinX[node] >= nodeMaxY[node] - nodeMinY[node];
+        double[] values = splitsX ? xs : ys;
+        int mid = (from + to) >>> 1;
+        select(perm, values, from, to - 1, mid);
+        nodeSplitsX[node] = splitsX;
+        nodeSplitValue[node] = values[perm[mid]];
+        int left = build(perm, from, mid);
+        int right = build(perm, mid, to);
+        nodeLeft[node] = left;
+        nodeRight[node] = right;
+        return node;
+    }
+
+    private int newNode() {
+        if (noNodes == nodeLeft.length) {
+            int capacity = 2 * noNodes;
+            nodeLeft = Arrays.copyOf(nodeLeft, capacity);
+            nodeRight = Arrays.copyOf(nodeRight, capacity);
+            nodeSplitsX = Arrays.copyOf(nodeSplitsX, capacity);
+            nodeSplitValue = Arrays.copyOf(nodeSplitValue, capacity);
+            nodeMinX = Arrays.copyOf(nodeMinX, capacity);
+            nodeMaxX = Arrays.copyOf(nodeMaxX, capacity);
+            nodeMinY = Arrays.copyOf(nodeMinY, capacity);
+            nodeMaxY = Arrays.copyOf(nodeMaxY, capacity);
+            leafJobs = Arrays.copyOf(leafJobs, capacity);
+            leafSize = Arrays.copyOf(leafSize, capacity);
+        }
+        int node = noNodes++;
+        nodeLeft[node] = -1;
+        nodeRight[node] = -1;
+        nodeMinX[node] = Double.POSITIVE_INFINITY;
+        nodeMaxX[node] = Double.NEGATIVE_INFINITY;
+        nodeMinY[node] = Double.POSITIVE_INFINITY;
+        nodeMaxY[node] = Double.NEGATIVE_INFINITY;
+        leafJobs[node] = null;
+        leafSize[node] = 0;
+        return node;
+    }
+
+    private void expand(int node, int i) {
+        nodeMinX[node] = Math.min(nodeMinX[node], xs[i]);
+        nodeMaxX[node] = Math.max(nodeMaxX[node], xs[i]);
+        nodeMinY[node] = Math.min(nodeMinY[node], ys[i]);
+        nodeMaxY[node] = Math.max(nodeMaxY[node], ys[i]);
+    }
+
+    private void addToLeaf(int leaf, int i) {
+        if (leafSize[leaf] == leafJobs[leaf].length) {
+            leafJobs[leaf] = Arrays.copyOf(leafJobs[leaf], 2 * leafSize[leaf]);
+        }
+        leafJobs[leaf][leafSize[leaf]++] = i;
+        leafOfJob[i] = leaf;
+    }
+
+    /**
+     * Reorders perm[left..right] such that perm[k] is at its sorted position with respect to values and no element
+     * left of k is greater and no element right of k is smaller.
+     */
+    private static void select(int[] perm, double[] values, int left, int right, int k) {
+        while (right > left) {
+            int mid = (left + right) >>> 1;
+            if (values[perm[mid]] < values[perm[left]]) swap(perm, mid, left);
+            if (values[perm[right]] < values[perm[left]]) swap(perm, right, left);
+            if (values[perm[right]] < values[perm[mid]]) swap(perm, right, mid);
+            double pivot = values[perm[mid]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[perm[i]] < pivot) i++;
+                while (values[perm[j]] > pivot) j--;
+                if (i <= j) {
+                    swap(perm, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) right = j;
+            else if (k >= i) left = i;
+            else return;
+        }
+    }
+
+    private static void swap(int[] perm, int a, int b) {
+        int tmp = perm[a];
+        perm[a] = perm[b];
+        perm[b] = tmp;
+    }
+
+    @Override
+    public boolean addJob(Job job) {
+        if (jobIndexMapping.containsKey(job)) return false;
+        int i = register(job);
+        if (!initialised) return true;
+        int node = 0;
+        while (true) {
+            expand(node, i);
+            if (nodeLeft[node] < 0) break;
+            double value = nodeSplitsX[node] ? xs[i] : ys[i];
+            node = value < nodeSplitValue[node] ? nodeLeft[node] : nodeRight[node];
+        }
+        addToLeaf(node, i);
+        if (leafSize[node] > 2 * LEAF_SIZE) split(node);
+        changed();
+        return true;
+    }
+
+    /**
+     * Turns a leaf into an inner node with two leaves.
+     */
+    private void split(int node) {
+        int[] perm = Arrays.copyOf(leafJobs[node], leafSize[node]);
+        boolean splitsX = nodeMaxX[node] - nodeMinX[node] >= nodeMaxY[node] - nodeMinY[node];
+        double[] values = splitsX ? xs : ys;
+        int mid = perm.length >>> 1;
+        select(perm, values, 0, perm.length - 1, mid);
+        leafJobs[node] = null;
+        leafSize[node] = 0;
+        nodeSplitsX[node] = splitsX;
+        nodeSplitValue[node] = values[perm[mid]];
+        int left = build(perm, 0, mid);
+        int right = build(perm, mid, perm.length);
+        nodeLeft[node] = left;
+        nodeRight[node] = right;
+    }
+
+    @Override
+    public boolean removeJob(Job job) {
+        Integer index = jobIndexMapping.remove(job);
+        if (index == null) return false;
+        jobs[index] = null;
+        if (!initialised) return true;
+        int leaf = leafOfJob[index];
+        int[] members = leafJobs[leaf];
+        for (int p = 0; p < leafSize[leaf]; p++) {
+            if (members[p] == index) {
+                members[p] = members[--leafSize[leaf]];
+                break;
+            }
+        }
+        changed();
+        return true;
+    }
+
+    private void changed() {
+        noChangesSinceBuild++;
+        if (noChangesSinceBuild > Math.max(noJobsAtBuild, LEAF_SIZE)) rebuild();
+    }
+
+    @Override
+    public boolean containsJob(Job job) {
+        return jobIndexMapping.containsKey(job);
+    }
+
+    @Override
+    public int getNoJobs() {
+        return jobIndexMapping.size();
+    }
+
+    @Override
+    public Iterator<Job> getNearestNeighborsIterator(int nNeighbors, Job neighborTo) {
+        if (!initialised) throw new IllegalStateException("neighborhoods are not initialised. call initialise() first.");
+        Integer index = jobIndexMapping.get(neighborTo);
+        if (index == null) throw new IllegalArgumentException("job " + neighborTo.getId() + " is unknown");
+        return new NeighborIterator(index, Math.min(nNeighbors, jobIndexMapping.size() - 1));
+    }
+
+    @Override
+    public double getMaxDistance() {
+        if (!initialised || jobIndexMapping.isEmpty()) return 0.;
+        return Math.hypot(nodeMaxX[0] - nodeMinX[0], nodeMaxY[0] - nodeMinY[0]);
+    }
+
+    @Override
+    public boolean hasMaxDistanceInCostUnits() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "[name=kdTreeNeighborhood][noJobs=" + jobIndexMapping.size() + "]";
+    }
+
+    /**
+     * Iterates the neighbors in ascending order of their distance by a best-first search, i.e. it keeps a min-heap of
+     * jobs and nodes keyed by their (minimum) squared distance to the job. Entries with a non-negative id are jobs,
+     * those with a negative id are nodes, i.e. -(node + 1). Jobs with equal distance come in ascending order of their
+     * index, since nodes are expanded before jobs with equal distance.
+     */
+    private class NeighborIterator implements Iterator<Job> {
+
+        private final int center;
+
+        private final double x;
+
+        private final double y;
+
+        private int remaining;
+
+        private double[] keys = new double[32];
+
+        private int[] ids = new int[32];
+
+        private int size = 0;
+
+        private int next = -1;
+
+        NeighborIterator(int center, int noNeighbors) {
+            this.center = center;
+            this.x = xs[center];
+            this.y = ys[center];
+            this.remaining = Math.max(0, noNeighbors);
+            if (remaining > 0) push(boxDistance(0), -1);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next >= 0) return true;
+            if (remaining == 0) return false;
+            while (size > 0) {
+                int id = ids[0];
+                pop();
+                if (id >= 0) {
+                    if (id == center) continue;
+                    next = id;
+                    remaining--;
+                    return true;
+                }
+                int node = -id - 1;
+                if (nodeLeft[node] < 0) {
+                    int[] members = leafJobs[node];
+                    for (int p = 0; p < leafSize[node]; p++) {
+                        int i = members[p];
+                        double dx = xs[i] - x;
+                        double dy = ys[i] - y;
+                        push(dx * dx + dy * dy, i);
+                    }
+                } else {
+                    push(boxDistance(nodeLeft[node]), -nodeLeft[node] - 1);
+                    push(boxDistance(nodeRight[node]), -nodeRight[node] - 1);
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Job next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Job job = jobs[next];
+            next = -1;
+            return job;
+        }
+
+        private double boxDistance(int node) {
+            double dx = Math.max(0., Math.max(nodeMinX[node] - x, x - nodeMaxX[node]));
+            double dy = Math.max(0., Math.max(nodeMinY[node] - y, y - nodeMaxY[node]));
+            return dx * dx + dy * dy;
+        }
+
+        private boolean isLess(int a, int b) {
+            if (keys[a] != keys[b]) return keys[a] < keys[b];
+            if ((ids[a] >= 0) != (ids[b] >= 0)) return ids[a] < 0;
+            return ids[a] < ids[b];
+        }
+
+        private void push(double key, int id) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * size);
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            keys[size] = key;
+            ids[size] = id;
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) / 2;
+                if (!isLess(pos, parent)) break;
+                swapEntries(pos, parent);
+                pos = parent;
+            }
+        }
+
+        private void pop() {
+            size--;
+            keys[0] = keys[size];
+            ids[0] = ids[size];
+            int pos = 0;
+            while (true) {
+                int child = 2 * pos + 1;
+                if (child >= size) return;
+                if (child + 1 < size && isLess(child + 1, child)) child++;
+                if (!isLess(child, pos)) return;
+                swapEntries(pos, child);
+                pos = child;
+            }
+        }
+
+        private void swapEntries(int a, int b) {
+            double key = keys[a];
+            keys[a] = keys[b];
+            keys[b] = key;
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+        }
+
+    }
+
+}
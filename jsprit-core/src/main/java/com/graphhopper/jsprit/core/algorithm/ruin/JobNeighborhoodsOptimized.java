@@ -19,12 +19,15 @@
 package com.graphhopper.jsprit.core.algorithm.ruin;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,17 +92,39 @@ class JobNeighborhoodsOptimized implements JobNeighborhoods {
 
     private int capacity;
 
+    private ExecutorService executorService;
+
+    private int noThreads;
+
     private double maxDistance = 0.;
 
     public JobNeighborhoodsOptimized(VehicleRoutingProblem vrp, JobDistance jobDistance, int capacity) {
+        this(vrp, jobDistance, capacity, null, 1);
+    }
+
+    /**
+     * Creates the neighborhoods. If an executor service is specified, the neighbors of the jobs are calculated by
+     * noThreads tasks in parallel, otherwise sequentially in the calling thread.
+     *
+     * @param vrp             the problem
+     * @param jobDistance     distance between jobs, it must be thread-safe if an executor service is specified
+     * @param capacity        max number of neighbors per job
+     * @param executorService executor service that calculates the neighbors, or null
+     * @param noThreads       number of tasks the calculation is split into
+     */
+    public JobNeighborhoodsOptimized(VehicleRoutingProblem vrp, JobDistance jobDistance, int capacity, ExecutorService executorService, int noThreads) {
         super();
         this.vrp = vrp;
         this.jobDistance = jobDistance;
         this.capacity = capacity;
-        neighbors = new int[vrp.getJobsInclusiveInitialJobsInRoutes().size() + 1][capacity];
-        jobs = new Job[vrp.getJobsInclusiveInitialJobsInRoutes().size() + 1];
+        this.executorService = executorService;
+        this.noThreads = noThreads;
+        Collection<Job> allJobs = vrp.getJobsInclusiveInitialJobsInRoutes().values();
+        neighbors = new int[allJobs.size()][];
+        Arrays.fill(neighbors, new int[0]);
+        jobs = allJobs.toArray(new Job[0]);
         jobIndexMapping = new HashMap<>();
-        for (Job job : vrp.getJobsInclusiveInitialJobsInRoutes().values()) {
+        for (Job job : jobs) {
             jobIndexMapping.put(job, jobIndexMapping.size());
         }
         logger.debug("initialize {}", this);
@@ -127,39 +152,125 @@ class JobNeighborhoodsOptimized implements JobNeighborhoods {
         logger.debug("pre-process distances between locations ...");
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        for (Job job_i : vrp.getJobsInclusiveInitialJobsInRoutes().values()) {
-            jobs[jobIndexMapping.get(job_i)] = job_i;
-            List<ReferencedJob> jobList = new ArrayList<>(vrp.getJobsInclusiveInitialJobsInRoutes().values().size());
-            for (Job job_j : vrp.getJobsInclusiveInitialJobsInRoutes().values()) {
-                if (job_i == job_j) {
-                    continue;
-                }
-                double distance = jobDistance.getDistance(job_i, job_j);
-                if (distance > maxDistance) {
-                    maxDistance = distance;
-                }
-                ReferencedJob referencedJob = new ReferencedJob(job_j, distance);
-                jobList.add(referencedJob);
+        final double[] maxDistances = new double[jobs.length];
+        if (executorService == null || noThreads <= 1) {
+            for (int i = 0; i < jobs.length; i++) {
+                maxDistances[i] = calculateNeighbors(i);
             }
-            Collections.sort(jobList, getComparator());
-            int[] jobIndices = new int[capacity];
-            for (int index = 0; index < capacity; index++) {
-                jobIndices[index] = jobIndexMapping.get(jobList.get(index).getJob());
-            }
-            neighbors[jobIndexMapping.get(job_i)] = jobIndices;
+        } else {
+            calculateNeighborsConcurrently(maxDistances);
+        }
+        for (double distance : maxDistances) {
+            if (distance > maxDistance) maxDistance = distance;
         }
         stopWatch.stop();
         logger.debug("pre-processing comp-time: {}", stopWatch);
     }
 
-    private Comparator<ReferencedJob> getComparator() {
-        return (o1, o2) -> {
-            if (o1.getDistance() < o2.getDistance())
-                return -1;
-            else if (o1.getDistance() > o2.getDistance())
-                return 1;
-            else return 0;
-        };
+    /**
+     * Task t calculates the neighbors of the jobs t, t + noThreads, t + 2 * noThreads, ..., thus the tasks get
+     * about the same number of jobs.
+     */
+    private void calculateNeighborsConcurrently(final double[] maxDistances) {
+        List<Future<?>> futures = new ArrayList<>(noThreads);
+        for (int t = 0; t < noThreads; t++) {
+            final int firstJob = t;
+            futures.add(executorService.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int i = firstJob; i < jobs.length; i += noThreads) {
+                        maxDistances[i] = calculateNeighbors(i);
+                    }
+                }
+
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> future : futures) future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for job neighborhoods", e);
+        } catch (ExecutionException e) {
+            for (Future<?> future : futures) future.cancel(true);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Selects the capacity nearest neighbors of job i with a bounded max-heap, i.e. in O(n log capacity) instead of
+     * sorting all n distances. Ties are broken by the job index, thus the result does not depend on the order of the
+     * calculation.
+     *
+     * @return the max distance from job i to any other job
+     */
+    private double calculateNeighbors(int i) {
+        int k = Math.min(capacity, jobs.length - 1);
+        double[] heapDistances = new double[k];
+        int[] heapIndices = new int[k];
+        int size = 0;
+        double maxDistance = 0.;
+        Job job_i = jobs[i];
+        for (int j = 0; j < jobs.length; j++) {
+            if (j == i) continue;
+            double distance = jobDistance.getDistance(job_i, jobs[j]);
+            if (distance > maxDistance) maxDistance = distance;
+            if (size < k) {
+                heapDistances[size] = distance;
+                heapIndices[size] = j;
+                siftUp(heapDistances, heapIndices, size);
+                size++;
+            } else if (k > 0 && distance < heapDistances[0]) {
+                heapDistances[0] = distance;
+                heapIndices[0] = j;
+                siftDown(heapDistances, heapIndices, 0, size);
+            }
+        }
+        int[] jobIndices = new int[size];
+        while (size > 0) {
+            size--;
+            jobIndices[size] = heapIndices[0];
+            swap(heapDistances, heapIndices, 0, size);
+            siftDown(heapDistances, heapIndices, 0, size);
+        }
+        neighbors[i] = jobIndices;
+        return maxDistance;
+    }
+
+    private static boolean isFarther(double[] distances, int[] indices, int a, int b) {
+        return distances[a] > distances[b] || (distances[a] == distances[b] && indices[a] > indices[b]);
+    }
+
+    private static void siftUp(double[] distances, int[] indices, int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) / 2;
+            if (!isFarther(distances, indices, pos, parent)) return;
+            swap(distances, indices, pos, parent);
+            pos = parent;
+        }
+    }
+
+    private static void siftDown(double[] distances, int[] indices, int pos, int size) {
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) return;
+            if (child + 1 < size && isFarther(distances, indices, child + 1, child)) child++;
+            if (!isFarther(distances, indices, child, pos)) return;
+            swap(distances, indices, pos, child);
+            pos = child;
+        }
+    }
+
+    private static void swap(double[] distances, int[] indices, int a, int b) {
+        double distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+        int index = indices[a];
+        indices[a] = indices[b];
+        indices[b] = index;
     }
 
     @Override
@@ -78,6 +78,8 @@ public final class RuinClusters extends AbstractRuinStrategy implements Iteratio
 
     private double epsFactor = 0.8;
 
+    private final DBSCANClusterer dbscan;
+
     public RuinClusters(VehicleRoutingProblem vrp, final int initialNumberJobsToRemove, JobNeighborhoods jobNeighborhoods) {
         super(vrp);
         this.vrp = vrp;
@@ -88,6 +90,7 @@ public final class RuinClusters extends AbstractRuinStrategy implements Iteratio
             }
         });
         this.jobNeighborhoods = jobNeighborhoods;
+        this.dbscan = new DBSCANClusterer(vrp.getTransportCosts());
         logger.debug("initialise {}", this);
     }
 
@@ -141,7 +144,6 @@ public final class RuinClusters extends AbstractRuinStrategy implements Iteratio
                 cycleCandidates.add(targetRoute);
                 break;
             }
-            DBSCANClusterer dbscan = new DBSCANClusterer(vrp.getTransportCosts());
             dbscan.setRandom(random);
             dbscan.setMinPts(minPts);
             dbscan.setEpsFactor(epsFactor);
@@ -82,61 +82,216 @@ public final class RuinWorst extends AbstractRuinStrategy {
     }
 
     private void ruin(Collection<VehicleRoute> vehicleRoutes, int nOfJobs2BeRemoved, List<Job> unassignedJobs) {
-        LinkedList<Job> availableJobs = new LinkedList<Job>(vrp.getJobs().values());
+        if (nOfJobs2BeRemoved <= 0) return;
+        Savings savings = new Savings(vehicleRoutes);
         int toRemove = nOfJobs2BeRemoved;
         while (toRemove > 0) {
-            Job worst = getWorst(vehicleRoutes);
-            if (worst == null) break;
-            if (removeJob(worst, vehicleRoutes)) {
-                availableJobs.remove(worst);
-                unassignedJobs.add(worst);
+            int worst = savings.getWorst();
+            if (worst < 0) break;
+            Job job = savings.jobs[worst];
+            if (removeJob(job, savings.routeOfJob(worst))) {
+                unassignedJobs.add(job);
+                savings.remove(worst);
+            } else {
+                savings.exclude(worst);
             }
             toRemove--;
         }
     }
 
-    private Job getWorst(Collection<VehicleRoute> copied) {
-        Job worst = null;
-        double bestSavings = Double.MIN_VALUE;
-
-        for (VehicleRoute route : copied) {
-            if (route.isEmpty()) continue;
-            Map<Job, Double> savingsMap = new HashMap<Job, Double>();
-            TourActivity actBefore = route.getStart();
-            TourActivity actToEval = null;
-            for (TourActivity act : route.getActivities()) {
-                if (actToEval == null) {
-                    actToEval = act;
-                    continue;
-                }
-                double savings = savings(route, actBefore, actToEval, act);
-                Job job = ((JobActivity) actToEval).getJob();
-                if (!savingsMap.containsKey(job)) {
-                    savingsMap.put(job, savings);
-                } else {
-                    double s = savingsMap.get(job);
-                    savingsMap.put(job, s + savings);
+    /**
+     * Savings of all jobs in the routes of one ruin. The savings of an activity are the costs saved if it is removed,
+     * and the savings of a job are the sum of the savings of its activities. They are computed once, and if a job is
+     * removed, only the savings of the activities that were next to its activities are recomputed.
+     * <p>Activities are numbered consecutively over all routes, and the neighbors of activity a are prev[a] and next[a],
+     * where -1 stands for the start or end of its route. Jobs are kept in an indexed max-heap of their savings.
+     */
+    private class Savings {
+
+        private final VehicleRoute[] routes;
+
+        private final TourActivity[] acts;
+
+        private final int[] routeOfAct;
+
+        private final int[] jobOfAct;
+
+        private final int[] prev;
+
+        private final int[] next;
+
+        private final double[] actSavings;
+
+        private final Job[] jobs;
+
+        private final int[] firstActOfJob;
+
+        private final int[] nextActOfJob;
+
+        private final double[] jobSavings;
+
+        private final int[] heap;
+
+        private final int[] heapPosition;
+
+        private int heapSize;
+
+        Savings(Collection<VehicleRoute> vehicleRoutes) {
+            routes = vehicleRoutes.toArray(new VehicleRoute[0]);
+            int noActs = 0;
+            for (VehicleRoute route : routes) {
+                noActs += route.getActivities().size();
+            }
+            acts = new TourActivity[noActs];
+            routeOfAct = new int[noActs];
+            jobOfAct = new int[noActs];
+            prev = new int[noActs];
+            next = new int[noActs];
+            actSavings = new double[noActs];
+            nextActOfJob = new int[noActs];
+            Map<Job, Integer> jobIndices = new HashMap<>();
+            List<Job> jobList = new ArrayList<>();
+            int a = 0;
+            for (int r = 0; r < routes.length; r++) {
+                int first = a;
+                for (TourActivity act : routes[r].getActivities()) {
+                    acts[a] = act;
+                    routeOfAct[a] = r;
+                    prev[a] = a == first ? -1 : a - 1;
+                    if (a > first) next[a - 1] = a;
+                    next[a] = -1;
+                    Job job = ((JobActivity) act).getJob();
+                    Integer jobIndex = jobIndices.get(job);
+                    if (jobIndex == null) {
+                        jobIndex = jobList.size();
+                        jobIndices.put(job, jobIndex);
+                        jobList.add(job);
+                    }
+                    jobOfAct[a] = jobIndex;
+                    a++;
                 }
-                actBefore = actToEval;
-                actToEval = act;
             }
-            double savings = savings(route, actBefore, actToEval, route.getEnd());
-            Job job = ((JobActivity) actToEval).getJob();
-            if (!savingsMap.containsKey(job)) {
-                savingsMap.put(job, savings);
-            } else {
-                double s = savingsMap.get(job);
-                savingsMap.put(job, s + savings);
+            jobs = jobList.toArray(new Job[0]);
+            firstActOfJob = new int[jobs.length];
+            Arrays.fill(firstActOfJob, -1);
+            jobSavings = new double[jobs.length];
+            for (a = noActs - 1; a >= 0; a--) {
+                nextActOfJob[a] = firstActOfJob[jobOfAct[a]];
+                firstActOfJob[jobOfAct[a]] = a;
             }
-            //getCounts best
-            for (Job j : savingsMap.keySet()) {
-                if (savingsMap.get(j) > bestSavings) {
-                    bestSavings = savingsMap.get(j);
-                    worst = j;
-                }
+            for (a = 0; a < noActs; a++) {
+                actSavings[a] = computeSavings(a);
+                jobSavings[jobOfAct[a]] += actSavings[a];
+            }
+            heap = new int[jobs.length];
+            heapPosition = new int[jobs.length];
+            heapSize = jobs.length;
+            for (int j = 0; j < jobs.length; j++) {
+                heap[j] = j;
+                heapPosition[j] = j;
+            }
+            for (int pos = heapSize / 2 - 1; pos >= 0; pos--) {
+                siftDown(pos);
+            }
+        }
+
+        private double computeSavings(int a) {
+            VehicleRoute route = routes[routeOfAct[a]];
+            TourActivity before = prev[a] < 0 ? route.getStart() : acts[prev[a]];
+            TourActivity after = next[a] < 0 ? route.getEnd() : acts[next[a]];
+            return savings(route, before, acts[a], after);
+        }
+
+        /**
+         * Returns the job with the highest savings, or -1 if no job has positive savings.
+         */
+        int getWorst() {
+            if (heapSize == 0 || !(jobSavings[heap[0]] > Double.MIN_VALUE)) return -1;
+            return heap[0];
+        }
+
+        VehicleRoute routeOfJob(int job) {
+            return routes[routeOfAct[firstActOfJob[job]]];
+        }
+
+        /**
+         * Unlinks the activities of the removed job and recomputes the savings of their remaining neighbors.
+         */
+        void remove(int job) {
+            exclude(job);
+            for (int a = firstActOfJob[job]; a >= 0; a = nextActOfJob[a]) {
+                if (prev[a] >= 0) next[prev[a]] = next[a];
+                if (next[a] >= 0) prev[next[a]] = prev[a];
+            }
+            for (int a = firstActOfJob[job]; a >= 0; a = nextActOfJob[a]) {
+                if (prev[a] >= 0) update(prev[a], job);
+                if (next[a] >= 0) update(next[a], job);
             }
         }
-        return worst;
+
+        private void update(int a, int removedJob) {
+            int job = jobOfAct[a];
+            if (job == removedJob || heapPosition[job] < 0) return;
+            double savings = computeSavings(a);
+            jobSavings[job] += savings - actSavings[a];
+            actSavings[a] = savings;
+            siftUp(heapPosition[job]);
+            siftDown(heapPosition[job]);
+        }
+
+        /**
+         * Drops the job from the candidates.
+         */
+        void exclude(int job) {
+            int pos = heapPosition[job];
+            if (pos < 0) return;
+            heapSize--;
+            if (pos < heapSize) {
+                int moved = heap[heapSize];
+                heap[pos] = moved;
+                heapPosition[moved] = pos;
+                siftUp(pos);
+                siftDown(heapPosition[moved]);
+            }
+            heapPosition[job] = -1;
+        }
+
+        /**
+         * Returns true if job a comes before job b, i.e. it has higher savings or, with equal savings, the lower index.
+         */
+        private boolean isWorse(int a, int b) {
+            if (jobSavings[a] != jobSavings[b]) return jobSavings[a] > jobSavings[b];
+            return a < b;
+        }
+
+        private void siftUp(int pos) {
+            while (pos > 0) {
+                int parent = (pos - 1) / 2;
+                if (!isWorse(heap[pos], heap[parent])) return;
+                swap(pos, parent);
+                pos = parent;
+            }
+        }
+
+        private void siftDown(int pos) {
+            while (true) {
+                int child = 2 * pos + 1;
+                if (child >= heapSize) return;
+                if (child + 1 < heapSize && isWorse(heap[child + 1], heap[child])) child++;
+                if (!isWorse(heap[child], heap[pos])) return;
+                swap(pos, child);
+                pos = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int job = heap[a];
+            heap[a] = heap[b];
+            heap[b] = job;
+            heapPosition[heap[a]] = a;
+            heapPosition[heap[b]] = b;
+        }
+
     }
 
     private double savings(VehicleRoute route, TourActivity actBefore, TourActivity actToEval, TourActivity act) {
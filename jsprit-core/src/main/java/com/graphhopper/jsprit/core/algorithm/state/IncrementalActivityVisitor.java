@@ -0,0 +1,57 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.state;
+
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
+
+/**
+ * An {@link ActivityVisitor} that can update its states by only visiting the segment of a route that has changed.
+ * <p>
+ * <p>After jobs have been inserted into a route, the {@link StateManager} determines the changed segment, i.e. the
+ * activities that are new or have new neighbours. Instead of visiting the route completely, it resumes all visitors
+ * at the first activity of this segment and stops visiting once every visitor has converged behind the segment.
+ * If a single visitor cannot resume, or does not implement this interface, the route is visited completely.
+ * <p>
+ * <p>Note that partial updates assume that activities have only been inserted since the last update of the route,
+ * which holds for the insertion listeners of the {@link StateManager}.
+ */
+public interface IncrementalActivityVisitor extends ActivityVisitor {
+
+    /**
+     * Starts visiting the route at the activity at position <code>fromIndex</code>. This replaces {@link #begin(VehicleRoute)}.
+     * <p>
+     * <p>All activities before <code>fromIndex</code> and their states are unchanged, thus the visitor can
+     * restore what it would know at this position from the memorized states.
+     *
+     * @param route     the route to visit
+     * @param fromIndex the position of the first activity to be visited
+     * @return true if the visitor can resume at this position, false if the route needs to be visited completely
+     */
+    boolean resume(VehicleRoute route, int fromIndex);
+
+    /**
+     * Is called after each visited activity behind the changed segment. If the states of the remaining activities,
+     * i.e. the ones that are not visited yet, would not change, the visitor completes its states (e.g. what it would
+     * otherwise memorize in {@link #finish()}) and returns true. Then it is neither visited anymore nor finished.
+     *
+     * @return true if the visitor has converged and completed its states
+     */
+    boolean finishIfConverged();
+
+}
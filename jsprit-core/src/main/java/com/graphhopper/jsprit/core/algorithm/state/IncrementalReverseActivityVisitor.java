@@ -0,0 +1,53 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.state;
+
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
+
+/**
+ * A {@link ReverseActivityVisitor} that can update its states by only visiting the segment of a route that has changed.
+ * <p>
+ * <p>This is the counterpart of {@link IncrementalActivityVisitor}. Visiting starts at the last activity whose
+ * states might have changed, i.e. the end of the changed segment or the last activity whose forward states have
+ * changed, and stops once every visitor has converged in front of the changed segment.
+ */
+public interface IncrementalReverseActivityVisitor extends ReverseActivityVisitor {
+
+    /**
+     * Starts visiting the route backward at the activity at position <code>fromIndex</code>. This replaces {@link #begin(VehicleRoute)}.
+     * <p>
+     * <p>All activities behind <code>fromIndex</code> and their states are unchanged, thus the visitor can
+     * restore what it would know at this position from the memorized states.
+     *
+     * @param route     the route to visit
+     * @param fromIndex the position of the first activity to be visited
+     * @return true if the visitor can resume at this position, false if the route needs to be visited completely
+     */
+    boolean resume(VehicleRoute route, int fromIndex);
+
+    /**
+     * Is called after each visited activity in front of the changed segment. If the states of the remaining activities,
+     * i.e. the ones that are not visited yet, would not change, the visitor completes its states and returns true.
+     * Then it is neither visited anymore nor finished.
+     *
+     * @return true if the visitor has converged and completed its states
+     */
+    boolean finishIfConverged();
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.state;
+
+import com.graphhopper.jsprit.core.problem.solution.route.RouteVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Visits the activities of a route with the activity visitors and reverse activity visitors of a {@link StateManager}.
+ * <p>
+ * <p>Complete visits memorize the predecessor and successor of each activity as well as vehicle and departure time
+ * of the route. After jobs have been inserted, this allows {@link #visitChangedSegment(VehicleRoute)} to determine the
+ * changed segment of the route and to only update this segment, if all visitors are
+ * {@link IncrementalActivityVisitor}s or {@link IncrementalReverseActivityVisitor}s respectively.
+ */
+class IncrementalRouteActivityVisitor implements RouteVisitor {
+
+    private final StateManager stateManager;
+
+    private final List<ActivityVisitor> visitors = new ArrayList<>();
+
+    private final List<ReverseActivityVisitor> reverseVisitors = new ArrayList<>();
+
+    private boolean incremental = true;
+
+    private boolean reverseIncremental = true;
+
+    private final List<IncrementalActivityVisitor> activeVisitors = new ArrayList<>();
+
+    private final List<IncrementalReverseActivityVisitor> activeReverseVisitors = new ArrayList<>();
+
+    IncrementalRouteActivityVisitor(StateManager stateManager) {
+        this.stateManager = stateManager;
+    }
+
+    void addActivityVisitor(ActivityVisitor activityVisitor) {
+        if (!visitors.contains(activityVisitor)) {
+            visitors.add(activityVisitor);
+            incremental &= activityVisitor instanceof IncrementalActivityVisitor;
+        }
+    }
+
+    void addActivityVisitor(ReverseActivityVisitor activityVisitor) {
+        if (!reverseVisitors.contains(activityVisitor)) {
+            reverseVisitors.add(activityVisitor);
+            reverseIncremental &= activityVisitor instanceof IncrementalReverseActivityVisitor;
+        }
+    }
+
+    /**
+     * Visits all activities of the route, first forward and then backward.
+     *
+     * @param route the route to visit
+     */
+    @Override
+    public void visit(VehicleRoute route) {
+        if (visitors.isEmpty() && reverseVisitors.isEmpty()) return;
+        List<TourActivity> activities = route.getActivities();
+        visitForwardCompletely(route, activities);
+        visitBackwardCompletely(route, activities);
+        memorizeSequence(route, activities, 0, activities.size() - 1);
+    }
+
+    /**
+     * Updates the states of a route after jobs have been inserted by only visiting the changed segment.
+     * <p>
+     * <p>Falls back to {@link #visit(VehicleRoute)} if the route has not been visited before, its vehicle or
+     * departure time has changed, or no changed activity can be found.
+     *
+     * @param route the route to visit
+     */
+    void visitChangedSegment(VehicleRoute route) {
+        if (visitors.isEmpty() && reverseVisitors.isEmpty()) return;
+        List<TourActivity> activities = route.getActivities();
+        if (activities.isEmpty() || !isMemorizedDeparture(route)) {
+            visit(route);
+            return;
+        }
+        int fromIndex = 0;
+        while (fromIndex < activities.size() && !hasChangedNeighbours(route, activities, fromIndex)) fromIndex++;
+        if (fromIndex == activities.size()) {
+            visit(route);
+            return;
+        }
+        int toIndex = activities.size() - 1;
+        while (!hasChangedNeighbours(route, activities, toIndex)) toIndex--;
+        int lastVisited = visitForward(route, activities, fromIndex, toIndex);
+        visitBackward(route, activities, fromIndex, Math.max(toIndex, lastVisited));
+        memorizeSequence(route, activities, fromIndex, toIndex);
+    }
+
+    /*
+     * returns the position of the last activity whose forward states might have changed
+     */
+    private int visitForward(VehicleRoute route, List<TourActivity> activities, int fromIndex, int toIndex) {
+        if (visitors.isEmpty()) return -1;
+        if (!incremental || !resumeAll(route, fromIndex)) {
+            visitForwardCompletely(route, activities);
+            return activities.size() - 1;
+        }
+        for (int i = fromIndex; i < activities.size(); i++) {
+            TourActivity act = activities.get(i);
+            for (IncrementalActivityVisitor visitor : activeVisitors) {
+                visitor.visit(act);
+            }
+            if (i > toIndex) {
+                Iterator<IncrementalActivityVisitor> iterator = activeVisitors.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().finishIfConverged()) iterator.remove();
+                }
+                if (activeVisitors.isEmpty()) return i;
+            }
+        }
+        for (IncrementalActivityVisitor visitor : activeVisitors) {
+            visitor.finish();
+        }
+        return activities.size() - 1;
+    }
+
+    /*
+     * visits backward starting at toIndex, visitors might converge in front of fromIndex
+     */
+    private void visitBackward(VehicleRoute route, List<TourActivity> activities, int fromIndex, int toIndex) {
+        if (reverseVisitors.isEmpty()) return;
+        if (!reverseIncremental || !resumeAllReverse(route, toIndex)) {
+            visitBackwardCompletely(route, activities);
+            return;
+        }
+        for (int i = toIndex; i >= 0; i--) {
+            TourActivity act = activities.get(i);
+            for (IncrementalReverseActivityVisitor visitor : activeReverseVisitors) {
+                visitor.visit(act);
+            }
+            if (i < fromIndex) {
+                Iterator<IncrementalReverseActivityVisitor> iterator = activeReverseVisitors.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().finishIfConverged()) iterator.remove();
+                }
+                if (activeReverseVisitors.isEmpty()) return;
+            }
+        }
+        for (IncrementalReverseActivityVisitor visitor : activeReverseVisitors) {
+            visitor.finish();
+        }
+    }
+
+    private boolean resumeAll(VehicleRoute route, int fromIndex) {
+        activeVisitors.clear();
+        for (ActivityVisitor visitor : visitors) {
+            IncrementalActivityVisitor incrementalVisitor = (IncrementalActivityVisitor) visitor;
+            if (!incrementalVisitor.resume(route, fromIndex)) return false;
+            activeVisitors.add(incrementalVisitor);
+        }
+        return true;
+    }
+
+    private boolean resumeAllReverse(VehicleRoute route, int fromIndex) {
+        activeReverseVisitors.clear();
+        for (ReverseActivityVisitor visitor : reverseVisitors) {
+            IncrementalReverseActivityVisitor incrementalVisitor = (IncrementalReverseActivityVisitor) visitor;
+            if (!incrementalVisitor.resume(route, fromIndex)) return false;
+            activeReverseVisitors.add(incrementalVisitor);
+        }
+        return true;
+    }
+
+    private void visitForwardCompletely(VehicleRoute route, List<TourActivity> activities) {
+        if (visitors.isEmpty()) return;
+        for (ActivityVisitor visitor : visitors) {
+            visitor.begin(route);
+        }
+        for (TourActivity act : activities) {
+            for (ActivityVisitor visitor : visitors) {
+                visitor.visit(act);
+            }
+        }
+        for (ActivityVisitor visitor : visitors) {
+            visitor.finish();
+        }
+    }
+
+    private void visitBackwardCompletely(VehicleRoute route, List<TourActivity> activities) {
+        if (reverseVisitors.isEmpty() || activities.isEmpty()) return;
+        for (ReverseActivityVisitor visitor : reverseVisitors) {
+            visitor.begin(route);
+        }
+        for (int i = activities.size() - 1; i >= 0; i--) {
+            TourActivity act = activities.get(i);
+            for (ReverseActivityVisitor visitor : reverseVisitors) {
+                visitor.visit(act);
+            }
+        }
+        for (ReverseActivityVisitor visitor : reverseVisitors) {
+            visitor.finish();
+        }
+    }
+
+    private boolean isMemorizedDeparture(VehicleRoute route) {
+        return stateManager.getIntRouteState(route, InternalStates.VEHICLE_INDEX) == route.getVehicle().getIndex()
+            && stateManager.getDoubleRouteState(route, InternalStates.DEPARTURE_TIME) == route.getDepartureTime();
+    }
+
+    private boolean hasChangedNeighbours(VehicleRoute route, List<TourActivity> activities, int index) {
+        TourActivity act = activities.get(index);
+        return stateManager.getIntActivityState(act, InternalStates.PREDECESSOR) != getPredecessor(route, activities, index).getIndex()
+            || stateManager.getIntActivityState(act, InternalStates.SUCCESSOR) != getSuccessor(route, activities, index).getIndex();
+    }
+
+    private void memorizeSequence(VehicleRoute route, List<TourActivity> activities, int fromIndex, int toIndex) {
+        for (int i = fromIndex; i <= toIndex; i++) {
+            TourActivity act = activities.get(i);
+            stateManager.putInternalIntActivityState(act, InternalStates.PREDECESSOR, getPredecessor(route, activities, i).getIndex());
+            stateManager.putInternalIntActivityState(act, InternalStates.SUCCESSOR, getSuccessor(route, activities, i).getIndex());
+        }
+        stateManager.putInternalIntRouteState(route, InternalStates.VEHICLE_INDEX, route.getVehicle().getIndex());
+        stateManager.putInternalDoubleRouteState(route, InternalStates.DEPARTURE_TIME, route.getDepartureTime());
+    }
+
+    private static TourActivity getPredecessor(VehicleRoute route, List<TourActivity> activities, int index) {
+        return index == 0 ? route.getStart() : activities.get(index - 1);
+    }
+
+    private static TourActivity getSuccessor(VehicleRoute route, List<TourActivity> activities, int index) {
+        return index == activities.size() - 1 ? route.getEnd() : activities.get(index + 1);
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.state;
+
+/**
+ * StateId of a state whose value is a primitive int.
+ * <p>
+ * <p>States identified by an IntStateId are stored in primitive int columns of the {@link StateManager}, i.e.
+ * they can be read with {@link StateManager#getIntActivityState(com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity, IntStateId)}
+ * without boxing. A state that has not been set is {@link #NO_VALUE}.</p>
+ */
+public interface IntStateId extends StateId {
+
+    int NO_VALUE = Integer.MIN_VALUE;
+
+}
@@ -21,25 +21,25 @@ package com.graphhopper.jsprit.core.algorithm.state;
 public class InternalStates {
 
 
-    public final static StateId MAXLOAD = new StateFactory.StateIdImpl("max_load", 0);
+    public final static SizeDimensionStateId MAXLOAD = new StateFactory.SizeDimensionStateIdImpl("max_load", 5);
 
-    public final static StateId LOAD = new StateFactory.StateIdImpl("load", 1);
+    public final static SizeDimensionStateId LOAD = new StateFactory.SizeDimensionStateIdImpl("load", 0);
 
-    public final static StateId COSTS = new StateFactory.StateIdImpl("costs", 2);
+    public final static DoubleStateId COSTS = new StateFactory.DoubleStateIdImpl("costs", 2);
 
-    public final static StateId LOAD_AT_BEGINNING = new StateFactory.StateIdImpl("load_at_beginning", 3);
+    public final static SizeDimensionStateId LOAD_AT_BEGINNING = new StateFactory.SizeDimensionStateIdImpl("load_at_beginning", 3);
 
-    public final static StateId LOAD_AT_END = new StateFactory.StateIdImpl("load_at_end", 4);
+    public final static SizeDimensionStateId LOAD_AT_END = new StateFactory.SizeDimensionStateIdImpl("load_at_end", 4);
 
     public final static StateId DURATION = new StateFactory.StateIdImpl("duration", 5);
 
-    public final static StateId LATEST_OPERATION_START_TIME = new StateFactory.StateIdImpl("latest_operation_start_time", 6);
+    public final static DoubleStateId LATEST_OPERATION_START_TIME = new StateFactory.DoubleStateIdImpl("latest_operation_start_time", 0);
 
     public final static StateId EARLIEST_OPERATION_START_TIME = new StateFactory.StateIdImpl("earliest_operation_start_time", 7);
 
-    public final static StateId FUTURE_MAXLOAD = new StateFactory.StateIdImpl("future_max_load", 8);
+    public final static SizeDimensionStateId FUTURE_MAXLOAD = new StateFactory.SizeDimensionStateIdImpl("future_max_load", 1);
 
-    public final static StateId PAST_MAXLOAD = new StateFactory.StateIdImpl("past_max_load", 9);
+    public final static SizeDimensionStateId PAST_MAXLOAD = new StateFactory.SizeDimensionStateIdImpl("past_max_load", 2);
 
     public static final StateId SKILLS = new StateFactory.StateIdImpl("skills", 10);
 
@@ -47,9 +47,26 @@ public class InternalStates {
 
     public static final StateId TIME_SLACK = new StateFactory.StateIdImpl("time_slack", 12);
 
-    public static final StateId FUTURE_WAITING = new StateFactory.StateIdImpl("future_waiting", 13);
+    public static final DoubleStateId FUTURE_WAITING = new StateFactory.DoubleStateIdImpl("future_waiting", 1);
 
     public static final StateId EARLIEST_WITHOUT_WAITING = new StateFactory.StateIdImpl("earliest_without_waiting", 14);
 
     public static final StateId SWITCH_NOT_FEASIBLE = new StateFactory.StateIdImpl("switch_not_feasible", 15);
+
+    /*
+     * bookkeeping of partial state updates, see IncrementalActivityVisitor
+     */
+    static final IntStateId PREDECESSOR = new StateFactory.IntStateIdImpl("predecessor", 0);
+
+    static final IntStateId SUCCESSOR = new StateFactory.IntStateIdImpl("successor", 1);
+
+    static final IntStateId VEHICLE_INDEX = new StateFactory.IntStateIdImpl("vehicle_index", 2);
+
+    static final DoubleStateId DEPARTURE_TIME = new StateFactory.DoubleStateIdImpl("departure_time", 3);
+
+    static final DoubleStateId END_TIME = new StateFactory.DoubleStateIdImpl("end_time", 4);
+
+    static final DoubleStateId TRANSPORT_COSTS = new StateFactory.DoubleStateIdImpl("transport_costs", 5);
+
+    static final DoubleStateId ACTIVITY_COSTS = new StateFactory.DoubleStateIdImpl("activity_costs", 6);
 }
@@ -21,11 +21,10 @@ import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.*;
 import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListener;
 import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListeners;
+import com.graphhopper.jsprit.core.problem.SizeDimension;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
-import com.graphhopper.jsprit.core.problem.solution.route.ReverseRouteActivityVisitor;
-import com.graphhopper.jsprit.core.problem.solution.route.RouteActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.RouteVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
@@ -41,14 +40,17 @@ import java.util.*;
  * <p>
  * <p>Some condition, rules or constraints are stateful. This StateManager manages these states, i.e. it offers
  * methods to add, store and retrieve states based on the problem, vehicle-routes and tour-activities.
+ * <p>
+ * <p>States identified by typed stateIds ({@link DoubleStateId}, {@link IntStateId}, {@link SizeDimensionStateId}) are
+ * stored in typed columns, one column per state, indexed by activity index (and vehicle type key). They can be read
+ * with the typed getters, e.g. {@link #getDoubleActivityState(TourActivity, Vehicle, DoubleStateId)}, without boxing
+ * and casting. The generic getters and setters still work for them.
  *
  * @author schroeder
  */
 public class StateManager implements RouteAndActivityStateGetter, IterationStartsListener, RuinListener, InsertionStartsListener, JobInsertedListener, InsertionEndsListener {
 
-    private RouteActivityVisitor routeActivityVisitor = new RouteActivityVisitor();
-
-    private ReverseRouteActivityVisitor revRouteActivityVisitor = new ReverseRouteActivityVisitor();
+    private IncrementalRouteActivityVisitor routeActivityVisitor = new IncrementalRouteActivityVisitor(this);
 
     private Collection<RouteVisitor> routeVisitors = new ArrayList<RouteVisitor>();
 
@@ -64,8 +66,20 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     private final int initialNoStates = 21;
 
+    private final int initialNoDoubleStates = 7;
+
+    private final int initialNoIntStates = 3;
+
+    private final int initialNoSizeDimensionStates = 6;
+
     private int stateIndexCounter;
 
+    private int doubleStateIndexCounter;
+
+    private int intStateIndexCounter;
+
+    private int sizeDimensionStateIndexCounter;
+
     private Map<String, StateId> createdStateIds = new HashMap<String, StateId>();
 
     private int nuActivities;
@@ -78,17 +92,41 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     private Object[][][] vehicleDependentActivityStates;
 
-    private Map<VehicleRoute, Object[]> routeStateMap;
+    private double[][] doubleActivityStates;
+
+    private double[][] vehicleDependentDoubleActivityStates;
+
+    private int[][] intActivityStates;
+
+    private int[][] vehicleDependentIntActivityStates;
+
+    private SizeDimension[][] sizeDimensionActivityStates;
 
-    private Map<VehicleRoute, Object[][]> vehicleDependentRouteStateMap;
+    private SizeDimension[][] vehicleDependentSizeDimensionActivityStates;
+
+    private VehicleRoute[] routeSlots;
+
+    private int nuRouteSlots;
+
+    private int routeSlotGeneration;
 
     private Object[][] routeStatesArr;
 
     private Object[][][] vehicleDependentRouteStatesArr;
 
-    private VehicleRoutingProblem vrp;
+    private double[][] doubleRouteStates;
+
+    private double[][] vehicleDependentDoubleRouteStates;
+
+    private int[][] intRouteStates;
 
-    private final boolean isIndexedBased;
+    private int[][] vehicleDependentIntRouteStates;
+
+    private SizeDimension[][] sizeDimensionRouteStates;
+
+    private SizeDimension[][] vehicleDependentSizeDimensionRouteStates;
+
+    private VehicleRoutingProblem vrp;
 
     int getMaxIndexOfVehicleTypeIdentifiers() {
         return nuVehicleTypeKeys;
@@ -109,8 +147,8 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         if (stateIndexCounter >= activityStates[0].length) {
             activityStates = new Object[nuActivities][stateIndexCounter + 1];
             vehicleDependentActivityStates = new Object[nuActivities][nuVehicleTypeKeys][stateIndexCounter + 1];
-            routeStatesArr = new Object[vrp.getVehicles().size() + 2][stateIndexCounter + 1];
-            vehicleDependentRouteStatesArr = new Object[vrp.getVehicles().size() + 2][nuVehicleTypeKeys][stateIndexCounter + 1];
+            routeStatesArr = new Object[routeSlots.length][stateIndexCounter + 1];
+            vehicleDependentRouteStatesArr = new Object[routeSlots.length][nuVehicleTypeKeys][stateIndexCounter + 1];
             problemStates = new Object[stateIndexCounter + 1];
         }
         StateId id = StateFactory.createId(name, stateIndexCounter);
@@ -123,6 +161,98 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         stateIndexCounter++;
     }
 
+    /**
+     * Creates and returns a stateId for a state whose value is a primitive double.
+     * <p>
+     * <p>If a stateId with the specified name has already been created, it returns the created stateId.</p>
+     *
+     * @param name the specified name of the state
+     * @return the stateId with which a double state can be identified
+     * @throws java.lang.IllegalStateException if name of state is already used internally or by a state of another type
+     */
+    public DoubleStateId createDoubleStateId(String name) {
+        StateId existing = createdStateIds.get(name);
+        if (existing != null) return getTypedStateId(existing, DoubleStateId.class);
+        DoubleStateId id = StateFactory.createDoubleId(name, doubleStateIndexCounter);
+        doubleActivityStates = addColumn(doubleActivityStates, nuActivities);
+        vehicleDependentDoubleActivityStates = addColumn(vehicleDependentDoubleActivityStates, nuActivities * nuVehicleTypeKeys);
+        doubleRouteStates = addColumn(doubleRouteStates, routeSlots.length);
+        vehicleDependentDoubleRouteStates = addColumn(vehicleDependentDoubleRouteStates, routeSlots.length * nuVehicleTypeKeys);
+        doubleStateIndexCounter++;
+        createdStateIds.put(name, id);
+        return id;
+    }
+
+    /**
+     * Creates and returns a stateId for a state whose value is a primitive int.
+     * <p>
+     * <p>If a stateId with the specified name has already been created, it returns the created stateId.</p>
+     *
+     * @param name the specified name of the state
+     * @return the stateId with which an int state can be identified
+     * @throws java.lang.IllegalStateException if name of state is already used internally or by a state of another type
+     */
+    public IntStateId createIntStateId(String name) {
+        StateId existing = createdStateIds.get(name);
+        if (existing != null) return getTypedStateId(existing, IntStateId.class);
+        IntStateId id = StateFactory.createIntId(name, intStateIndexCounter);
+        intActivityStates = addColumn(intActivityStates, nuActivities);
+        vehicleDependentIntActivityStates = addColumn(vehicleDependentIntActivityStates, nuActivities * nuVehicleTypeKeys);
+        intRouteStates = addColumn(intRouteStates, routeSlots.length);
+        vehicleDependentIntRouteStates = addColumn(vehicleDependentIntRouteStates, routeSlots.length * nuVehicleTypeKeys);
+        intStateIndexCounter++;
+        createdStateIds.put(name, id);
+        return id;
+    }
+
+    /**
+     * Creates and returns a stateId for a state whose value is a {@link SizeDimension}.
+     * <p>
+     * <p>If a stateId with the specified name has already been created, it returns the created stateId.</p>
+     *
+     * @param name the specified name of the state
+     * @return the stateId with which a size dimension state can be identified
+     * @throws java.lang.IllegalStateException if name of state is already used internally or by a state of another type
+     */
+    public SizeDimensionStateId createSizeDimensionStateId(String name) {
+        StateId existing = createdStateIds.get(name);
+        if (existing != null) return getTypedStateId(existing, SizeDimensionStateId.class);
+        SizeDimensionStateId id = StateFactory.createSizeDimensionId(name, sizeDimensionStateIndexCounter);
+        sizeDimensionActivityStates = addColumn(sizeDimensionActivityStates, nuActivities);
+        vehicleDependentSizeDimensionActivityStates = addColumn(vehicleDependentSizeDimensionActivityStates, nuActivities * nuVehicleTypeKeys);
+        sizeDimensionRouteStates = addColumn(sizeDimensionRouteStates, routeSlots.length);
+        vehicleDependentSizeDimensionRouteStates = addColumn(vehicleDependentSizeDimensionRouteStates, routeSlots.length * nuVehicleTypeKeys);
+        sizeDimensionStateIndexCounter++;
+        createdStateIds.put(name, id);
+        return id;
+    }
+
+    private <S extends StateId> S getTypedStateId(StateId stateId, Class<S> type) {
+        if (!type.isInstance(stateId))
+            throw new IllegalStateException("state-id with name '" + stateId + "' has already been created for another type of state.");
+        return type.cast(stateId);
+    }
+
+    private static double[][] addColumn(double[][] columns, int length) {
+        double[][] newColumns = Arrays.copyOf(columns, columns.length + 1);
+        newColumns[columns.length] = new double[length];
+        Arrays.fill(newColumns[columns.length], DoubleStateId.NO_VALUE);
+        return newColumns;
+    }
+
+    private static int[][] addColumn(int[][] columns, int length) {
+        int[][] newColumns = Arrays.copyOf(columns, columns.length + 1);
+        newColumns[columns.length] = new int[length];
+        Arrays.fill(newColumns[columns.length], IntStateId.NO_VALUE);
+        return newColumns;
+    }
+
+    private static SizeDimension[][] addColumn(SizeDimension[][] columns, int length) {
+        SizeDimension[][] newColumns = Arrays.copyOf(columns, columns.length + 1);
+        newColumns[columns.length] = new SizeDimension[length];
+        return newColumns;
+    }
+
 
     /**
      * Constructs the stateManager with the specified VehicleRoutingProblem.
@@ -137,16 +267,43 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         nuVehicleTypeKeys = Math.max(3, getNuVehicleTypes(vrp) + 2);
         activityStates = new Object[nuActivities][initialStateArrayLength];
         vehicleDependentActivityStates = new Object[nuActivities][nuVehicleTypeKeys][initialStateArrayLength];
-//        if(vehicleRoutingProblem.getFleetSize().equals(VehicleRoutingProblem.FleetSize.FINITE)){
-//            isIndexedBased = true;
-//            routeStatesArr = new Object[vrp.getVehicles().size() + 2][initialStateArrayLength];
-//            vehicleDependentRouteStatesArr = new Object[vrp.getVehicles().size() + 2][nuVehicleTypeKeys][initialStateArrayLength];
-//        }
-//        else {
-        isIndexedBased = false;
-        routeStateMap = new HashMap<VehicleRoute, Object[]>();
-        vehicleDependentRouteStateMap = new HashMap<VehicleRoute, Object[][]>();
-//        }
+        int initialNoRouteSlots = Math.max(10, vrp.getVehicles().size() + 2);
+        routeSlots = new VehicleRoute[initialNoRouteSlots];
+        routeStatesArr = new Object[initialNoRouteSlots][initialStateArrayLength];
+        vehicleDependentRouteStatesArr = new Object[initialNoRouteSlots][nuVehicleTypeKeys][initialStateArrayLength];
+        doubleActivityStates = new double[0][];
+        vehicleDependentDoubleActivityStates = new double[0][];
+        doubleRouteStates = new double[0][];
+        vehicleDependentDoubleRouteStates = new double[0][];
+        for (int i = 0; i < initialNoDoubleStates; i++) {
+            doubleActivityStates = addColumn(doubleActivityStates, nuActivities);
+            vehicleDependentDoubleActivityStates = addColumn(vehicleDependentDoubleActivityStates, nuActivities * nuVehicleTypeKeys);
+            doubleRouteStates = addColumn(doubleRouteStates, initialNoRouteSlots);
+            vehicleDependentDoubleRouteStates = addColumn(vehicleDependentDoubleRouteStates, initialNoRouteSlots * nuVehicleTypeKeys);
+        }
+        doubleStateIndexCounter = initialNoDoubleStates;
+        intActivityStates = new int[0][];
+        vehicleDependentIntActivityStates = new int[0][];
+        intRouteStates = new int[0][];
+        vehicleDependentIntRouteStates = new int[0][];
+        for (int i = 0; i < initialNoIntStates; i++) {
+            intActivityStates = addColumn(intActivityStates, nuActivities);
+            vehicleDependentIntActivityStates = addColumn(vehicleDependentIntActivityStates, nuActivities * nuVehicleTypeKeys);
+            intRouteStates = addColumn(intRouteStates, initialNoRouteSlots);
+            vehicleDependentIntRouteStates = addColumn(vehicleDependentIntRouteStates, initialNoRouteSlots * nuVehicleTypeKeys);
+        }
+        intStateIndexCounter = initialNoIntStates;
+        sizeDimensionActivityStates = new SizeDimension[0][];
+        vehicleDependentSizeDimensionActivityStates = new SizeDimension[0][];
+        sizeDimensionRouteStates = new SizeDimension[0][];
+        vehicleDependentSizeDimensionRouteStates = new SizeDimension[0][];
+        for (int i = 0; i < initialNoSizeDimensionStates; i++) {
+            sizeDimensionActivityStates = addColumn(sizeDimensionActivityStates, nuActivities);
+            vehicleDependentSizeDimensionActivityStates = addColumn(vehicleDependentSizeDimensionActivityStates, nuActivities * nuVehicleTypeKeys);
+            sizeDimensionRouteStates = addColumn(sizeDimensionRouteStates, initialNoRouteSlots);
+            vehicleDependentSizeDimensionRouteStates = addColumn(vehicleDependentSizeDimensionRouteStates, initialNoRouteSlots * nuVehicleTypeKeys);
+        }
+        sizeDimensionStateIndexCounter = initialNoSizeDimensionStates;
         problemStates = new Object[initialStateArrayLength];
     }
 
@@ -168,6 +325,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      * @param <T>     the type of the state value
      */
     public <T> void putProblemState(StateId stateId, Class<T> type, T state) {
+        if (isTyped(stateId)) throwTypedIdNotSupportedException(stateId);
         problemStates[stateId.getIndex()] = state;
 //         problemStates.putState(stateId, type, state);
     }
@@ -187,17 +345,21 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     /**
      * Clears all states, i.e. set all value to null.
+     * <p>
+     * <p>Route states are not wiped here. Bumping the slot generation invalidates the slots stamped on routes at once, and
+     * a slot is reset when it is handed out to a route again.</p>
      */
     public void clear() {
         fill_twoDimArr(activityStates, null);
         fill_threeDimArr(vehicleDependentActivityStates, null);
-        if (isIndexedBased) {
-            fill_twoDimArr(routeStatesArr, null);
-            fill_threeDimArr(vehicleDependentRouteStatesArr, null);
-        } else {
-            routeStateMap.clear();
-            vehicleDependentRouteStateMap.clear();
-        }
+        for (double[] column : doubleActivityStates) Arrays.fill(column, DoubleStateId.NO_VALUE);
+        for (double[] column : vehicleDependentDoubleActivityStates) Arrays.fill(column, DoubleStateId.NO_VALUE);
+        for (int[] column : intActivityStates) Arrays.fill(column, IntStateId.NO_VALUE);
+        for (int[] column : vehicleDependentIntActivityStates) Arrays.fill(column, IntStateId.NO_VALUE);
+        fill_twoDimArr(sizeDimensionActivityStates, null);
+        fill_twoDimArr(vehicleDependentSizeDimensionActivityStates, null);
+        nuRouteSlots = 0;
+        routeSlotGeneration++;
         Arrays.fill(problemStates, null);
     }
 
@@ -231,6 +393,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
     public <T> T getActivityState(TourActivity act, StateId stateId, Class<T> type) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
         if (act.getIndex() < 0) return null;
+        if (isTyped(stateId)) return castTypedState(getTypedActivityState(act, stateId), stateId, type);
         T state;
         try {
             state = type.cast(activityStates[act.getIndex()][stateId.getIndex()]);
@@ -251,6 +414,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     public boolean hasActivityState(TourActivity act, Vehicle vehicle, StateId stateId) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (isTyped(stateId)) return getTypedActivityState(act, vehicle, stateId) != null;
         return vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
     }
 
@@ -272,6 +436,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
     public <T> T getActivityState(TourActivity act, Vehicle vehicle, StateId stateId, Class<T> type) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
         if (act.getIndex() < 0) return null; //act.getIndex() < 0 indicates that act is either Start (-1) or End (-2)
+        if (isTyped(stateId)) return castTypedState(getTypedActivityState(act, vehicle, stateId), stateId, type);
         T state;
         try {
             state = type.cast(vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()]);
@@ -282,10 +447,222 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         return state;
     }
 
+    /**
+     * Returns the double state associated to the specified activity and stateId, or {@link DoubleStateId#NO_VALUE}
+     * if no value is associated.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or {@link DoubleStateId#NO_VALUE}
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     */
+    public double getDoubleActivityState(TourActivity act, DoubleStateId stateId) {
+        int actIndex = act.getIndex();
+        if (actIndex == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (actIndex < 0) return DoubleStateId.NO_VALUE;
+        return doubleActivityStates[stateId.getIndex()][actIndex];
+    }
+
+    /**
+     * Returns the double state associated to the specified activity, vehicle and stateId, or {@link DoubleStateId#NO_VALUE}
+     * if no value is associated.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or {@link DoubleStateId#NO_VALUE}
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     */
+    public double getDoubleActivityState(TourActivity act, Vehicle vehicle, DoubleStateId stateId) {
+        int actIndex = act.getIndex();
+        if (actIndex == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (actIndex < 0) return DoubleStateId.NO_VALUE;
+        return vehicleDependentDoubleActivityStates[stateId.getIndex()][vehicleDependentIndex(actIndex, vehicle)];
+    }
+
+    /**
+     * Returns the int state associated to the specified activity and stateId, or {@link IntStateId#NO_VALUE}
+     * if no value is associated.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or {@link IntStateId#NO_VALUE}
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     */
+    public int getIntActivityState(TourActivity act, IntStateId stateId) {
+        int actIndex = act.getIndex();
+        if (actIndex == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (actIndex < 0) return IntStateId.NO_VALUE;
+        return intActivityStates[stateId.getIndex()][actIndex];
+    }
+
+    /**
+     * Returns the int state associated to the specified activity, vehicle and stateId, or {@link IntStateId#NO_VALUE}
+     * if no value is associated.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or {@link IntStateId#NO_VALUE}
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     */
+    public int getIntActivityState(TourActivity act, Vehicle vehicle, IntStateId stateId) {
+        int actIndex = act.getIndex();
+        if (actIndex == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (actIndex < 0) return IntStateId.NO_VALUE;
+        return vehicleDependentIntActivityStates[stateId.getIndex()][vehicleDependentIndex(actIndex, vehicle)];
+    }
+
+    /**
+     * Returns the size dimension state associated to the specified activity and stateId, or null if no value is associated.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or null
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     */
+    public SizeDimension getSizeDimensionActivityState(TourActivity act, SizeDimensionStateId stateId) {
+        int actIndex = act.getIndex();
+        if (actIndex == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (actIndex < 0) return null;
+        return sizeDimensionActivityStates[stateId.getIndex()][actIndex];
+    }
+
+    /**
+     * Returns the size dimension state associated to the specified activity, vehicle and stateId, or null if no value
+     * is associated.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or null
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     */
+    public SizeDimension getSizeDimensionActivityState(TourActivity act, Vehicle vehicle, SizeDimensionStateId stateId) {
+        int actIndex = act.getIndex();
+        if (actIndex == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (actIndex < 0) return null;
+        return vehicleDependentSizeDimensionActivityStates[stateId.getIndex()][vehicleDependentIndex(actIndex, vehicle)];
+    }
+
+    private int vehicleDependentIndex(int actIndex, Vehicle vehicle) {
+        return actIndex * nuVehicleTypeKeys + vehicle.getVehicleTypeIdentifier().getIndex();
+    }
+
+    private static void throwTypedIdNotSupportedException(StateId stateId) {
+        throw new IllegalStateException("state-id with name '" + stateId + "' is typed. typed state-ids can only be used for activity and route states.");
+    }
+
+    private static boolean isTyped(StateId stateId) {
+        return stateId instanceof DoubleStateId || stateId instanceof IntStateId || stateId instanceof SizeDimensionStateId;
+    }
+
+    private Object getTypedActivityState(TourActivity act, StateId stateId) {
+        if (stateId instanceof DoubleStateId) {
+            double value = getDoubleActivityState(act, (DoubleStateId) stateId);
+            return Double.isNaN(value) ? null : value;
+        }
+        if (stateId instanceof IntStateId) {
+            int value = getIntActivityState(act, (IntStateId) stateId);
+            return value == IntStateId.NO_VALUE ? null : value;
+        }
+        return getSizeDimensionActivityState(act, (SizeDimensionStateId) stateId);
+    }
+
+    private Object getTypedActivityState(TourActivity act, Vehicle vehicle, StateId stateId) {
+        if (stateId instanceof DoubleStateId) {
+            double value = getDoubleActivityState(act, vehicle, (DoubleStateId) stateId);
+            return Double.isNaN(value) ? null : value;
+        }
+        if (stateId instanceof IntStateId) {
+            int value = getIntActivityState(act, vehicle, (IntStateId) stateId);
+            return value == IntStateId.NO_VALUE ? null : value;
+        }
+        return getSizeDimensionActivityState(act, vehicle, (SizeDimensionStateId) stateId);
+    }
+
+    private <T> T castTypedState(Object state, StateId stateId, Class<T> type) {
+        try {
+            return type.cast(state);
+        } catch (ClassCastException e) {
+            throw getClassCastException(e, stateId, type.toString(), state.getClass().toString());
+        }
+    }
+
     private ClassCastException getClassCastException(ClassCastException e, StateId stateId, String requestedTypeClass, String memorizedTypeClass) {
         return new ClassCastException(e + "\n" + "state with stateId '" + stateId.toString() + "' is of " + memorizedTypeClass + ". cannot cast it to " + requestedTypeClass + ".");
     }
 
+    private int getRouteSlot(VehicleRoute route) {
+        int slot = route.getStateSlot(this, routeSlotGeneration);
+        if (slot >= 0 && slot < nuRouteSlots && routeSlots[slot] == route) return slot;
+        Object owner = route.getStateSlotOwner();
+        if (owner == this || owner == null) return -1;
+        // the route is shared with another state manager that overwrote the stamp
+        for (int i = 0; i < nuRouteSlots; i++) {
+            if (routeSlots[i] == route) {
+                route.setStateSlot(this, routeSlotGeneration, i);
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int getOrAssignRouteSlot(VehicleRoute route) {
+        int slot = getRouteSlot(route);
+        if (slot >= 0) return slot;
+        if (nuRouteSlots == routeSlots.length) growRouteSlots();
+        slot = nuRouteSlots++;
+        routeSlots[slot] = route;
+        route.setStateSlot(this, routeSlotGeneration, slot);
+        resetRouteSlot(slot);
+        return slot;
+    }
+
+    private void resetRouteSlot(int slot) {
+        Arrays.fill(routeStatesArr[slot], null);
+        fill_twoDimArr(vehicleDependentRouteStatesArr[slot], null);
+        int from = slot * nuVehicleTypeKeys;
+        int to = from + nuVehicleTypeKeys;
+        for (int i = 0; i < doubleRouteStates.length; i++) {
+            doubleRouteStates[i][slot] = DoubleStateId.NO_VALUE;
+            Arrays.fill(vehicleDependentDoubleRouteStates[i], from, to, DoubleStateId.NO_VALUE);
+        }
+        for (int i = 0; i < intRouteStates.length; i++) {
+            intRouteStates[i][slot] = IntStateId.NO_VALUE;
+            Arrays.fill(vehicleDependentIntRouteStates[i], from, to, IntStateId.NO_VALUE);
+        }
+        for (int i = 0; i < sizeDimensionRouteStates.length; i++) {
+            sizeDimensionRouteStates[i][slot] = null;
+            Arrays.fill(vehicleDependentSizeDimensionRouteStates[i], from, to, null);
+        }
+    }
+
+    private void growRouteSlots() {
+        int oldLength = routeSlots.length;
+        int newLength = oldLength * 2;
+        routeSlots = Arrays.copyOf(routeSlots, newLength);
+        int stateArrayLength = routeStatesArr[0].length;
+        routeStatesArr = Arrays.copyOf(routeStatesArr, newLength);
+        vehicleDependentRouteStatesArr = Arrays.copyOf(vehicleDependentRouteStatesArr, newLength);
+        for (int i = oldLength; i < newLength; i++) {
+            routeStatesArr[i] = new Object[stateArrayLength];
+            vehicleDependentRouteStatesArr[i] = new Object[nuVehicleTypeKeys][stateArrayLength];
+        }
+        for (int i = 0; i < doubleRouteStates.length; i++) {
+            doubleRouteStates[i] = Arrays.copyOf(doubleRouteStates[i], newLength);
+            vehicleDependentDoubleRouteStates[i] = Arrays.copyOf(vehicleDependentDoubleRouteStates[i], newLength * nuVehicleTypeKeys);
+        }
+        for (int i = 0; i < intRouteStates.length; i++) {
+            intRouteStates[i] = Arrays.copyOf(intRouteStates[i], newLength);
+            vehicleDependentIntRouteStates[i] = Arrays.copyOf(vehicleDependentIntRouteStates[i], newLength * nuVehicleTypeKeys);
+        }
+        for (int i = 0; i < sizeDimensionRouteStates.length; i++) {
+            sizeDimensionRouteStates[i] = Arrays.copyOf(sizeDimensionRouteStates[i], newLength);
+            vehicleDependentSizeDimensionRouteStates[i] = Arrays.copyOf(vehicleDependentSizeDimensionRouteStates[i], newLength * nuVehicleTypeKeys);
+        }
+    }
+
     /**
      * Returns the route state that is associated to the route and stateId, or null if no state is associated.
      * <p>If type class is not equal to the associated type class of the requested state value, it throws a ClassCastException.</p>
@@ -301,21 +678,14 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
     @Override
     public <T> T getRouteState(VehicleRoute route, StateId stateId, Class<T> type) {
         if (route.isEmpty()) return null;
-        T state = null;
-        if (isIndexedBased) {
-            try {
-                state = type.cast(routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()]);
-            } catch (ClassCastException e) {
-                throw getClassCastException(e, stateId, type.toString(), routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()].getClass().toString());
-            }
-        } else {
-            try {
-                if (routeStateMap.containsKey(route)) {
-                    state = type.cast(routeStateMap.get(route)[stateId.getIndex()]);
-                }
-            } catch (ClassCastException e) {
-                throw getClassCastException(e, stateId, type.toString(), routeStateMap.get(route)[stateId.getIndex()].getClass().toString());
-            }
+        if (isTyped(stateId)) return castTypedState(getTypedRouteState(route, stateId), stateId, type);
+        int slot = getRouteSlot(route);
+        if (slot < 0) return null;
+        T state;
+        try {
+            state = type.cast(routeStatesArr[slot][stateId.getIndex()]);
+        } catch (ClassCastException e) {
+            throw getClassCastException(e, stateId, type.toString(), routeStatesArr[slot][stateId.getIndex()].getClass().toString());
         }
         return state;
     }
@@ -330,9 +700,10 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     @SuppressWarnings("UnusedDeclaration")
     public boolean hasRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId) {
-        if (!vehicleDependentRouteStateMap.containsKey(route)) return false;
-        return vehicleDependentRouteStateMap.get(route)[vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
-//        return vehicle_dependent_route_states[route.getActivities().get(0).getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
+        if (isTyped(stateId)) return getTypedRouteState(route, vehicle, stateId) != null;
+        int slot = getRouteSlot(route);
+        if (slot < 0) return false;
+        return vehicleDependentRouteStatesArr[slot][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
     }
 
     /**
@@ -350,25 +721,132 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     public <T> T getRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId, Class<T> type) {
         if (route.isEmpty()) return null;
-        T state = null;
-        if (isIndexedBased) {
-            try {
-                state = type.cast(vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()]);
-            } catch (ClassCastException e) {
-                throw getClassCastException(e, stateId, type.toString(), vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()].getClass().toString());
-            }
-        } else {
-            try {
-                if (vehicleDependentRouteStateMap.containsKey(route)) {
-                    state = type.cast(vehicleDependentRouteStateMap.get(route)[vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()]);
-                }
-            } catch (ClassCastException e) {
-                throw getClassCastException(e, stateId, type.toString(), vehicleDependentRouteStateMap.get(route)[vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()].getClass().toString());
-            }
+        if (isTyped(stateId)) return castTypedState(getTypedRouteState(route, vehicle, stateId), stateId, type);
+        int slot = getRouteSlot(route);
+        if (slot < 0) return null;
+        T state;
+        try {
+            state = type.cast(vehicleDependentRouteStatesArr[slot][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()]);
+        } catch (ClassCastException e) {
+            throw getClassCastException(e, stateId, type.toString(), vehicleDependentRouteStatesArr[slot][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()].getClass().toString());
         }
         return state;
     }
 
+    /**
+     * Returns the double state associated to the specified route and stateId, or {@link DoubleStateId#NO_VALUE}
+     * if no value is associated.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or {@link DoubleStateId#NO_VALUE}
+     */
+    public double getDoubleRouteState(VehicleRoute route, DoubleStateId stateId) {
+        int slot = getRouteSlot(route);
+        if (slot < 0) return DoubleStateId.NO_VALUE;
+        return doubleRouteStates[stateId.getIndex()][slot];
+    }
+
+    /**
+     * Returns the double state associated to the specified route, vehicle and stateId, or {@link DoubleStateId#NO_VALUE}
+     * if no value is associated.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or {@link DoubleStateId#NO_VALUE}
+     */
+    public double getDoubleRouteState(VehicleRoute route, Vehicle vehicle, DoubleStateId stateId) {
+        int slot = getRouteSlot(route);
+        if (slot < 0) return DoubleStateId.NO_VALUE;
+        return vehicleDependentDoubleRouteStates[stateId.getIndex()][vehicleDependentRouteIndex(slot, vehicle)];
+    }
+
+    /**
+     * Returns the int state associated to the specified route and stateId, or {@link IntStateId#NO_VALUE}
+     * if no value is associated.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or {@link IntStateId#NO_VALUE}
+     */
+    public int getIntRouteState(VehicleRoute route, IntStateId stateId) {
+        int slot = getRouteSlot(route);
+        if (slot < 0) return IntStateId.NO_VALUE;
+        return intRouteStates[stateId.getIndex()][slot];
+    }
+
+    /**
+     * Returns the int state associated to the specified route, vehicle and stateId, or {@link IntStateId#NO_VALUE}
+     * if no value is associated.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or {@link IntStateId#NO_VALUE}
+     */
+    public int getIntRouteState(VehicleRoute route, Vehicle vehicle, IntStateId stateId) {
+        int slot = getRouteSlot(route);
+        if (slot < 0) return IntStateId.NO_VALUE;
+        return vehicleDependentIntRouteStates[stateId.getIndex()][vehicleDependentRouteIndex(slot, vehicle)];
+    }
+
+    /**
+     * Returns the size dimension state associated to the specified route and stateId, or null if no value is associated.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or null
+     */
+    public SizeDimension getSizeDimensionRouteState(VehicleRoute route, SizeDimensionStateId stateId) {
+        int slot = getRouteSlot(route);
+        if (slot < 0) return null;
+        return sizeDimensionRouteStates[stateId.getIndex()][slot];
+    }
+
+    /**
+     * Returns the size dimension state associated to the specified route, vehicle and stateId, or null if no value
+     * is associated.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the state value or null
+     */
+    public SizeDimension getSizeDimensionRouteState(VehicleRoute route, Vehicle vehicle, SizeDimensionStateId stateId) {
+        int slot = getRouteSlot(route);
+        if (slot < 0) return null;
+        return vehicleDependentSizeDimensionRouteStates[stateId.getIndex()][vehicleDependentRouteIndex(slot, vehicle)];
+    }
+
+    private int vehicleDependentRouteIndex(int slot, Vehicle vehicle) {
+        return slot * nuVehicleTypeKeys + vehicle.getVehicleTypeIdentifier().getIndex();
+    }
+
+    private Object getTypedRouteState(VehicleRoute route, StateId stateId) {
+        if (stateId instanceof DoubleStateId) {
+            double value = getDoubleRouteState(route, (DoubleStateId) stateId);
+            return Double.isNaN(value) ? null : value;
+        }
+        if (stateId instanceof IntStateId) {
+            int value = getIntRouteState(route, (IntStateId) stateId);
+            return value == IntStateId.NO_VALUE ? null : value;
+        }
+        return getSizeDimensionRouteState(route, (SizeDimensionStateId) stateId);
+    }
+
+    private Object getTypedRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId) {
+        if (stateId instanceof DoubleStateId) {
+            double value = getDoubleRouteState(route, vehicle, (DoubleStateId) stateId);
+            return Double.isNaN(value) ? null : value;
+        }
+        if (stateId instanceof IntStateId) {
+            int value = getIntRouteState(route, vehicle, (IntStateId) stateId);
+            return value == IntStateId.NO_VALUE ? null : value;
+        }
+        return getSizeDimensionRouteState(route, vehicle, (SizeDimensionStateId) stateId);
+    }
+
     /**
      * Associates the specified activity and stateId to the state value. If a state value is already associated to the
      * specified activity and stateId, it is replaced by the new state value.
@@ -382,7 +860,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     public <T> void putActivityState(TourActivity act, StateId stateId, T state) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
-        if (stateId.getIndex() < initialNoStates)
+        if (isReserved(stateId))
             throw new IllegalStateException("either you use a reserved stateId that is applied\n" +
                 "internally or your stateId has been created without index, e.g. StateFactory.createId(stateName)\n" +
                 " does not assign indeces thus do not use it anymore, but use\n " +
@@ -405,7 +883,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     public <T> void putActivityState(TourActivity act, Vehicle vehicle, StateId stateId, T state) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
-        if (stateId.getIndex() < initialNoStates)
+        if (isReserved(stateId))
             throw new IllegalStateException("either you use a reserved stateId that is applied\n" +
                 "internally or your stateId has been created without index, e.g. StateFactory.createId(stateName)\n" +
                 " does not assign indeces thus do not use it anymore, but use\n " +
@@ -414,12 +892,146 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         putInternalTypedActivityState(act, vehicle, stateId, state);
     }
 
+    private boolean isReserved(StateId stateId) {
+        if (stateId instanceof DoubleStateId) return stateId.getIndex() < initialNoDoubleStates;
+        if (stateId instanceof IntStateId) return stateId.getIndex() < initialNoIntStates;
+        if (stateId instanceof SizeDimensionStateId) return stateId.getIndex() < initialNoSizeDimensionStates;
+        return stateId.getIndex() < initialNoStates;
+    }
+
+    /**
+     * Associates the specified activity and stateId to the double state value.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code> or if stateId is used internally
+     */
+    public void putDoubleActivityState(TourActivity act, DoubleStateId stateId, double state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalDoubleActivityState(act, stateId, state);
+    }
+
+    /**
+     * Associates the specified activity, vehicle and stateId to the double state value.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity, vehicle and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code> or if stateId is used internally
+     */
+    public void putDoubleActivityState(TourActivity act, Vehicle vehicle, DoubleStateId stateId, double state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalDoubleActivityState(act, vehicle, stateId, state);
+    }
+
+    /**
+     * Associates the specified activity and stateId to the int state value.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code> or if stateId is used internally
+     */
+    public void putIntActivityState(TourActivity act, IntStateId stateId, int state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalIntActivityState(act, stateId, state);
+    }
+
+    /**
+     * Associates the specified activity, vehicle and stateId to the int state value.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity, vehicle and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code> or if stateId is used internally
+     */
+    public void putIntActivityState(TourActivity act, Vehicle vehicle, IntStateId stateId, int state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalIntActivityState(act, vehicle, stateId, state);
+    }
+
+    /**
+     * Associates the specified activity and stateId to the size dimension state value.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code> or if stateId is used internally
+     */
+    public void putSizeDimensionActivityState(TourActivity act, SizeDimensionStateId stateId, SizeDimension state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalSizeDimensionActivityState(act, stateId, state);
+    }
+
+    /**
+     * Associates the specified activity, vehicle and stateId to the size dimension state value.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity, vehicle and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code> or if stateId is used internally
+     */
+    public void putSizeDimensionActivityState(TourActivity act, Vehicle vehicle, SizeDimensionStateId stateId, SizeDimension state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalSizeDimensionActivityState(act, vehicle, stateId, state);
+    }
+
+    void putInternalDoubleActivityState(TourActivity act, DoubleStateId stateId, double state) {
+        doubleActivityStates[stateId.getIndex()][act.getIndex()] = state;
+    }
+
+    void putInternalDoubleActivityState(TourActivity act, Vehicle vehicle, DoubleStateId stateId, double state) {
+        vehicleDependentDoubleActivityStates[stateId.getIndex()][vehicleDependentIndex(act.getIndex(), vehicle)] = state;
+    }
+
+    void putInternalIntActivityState(TourActivity act, IntStateId stateId, int state) {
+        intActivityStates[stateId.getIndex()][act.getIndex()] = state;
+    }
+
+    void putInternalIntActivityState(TourActivity act, Vehicle vehicle, IntStateId stateId, int state) {
+        vehicleDependentIntActivityStates[stateId.getIndex()][vehicleDependentIndex(act.getIndex(), vehicle)] = state;
+    }
+
+    void putInternalSizeDimensionActivityState(TourActivity act, SizeDimensionStateId stateId, SizeDimension state) {
+        sizeDimensionActivityStates[stateId.getIndex()][act.getIndex()] = state;
+    }
+
+    void putInternalSizeDimensionActivityState(TourActivity act, Vehicle vehicle, SizeDimensionStateId stateId, SizeDimension state) {
+        vehicleDependentSizeDimensionActivityStates[stateId.getIndex()][vehicleDependentIndex(act.getIndex(), vehicle)] = state;
+    }
+
     <T> void putInternalTypedActivityState(TourActivity act, StateId stateId, T state) {
-        activityStates[act.getIndex()][stateId.getIndex()] = state;
+        if (stateId instanceof DoubleStateId) {
+            putInternalDoubleActivityState(act, (DoubleStateId) stateId, state == null ? DoubleStateId.NO_VALUE : ((Number) state).doubleValue());
+        } else if (stateId instanceof IntStateId) {
+            putInternalIntActivityState(act, (IntStateId) stateId, state == null ? IntStateId.NO_VALUE : ((Number) state).intValue());
+        } else if (stateId instanceof SizeDimensionStateId) {
+            putInternalSizeDimensionActivityState(act, (SizeDimensionStateId) stateId, (SizeDimension) state);
+        } else {
+            activityStates[act.getIndex()][stateId.getIndex()] = state;
+        }
     }
 
     <T> void putInternalTypedActivityState(TourActivity act, Vehicle vehicle, StateId stateId, T state) {
-        vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
+        if (stateId instanceof DoubleStateId) {
+            putInternalDoubleActivityState(act, vehicle, (DoubleStateId) stateId, state == null ? DoubleStateId.NO_VALUE : ((Number) state).doubleValue());
+        } else if (stateId instanceof IntStateId) {
+            putInternalIntActivityState(act, vehicle, (IntStateId) stateId, state == null ? IntStateId.NO_VALUE : ((Number) state).intValue());
+        } else if (stateId instanceof SizeDimensionStateId) {
+            putInternalSizeDimensionActivityState(act, vehicle, (SizeDimensionStateId) stateId, (SizeDimension) state);
+        } else {
+            vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
+        }
     }
 
     /**
@@ -433,7 +1045,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      * @throws java.lang.IllegalStateException if stateId is equal to a stateId that is already used internally.
      */
     public <T> void putRouteState(VehicleRoute route, StateId stateId, T state) {
-        if (stateId.getIndex() < initialNoStates) StateFactory.throwReservedIdException(stateId.toString());
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
         putTypedInternalRouteState(route, stateId, state);
     }
 
@@ -450,33 +1062,153 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     public <T> void putRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId, T state) {
         if (vehicle.getIndex() == 0) throw new IllegalStateException("vehicle index is 0. this should not be.");
-        if (stateId.getIndex() < initialNoStates) StateFactory.throwReservedIdException(stateId.toString());
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
         putTypedInternalRouteState(route, vehicle, stateId, state);
     }
 
+    /**
+     * Associates the specified route and stateId to the double state value.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the route state
+     * @param state   the state that is associated to the route and stateId
+     * @throws java.lang.IllegalStateException if stateId is used internally
+     */
+    public void putDoubleRouteState(VehicleRoute route, DoubleStateId stateId, double state) {
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalDoubleRouteState(route, stateId, state);
+    }
+
+    /**
+     * Associates the specified route, vehicle and stateId to the double state value.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the route state
+     * @param state   the state that is associated to the route, vehicle and stateId
+     * @throws java.lang.IllegalStateException if stateId is used internally
+     */
+    public void putDoubleRouteState(VehicleRoute route, Vehicle vehicle, DoubleStateId stateId, double state) {
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalDoubleRouteState(route, vehicle, stateId, state);
+    }
+
+    /**
+     * Associates the specified route and stateId to the int state value.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the route state
+     * @param state   the state that is associated to the route and stateId
+     * @throws java.lang.IllegalStateException if stateId is used internally
+     */
+    public void putIntRouteState(VehicleRoute route, IntStateId stateId, int state) {
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalIntRouteState(route, stateId, state);
+    }
+
+    /**
+     * Associates the specified route, vehicle and stateId to the int state value.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the route state
+     * @param state   the state that is associated to the route, vehicle and stateId
+     * @throws java.lang.IllegalStateException if stateId is used internally
+     */
+    public void putIntRouteState(VehicleRoute route, Vehicle vehicle, IntStateId stateId, int state) {
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalIntRouteState(route, vehicle, stateId, state);
+    }
+
+    /**
+     * Associates the specified route and stateId to the size dimension state value.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the route state
+     * @param state   the state that is associated to the route and stateId
+     * @throws java.lang.IllegalStateException if stateId is used internally
+     */
+    public void putSizeDimensionRouteState(VehicleRoute route, SizeDimensionStateId stateId, SizeDimension state) {
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalSizeDimensionRouteState(route, stateId, state);
+    }
+
+    /**
+     * Associates the specified route, vehicle and stateId to the size dimension state value.
+     *
+     * @param route   the route for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the route state
+     * @param state   the state that is associated to the route, vehicle and stateId
+     * @throws java.lang.IllegalStateException if stateId is used internally
+     */
+    public void putSizeDimensionRouteState(VehicleRoute route, Vehicle vehicle, SizeDimensionStateId stateId, SizeDimension state) {
+        if (isReserved(stateId)) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalSizeDimensionRouteState(route, vehicle, stateId, state);
+    }
+
     <T> void putTypedInternalRouteState(VehicleRoute route, StateId stateId, T state) {
         if (route.isEmpty()) return;
-        if (isIndexedBased) {
-            routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()] = state;
+        if (stateId instanceof DoubleStateId) {
+            putInternalDoubleRouteState(route, (DoubleStateId) stateId, state == null ? DoubleStateId.NO_VALUE : ((Number) state).doubleValue());
+        } else if (stateId instanceof IntStateId) {
+            putInternalIntRouteState(route, (IntStateId) stateId, state == null ? IntStateId.NO_VALUE : ((Number) state).intValue());
+        } else if (stateId instanceof SizeDimensionStateId) {
+            putInternalSizeDimensionRouteState(route, (SizeDimensionStateId) stateId, (SizeDimension) state);
         } else {
-            if (!routeStateMap.containsKey(route)) {
-                routeStateMap.put(route, new Object[stateIndexCounter]);
-            }
-            routeStateMap.get(route)[stateId.getIndex()] = state;
+            int slot = getOrAssignRouteSlot(route);
+            routeStatesArr[slot][stateId.getIndex()] = state;
         }
     }
 
     <T> void putTypedInternalRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId, T state) {
         if (route.isEmpty()) return;
-        if (isIndexedBased) {
-            vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
+        if (stateId instanceof DoubleStateId) {
+            putInternalDoubleRouteState(route, vehicle, (DoubleStateId) stateId, state == null ? DoubleStateId.NO_VALUE : ((Number) state).doubleValue());
+        } else if (stateId instanceof IntStateId) {
+            putInternalIntRouteState(route, vehicle, (IntStateId) stateId, state == null ? IntStateId.NO_VALUE : ((Number) state).intValue());
+        } else if (stateId instanceof SizeDimensionStateId) {
+            putInternalSizeDimensionRouteState(route, vehicle, (SizeDimensionStateId) stateId, (SizeDimension) state);
         } else {
-            if (!vehicleDependentRouteStateMap.containsKey(route)) {
-                vehicleDependentRouteStateMap.put(route, new Object[nuVehicleTypeKeys][stateIndexCounter]);
-            }
-            vehicleDependentRouteStateMap.get(route)[vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
+            int slot = getOrAssignRouteSlot(route);
+            vehicleDependentRouteStatesArr[slot][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
         }
+    }
+
+    void putInternalDoubleRouteState(VehicleRoute route, DoubleStateId stateId, double state) {
+        if (route.isEmpty()) return;
+        int slot = getOrAssignRouteSlot(route);
+        doubleRouteStates[stateId.getIndex()][slot] = state;
+    }
+
+    void putInternalDoubleRouteState(VehicleRoute route, Vehicle vehicle, DoubleStateId stateId, double state) {
+        if (route.isEmpty()) return;
+        int slot = getOrAssignRouteSlot(route);
+        vehicleDependentDoubleRouteStates[stateId.getIndex()][vehicleDependentRouteIndex(slot, vehicle)] = state;
+    }
+
+    void putInternalIntRouteState(VehicleRoute route, IntStateId stateId, int state) {
+        if (route.isEmpty()) return;
+        int slot = getOrAssignRouteSlot(route);
+        intRouteStates[stateId.getIndex()][slot] = state;
+    }
 
+    void putInternalIntRouteState(VehicleRoute route, Vehicle vehicle, IntStateId stateId, int state) {
+        if (route.isEmpty()) return;
+        int slot = getOrAssignRouteSlot(route);
+        vehicleDependentIntRouteStates[stateId.getIndex()][vehicleDependentRouteIndex(slot, vehicle)] = state;
+    }
+
+    void putInternalSizeDimensionRouteState(VehicleRoute route, SizeDimensionStateId stateId, SizeDimension state) {
+        if (route.isEmpty()) return;
+        int slot = getOrAssignRouteSlot(route);
+        sizeDimensionRouteStates[stateId.getIndex()][slot] = state;
+    }
+
+    void putInternalSizeDimensionRouteState(VehicleRoute route, Vehicle vehicle, SizeDimensionStateId stateId, SizeDimension state) {
+        if (route.isEmpty()) return;
+        int slot = getOrAssignRouteSlot(route);
+        vehicleDependentSizeDimensionRouteStates[stateId.getIndex()][vehicleDependentRouteIndex(slot, vehicle)] = state;
     }
 
     /**
@@ -488,13 +1220,22 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      * <p>
      * <p>The following rule pertain for activity/route visitors:These visitors visits all activities/route in a route subsequently in two cases. First, if insertionStart (after ruinStrategies have removed activities from routes)
      * and, second, if a job has been inserted and thus if a route has changed.
+     * <p>
+     * <p>In the latter case, only the changed segment of the route is visited if all activity visitors implement
+     * {@link IncrementalActivityVisitor} and all reverse activity visitors implement {@link IncrementalReverseActivityVisitor}.
+     * <p>
+     * <p>An updater that is a route visitor is visited with every changed route, even if it is an activity visitor as well.
+     * The only exception are updaters that implement {@link IncrementalActivityVisitor} or {@link IncrementalReverseActivityVisitor},
+     * since they declare to update their states through the activity visits only. They are not registered as route visitor.
      *
      * @param updater the update to be added
      */
     public void addStateUpdater(StateUpdater updater) {
         if (updater instanceof ActivityVisitor) addActivityVisitor((ActivityVisitor) updater);
         if (updater instanceof ReverseActivityVisitor) addActivityVisitor((ReverseActivityVisitor) updater);
-        if (updater instanceof RouteVisitor) addRouteVisitor((RouteVisitor) updater);
+        if (updater instanceof RouteVisitor && !(updater instanceof IncrementalActivityVisitor) && !(updater instanceof IncrementalReverseActivityVisitor)) {
+            addRouteVisitor((RouteVisitor) updater);
+        }
         if (updater instanceof InsertionListener) addListener((InsertionListener) updater);
         if (updater instanceof RuinListener) addListener((RuinListener) updater);
         updaters.add(updater);
@@ -533,7 +1274,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      * @param activityVistor activityVisitor to add
      */
     void addActivityVisitor(ReverseActivityVisitor activityVistor) {
-        revRouteActivityVisitor.addActivityVisitor(activityVistor);
+        routeActivityVisitor.addActivityVisitor(activityVistor);
     }
 
     void addRouteVisitor(RouteVisitor routeVisitor) {
@@ -555,8 +1296,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         for (RouteVisitor v : routeVisitors) {
             v.visit(inRoute);
         }
-        routeActivityVisitor.visit(inRoute);
-        revRouteActivityVisitor.visit(inRoute);
+        routeActivityVisitor.visitChangedSegment(inRoute);
     }
 
     @Override
@@ -567,7 +1307,6 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
                 v.visit(route);
             }
             routeActivityVisitor.visit(route);
-            revRouteActivityVisitor.visit(route);
         }
     }
 
@@ -610,9 +1349,8 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
             UpdateLoads updateLoads = new UpdateLoads(this);
             addActivityVisitor(updateLoads);
             addListener(updateLoads);
-            addActivityVisitor(new UpdateMaxCapacityUtilisationAtActivitiesByLookingBackwardInRoute(this));
+            addActivityVisitor(new UpdateMaxCapacityUtilisationAtActivitiesByLookingBackwardInRoute(this, updateLoads));
             addActivityVisitor(new UpdateMaxCapacityUtilisationAtActivitiesByLookingForwardInRoute(this));
-            addActivityVisitor(new UpdateMaxCapacityUtilisationAtRoute(this));
         }
     }
 
@@ -20,7 +20,6 @@ package com.graphhopper.jsprit.core.algorithm.state;
 import com.graphhopper.jsprit.core.problem.cost.ForwardTransportTime;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.util.ActivityTimeTracker;
 
@@ -32,12 +31,16 @@ import com.graphhopper.jsprit.core.util.ActivityTimeTracker;
  *
  * @author stefan
  */
-public class UpdateActivityTimes implements ActivityVisitor, StateUpdater {
+public class UpdateActivityTimes implements IncrementalActivityVisitor, StateUpdater {
 
     private ActivityTimeTracker timeTracker;
 
     private VehicleRoute route;
 
+    private boolean resumed = false;
+
+    private boolean endTimeUnchanged = false;
+
     /**
      * Updates arrival and end times of activities.
      * <p>
@@ -61,15 +64,36 @@ public class UpdateActivityTimes implements ActivityVisitor, StateUpdater {
         timeTracker.begin(route);
         this.route = route;
         route.getStart().setEndTime(timeTracker.getActEndTime());
+        resumed = false;
+    }
+
+    @Override
+    public boolean resume(VehicleRoute route, int fromIndex) {
+        if (fromIndex == 0) {
+            begin(route);
+        } else {
+            TourActivity prevAct = route.getActivities().get(fromIndex - 1);
+            timeTracker.resume(route, prevAct, prevAct.getEndTime());
+            this.route = route;
+        }
+        resumed = true;
+        endTimeUnchanged = false;
+        return true;
     }
 
     @Override
     public void visit(TourActivity activity) {
         timeTracker.visit(activity);
         activity.setArrTime(timeTracker.getActArrTime());
+        if (resumed) endTimeUnchanged = activity.getEndTime() == timeTracker.getActEndTime();
         activity.setEndTime(timeTracker.getActEndTime());
     }
 
+    @Override
+    public boolean finishIfConverged() {
+        return endTimeUnchanged;
+    }
+
     @Override
     public void finish() {
         timeTracker.finish();
@@ -20,7 +20,6 @@ package com.graphhopper.jsprit.core.algorithm.state;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.BreakActivity;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 
 /**
@@ -28,7 +27,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
  *
  * @author schroeder
  */
-public class UpdateFutureWaitingTimes implements ReverseActivityVisitor, StateUpdater {
+public class UpdateFutureWaitingTimes implements IncrementalReverseActivityVisitor, StateUpdater {
 
     private StateManager states;
 
@@ -38,6 +37,10 @@ public class UpdateFutureWaitingTimes implements ReverseActivityVisitor, StateUp
 
     private double futureWaiting;
 
+    private boolean resumed = false;
+
+    private boolean futureWaitingUnchanged = false;
+
     public UpdateFutureWaitingTimes(StateManager states, VehicleRoutingTransportCosts tpCosts) {
         super();
         this.states = states;
@@ -48,16 +51,44 @@ public class UpdateFutureWaitingTimes implements ReverseActivityVisitor, StateUp
     public void begin(VehicleRoute route) {
         this.route = route;
         this.futureWaiting = 0.;
+        resumed = false;
+    }
+
+    @Override
+    public boolean resume(VehicleRoute route, int fromIndex) {
+        if (fromIndex == route.getActivities().size() - 1) {
+            begin(route);
+        } else {
+            TourActivity nextAct = route.getActivities().get(fromIndex + 1);
+            double futureWaitingAtNextAct = states.getDoubleActivityState(nextAct, route.getVehicle(), InternalStates.FUTURE_WAITING);
+            if (Double.isNaN(futureWaitingAtNextAct)) return false;
+            this.route = route;
+            futureWaiting = futureWaitingAtNextAct;
+            if (!(nextAct instanceof BreakActivity)) {
+                futureWaiting += Math.max(nextAct.getTheoreticalEarliestOperationStartTime() - nextAct.getArrTime(), 0);
+            }
+        }
+        resumed = true;
+        futureWaitingUnchanged = false;
+        return true;
     }
 
     @Override
     public void visit(TourActivity activity) {
-        states.putInternalTypedActivityState(activity, route.getVehicle(), InternalStates.FUTURE_WAITING, futureWaiting);
+        if (resumed) {
+            futureWaitingUnchanged = futureWaiting == states.getDoubleActivityState(activity, route.getVehicle(), InternalStates.FUTURE_WAITING);
+        }
+        states.putInternalDoubleActivityState(activity, route.getVehicle(), InternalStates.FUTURE_WAITING, futureWaiting);
         if (!(activity instanceof BreakActivity)) {
             futureWaiting += Math.max(activity.getTheoreticalEarliestOperationStartTime() - activity.getArrTime(), 0);
         }
     }
 
+    @Override
+    public boolean finishIfConverged() {
+        return futureWaitingUnchanged;
+    }
+
     @Override
     public void finish() {
     }
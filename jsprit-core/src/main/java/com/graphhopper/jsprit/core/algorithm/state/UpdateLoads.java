@@ -27,7 +27,6 @@ import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.PickupJob;
 import com.graphhopper.jsprit.core.problem.job.ServiceJob;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 
 
@@ -41,7 +40,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
  *
  * @author stefan
  */
-class UpdateLoads implements ActivityVisitor, StateUpdater, InsertionStartsListener, JobInsertedListener {
+class UpdateLoads implements IncrementalActivityVisitor, StateUpdater, InsertionStartsListener, JobInsertedListener {
 
     private StateManager stateManager;
 
@@ -52,6 +51,12 @@ class UpdateLoads implements ActivityVisitor, StateUpdater, InsertionStartsListe
 
     private SizeDimension defaultValue;
 
+    private boolean loadAtBeginningChanged = false;
+
+    private boolean resumed = false;
+
+    private boolean loadUnchanged = false;
+
 
     public UpdateLoads(StateManager stateManager) {
         super();
@@ -61,20 +66,53 @@ class UpdateLoads implements ActivityVisitor, StateUpdater, InsertionStartsListe
 
     @Override
     public void begin(VehicleRoute route) {
-        currentLoad = stateManager.getRouteState(route, InternalStates.LOAD_AT_BEGINNING, SizeDimension.class);
+        currentLoad = stateManager.getSizeDimensionRouteState(route, InternalStates.LOAD_AT_BEGINNING);
         if (currentLoad == null) {
             currentLoad = defaultValue;
         }
+        loadAtBeginningChanged = false;
+        resumed = false;
+    }
+
+    @Override
+    public boolean resume(VehicleRoute route, int fromIndex) {
+        if (loadAtBeginningChanged) return false;
+        if (fromIndex == 0) {
+            begin(route);
+        } else {
+            currentLoad = stateManager.getSizeDimensionActivityState(route.getActivities().get(fromIndex - 1), InternalStates.LOAD);
+            if (currentLoad == null) return false;
+        }
+        resumed = true;
+        loadUnchanged = false;
+        return true;
     }
 
     @Override
     public void visit(TourActivity act) {
         currentLoad = currentLoad.add(act.getLoadChange());
-        stateManager.putInternalTypedActivityState(act, InternalStates.LOAD, currentLoad);
+        if (resumed) {
+            loadUnchanged = currentLoad.equals(stateManager.getSizeDimensionActivityState(act, InternalStates.LOAD));
+        }
+        stateManager.putInternalSizeDimensionActivityState(act, InternalStates.LOAD, currentLoad);
         //		assert currentLoad.isLessOrEqual(route.getVehicle().getType().getCapacityDimensions()) : "currentLoad at activity must not be > vehicleCapacity";
         //		assert currentLoad.isGreaterOrEqual(SizeDimension.Builder.newInstance().build()) : "currentLoad at act must not be < 0 in one of the applied dimensions";
     }
 
+    @Override
+    public boolean finishIfConverged() {
+        if (loadUnchanged) finish();
+        return loadUnchanged;
+    }
+
+    /**
+     * Returns true if the load at the last visited activity has not changed, i.e. if the loads of all
+     * subsequent activities do not change either. This is only determined when resuming.
+     */
+    boolean isLoadUnchanged() {
+        return resumed && loadUnchanged;
+    }
+
     @Override
     public void finish() {
         currentLoad = SizeDimension.Builder.newInstance().build();
@@ -90,8 +128,9 @@ class UpdateLoads implements ActivityVisitor, StateUpdater, InsertionStartsListe
                 loadAtEnd = loadAtEnd.add(j.getSize());
             }
         }
-        stateManager.putTypedInternalRouteState(route, InternalStates.LOAD_AT_BEGINNING, loadAtDepot);
-        stateManager.putTypedInternalRouteState(route, InternalStates.LOAD_AT_END, loadAtEnd);
+        stateManager.putInternalSizeDimensionRouteState(route, InternalStates.LOAD_AT_BEGINNING, loadAtDepot);
+        stateManager.putInternalSizeDimensionRouteState(route, InternalStates.LOAD_AT_END, loadAtEnd);
+        loadAtBeginningChanged = true;
     }
 
     @Override
@@ -104,18 +143,19 @@ class UpdateLoads implements ActivityVisitor, StateUpdater, InsertionStartsListe
     @Override
     public void informJobInserted(Job job2insert, VehicleRoute inRoute, double additionalCosts, double additionalTime) {
         if (job2insert instanceof DeliveryJob) {
-            SizeDimension loadAtDepot = stateManager.getRouteState(inRoute, InternalStates.LOAD_AT_BEGINNING, SizeDimension.class);
+            SizeDimension loadAtDepot = stateManager.getSizeDimensionRouteState(inRoute, InternalStates.LOAD_AT_BEGINNING);
             if (loadAtDepot == null) {
                 loadAtDepot = defaultValue;
             }
-            stateManager.putTypedInternalRouteState(inRoute, InternalStates.LOAD_AT_BEGINNING,
+            stateManager.putInternalSizeDimensionRouteState(inRoute, InternalStates.LOAD_AT_BEGINNING,
                             loadAtDepot.add(job2insert.getSize()));
+            loadAtBeginningChanged = true;
         } else if (job2insert instanceof PickupJob || job2insert instanceof ServiceJob) {
-            SizeDimension loadAtEnd = stateManager.getRouteState(inRoute, InternalStates.LOAD_AT_END, SizeDimension.class);
+            SizeDimension loadAtEnd = stateManager.getSizeDimensionRouteState(inRoute, InternalStates.LOAD_AT_END);
             if (loadAtEnd == null) {
                 loadAtEnd = defaultValue;
             }
-            stateManager.putTypedInternalRouteState(inRoute, InternalStates.LOAD_AT_END,
+            stateManager.putInternalSizeDimensionRouteState(inRoute, InternalStates.LOAD_AT_END,
                             loadAtEnd.add(job2insert.getSize()));
         }
     }
@@ -19,46 +19,79 @@ package com.graphhopper.jsprit.core.algorithm.state;
 
 import com.graphhopper.jsprit.core.problem.SizeDimension;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 
 /**
  * Determines and memorizes the maximum capacity utilization at each activity by looking backward in route,
- * i.e. the maximum capacity utilization at previous activities.
+ * i.e. the maximum capacity utilization at previous activities. The maximum capacity utilization at the last
+ * activity is memorized as maximum capacity utilization of the route.
+ * <p>
+ * <p>It depends on the loads determined by {@link UpdateLoads}, which therefore needs to visit activities first.
  *
  * @author schroeder
  */
-class UpdateMaxCapacityUtilisationAtActivitiesByLookingBackwardInRoute implements ActivityVisitor, StateUpdater {
+class UpdateMaxCapacityUtilisationAtActivitiesByLookingBackwardInRoute implements IncrementalActivityVisitor, StateUpdater {
 
     private StateManager stateManager;
 
+    private UpdateLoads updateLoads;
+
     private VehicleRoute route;
 
     private SizeDimension maxLoad;
 
     private SizeDimension defaultValue;
 
-    public UpdateMaxCapacityUtilisationAtActivitiesByLookingBackwardInRoute(StateManager stateManager) {
+    private boolean resumed = false;
+
+    private boolean maxLoadUnchanged = false;
+
+    public UpdateMaxCapacityUtilisationAtActivitiesByLookingBackwardInRoute(StateManager stateManager, UpdateLoads updateLoads) {
         this.stateManager = stateManager;
+        this.updateLoads = updateLoads;
         defaultValue = SizeDimension.Builder.newInstance().build();
     }
 
     @Override
     public void begin(VehicleRoute route) {
         this.route = route;
-        maxLoad = stateManager.getRouteState(route, InternalStates.LOAD_AT_BEGINNING, SizeDimension.class);
+        maxLoad = stateManager.getSizeDimensionRouteState(route, InternalStates.LOAD_AT_BEGINNING);
         if (maxLoad == null) maxLoad = defaultValue;
+        resumed = false;
+    }
+
+    @Override
+    public boolean resume(VehicleRoute route, int fromIndex) {
+        if (fromIndex == 0) {
+            begin(route);
+        } else {
+            this.route = route;
+            maxLoad = stateManager.getSizeDimensionActivityState(route.getActivities().get(fromIndex - 1), InternalStates.PAST_MAXLOAD);
+            if (maxLoad == null) return false;
+        }
+        resumed = true;
+        maxLoadUnchanged = false;
+        return true;
     }
 
     @Override
     public void visit(TourActivity act) {
-        maxLoad = SizeDimension.max(maxLoad, stateManager.getActivityState(act, InternalStates.LOAD, SizeDimension.class));
-        stateManager.putInternalTypedActivityState(act, InternalStates.PAST_MAXLOAD, maxLoad);
+        maxLoad = SizeDimension.max(maxLoad, stateManager.getSizeDimensionActivityState(act, InternalStates.LOAD));
+        if (resumed) {
+            maxLoadUnchanged = maxLoad.equals(stateManager.getSizeDimensionActivityState(act, InternalStates.PAST_MAXLOAD));
+        }
+        stateManager.putInternalSizeDimensionActivityState(act, InternalStates.PAST_MAXLOAD, maxLoad);
 //		assert maxLoad.isGreaterOrEqual(SizeDimension.Builder.newInstance().build()) : "maxLoad can never be smaller than 0";
 //		assert maxLoad.isLessOrEqual(route.getVehicle().getType().getCapacityDimensions()) : "maxLoad can never be bigger than vehicleCap";
     }
 
+    @Override
+    public boolean finishIfConverged() {
+        return maxLoadUnchanged && updateLoads.isLoadUnchanged();
+    }
+
     @Override
     public void finish() {
+        stateManager.putInternalSizeDimensionRouteState(route, InternalStates.MAXLOAD, maxLoad);
     }
 }
@@ -19,7 +19,6 @@ package com.graphhopper.jsprit.core.algorithm.state;
 
 import com.graphhopper.jsprit.core.problem.SizeDimension;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 
 /**
@@ -39,7 +38,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
  *
  * @author schroeder
  */
-class UpdateMaxCapacityUtilisationAtActivitiesByLookingForwardInRoute implements ReverseActivityVisitor, StateUpdater {
+class UpdateMaxCapacityUtilisationAtActivitiesByLookingForwardInRoute implements IncrementalReverseActivityVisitor, StateUpdater {
 
     private StateManager stateManager;
 
@@ -49,6 +48,10 @@ class UpdateMaxCapacityUtilisationAtActivitiesByLookingForwardInRoute implements
 
     private SizeDimension defaultValue;
 
+    private boolean resumed = false;
+
+    private boolean maxLoadUnchanged = false;
+
     public UpdateMaxCapacityUtilisationAtActivitiesByLookingForwardInRoute(StateManager stateManager) {
         super();
         this.stateManager = stateManager;
@@ -58,18 +61,41 @@ class UpdateMaxCapacityUtilisationAtActivitiesByLookingForwardInRoute implements
     @Override
     public void begin(VehicleRoute route) {
         this.route = route;
-        maxLoad = stateManager.getRouteState(route, InternalStates.LOAD_AT_END, SizeDimension.class);
+        maxLoad = stateManager.getSizeDimensionRouteState(route, InternalStates.LOAD_AT_END);
         if (maxLoad == null) maxLoad = defaultValue;
+        resumed = false;
+    }
+
+    @Override
+    public boolean resume(VehicleRoute route, int fromIndex) {
+        if (fromIndex == route.getActivities().size() - 1) {
+            begin(route);
+        } else {
+            this.route = route;
+            maxLoad = stateManager.getSizeDimensionActivityState(route.getActivities().get(fromIndex + 1), InternalStates.FUTURE_MAXLOAD);
+            if (maxLoad == null) return false;
+        }
+        resumed = true;
+        maxLoadUnchanged = false;
+        return true;
     }
 
     @Override
     public void visit(TourActivity act) {
-        maxLoad = SizeDimension.max(maxLoad, stateManager.getActivityState(act, InternalStates.LOAD, SizeDimension.class));
-        stateManager.putInternalTypedActivityState(act, InternalStates.FUTURE_MAXLOAD, maxLoad);
+        maxLoad = SizeDimension.max(maxLoad, stateManager.getSizeDimensionActivityState(act, InternalStates.LOAD));
+        if (resumed) {
+            maxLoadUnchanged = maxLoad.equals(stateManager.getSizeDimensionActivityState(act, InternalStates.FUTURE_MAXLOAD));
+        }
+        stateManager.putInternalSizeDimensionActivityState(act, InternalStates.FUTURE_MAXLOAD, maxLoad);
 //		assert maxLoad.isLessOrEqual(route.getVehicle().getType().getCapacityDimensions()) : "maxLoad can in every capacity dimension never be bigger than vehicleCap";
 //		assert maxLoad.isGreaterOrEqual(SizeDimension.Builder.newInstance().build()) : "maxLoad can never be smaller than 0";
     }
 
+    @Override
+    public boolean finishIfConverged() {
+        return maxLoadUnchanged;
+    }
+
     @Override
     public void finish() {
     }
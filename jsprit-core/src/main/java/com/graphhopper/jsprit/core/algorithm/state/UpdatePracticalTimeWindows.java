@@ -20,7 +20,6 @@ package com.graphhopper.jsprit.core.algorithm.state;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 
 /**
@@ -28,7 +27,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
  *
  * @author schroeder
  */
-class UpdatePracticalTimeWindows implements ReverseActivityVisitor, StateUpdater {
+class UpdatePracticalTimeWindows implements IncrementalReverseActivityVisitor, StateUpdater {
 
     private StateManager states;
 
@@ -42,6 +41,10 @@ class UpdatePracticalTimeWindows implements ReverseActivityVisitor, StateUpdater
 
     private TourActivity prevAct;
 
+    private boolean resumed = false;
+
+    private boolean latestArrTimeUnchanged = false;
+
     public UpdatePracticalTimeWindows(StateManager states, VehicleRoutingTransportCosts tpCosts, VehicleRoutingActivityCosts activityCosts) {
         super();
         this.states = states;
@@ -54,6 +57,24 @@ class UpdatePracticalTimeWindows implements ReverseActivityVisitor, StateUpdater
         this.route = route;
         latestArrTimeAtPrevAct = route.getEnd().getTheoreticalLatestOperationStartTime();
         prevAct = route.getEnd();
+        resumed = false;
+    }
+
+    @Override
+    public boolean resume(VehicleRoute route, int fromIndex) {
+        if (fromIndex == route.getActivities().size() - 1) {
+            begin(route);
+        } else {
+            TourActivity nextAct = route.getActivities().get(fromIndex + 1);
+            double latestArrTime = states.getDoubleActivityState(nextAct, InternalStates.LATEST_OPERATION_START_TIME);
+            if (Double.isNaN(latestArrTime)) return false;
+            this.route = route;
+            latestArrTimeAtPrevAct = latestArrTime;
+            prevAct = nextAct;
+        }
+        resumed = true;
+        latestArrTimeUnchanged = false;
+        return true;
     }
 
     @Override
@@ -61,12 +82,20 @@ class UpdatePracticalTimeWindows implements ReverseActivityVisitor, StateUpdater
         double potentialLatestArrivalTimeAtCurrAct = latestArrTimeAtPrevAct - transportCosts.getBackwardTransportTime(activity.getLocation(), prevAct.getLocation(), latestArrTimeAtPrevAct, route.getDriver(), route.getVehicle()) - activityCosts.getActivityDuration(activity, latestArrTimeAtPrevAct, route.getDriver(), route.getVehicle());
         double latestArrivalTime = Math.min(activity.getTheoreticalLatestOperationStartTime(), potentialLatestArrivalTimeAtCurrAct);
 
-        states.putInternalTypedActivityState(activity, InternalStates.LATEST_OPERATION_START_TIME, latestArrivalTime);
+        if (resumed) {
+            latestArrTimeUnchanged = latestArrivalTime == states.getDoubleActivityState(activity, InternalStates.LATEST_OPERATION_START_TIME);
+        }
+        states.putInternalDoubleActivityState(activity, InternalStates.LATEST_OPERATION_START_TIME, latestArrivalTime);
 
         latestArrTimeAtPrevAct = latestArrivalTime;
         prevAct = activity;
     }
 
+    @Override
+    public boolean finishIfConverged() {
+        return latestArrTimeUnchanged;
+    }
+
     @Override
     public void finish() {
     }
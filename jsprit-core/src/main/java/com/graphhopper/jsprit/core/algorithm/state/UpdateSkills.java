@@ -20,14 +20,13 @@ package com.graphhopper.jsprit.core.algorithm.state;
 
 import com.graphhopper.jsprit.core.problem.Skills;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.JobActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 
 /**
  * Update to update required skills on route
  */
-public class UpdateSkills implements StateUpdater, ActivityVisitor {
+public class UpdateSkills implements StateUpdater, IncrementalActivityVisitor {
 
     private Skills.Builder skillBuilder;
 
@@ -45,6 +44,15 @@ public class UpdateSkills implements StateUpdater, ActivityVisitor {
         skillBuilder = Skills.Builder.newInstance();
     }
 
+    @Override
+    public boolean resume(VehicleRoute route, int fromIndex) {
+        Skills skills = statesManager.getRouteState(route, InternalStates.SKILLS, Skills.class);
+        if (skills == null) return false;
+        begin(route);
+        skillBuilder.addAllSkills(skills.values());
+        return true;
+    }
+
     @Override
     public void visit(TourActivity activity) {
         if (activity instanceof JobActivity) {
@@ -53,6 +61,15 @@ public class UpdateSkills implements StateUpdater, ActivityVisitor {
         }
     }
 
+    /**
+     * Skills of jobs behind the changed segment are already part of the memorized route skills.
+     */
+    @Override
+    public boolean finishIfConverged() {
+        finish();
+        return true;
+    }
+
     @Override
     public void finish() {
         Skills skills = skillBuilder.build();
@@ -21,10 +21,11 @@ import com.graphhopper.jsprit.core.problem.cost.ForwardTransportCost;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.util.ActivityTimeTracker;
 
+import java.util.List;
+
 
 /**
  * Updates total costs (i.e. transport and activity costs) at route and activity level.
@@ -32,7 +33,7 @@ import com.graphhopper.jsprit.core.util.ActivityTimeTracker;
  * <p>Thus it modifies <code>stateManager.getRouteState(route, StateTypes.COSTS)</code> and <br>
  * <code>stateManager.getActivityState(activity, StateTypes.COSTS)</code>
  */
-public class UpdateVariableCosts implements ActivityVisitor, StateUpdater {
+public class UpdateVariableCosts implements IncrementalActivityVisitor, StateUpdater {
 
     private VehicleRoutingActivityCosts activityCost;
 
@@ -50,6 +51,12 @@ public class UpdateVariableCosts implements ActivityVisitor, StateUpdater {
 
     private ActivityTimeTracker timeTracker;
 
+    private int actIndex = 0;
+
+    private boolean resumed = false;
+
+    private boolean endTimeUnchanged = false;
+
     /**
      * Updates total costs (i.e. transport and activity costs) at route and activity level.
      * <p>
@@ -81,6 +88,29 @@ public class UpdateVariableCosts implements ActivityVisitor, StateUpdater {
         timeTracker.begin(route);
         prevAct = route.getStart();
         startTimeAtPrevAct = timeTracker.getActEndTime();
+        actIndex = 0;
+        resumed = false;
+    }
+
+    @Override
+    public boolean resume(VehicleRoute route, int fromIndex) {
+        if (fromIndex == 0) {
+            begin(route);
+        } else {
+            TourActivity prevAct = route.getActivities().get(fromIndex - 1);
+            double costsAtPrevAct = states.getDoubleActivityState(prevAct, InternalStates.COSTS);
+            double endTimeAtPrevAct = states.getDoubleActivityState(prevAct, InternalStates.END_TIME);
+            if (Double.isNaN(costsAtPrevAct) || Double.isNaN(endTimeAtPrevAct)) return false;
+            vehicleRoute = route;
+            timeTracker.resume(route, prevAct, endTimeAtPrevAct);
+            this.prevAct = prevAct;
+            startTimeAtPrevAct = endTimeAtPrevAct;
+            totalOperationCost = costsAtPrevAct;
+            actIndex = fromIndex;
+        }
+        resumed = true;
+        endTimeUnchanged = false;
+        return true;
     }
 
     @Override
@@ -93,10 +123,39 @@ public class UpdateVariableCosts implements ActivityVisitor, StateUpdater {
         totalOperationCost += transportCost;
         totalOperationCost += actCost;
 
-        states.putInternalTypedActivityState(act, InternalStates.COSTS, totalOperationCost);
+        states.putInternalDoubleActivityState(act, InternalStates.COSTS, totalOperationCost);
+        states.putInternalDoubleActivityState(act, InternalStates.TRANSPORT_COSTS, transportCost);
+        states.putInternalDoubleActivityState(act, InternalStates.ACTIVITY_COSTS, actCost);
+        if (resumed) {
+            endTimeUnchanged = timeTracker.getActEndTime() == states.getDoubleActivityState(act, InternalStates.END_TIME);
+        }
+        states.putInternalDoubleActivityState(act, InternalStates.END_TIME, timeTracker.getActEndTime());
 
         prevAct = act;
         startTimeAtPrevAct = timeTracker.getActEndTime();
+        actIndex++;
+    }
+
+    /**
+     * If the end time is unchanged, transport and activity costs of the remaining legs are unchanged as well. Thus
+     * the cumulated costs of the remaining activities are completed from the memorized leg costs without asking
+     * the cost functions again.
+     */
+    @Override
+    public boolean finishIfConverged() {
+        if (!endTimeUnchanged) return false;
+        List<TourActivity> activities = vehicleRoute.getActivities();
+        for (int i = actIndex; i < activities.size(); i++) {
+            TourActivity act = activities.get(i);
+            totalOperationCost += states.getDoubleActivityState(act, InternalStates.TRANSPORT_COSTS);
+            totalOperationCost += states.getDoubleActivityState(act, InternalStates.ACTIVITY_COSTS);
+            states.putInternalDoubleActivityState(act, InternalStates.COSTS, totalOperationCost);
+            prevAct = act;
+        }
+        startTimeAtPrevAct = states.getDoubleActivityState(prevAct, InternalStates.END_TIME);
+        timeTracker.resume(vehicleRoute, prevAct, startTimeAtPrevAct);
+        finish();
+        return true;
     }
 
     @Override
@@ -108,7 +167,7 @@ public class UpdateVariableCosts implements ActivityVisitor, StateUpdater {
         totalOperationCost += transportCost;
         totalOperationCost += actCost;
 
-        states.putTypedInternalRouteState(vehicleRoute, InternalStates.COSTS, totalOperationCost);
+        states.putInternalDoubleRouteState(vehicleRoute, InternalStates.COSTS, totalOperationCost);
 
         startTimeAtPrevAct = 0.0;
         prevAct = null;
@@ -30,7 +30,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 
-public class UpdateVehicleDependentPracticalTimeWindows implements RouteVisitor, StateUpdater {
+public class UpdateVehicleDependentPracticalTimeWindows implements RouteVisitor, IncrementalReverseActivityVisitor, StateUpdater {
 
     @Override
     public void visit(VehicleRoute route) {
@@ -71,6 +71,10 @@ public class UpdateVehicleDependentPracticalTimeWindows implements RouteVisitor,
 
     private Collection<Vehicle> vehicles;
 
+    private boolean resumed = false;
+
+    private boolean latestArrTimesUnchanged = false;
+
     public UpdateVehicleDependentPracticalTimeWindows(StateManager stateManager, VehicleRoutingTransportCosts tpCosts, VehicleRoutingActivityCosts activityCosts) {
         super();
         this.stateManager = stateManager;
@@ -96,10 +100,32 @@ public class UpdateVehicleDependentPracticalTimeWindows implements RouteVisitor,
             }
             location_of_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = location;
         }
+        resumed = false;
+    }
+
+    @Override
+    public boolean resume(VehicleRoute route, int fromIndex) {
+        if (fromIndex == route.getActivities().size() - 1) {
+            begin(route);
+        } else {
+            this.route = route;
+            vehicles = vehiclesToUpdate.get(route);
+            TourActivity nextAct = route.getActivities().get(fromIndex + 1);
+            for (Vehicle vehicle : vehicles) {
+                double latestArrTime = stateManager.getDoubleActivityState(nextAct, vehicle, InternalStates.LATEST_OPERATION_START_TIME);
+                if (Double.isNaN(latestArrTime)) return false;
+                latest_arrTimes_at_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = latestArrTime;
+                location_of_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = nextAct.getLocation();
+            }
+        }
+        resumed = true;
+        latestArrTimesUnchanged = false;
+        return true;
     }
 
 
     public void visit(TourActivity activity) {
+        boolean unchanged = true;
         for (Vehicle vehicle : vehicles) {
             double latestArrTimeAtPrevAct = latest_arrTimes_at_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()];
             Location prevLocation = location_of_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()];
@@ -109,10 +135,19 @@ public class UpdateVehicleDependentPracticalTimeWindows implements RouteVisitor,
             if (latestArrivalTime < activity.getTheoreticalEarliestOperationStartTime()) {
                 stateManager.putTypedInternalRouteState(route, vehicle, InternalStates.SWITCH_NOT_FEASIBLE, true);
             }
-            stateManager.putInternalTypedActivityState(activity, vehicle, InternalStates.LATEST_OPERATION_START_TIME, latestArrivalTime);
+            if (resumed) {
+                unchanged &= latestArrivalTime == stateManager.getDoubleActivityState(activity, vehicle, InternalStates.LATEST_OPERATION_START_TIME);
+            }
+            stateManager.putInternalDoubleActivityState(activity, vehicle, InternalStates.LATEST_OPERATION_START_TIME, latestArrivalTime);
             latest_arrTimes_at_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = latestArrivalTime;
             location_of_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = activity.getLocation();
         }
+        latestArrTimesUnchanged = unchanged;
+    }
+
+    @Override
+    public boolean finishIfConverged() {
+        return latestArrTimesUnchanged;
     }
 
 
@@ -1,5 +1,8 @@
 package com.graphhopper.jsprit.core.distance;
 
+import java.util.Collection;
+
+import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.util.Coordinate;
 
 public class SphericalDistanceCalculator implements DistanceCalculator {
@@ -38,4 +41,164 @@ public class SphericalDistanceCalculator implements DistanceCalculator {
         return "Spherical";
     }
 
+    /**
+     * Precomputes the trigonometric terms of the coordinates of the specified locations once, such that distances
+     * between them can be calculated without any sine or cosine, i.e. with one square root and one arc sine.
+     * <p>The table is indexed by {@link Location#getIndex()} and remembers the coordinate of each index, thus it is
+     * bound to the locations of one problem. Locations without index or coordinate are skipped.
+     *
+     * @param locations locations, e.g. {@link com.graphhopper.jsprit.core.problem.VehicleRoutingProblem#getAllLocations()}
+     * @return table
+     */
+    public static Table newTable(Collection<Location> locations) {
+        return new Table(locations);
+    }
+
+    /**
+     * Location-indexed table of precomputed trigonometric terms.
+     * <p>The haversine of the latitude difference is derived from the sines and cosines of the half latitudes, i.e.
+     * sin((lat2 - lat1) / 2) = sin(lat2 / 2) * cos(lat1 / 2) - cos(lat2 / 2) * sin(lat1 / 2), and likewise for the
+     * longitude.
+     */
+    public static final class Table {
+
+        private final boolean[] contained;
+
+        private final double[] halfLatSin;
+
+        private final double[] halfLatCos;
+
+        private final double[] halfLonSin;
+
+        private final double[] halfLonCos;
+
+        private final double[] latCos;
+
+        private final double[] x;
+
+        private final double[] y;
+
+        private Table(Collection<Location> locations) {
+            int noIndices = 0;
+            for (Location location : locations) {
+                noIndices = Math.max(noIndices, location.getIndex() + 1);
+            }
+            contained = new boolean[noIndices];
+            halfLatSin = new double[noIndices];
+            halfLatCos = new double[noIndices];
+            halfLonSin = new double[noIndices];
+            halfLonCos = new double[noIndices];
+            latCos = new double[noIndices];
+            x = new double[noIndices];
+            y = new double[noIndices];
+            for (Location location : locations) {
+                int index = location.getIndex();
+                if (index < 0 || location.getCoordinate() == null) continue;
+                double lat = Math.toRadians(location.getCoordinate().getY());
+                double lon = Math.toRadians(location.getCoordinate().getX());
+                contained[index] = true;
+                halfLatSin[index] = Math.sin(lat / 2);
+                halfLatCos[index] = Math.cos(lat / 2);
+                halfLonSin[index] = Math.sin(lon / 2);
+                halfLonCos[index] = Math.cos(lon / 2);
+                latCos[index] = Math.cos(lat);
+                x[index] = location.getCoordinate().getX();
+                y[index] = location.getCoordinate().getY();
+            }
+        }
+
+        /**
+         * Returns true if the table contains the location with the specified index.
+         *
+         * @param index location index
+         * @return true if contained, false otherwise
+         */
+        public boolean contains(int index) {
+            return index >= 0 && index < contained.length && contained[index];
+        }
+
+        /**
+         * Returns true if the table contains the location with the specified index and coordinate, i.e. if the
+         * precomputed terms of the index belong to the coordinate.
+         *
+         * @param index      location index
+         * @param coordinate coordinate of the location
+         * @return true if contained, false otherwise
+         */
+        public boolean contains(int index, Coordinate coordinate) {
+            return contains(index) && x[index] == coordinate.getX() && y[index] == coordinate.getY();
+        }
+
+        /**
+         * Returns the number of indices, i.e. the maximum location index + 1.
+         *
+         * @return number of indices
+         */
+        public int getNoIndices() {
+            return contained.length;
+        }
+
+        /**
+         * Returns the great circle distance in km between the locations with the specified indices.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @return distance in km
+         */
+        public double getDistance(int fromIndex, int toIndex) {
+            checkContains(fromIndex);
+            checkContains(toIndex);
+            return distance(fromIndex, toIndex);
+        }
+
+        /**
+         * Calculates the distances in km from one location to many locations.
+         *
+         * @param fromIndex from location index
+         * @param toIndices to location indices
+         * @param distances array to be filled, i.e. distances[i] is the distance to toIndices[i]
+         */
+        public void getDistances(int fromIndex, int[] toIndices, double[] distances) {
+            if (distances.length < toIndices.length) {
+                throw new IllegalArgumentException("distances cannot hold " + toIndices.length + " values");
+            }
+            checkContains(fromIndex);
+            for (int i = 0; i < toIndices.length; i++) {
+                checkContains(toIndices[i]);
+                distances[i] = distance(fromIndex, toIndices[i]);
+            }
+        }
+
+        /**
+         * Calculates the distances in km from one location to all locations of the table. Indices that are not contained
+         * get NaN.
+         *
+         * @param fromIndex from location index
+         * @param distances array to be filled, i.e. distances[toIndex], its length must be at least {@link #getNoIndices()}
+         */
+        public void getDistances(int fromIndex, double[] distances) {
+            if (distances.length < contained.length) {
+                throw new IllegalArgumentException("distances cannot hold " + contained.length + " values");
+            }
+            checkContains(fromIndex);
+            for (int toIndex = 0; toIndex < contained.length; toIndex++) {
+                distances[toIndex] = contained[toIndex] ? distance(fromIndex, toIndex) : Double.NaN;
+            }
+        }
+
+        private double distance(int from, int to) {
+            double deltaLatSin = halfLatSin[to] * halfLatCos[from] - halfLatCos[to] * halfLatSin[from];
+            double deltaLonSin = halfLonSin[to] * halfLonCos[from] - halfLonCos[to] * halfLonSin[from];
+            double a = deltaLatSin * deltaLatSin + deltaLonSin * deltaLonSin * latCos[from] * latCos[to];
+            return R * 2 * Math.asin(Math.sqrt(Math.min(1., a)));
+        }
+
+        private void checkContains(int index) {
+            if (!contains(index)) {
+                throw new IllegalArgumentException("location with index " + index + " is not in table");
+            }
+        }
+
+    }
+
 }
@@ -186,5 +186,10 @@ public class ConstraintManager implements HardActivityConstraint, HardRouteConst
         return softActivityConstraintManager.getCosts(iFacts, prevAct, newAct, nextAct, prevActDepTime);
     }
 
+    @Override
+    public boolean hasNonNegativeCosts() {
+        return softActivityConstraintManager.hasNonNegativeCosts();
+    }
+
 
 }
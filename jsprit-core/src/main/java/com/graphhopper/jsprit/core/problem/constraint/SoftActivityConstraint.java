@@ -24,4 +24,13 @@ public interface SoftActivityConstraint extends SoftConstraint {
 
     public double getCosts(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime);
 
+    /**
+     * Returns true if the costs are never negative, i.e. the constraint never rewards an insertion. Default is false.
+     *
+     * @return true if costs are never negative
+     */
+    public default boolean hasNonNegativeCosts() {
+        return false;
+    }
+
 }
@@ -45,4 +45,12 @@ class SoftActivityConstraintManager implements SoftActivityConstraint {
         return sumCosts;
     }
 
+    @Override
+    public boolean hasNonNegativeCosts() {
+        for (SoftActivityConstraint c : softConstraints) {
+            if (!c.hasNonNegativeCosts()) return false;
+        }
+        return true;
+    }
+
 }
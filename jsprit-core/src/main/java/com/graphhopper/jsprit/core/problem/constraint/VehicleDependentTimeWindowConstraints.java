@@ -19,6 +19,7 @@
 package com.graphhopper.jsprit.core.problem.constraint;
 
 import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
@@ -26,6 +27,7 @@ import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 
 
 /**
@@ -35,6 +37,8 @@ public class VehicleDependentTimeWindowConstraints implements HardActivityConstr
 
     private RouteAndActivityStateGetter states;
 
+    private StateManager typedStates;
+
     private VehicleRoutingTransportCosts routingCosts;
 
     private VehicleRoutingActivityCosts activityCosts;
@@ -42,6 +46,7 @@ public class VehicleDependentTimeWindowConstraints implements HardActivityConstr
     public VehicleDependentTimeWindowConstraints(RouteAndActivityStateGetter states, VehicleRoutingTransportCosts routingCosts, VehicleRoutingActivityCosts activityCosts) {
         super();
         this.states = states;
+        if (states instanceof StateManager) typedStates = (StateManager) states;
         this.routingCosts = routingCosts;
         this.activityCosts = activityCosts;
     }
@@ -49,7 +54,7 @@ public class VehicleDependentTimeWindowConstraints implements HardActivityConstr
     @Override
     public ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
         double latestVehicleArrival = iFacts.getNewVehicle().getLatestArrival();
-        Double latestArrTimeAtNextAct;
+        double latestArrTimeAtNextAct;
         Location nextActLocation;
         if (nextAct instanceof End) {
             latestArrTimeAtNextAct = latestVehicleArrival;
@@ -58,10 +63,7 @@ public class VehicleDependentTimeWindowConstraints implements HardActivityConstr
                 nextActLocation = newAct.getLocation();
             }
         } else {
-            latestArrTimeAtNextAct = states.getActivityState(nextAct, iFacts.getNewVehicle(), InternalStates.LATEST_OPERATION_START_TIME, Double.class);
-            if (latestArrTimeAtNextAct == null) {//otherwise set it to theoretical_latest_operation_startTime
-                latestArrTimeAtNextAct = nextAct.getTheoreticalLatestOperationStartTime();
-            }
+            latestArrTimeAtNextAct = getLatestArrTime(nextAct, iFacts.getNewVehicle());
             nextActLocation = nextAct.getLocation();
         }
 
@@ -145,5 +147,14 @@ public class VehicleDependentTimeWindowConstraints implements HardActivityConstr
         }
         return ConstraintsStatus.FULFILLED;
     }
-}
 
+    private double getLatestArrTime(TourActivity act, Vehicle vehicle) {
+        if (typedStates != null) {
+            double latestArrTime = typedStates.getDoubleActivityState(act, vehicle, InternalStates.LATEST_OPERATION_START_TIME);
+            //if not set, use theoretical_latest_operation_startTime
+            return Double.isNaN(latestArrTime) ? act.getTheoreticalLatestOperationStartTime() : latestArrTime;
+        }
+        Double latestArrTime = states.getActivityState(act, vehicle, InternalStates.LATEST_OPERATION_START_TIME, Double.class);
+        return latestArrTime == null ? act.getTheoreticalLatestOperationStartTime() : latestArrTime;
+    }
+}
@@ -487,6 +487,12 @@ public class VehicleRoute {
 
     private int id = 0;
 
+    private Object stateSlotOwner;
+
+    private int stateSlotGeneration;
+
+    private int stateSlot = -1;
+
     /**
      * Copy constructor copying a route.
      *
@@ -515,6 +521,41 @@ public class VehicleRoute {
         end = builder.end;
     }
 
+    /**
+     * Stamps the slot a state store (e.g. the StateManager) assigned to this route. A route carries the stamp of one
+     * store and generation only, i.e. stamping it again overwrites the previous stamp.
+     *
+     * @param owner      the store assigning the slot
+     * @param generation the generation of the store the slot is valid for
+     * @param slot       the slot index
+     */
+    public void setStateSlot(Object owner, int generation, int slot) {
+        this.stateSlotOwner = owner;
+        this.stateSlotGeneration = generation;
+        this.stateSlot = slot;
+    }
+
+    /**
+     * Returns the slot stamped by the specified owner and generation, or -1 if the route carries another stamp.
+     *
+     * @param owner      the store that assigned the slot
+     * @param generation the current generation of the store
+     * @return the slot index or -1
+     */
+    public int getStateSlot(Object owner, int generation) {
+        if (stateSlotOwner != owner || stateSlotGeneration != generation) return -1;
+        return stateSlot;
+    }
+
+    /**
+     * Returns the store that stamped the current slot, or null if the route has never been stamped.
+     *
+     * @return the owner of the stamp
+     */
+    public Object getStateSlotOwner() {
+        return stateSlotOwner;
+    }
+
     /**
      * Returns an unmodifiable list of activities on this route (without
      * start/end).
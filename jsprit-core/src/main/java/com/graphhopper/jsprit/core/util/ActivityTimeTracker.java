@@ -79,6 +79,21 @@ public class ActivityTimeTracker implements ActivityVisitor {
         beginFirst = true;
     }
 
+    /**
+     * Starts tracking in the middle of the route, i.e. the next activity to visit is the successor of prevAct.
+     *
+     * @param route            the route
+     * @param prevAct          the activity the vehicle departs from
+     * @param endTimeAtPrevAct the time the vehicle departs from prevAct
+     */
+    public void resume(VehicleRoute route, TourActivity prevAct, double endTimeAtPrevAct) {
+        this.prevAct = prevAct;
+        startAtPrevAct = endTimeAtPrevAct;
+        actEndTime = endTimeAtPrevAct;
+        this.route = route;
+        beginFirst = true;
+    }
+
     @Override
     public void visit(TourActivity activity) {
         if (!beginFirst) throw new IllegalStateException("never called begin. this however is essential here");
@@ -0,0 +1,443 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeKey;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Decorator that memoizes transport times, costs and distances of other {@link VehicleRoutingTransportCosts}, e.g. of
+ * {@link DefaultCosts} which recomputes distances from coordinates on every call.
+ * <p>Values are cached by location indices and vehicle type index, thus the decorated costs must neither depend on the
+ * departure time nor on the driver, and vehicles must belong to the {@link com.graphhopper.jsprit.core.problem.VehicleRoutingProblem}
+ * (which assigns type indices). Requests with a location index &lt; 0 or a vehicle without type index are passed
+ * through without caching. Backward times and costs are the forward ones.
+ * <p>Location and type indices are assigned per problem, thus a cache must only be used with a single problem. The
+ * type id of the first vehicle seen with a type index is recorded, and requests of vehicles whose type id differs are
+ * passed through without caching. Locations are not validated.
+ * <p>If the number of locations and vehicle types is known and small enough, values are cached in a lazily filled dense
+ * matrix. Otherwise, they are cached in a bounded hash table that is split into stripes with one write lock each. Both
+ * can be shared among threads, and neither locks on reads.
+ * <p>If the cached costs implement {@link TransportDistance}, the builder returns a {@link WithDistance}, which caches
+ * distances as well.
+ */
+public class CachedVehicleRoutingTransportCosts extends AbstractForwardVehicleRoutingTransportCosts {
+
+    /**
+     * Builder that builds the cache.
+     */
+    public static class Builder {
+
+        private final VehicleRoutingTransportCosts costs;
+
+        private int noLocations = -1;
+
+        private int noVehicleTypes = 1;
+
+        private long maxDenseEntries = 1 << 22;
+
+        private int capacity = 1 << 20;
+
+        private int concurrencyLevel = 16;
+
+        /**
+         * Creates a new builder returning the cache-builder.
+         *
+         * @param costs costs to be cached
+         * @return builder
+         */
+        public static Builder newInstance(VehicleRoutingTransportCosts costs) {
+            return new Builder(costs);
+        }
+
+        private Builder(VehicleRoutingTransportCosts costs) {
+            if (costs == null) throw new IllegalArgumentException("costs to be cached must not be null");
+            this.costs = costs;
+        }
+
+        /**
+         * Sets the number of locations, i.e. the highest location index + 1. This enables the dense cache if
+         * noLocations * noLocations * (noVehicleTypes + 1) values per metric do not exceed maxDenseEntries.
+         *
+         * @param noLocations number of locations
+         * @return builder
+         */
+        public Builder setNoLocations(int noLocations) {
+            this.noLocations = noLocations;
+            return this;
+        }
+
+        /**
+         * Sets the number of vehicle types, i.e. the highest vehicle type index. Default is 1.
+         *
+         * @param noVehicleTypes number of vehicle types
+         * @return builder
+         */
+        public Builder setNoVehicleTypes(int noVehicleTypes) {
+            this.noVehicleTypes = noVehicleTypes;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of values per metric the dense cache may have. Default is 2^22.
+         *
+         * @param maxDenseEntries max number of values
+         * @return builder
+         */
+        public Builder setMaxDenseEntries(long maxDenseEntries) {
+            this.maxDenseEntries = maxDenseEntries;
+            return this;
+        }
+
+        /**
+         * Sets the number of values the hash table can hold. It is rounded up to a power of two. Default is 2^20.
+         *
+         * @param capacity capacity of hash table
+         * @return builder
+         */
+        public Builder setCapacity(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets the number of stripes of the hash table. It is rounded up to a power of two. Default is 16.
+         *
+         * @param concurrencyLevel number of stripes
+         * @return builder
+         */
+        public Builder setConcurrencyLevel(int concurrencyLevel) {
+            if (concurrencyLevel < 1) throw new IllegalArgumentException("concurrency level must be positive");
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        /**
+         * Builds the cache. If the cached costs implement {@link TransportDistance}, the cache does as well.
+         *
+         * @return cache
+         */
+        public CachedVehicleRoutingTransportCosts build() {
+            if (costs instanceof TransportDistance) return new WithDistance(this, (TransportDistance) costs);
+            return new CachedVehicleRoutingTransportCosts(this, false);
+        }
+
+    }
+
+    private static final int TIME = 0;
+
+    private static final int COST = 1;
+
+    private static final int DISTANCE = 2;
+
+    private static final int NO_METRICS = 3;
+
+    private static final int MAX_LOCATION_INDEX = (1 << 26) - 1;
+
+    private static final int MAX_PROFILE = (1 << 10) - 1;
+
+    /**
+     * Cache that returns NaN if a value is missing.
+     */
+    private interface Store {
+
+        double get(int from, int to, int profile, int metric);
+
+        void put(int from, int to, int profile, int metric, double value);
+
+    }
+
+    /**
+     * Lazily filled matrix of all (from, to, profile) combinations. Values are stored as raw long bits, thus writes are
+     * atomic and unsynchronized readers either see the missing marker or the complete value.
+     */
+    private static class DenseStore implements Store {
+
+        private static final long MISSING = Double.doubleToRawLongBits(Double.NaN);
+
+        private final int noLocations;
+
+        private final int noProfiles;
+
+        private final AtomicLongArray[] values;
+
+        DenseStore(int noLocations, int noProfiles, boolean withDistances) {
+            this.noLocations = noLocations;
+            this.noProfiles = noProfiles;
+            values = new AtomicLongArray[NO_METRICS];
+            for (int metric = 0; metric < NO_METRICS; metric++) {
+                if (metric == DISTANCE && !withDistances) continue;
+                long[] initial = new long[noLocations * noLocations * noProfiles];
+                Arrays.fill(initial, MISSING);
+                values[metric] = new AtomicLongArray(initial);
+            }
+        }
+
+        private int cell(int from, int to, int profile) {
+            if (from >= noLocations || to >= noLocations || profile >= noProfiles) return -1;
+            return (profile * noLocations + from) * noLocations + to;
+        }
+
+        @Override
+        public double get(int from, int to, int profile, int metric) {
+            int cell = cell(from, to, profile);
+            if (cell < 0) return Double.NaN;
+            return Double.longBitsToDouble(values[metric].get(cell));
+        }
+
+        @Override
+        public void put(int from, int to, int profile, int metric, double value) {
+            int cell = cell(from, to, profile);
+            if (cell < 0) return;
+            values[metric].lazySet(cell, Double.doubleToRawLongBits(value));
+        }
+
+    }
+
+    /**
+     * Bounded open-addressing hash table split into stripes. Keys are packed into a long, and keys and value bits are
+     * kept in parallel arrays. A lookup probes a few slots after the home slot, an insert evicts the home slot if these
+     * are all taken. Inserts lock their stripe and guard each slot by a sequence number that is odd while the slot is
+     * written, thus lookups need no lock and discard slots that changed while being read.
+     */
+    private static class StripedStore implements Store {
+
+        private static final long EMPTY = -1L;
+
+        private static final int PROBES = 4;
+
+        private final Stripe[] stripes;
+
+        private static class Stripe {
+
+            final AtomicIntegerArray sequences;
+
+            final AtomicLongArray keys;
+
+            final AtomicLongArray values;
+
+            Stripe(int noSlots) {
+                sequences = new AtomicIntegerArray(noSlots);
+                long[] emptyKeys = new long[noSlots];
+                Arrays.fill(emptyKeys, EMPTY);
+                keys = new AtomicLongArray(emptyKeys);
+                values = new AtomicLongArray(noSlots);
+            }
+
+        }
+
+        private final int stripeBits;
+
+        private final int slotMask;
+
+        StripedStore(int capacity, int concurrencyLevel) {
+            int noStripes = ceilToPowerOfTwo(Math.min(concurrencyLevel, 1 << 16));
+            int slotsPerStripe = Math.max(PROBES, ceilToPowerOfTwo(Math.max(1, (capacity + noStripes - 1) / noStripes)));
+            stripeBits = Integer.numberOfTrailingZeros(noStripes);
+            slotMask = slotsPerStripe - 1;
+            stripes = new Stripe[noStripes];
+            for (int stripe = 0; stripe < noStripes; stripe++) {
+                stripes[stripe] = new Stripe(slotsPerStripe);
+            }
+        }
+
+        private static int ceilToPowerOfTwo(int value) {
+            int power = Integer.highestOneBit(value);
+            return power == value ? value : power << 1;
+        }
+
+        private static long key(int from, int to, int profile, int metric) {
+            return ((long) from << 38) | ((long) to << 12) | ((long) profile << 2) | metric;
+        }
+
+        private static long hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 29);
+        }
+
+        @Override
+        public double get(int from, int to, int profile, int metric) {
+            long key = key(from, to, profile, metric);
+            long hash = hash(key);
+            int stripe = stripeBits == 0 ? 0 : (int) (hash >>> (64 - stripeBits));
+            Stripe s = stripes[stripe];
+            for (int probe = 0, slot = (int) hash & slotMask; probe < PROBES; probe++, slot = (slot + 1) & slotMask) {
+                int sequence = s.sequences.get(slot);
+                long slotKey = s.keys.get(slot);
+                long valueBits = s.values.get(slot);
+                if ((sequence & 1) != 0 || s.sequences.get(slot) != sequence) return Double.NaN;
+                if (slotKey == EMPTY) return Double.NaN;
+                if (slotKey == key) return Double.longBitsToDouble(valueBits);
+            }
+            return Double.NaN;
+        }
+
+        @Override
+        public void put(int from, int to, int profile, int metric, double value) {
+            long key = key(from, to, profile, metric);
+            long hash = hash(key);
+            int stripe = stripeBits == 0 ? 0 : (int) (hash >>> (64 - stripeBits));
+            Stripe s = stripes[stripe];
+            int home = (int) hash & slotMask;
+            synchronized (s) {
+                int target = home;
+                for (int probe = 0, slot = home; probe < PROBES; probe++, slot = (slot + 1) & slotMask) {
+                    long slotKey = s.keys.get(slot);
+                    if (slotKey == EMPTY || slotKey == key) {
+                        target = slot;
+                        break;
+                    }
+                }
+                int sequence = s.sequences.get(target);
+                s.sequences.set(target, sequence + 1);
+                s.keys.set(target, key);
+                s.values.set(target, Double.doubleToRawLongBits(value));
+                s.sequences.set(target, sequence + 2);
+            }
+        }
+
+    }
+
+    /**
+     * Cache of costs that also provide distances. Distances are cached like times and costs.
+     */
+    public static class WithDistance extends CachedVehicleRoutingTransportCosts implements TransportDistance {
+
+        private final TransportDistance distances;
+
+        private WithDistance(Builder builder, TransportDistance distances) {
+            super(builder, true);
+            this.distances = distances;
+        }
+
+        @Override
+        public double getDistance(Location from, Location to, double departureTime, Vehicle vehicle) {
+            int profile = super.getProfile(vehicle);
+            if (!isCacheable(from, to, profile)) return distances.getDistance(from, to, departureTime, vehicle);
+            double value = super.store.get(from.getIndex(), to.getIndex(), profile, DISTANCE);
+            if (Double.isNaN(value)) {
+                value = distances.getDistance(from, to, departureTime, vehicle);
+                super.store.put(from.getIndex(), to.getIndex(), profile, DISTANCE, value);
+            }
+            return value;
+        }
+
+    }
+
+    private final VehicleRoutingTransportCosts costs;
+
+    private final Store store;
+
+    /**
+     * Type id of the vehicles cached under each profile.
+     */
+    private final AtomicReferenceArray<String> typeIdsOfProfiles = new AtomicReferenceArray<>(MAX_PROFILE + 1);
+
+    private CachedVehicleRoutingTransportCosts(Builder builder, boolean withDistances) {
+        this.costs = builder.costs;
+        int noProfiles = Math.min(builder.noVehicleTypes, MAX_PROFILE) + 1;
+        long denseEntries = builder.noLocations < 0 ? Long.MAX_VALUE : (long) builder.noLocations * builder.noLocations * noProfiles;
+        if (denseEntries <= builder.maxDenseEntries && denseEntries <= Integer.MAX_VALUE - 8) {
+            store = new DenseStore(builder.noLocations, noProfiles, withDistances);
+        } else {
+            store = new StripedStore(builder.capacity, builder.concurrencyLevel);
+        }
+    }
+
+    /**
+     * Returns the costs that are cached.
+     *
+     * @return cached costs
+     */
+    public VehicleRoutingTransportCosts getCachedCosts() {
+        return costs;
+    }
+
+    /**
+     * Returns true if values are cached in a dense matrix, false if they are cached in a hash table.
+     *
+     * @return true if dense
+     */
+    public boolean isDense() {
+        return store instanceof DenseStore;
+    }
+
+    /**
+     * Returns the cache profile of a vehicle, i.e. 0 for no vehicle and the type index otherwise, or -1 if the vehicle
+     * cannot be cached. This is the case if its type index is recorded for a vehicle with another type id.
+     */
+    private int getProfile(Vehicle vehicle) {
+        if (vehicle == null) return 0;
+        VehicleTypeKey typeKey = vehicle.getVehicleTypeIdentifier();
+        if (typeKey == null) return -1;
+        int profile = typeKey.getIndex();
+        if (profile <= 0 || profile > MAX_PROFILE) return -1;
+        String typeId = typeIdsOfProfiles.get(profile);
+        if (typeId == null && typeIdsOfProfiles.compareAndSet(profile, null, typeKey.type)) return profile;
+        typeId = typeIdsOfProfiles.get(profile);
+        if (!typeId.equals(typeKey.type)) return -1;
+        return profile;
+    }
+
+    private static boolean isCacheable(Location from, Location to, int profile) {
+        return profile >= 0 && from.getIndex() >= 0 && to.getIndex() >= 0
+            && from.getIndex() <= MAX_LOCATION_INDEX && to.getIndex() <= MAX_LOCATION_INDEX;
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        int profile = getProfile(vehicle);
+        if (!isCacheable(from, to, profile)) return costs.getTransportTime(from, to, departureTime, driver, vehicle);
+        double value = store.get(from.getIndex(), to.getIndex(), profile, TIME);
+        if (Double.isNaN(value)) {
+            value = costs.getTransportTime(from, to, departureTime, driver, vehicle);
+            store.put(from.getIndex(), to.getIndex(), profile, TIME, value);
+        }
+        return value;
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        int profile = getProfile(vehicle);
+        if (!isCacheable(from, to, profile)) return costs.getTransportCost(from, to, departureTime, driver, vehicle);
+        double value = store.get(from.getIndex(), to.getIndex(), profile, COST);
+        if (Double.isNaN(value)) {
+            value = costs.getTransportCost(from, to, departureTime, driver, vehicle);
+            store.put(from.getIndex(), to.getIndex(), profile, COST, value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "[name=cached][costs=" + costs + "]";
+    }
+
+}
@@ -20,7 +20,10 @@
  */
 package com.graphhopper.jsprit.core.util;
 
+import java.util.Collection;
+
 import com.graphhopper.jsprit.core.distance.DistanceCalculator;
+import com.graphhopper.jsprit.core.distance.SphericalDistanceCalculator;
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
 import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
@@ -39,11 +42,17 @@ public class DefaultCosts extends AbstractForwardVehicleRoutingTransportCosts im
 
     private Locations coordinateConverter;
 
+    private SphericalDistanceCalculator.Table sphericalTable;
+
     public DefaultCosts(DistanceCalculator distanceCalculator) {
         super();
         this.distanceCalculator = distanceCalculator;
     }
 
+    public DistanceCalculator getDistanceCalculator() {
+        return distanceCalculator;
+    }
+
     public Locations getPredefinedLocations() {
         return coordinateConverter;
     }
@@ -53,6 +62,26 @@ public class DefaultCosts extends AbstractForwardVehicleRoutingTransportCosts im
         return this;
     }
 
+    /**
+     * Precomputes the trigonometric terms of the specified locations, e.g. of
+     * {@link com.graphhopper.jsprit.core.problem.VehicleRoutingProblem#getAllLocations()}, if distances are calculated
+     * by {@link SphericalDistanceCalculator}. Distances between locations of the table are then calculated without
+     * recomputing them. A location whose index is not in the table, or whose coordinate differs from the one in the
+     * table, is calculated as usual.
+     *
+     * @param locations locations to be precomputed
+     * @return this costs
+     * @throws IllegalStateException if distances are not calculated by {@link SphericalDistanceCalculator}
+     */
+    public DefaultCosts withPrecomputedLocations(Collection<Location> locations) {
+        if (!(distanceCalculator instanceof SphericalDistanceCalculator)) {
+            throw new IllegalStateException("cannot precompute locations for " + distanceCalculator.getName() + " distances. "
+                + "only spherical distances can be precomputed.");
+        }
+        this.sphericalTable = SphericalDistanceCalculator.newTable(locations);
+        return this;
+    }
+
     public double getDetourFactor() {
         return detourFactor;
     }
@@ -84,10 +113,12 @@ public class DefaultCosts extends AbstractForwardVehicleRoutingTransportCosts im
         return costs;
     }
 
-    private double calculateDistance(Location fromLocation, Location toLocation) {
+    protected double calculateDistance(Location fromLocation, Location toLocation) {
         Coordinate from = getCoordinate(fromLocation);
         Coordinate to = getCoordinate(toLocation);
-
+        if (sphericalTable != null && sphericalTable.contains(fromLocation.getIndex(), from) && sphericalTable.contains(toLocation.getIndex(), to)) {
+            return sphericalTable.getDistance(fromLocation.getIndex(), toLocation.getIndex()) * detourFactor;
+        }
         return distanceCalculator.calculateDistance(from, to) * detourFactor;
     }
 
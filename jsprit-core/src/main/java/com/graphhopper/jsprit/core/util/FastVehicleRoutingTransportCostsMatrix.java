@@ -29,11 +29,25 @@ import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
  * CostMatrix that allows pre-compiled time and distance-matrices to be considered as {@link com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts}
  * in the {@link com.graphhopper.jsprit.core.problem.VehicleRoutingProblem}.
  * <p>Note that you can also use it with distance matrix only (or time matrix).
+ * <p>Distances and times are each stored in one contiguous row-major array. Symmetric matrices only store the lower
+ * triangle including the diagonal, i.e. noLocations * (noLocations + 1) / 2 values per metric. With {@link Precision#FLOAT}
+ * values are stored as floats, which halves the memory needed.
  *
  * @author schroeder
  */
 public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts implements TransportDistance {
 
+    /**
+     * Precision in which distances and times are stored.
+     */
+    public enum Precision {
+        DOUBLE, FLOAT
+    }
+
+    private static final int DISTANCE = 0;
+
+    private static final int TIME = 1;
+
     /**
      * Builder that builds the matrix.
      *
@@ -41,9 +55,13 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
      */
     public static class Builder {
 
-        private boolean isSymmetric;
+        private final boolean isSymmetric;
 
-        private double[][][] matrix;
+        private final int noLocations;
+
+        private double[][] doubleValues;
+
+        private float[][] floatValues;
 
         /**
          * Creates a new builder returning the matrix-builder.
@@ -53,12 +71,34 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
          * @return builder
          */
         public static Builder newInstance(int noLocations, boolean isSymmetric) {
-            return new Builder(noLocations, isSymmetric);
+            return new Builder(noLocations, isSymmetric, Precision.DOUBLE);
+        }
+
+        /**
+         * Creates a new builder returning the matrix-builder that stores values with the specified precision.
+         *
+         * @param noLocations number of locations
+         * @param isSymmetric true if matrix is symmetric, false otherwise
+         * @param precision   precision of stored distances and times
+         * @return builder
+         */
+        public static Builder newInstance(int noLocations, boolean isSymmetric, Precision precision) {
+            return new Builder(noLocations, isSymmetric, precision);
         }
 
-        private Builder(int noLocations, boolean isSymmetric) {
+        private Builder(int noLocations, boolean isSymmetric, Precision precision) {
             this.isSymmetric = isSymmetric;
-            matrix = new double[noLocations][noLocations][2];
+            this.noLocations = noLocations;
+            long size = isSymmetric ? (long) noLocations * (noLocations + 1) / 2 : (long) noLocations * noLocations;
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("cannot store " + noLocations + " locations in a "
+                    + (isSymmetric ? "symmetric" : "asymmetric") + " matrix. it would have " + size + " cells per metric.");
+            }
+            if (precision == Precision.FLOAT) {
+                floatValues = new float[][]{new float[(int) size], new float[(int) size]};
+            } else {
+                doubleValues = new double[][]{new double[(int) size], new double[(int) size]};
+            }
         }
 
         /**
@@ -70,15 +110,14 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
          * @return builder
          */
         public Builder addTransportDistance(int fromIndex, int toIndex, double distance) {
-            add(fromIndex, toIndex, 0, distance);
+            add(fromIndex, toIndex, DISTANCE, distance);
             return this;
         }
 
-        private void add(int fromIndex, int toIndex, int indicatorIndex, double distance) {
-            if (isSymmetric) {
-                if (fromIndex < toIndex) matrix[fromIndex][toIndex][indicatorIndex] = distance;
-                else matrix[toIndex][fromIndex][indicatorIndex] = distance;
-            } else matrix[fromIndex][toIndex][indicatorIndex] = distance;
+        private void add(int fromIndex, int toIndex, int metric, double value) {
+            int cell = cell(fromIndex, toIndex, noLocations, isSymmetric);
+            if (doubleValues != null) doubleValues[metric][cell] = value;
+            else floatValues[metric][cell] = (float) value;
         }
 
         /**
@@ -90,7 +129,7 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
          * @return builder
          */
         public Builder addTransportTime(int fromIndex, int toIndex, double time) {
-            add(fromIndex, toIndex, 1, time);
+            add(fromIndex, toIndex, TIME, time);
             return this;
         }
 
@@ -114,19 +153,73 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
 
     private final boolean isSymmetric;
 
-    private final double[][][] matrix;
+    private final int noLocations;
+
+    private final double[] doubleDistances;
+
+    private final double[] doubleTimes;
+
+    private final float[] floatDistances;
+
+    private final float[] floatTimes;
 
     private FastVehicleRoutingTransportCostsMatrix(Builder builder) {
         this.isSymmetric = builder.isSymmetric;
-        matrix = builder.matrix;
+        this.noLocations = builder.noLocations;
+        if (builder.doubleValues != null) {
+            doubleDistances = builder.doubleValues[DISTANCE];
+            doubleTimes = builder.doubleValues[TIME];
+            floatDistances = null;
+            floatTimes = null;
+        } else {
+            doubleDistances = null;
+            doubleTimes = null;
+            floatDistances = builder.floatValues[DISTANCE];
+            floatTimes = builder.floatValues[TIME];
+        }
     }
 
     /**
-     * First dim is from, second to and third indicates whether it is a distance value (index=0) or time value (index=1).
+     * Returns the cell of a relation. Symmetric matrices store the lower triangle row by row, i.e. the relation between
+     * i and j with i &gt;= j is stored at i * (i + 1) / 2 + j.
+     */
+    private static int cell(int from, int to, int noLocations, boolean isSymmetric) {
+        if (isSymmetric) {
+            if (from < to) return (int) ((long) to * (to + 1) / 2 + from);
+            return (int) ((long) from * (from + 1) / 2 + to);
+        }
+        return from * noLocations + to;
+    }
+
+    public int getNoLocations() {
+        return noLocations;
+    }
+
+    public boolean isSymmetric() {
+        return isSymmetric;
+    }
+
+    public Precision getPrecision() {
+        return doubleTimes != null ? Precision.DOUBLE : Precision.FLOAT;
+    }
+
+    /**
+     * Returns a copy of the matrix where the first dim is from, second to and third indicates whether it is a distance
+     * value (index=0) or time value (index=1). Symmetric relations are only set where from &lt;= to.
      *
-     * @return
+     * @return matrix
+     * @deprecated values are no longer stored in this layout. use {@link #getDistance(int, int)} and
+     * {@link #getTransportTime(int, int)} instead
      */
+    @Deprecated
     public double[][][] getMatrix() {
+        double[][][] matrix = new double[noLocations][noLocations][2];
+        for (int from = 0; from < noLocations; from++) {
+            for (int to = isSymmetric ? from : 0; to < noLocations; to++) {
+                matrix[from][to][DISTANCE] = getDistance(from, to);
+                matrix[from][to][TIME] = getTransportTime(from, to);
+            }
+        }
         return matrix;
     }
 
@@ -134,19 +227,20 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
     public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
         if (from.getIndex() < 0 || to.getIndex() < 0)
             throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
-        int timeIndex = 1;
-        return get(from.getIndex(), to.getIndex(), timeIndex);
+        return getTransportTime(from.getIndex(), to.getIndex());
     }
 
-    private double get(int from, int to, int indicatorIndex) {
-        double value;
-        if (isSymmetric) {
-            if (from < to) value = matrix[from][to][indicatorIndex];
-            else value = matrix[to][from][indicatorIndex];
-        } else {
-            value = matrix[from][to][indicatorIndex];
-        }
-        return value;
+    /**
+     * Returns the transport time from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the transport time
+     */
+    public double getTransportTime(int fromIndex, int toIndex) {
+        int cell = cell(fromIndex, toIndex, noLocations, isSymmetric);
+        if (doubleTimes != null) return doubleTimes[cell];
+        return floatTimes[cell];
     }
 
     /**
@@ -157,8 +251,9 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
      * @return the distance
      */
     public double getDistance(int fromIndex, int toIndex) {
-        int distanceIndex = 0;
-        return get(fromIndex, toIndex, distanceIndex);
+        int cell = cell(fromIndex, toIndex, noLocations, isSymmetric);
+        if (doubleDistances != null) return doubleDistances[cell];
+        return floatDistances[cell];
     }
 
     @Override
@@ -172,7 +267,11 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
             throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
         if (vehicle == null) return getDistance(from.getIndex(), to.getIndex());
         VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
-        return costParams.perDistanceUnit * getDistance(from.getIndex(), to.getIndex()) + costParams.perTransportTimeUnit * getTransportTime(from, to, departureTime, driver, vehicle);
+        int cell = cell(from.getIndex(), to.getIndex(), noLocations, isSymmetric);
+        if (doubleDistances != null) {
+            return costParams.perDistanceUnit * doubleDistances[cell] + costParams.perTransportTimeUnit * doubleTimes[cell];
+        }
+        return costParams.perDistanceUnit * floatDistances[cell] + costParams.perTransportTimeUnit * floatTimes[cell];
     }
 
 }
@@ -18,8 +18,11 @@
 package com.graphhopper.jsprit.core.util;
 
 
+import java.util.Collection;
+
 import com.graphhopper.jsprit.core.distance.ManhattanDistanceCalculator;
 import com.graphhopper.jsprit.core.distance.SphericalDistanceCalculator;
+import com.graphhopper.jsprit.core.problem.Location;
 
 /**
  * @author stefan schroeder
@@ -33,6 +36,12 @@ public class GreatCircleCosts extends DefaultCosts {
         super(SphericalDistanceCalculator.getInstance());
     }
 
+    @Override
+    public GreatCircleCosts withPrecomputedLocations(Collection<Location> locations) {
+        super.withPrecomputedLocations(locations);
+        return this;
+    }
+
     // private double speed = 1.;
     //
     // private double detour = 1.;
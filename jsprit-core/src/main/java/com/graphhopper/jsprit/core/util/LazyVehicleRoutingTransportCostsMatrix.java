@@ -0,0 +1,329 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListener;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * CostMatrix that computes rows, i.e. the distances and times from one location to all others, on demand and keeps
+ * recently used rows in a bounded cache. This pays off for large problems where most relations are never requested.
+ * <p>Rows are computed by a {@link RowProvider}, e.g. a one-to-many request to a routing engine. If the matrix is
+ * symmetric, a relation is also served by the row of its to-location.
+ * <p>If the matrix is added to the algorithm as listener, i.e. by
+ * {@link com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm#addListener(com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListener)},
+ * it computes the rows of all locations of ruined jobs at the end of the ruin, i.e. before they are inserted again.
+ * Note that only rows can be prefetched. If the matrix is asymmetric, the relations from route locations to ruined jobs
+ * are served by the rows of the route locations, which are computed on demand if they have been evicted.
+ * <p>The matrix can be shared among threads. Cached rows are looked up without locking. If the cache is full, a row that
+ * has not been used since the last sweep is evicted (clock algorithm), which approximates evicting the least recently
+ * used row. Rows are computed outside of the lock, thus two threads might compute the same row.
+ */
+public class LazyVehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts implements TransportDistance, RuinListener {
+
+    /**
+     * Computes the distances and times from one location to all locations.
+     */
+    public interface RowProvider {
+
+        /**
+         * Computes the distances and times from fromIndex to all locations, i.e. distances[toIndex] and times[toIndex].
+         *
+         * @param fromIndex from location index
+         * @param distances distances to be filled, its length is the number of locations
+         * @param times     times to be filled, its length is the number of locations
+         */
+        void computeRow(int fromIndex, double[] distances, double[] times);
+
+    }
+
+    /**
+     * Builder that builds the matrix.
+     */
+    public static class Builder {
+
+        private final int noLocations;
+
+        private final RowProvider rowProvider;
+
+        private boolean isSymmetric = false;
+
+        private int maxNoRows = 1000;
+
+        /**
+         * Creates a new builder returning the matrix-builder.
+         *
+         * @param noLocations number of locations
+         * @param rowProvider provider that computes rows
+         * @return builder
+         */
+        public static Builder newInstance(int noLocations, RowProvider rowProvider) {
+            return new Builder(noLocations, rowProvider);
+        }
+
+        private Builder(int noLocations, RowProvider rowProvider) {
+            if (rowProvider == null) throw new IllegalArgumentException("row provider must not be null");
+            this.noLocations = noLocations;
+            this.rowProvider = rowProvider;
+        }
+
+        /**
+         * Sets whether the matrix is symmetric. Default is false.
+         *
+         * @param isSymmetric true if matrix is symmetric, false otherwise
+         * @return builder
+         */
+        public Builder setSymmetric(boolean isSymmetric) {
+            this.isSymmetric = isSymmetric;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of rows to be cached. Default is 1000.
+         *
+         * @param maxNoRows max number of cached rows
+         * @return builder
+         */
+        public Builder setMaxNoRows(int maxNoRows) {
+            if (maxNoRows < 1) throw new IllegalArgumentException("max number of rows must be positive");
+            this.maxNoRows = maxNoRows;
+            return this;
+        }
+
+        /**
+         * Builds the matrix.
+         *
+         * @return matrix
+         */
+        public LazyVehicleRoutingTransportCostsMatrix build() {
+            return new LazyVehicleRoutingTransportCostsMatrix(this);
+        }
+
+    }
+
+    private static class Row {
+
+        final int fromIndex;
+
+        final double[] distances;
+
+        final double[] times;
+
+        volatile boolean referenced;
+
+        Row(int fromIndex, int noLocations) {
+            this.fromIndex = fromIndex;
+            distances = new double[noLocations];
+            times = new double[noLocations];
+        }
+
+    }
+
+    private final int noLocations;
+
+    private final RowProvider rowProvider;
+
+    private final boolean isSymmetric;
+
+    private final int maxNoRows;
+
+    private final AtomicReferenceArray<Row> rows;
+
+    private final AtomicInteger noCachedRows = new AtomicInteger();
+
+    private final AtomicLong noComputedRows = new AtomicLong();
+
+    private int clockHand = 0;
+
+    private LazyVehicleRoutingTransportCostsMatrix(Builder builder) {
+        this.noLocations = builder.noLocations;
+        this.rowProvider = builder.rowProvider;
+        this.isSymmetric = builder.isSymmetric;
+        this.maxNoRows = builder.maxNoRows;
+        rows = new AtomicReferenceArray<>(noLocations);
+    }
+
+    /**
+     * Returns the number of rows computed so far.
+     *
+     * @return number of computed rows
+     */
+    public long getNoComputedRows() {
+        return noComputedRows.get();
+    }
+
+    /**
+     * Returns the number of cached rows.
+     *
+     * @return number of cached rows
+     */
+    public int getNoCachedRows() {
+        return noCachedRows.get();
+    }
+
+    /**
+     * Computes the rows of the specified locations if they are not cached.
+     *
+     * @param locations locations whose rows are to be computed
+     */
+    public void prefetch(Collection<Location> locations) {
+        for (Location location : locations) {
+            int index = location.getIndex();
+            if (index < 0 || index < noLocations && rows.get(index) != null) continue;
+            computeRow(index);
+        }
+    }
+
+    private Row computeRow(int fromIndex) {
+        if (fromIndex < 0 || fromIndex >= noLocations) {
+            throw new IllegalArgumentException("index " + fromIndex + " is out of bounds. there are " + noLocations + " locations.");
+        }
+        Row row = new Row(fromIndex, noLocations);
+        rowProvider.computeRow(fromIndex, row.distances, row.times);
+        noComputedRows.incrementAndGet();
+        synchronized (this) {
+            if (rows.get(fromIndex) != null) return row;
+            rows.set(fromIndex, row);
+            if (noCachedRows.incrementAndGet() > maxNoRows) evict(fromIndex);
+        }
+        return row;
+    }
+
+    /**
+     * Evicts the first row after the clock hand that has not been used since the hand passed it. Used rows get a
+     * second chance, i.e. the hand only resets their flag. The row that has just been added is never evicted.
+     * <p>The hand may pass many empty slots, but this is cheap compared to computing a row.
+     */
+    private void evict(int addedIndex) {
+        while (true) {
+            int index = clockHand;
+            clockHand = index + 1 == noLocations ? 0 : index + 1;
+            if (index == addedIndex) continue;
+            Row row = rows.get(index);
+            if (row == null) continue;
+            if (row.referenced) {
+                row.referenced = false;
+            } else {
+                rows.set(index, null);
+                noCachedRows.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns a row that contains the relation from fromIndex to toIndex, i.e. the row of fromIndex or, if the matrix
+     * is symmetric, the cached row of toIndex.
+     */
+    private Row getRow(int fromIndex, int toIndex) {
+        if (fromIndex >= 0 && fromIndex < noLocations) {
+            Row row = rows.get(fromIndex);
+            if (row == null && isSymmetric && toIndex >= 0 && toIndex < noLocations) row = rows.get(toIndex);
+            if (row != null) {
+                if (!row.referenced) row.referenced = true;
+                return row;
+            }
+        }
+        return computeRow(fromIndex);
+    }
+
+    private static int getPosition(Row row, int fromIndex, int toIndex) {
+        return row.fromIndex == fromIndex ? toIndex : fromIndex;
+    }
+
+    /**
+     * Returns the transport time from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the transport time
+     */
+    public double getTransportTime(int fromIndex, int toIndex) {
+        Row row = getRow(fromIndex, toIndex);
+        return row.times[getPosition(row, fromIndex, toIndex)];
+    }
+
+    /**
+     * Returns the distance from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the distance
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        Row row = getRow(fromIndex, toIndex);
+        return row.distances[getPosition(row, fromIndex, toIndex)];
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        return getTransportTime(from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getDistance(Location from, Location to, double departureTime, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        return getDistance(from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        Row row = getRow(from.getIndex(), to.getIndex());
+        int position = getPosition(row, from.getIndex(), to.getIndex());
+        if (vehicle == null) return row.distances[position];
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * row.distances[position] + costParams.perTransportTimeUnit * row.times[position];
+    }
+
+    @Override
+    public void ruinStarts(Collection<VehicleRoute> routes) {
+    }
+
+    /**
+     * Computes the rows of all locations of the unassigned jobs. See the class comment for asymmetric matrices.
+     */
+    @Override
+    public void ruinEnds(Collection<VehicleRoute> routes, Collection<Job> unassignedJobs) {
+        for (Job job : unassignedJobs) {
+            prefetch(job.getAllLocations());
+        }
+    }
+
+    @Override
+    public void removed(Job job, VehicleRoute fromRoute) {
+    }
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.FastVehicleRoutingTransportCostsMatrix.Precision;
+
+
+/**
+ * CostMatrix that reads distances and times from a memory-mapped binary file, i.e. the matrix is not loaded onto the
+ * heap. The operating system pages it in on demand, and processes that map the same file share its pages.
+ * <p>Like {@link FastVehicleRoutingTransportCostsMatrix}, it is addressed by location indices.
+ * <p>The file is little-endian and consists of
+ * <ul>
+ * <li>a header of 32 bytes: the magic number 0x4A53504D ("JSPM"), the format version (1), the number of locations and
+ * flags (each an int), followed by 16 reserved bytes. Flag 1 indicates a symmetric matrix, flag 2 float values
+ * (otherwise values are doubles).</li>
+ * <li>the distances of all cells, followed by the times of all cells. Cells are row-major. Asymmetric matrices have
+ * noLocations * noLocations cells, i.e. the relation from i to j is at i * noLocations + j. Symmetric matrices only
+ * have the lower triangle including the diagonal, i.e. the relation between i and j with i &gt;= j is at
+ * i * (i + 1) / 2 + j.</li>
+ * </ul>
+ * <p>Files are written with {@link Writer}. Files larger than 2 GB are mapped in chunks.
+ */
+public class MappedVehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts implements TransportDistance {
+
+    public static final int MAGIC = 0x4A53504D;
+
+    public static final int VERSION = 1;
+
+    public static final int HEADER_SIZE = 32;
+
+    public static final int SYMMETRIC_FLAG = 1;
+
+    public static final int FLOAT_FLAG = 2;
+
+    static final int DEFAULT_CHUNK_BITS = 30;
+
+    static long getNoCells(int noLocations, boolean isSymmetric) {
+        return isSymmetric ? (long) noLocations * (noLocations + 1) / 2 : (long) noLocations * noLocations;
+    }
+
+    static long getFileSize(int noLocations, boolean isSymmetric, boolean isFloat) {
+        return HEADER_SIZE + 2 * getNoCells(noLocations, isSymmetric) * (isFloat ? 4 : 8);
+    }
+
+    /**
+     * Values of a matrix file mapped in chunks of 2^chunkBits bytes.
+     */
+    static class MappedValues {
+
+        final int noLocations;
+
+        final boolean isSymmetric;
+
+        final boolean isFloat;
+
+        final long noCells;
+
+        private final MappedByteBuffer[] chunks;
+
+        private final int chunkBits;
+
+        private final long chunkMask;
+
+        MappedValues(FileChannel channel, FileChannel.MapMode mode, int noLocations, boolean isSymmetric, boolean isFloat, int chunkBits) throws IOException {
+            this.noLocations = noLocations;
+            this.isSymmetric = isSymmetric;
+            this.isFloat = isFloat;
+            this.noCells = getNoCells(noLocations, isSymmetric);
+            this.chunkBits = chunkBits;
+            this.chunkMask = (1L << chunkBits) - 1;
+            long dataSize = 2 * noCells * getValueSize();
+            int noChunks = (int) ((dataSize + chunkMask) >>> chunkBits);
+            chunks = new MappedByteBuffer[noChunks];
+            for (int i = 0; i < noChunks; i++) {
+                long start = (long) i << chunkBits;
+                long size = Math.min(1L << chunkBits, dataSize - start);
+                chunks[i] = channel.map(mode, HEADER_SIZE + start, size);
+                chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        int getValueSize() {
+            return isFloat ? 4 : 8;
+        }
+
+        long getOffset(int from, int to, int metric) {
+            long cell;
+            if (isSymmetric) {
+                if (from < to) cell = (long) to * (to + 1) / 2 + from;
+                else cell = (long) from * (from + 1) / 2 + to;
+            } else {
+                cell = (long) from * noLocations + to;
+            }
+            return (metric * noCells + cell) * getValueSize();
+        }
+
+        double get(long offset) {
+            MappedByteBuffer chunk = chunks[(int) (offset >>> chunkBits)];
+            int position = (int) (offset & chunkMask);
+            if (isFloat) return chunk.getFloat(position);
+            return chunk.getDouble(position);
+        }
+
+        void put(long offset, double value) {
+            MappedByteBuffer chunk = chunks[(int) (offset >>> chunkBits)];
+            int position = (int) (offset & chunkMask);
+            if (isFloat) chunk.putFloat(position, (float) value);
+            else chunk.putDouble(position, value);
+        }
+
+        void force() {
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+        }
+    }
+
+    /**
+     * Writes a matrix file. All values are 0 until they are added.
+     */
+    public static class Writer implements Closeable {
+
+        /**
+         * Creates the matrix file, or overwrites it if it exists.
+         *
+         * @param file        the matrix file
+         * @param noLocations number of locations
+         * @param isSymmetric true if matrix is symmetric, false otherwise
+         * @param precision   precision of stored distances and times
+         * @return writer
+         * @throws IOException if the file cannot be created
+         */
+        public static Writer newInstance(File file, int noLocations, boolean isSymmetric, Precision precision) throws IOException {
+            return new Writer(file, noLocations, isSymmetric, precision, DEFAULT_CHUNK_BITS);
+        }
+
+        private final RandomAccessFile randomAccessFile;
+
+        private final MappedValues values;
+
+        Writer(File file, int noLocations, boolean isSymmetric, Precision precision, int chunkBits) throws IOException {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                boolean isFloat = precision == Precision.FLOAT;
+                randomAccessFile.setLength(0);
+                randomAccessFile.setLength(getFileSize(noLocations, isSymmetric, isFloat));
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(noLocations).putInt((isSymmetric ? SYMMETRIC_FLAG : 0) | (isFloat ? FLOAT_FLAG : 0));
+                header.rewind();
+                randomAccessFile.getChannel().write(header, 0);
+                values = new MappedValues(randomAccessFile.getChannel(), FileChannel.MapMode.READ_WRITE, noLocations, isSymmetric, isFloat, chunkBits);
+            } catch (IOException e) {
+                randomAccessFile.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Adds a transport-distance for a particular relation.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param distance  the distance to be added
+         * @return writer
+         * @throws IllegalArgumentException if an index is negative or not less than the number of locations
+         */
+        public Writer addTransportDistance(int fromIndex, int toIndex, double distance) {
+            checkRelation(fromIndex, toIndex);
+            values.put(values.getOffset(fromIndex, toIndex, 0), distance);
+            return this;
+        }
+
+        /**
+         * Adds transport-time for a particular relation.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param time      the time to be added
+         * @return writer
+         * @throws IllegalArgumentException if an index is negative or not less than the number of locations
+         */
+        public Writer addTransportTime(int fromIndex, int toIndex, double time) {
+            checkRelation(fromIndex, toIndex);
+            values.put(values.getOffset(fromIndex, toIndex, 1), time);
+            return this;
+        }
+
+        private void checkRelation(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || fromIndex >= values.noLocations || toIndex < 0 || toIndex >= values.noLocations) {
+                throw new IllegalArgumentException("relation " + fromIndex + " -> " + toIndex + " is out of bounds. there are "
+                    + values.noLocations + " locations.");
+            }
+        }
+
+        public Writer addTransportTimeAndDistance(int fromIndex, int toIndex, double time, double distance) {
+            addTransportTime(fromIndex, toIndex, time);
+            addTransportDistance(fromIndex, toIndex, distance);
+            return this;
+        }
+
+        /**
+         * Flushes all values to the file and closes it.
+         */
+        @Override
+        public void close() throws IOException {
+            values.force();
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Maps a matrix file read-only.
+     *
+     * @param file the matrix file
+     * @return matrix
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a matrix file or its size does not match its header
+     */
+    public static MappedVehicleRoutingTransportCostsMatrix open(File file) throws IOException {
+        return open(file, DEFAULT_CHUNK_BITS);
+    }
+
+    static MappedVehicleRoutingTransportCostsMatrix open(File file, int chunkBits) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) break;
+            }
+            if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException(file + " is not a matrix file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("version " + header.getInt(4) + " of matrix file " + file + " is not supported");
+            }
+            int noLocations = header.getInt(8);
+            boolean isSymmetric = (header.getInt(12) & SYMMETRIC_FLAG) != 0;
+            boolean isFloat = (header.getInt(12) & FLOAT_FLAG) != 0;
+            long expectedSize = getFileSize(noLocations, isSymmetric, isFloat);
+            if (channel.size() != expectedSize) {
+                throw new IllegalArgumentException("matrix file " + file + " has " + channel.size() + " bytes, but its header requires " + expectedSize);
+            }
+            return new MappedVehicleRoutingTransportCostsMatrix(new MappedValues(channel, FileChannel.MapMode.READ_ONLY, noLocations, isSymmetric, isFloat, chunkBits));
+        }
+    }
+
+    private final MappedValues values;
+
+    private MappedVehicleRoutingTransportCostsMatrix(MappedValues values) {
+        this.values = values;
+    }
+
+    public int getNoLocations() {
+        return values.noLocations;
+    }
+
+    public boolean isSymmetric() {
+        return values.isSymmetric;
+    }
+
+    /**
+     * Returns the distance from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the distance
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        return values.get(values.getOffset(fromIndex, toIndex, 0));
+    }
+
+    /**
+     * Returns the transport time from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the transport time
+     */
+    public double getTransportTime(int fromIndex, int toIndex) {
+        return values.get(values.getOffset(fromIndex, toIndex, 1));
+    }
+
+    @Override
+    public double getDistance(Location from, Location to, double departureTime, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        return getDistance(from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        return getTransportTime(from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        if (vehicle == null) return getDistance(from.getIndex(), to.getIndex());
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * getDistance(from.getIndex(), to.getIndex()) + costParams.perTransportTimeUnit * getTransportTime(from.getIndex(), to.getIndex());
+    }
+
+}
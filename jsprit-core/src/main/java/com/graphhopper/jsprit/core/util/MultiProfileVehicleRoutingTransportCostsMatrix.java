@@ -0,0 +1,312 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * CostMatrix with several profiles, e.g. one for trucks, one for vans and one for bikes, each with its own transport
+ * times and distances.
+ * <p>Vehicle types are assigned to profiles by their type id. Vehicles of types that are not assigned, and requests
+ * without vehicle, use profile 0. The profile of a vehicle is resolved once per vehicle type index (see
+ * {@link com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeKey}), i.e. by the same index the
+ * {@link com.graphhopper.jsprit.core.algorithm.state.StateManager} uses to store vehicle-dependent states. Thus,
+ * vehicle-dependent state updaters such as
+ * {@link com.graphhopper.jsprit.core.algorithm.state.VehicleDependentTraveledDistance} see the profile of each vehicle.
+ * Since type indices are assigned per problem, the type id is remembered next to the resolved profile, and a vehicle
+ * whose type id differs is resolved again.
+ * <p>All profiles are stored in one contiguous array. Transport time and distance of a relation are stored next to each
+ * other. Symmetric matrices only store the lower triangle including the diagonal.
+ */
+public class MultiProfileVehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts implements TransportDistance {
+
+    private static final int DISTANCE = 0;
+
+    private static final int TIME = 1;
+
+    /**
+     * Builder that builds the matrix.
+     */
+    public static class Builder {
+
+        private final boolean isSymmetric;
+
+        private final int noLocations;
+
+        private final int noProfiles;
+
+        private final int noCells;
+
+        private final double[] values;
+
+        private final Map<String, Integer> profileOfType = new HashMap<>();
+
+        /**
+         * Creates a new builder returning the matrix-builder.
+         * <p>If you want to consider symmetric matrices, set isSymmetric to true.
+         *
+         * @param noLocations number of locations
+         * @param noProfiles  number of profiles
+         * @param isSymmetric true if matrix is symmetric, false otherwise
+         * @return builder
+         */
+        public static Builder newInstance(int noLocations, int noProfiles, boolean isSymmetric) {
+            return new Builder(noLocations, noProfiles, isSymmetric);
+        }
+
+        private Builder(int noLocations, int noProfiles, boolean isSymmetric) {
+            if (noProfiles < 1) throw new IllegalArgumentException("number of profiles must be positive");
+            this.isSymmetric = isSymmetric;
+            this.noLocations = noLocations;
+            this.noProfiles = noProfiles;
+            long cells = isSymmetric ? (long) noLocations * (noLocations + 1) / 2 : (long) noLocations * noLocations;
+            long size = cells * noProfiles * 2;
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("cannot store " + noProfiles + " profiles with " + noLocations + " locations in a "
+                    + (isSymmetric ? "symmetric" : "asymmetric") + " matrix. it would have " + size + " values.");
+            }
+            this.noCells = (int) cells;
+            values = new double[(int) size];
+        }
+
+        /**
+         * Assigns a vehicle type to a profile.
+         *
+         * @param typeId  id of vehicle type
+         * @param profile profile index
+         * @return builder
+         */
+        public Builder assignVehicleType(String typeId, int profile) {
+            checkProfile(profile);
+            profileOfType.put(typeId, profile);
+            return this;
+        }
+
+        private void checkProfile(int profile) {
+            if (profile < 0 || profile >= noProfiles) {
+                throw new IllegalArgumentException("profile " + profile + " does not exist. there are " + noProfiles + " profiles.");
+            }
+        }
+
+        /**
+         * Adds a transport-distance for a particular relation of a profile.
+         *
+         * @param profile   profile index
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param distance  the distance to be added
+         * @return builder
+         */
+        public Builder addTransportDistance(int profile, int fromIndex, int toIndex, double distance) {
+            checkProfile(profile);
+            values[index(profile, cell(fromIndex, toIndex, noLocations, isSymmetric), noCells, DISTANCE)] = distance;
+            return this;
+        }
+
+        /**
+         * Adds transport-time for a particular relation of a profile.
+         *
+         * @param profile   profile index
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param time      the time to be added
+         * @return builder
+         */
+        public Builder addTransportTime(int profile, int fromIndex, int toIndex, double time) {
+            checkProfile(profile);
+            values[index(profile, cell(fromIndex, toIndex, noLocations, isSymmetric), noCells, TIME)] = time;
+            return this;
+        }
+
+        public Builder addTransportTimeAndDistance(int profile, int fromIndex, int toIndex, double time, double distance) {
+            addTransportTime(profile, fromIndex, toIndex, time);
+            addTransportDistance(profile, fromIndex, toIndex, distance);
+            return this;
+        }
+
+        /**
+         * Builds the matrix.
+         *
+         * @return matrix
+         */
+        public MultiProfileVehicleRoutingTransportCostsMatrix build() {
+            return new MultiProfileVehicleRoutingTransportCostsMatrix(this);
+        }
+
+    }
+
+    private final boolean isSymmetric;
+
+    private final int noLocations;
+
+    private final int noProfiles;
+
+    private final int noCells;
+
+    private final double[] values;
+
+    private final Map<String, Integer> profileOfType;
+
+    /**
+     * Profiles and type ids by vehicle type index.
+     */
+    private static final class ProfilesOfTypeIndices {
+
+        /**
+         * Profile by vehicle type index. -1 if not resolved yet.
+         */
+        final int[] profiles;
+
+        /**
+         * Type id the profile was resolved for.
+         */
+        final String[] typeIds;
+
+        ProfilesOfTypeIndices(int[] profiles, String[] typeIds) {
+            this.profiles = profiles;
+            this.typeIds = typeIds;
+        }
+
+    }
+
+    private volatile ProfilesOfTypeIndices profilesOfTypeIndices = new ProfilesOfTypeIndices(new int[0], new String[0]);
+
+    private MultiProfileVehicleRoutingTransportCostsMatrix(Builder builder) {
+        this.isSymmetric = builder.isSymmetric;
+        this.noLocations = builder.noLocations;
+        this.noProfiles = builder.noProfiles;
+        this.noCells = builder.noCells;
+        this.values = builder.values;
+        this.profileOfType = new HashMap<>(builder.profileOfType);
+    }
+
+    private static int cell(int from, int to, int noLocations, boolean isSymmetric) {
+        if (isSymmetric) {
+            if (from < to) return (int) ((long) to * (to + 1) / 2 + from);
+            return (int) ((long) from * (from + 1) / 2 + to);
+        }
+        return from * noLocations + to;
+    }
+
+    private static int index(int profile, int cell, int noCells, int metric) {
+        return ((profile * noCells) + cell) * 2 + metric;
+    }
+
+    public int getNoProfiles() {
+        return noProfiles;
+    }
+
+    /**
+     * Returns the profile of a vehicle, i.e. the profile its type is assigned to or 0.
+     *
+     * @param vehicle the vehicle, can be null
+     * @return profile index
+     */
+    public int getProfile(Vehicle vehicle) {
+        if (vehicle == null || vehicle.getType() == null) return 0;
+        int typeIndex = vehicle.getVehicleTypeIdentifier() == null ? 0 : vehicle.getVehicleTypeIdentifier().getIndex();
+        //type index 0 is shared by all vehicles that are not part of a problem
+        if (typeIndex <= 0) return resolve(vehicle);
+        String typeId = vehicle.getType().getTypeId();
+        ProfilesOfTypeIndices known = profilesOfTypeIndices;
+        if (typeIndex < known.profiles.length && known.profiles[typeIndex] >= 0 && typeId.equals(known.typeIds[typeIndex])) {
+            return known.profiles[typeIndex];
+        }
+        int profile = resolve(vehicle);
+        synchronized (this) {
+            known = profilesOfTypeIndices;
+            int[] profiles;
+            String[] typeIds;
+            if (typeIndex >= known.profiles.length) {
+                int oldLength = known.profiles.length;
+                profiles = Arrays.copyOf(known.profiles, Math.max(typeIndex + 1, 2 * oldLength));
+                Arrays.fill(profiles, oldLength, profiles.length, -1);
+                typeIds = Arrays.copyOf(known.typeIds, profiles.length);
+            } else {
+                profiles = known.profiles.clone();
+                typeIds = known.typeIds.clone();
+            }
+            profiles[typeIndex] = profile;
+            typeIds[typeIndex] = typeId;
+            profilesOfTypeIndices = new ProfilesOfTypeIndices(profiles, typeIds);
+        }
+        return profile;
+    }
+
+    private int resolve(Vehicle vehicle) {
+        Integer profile = profileOfType.get(vehicle.getType().getTypeId());
+        return profile == null ? 0 : profile;
+    }
+
+    /**
+     * Returns the transport time from to to in a profile.
+     *
+     * @param profile   profile index
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the transport time
+     */
+    public double getTransportTime(int profile, int fromIndex, int toIndex) {
+        return values[index(profile, cell(fromIndex, toIndex, noLocations, isSymmetric), noCells, TIME)];
+    }
+
+    /**
+     * Returns the distance from to to in a profile.
+     *
+     * @param profile   profile index
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the distance
+     */
+    public double getDistance(int profile, int fromIndex, int toIndex) {
+        return values[index(profile, cell(fromIndex, toIndex, noLocations, isSymmetric), noCells, DISTANCE)];
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        return getTransportTime(getProfile(vehicle), from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getDistance(Location from, Location to, double departureTime, Vehicle vehicle) {
+        return getDistance(getProfile(vehicle), from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        int index = index(getProfile(vehicle), cell(from.getIndex(), to.getIndex(), noLocations, isSymmetric), noCells, DISTANCE);
+        if (vehicle == null) return values[index];
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * values[index] + costParams.perTransportTimeUnit * values[index + 1];
+    }
+
+}
@@ -0,0 +1,430 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.distance.DistanceCalculator;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+import java.util.Arrays;
+
+
+/**
+ * CostMatrix that only stores exact distances and times of some relations, typically those from each location to its
+ * k nearest neighbors, and estimates all others. This needs O(n*k) instead of O(n^2) memory.
+ * <p>Estimates are based on the distance calculator (e.g. euclidean or great circle distance) between the coordinates
+ * of two locations: distance = crowFlyDistance * detourFactor and time = distance / speed. Unless set explicitly,
+ * detourFactor and speed are calibrated from the exact relations when building the matrix.
+ * <p>Exact relations are stored row by row in primitive arrays (compressed sparse rows). Looking up a relation is a
+ * binary search in the row of its from-location.
+ */
+public class SparseVehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts implements TransportDistance {
+
+    /**
+     * Builder that builds the matrix.
+     */
+    public static class Builder {
+
+        private final int noLocations;
+
+        private final DistanceCalculator distanceCalculator;
+
+        private final Coordinate[] coordinates;
+
+        private int[] froms = new int[64];
+
+        private int[] tos = new int[64];
+
+        private double[] distances = new double[64];
+
+        private double[] times = new double[64];
+
+        private int noRelations = 0;
+
+        private double detourFactor = Double.NaN;
+
+        private double speed = Double.NaN;
+
+        /**
+         * Creates a new builder returning the matrix-builder.
+         *
+         * @param noLocations        number of locations
+         * @param distanceCalculator calculator of crow-fly distances
+         * @return builder
+         */
+        public static Builder newInstance(int noLocations, DistanceCalculator distanceCalculator) {
+            return new Builder(noLocations, distanceCalculator);
+        }
+
+        private Builder(int noLocations, DistanceCalculator distanceCalculator) {
+            this.noLocations = noLocations;
+            this.distanceCalculator = distanceCalculator;
+            this.coordinates = new Coordinate[noLocations];
+        }
+
+        /**
+         * Sets the coordinate of a location. It is needed to estimate relations that are not stored.
+         *
+         * @param index      location index
+         * @param coordinate coordinate of location
+         * @return builder
+         */
+        public Builder setCoordinate(int index, Coordinate coordinate) {
+            coordinates[index] = coordinate;
+            return this;
+        }
+
+        /**
+         * Sets the factor crow-fly distances are multiplied with. By default, it is calibrated from the exact relations.
+         *
+         * @param detourFactor detour factor
+         * @return builder
+         */
+        public Builder setDetourFactor(double detourFactor) {
+            this.detourFactor = detourFactor;
+            return this;
+        }
+
+        /**
+         * Sets the speed estimated distances are divided by. By default, it is calibrated from the exact relations.
+         *
+         * @param speed speed
+         * @return builder
+         */
+        public Builder setSpeed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * Returns the indices of the k locations that are closest to a location by crow-fly distance, the location
+         * itself excluded. This helps to determine the relations that need to be computed exactly.
+         * <p>Locations are scanned once and the k closest are kept in a bounded heap, i.e. this takes O(n log k) time
+         * and O(k) memory. Locations with equal distance come in ascending order of their index.
+         *
+         * @param fromIndex location index
+         * @param k         number of neighbors
+         * @return indices of k nearest locations, the closest first
+         */
+        public int[] getNearestLocations(int fromIndex, int k) {
+            if (coordinates[fromIndex] == null) {
+                throw new IllegalStateException("coordinate of location " + fromIndex + " is missing");
+            }
+            int capacity = Math.max(0, Math.min(k, noLocations - 1));
+            //max-heap of the closest locations found so far, the farthest on top
+            int[] heap = new int[capacity];
+            double[] heapDistances = new double[capacity];
+            int heapSize = 0;
+            for (int to = 0; to < noLocations && capacity > 0; to++) {
+                if (to == fromIndex || coordinates[to] == null) continue;
+                double distance = distanceCalculator.calculateDistance(coordinates[fromIndex], coordinates[to]);
+                if (heapSize < capacity) {
+                    siftUp(heap, heapDistances, heapSize++, to, distance);
+                } else if (distance < heapDistances[0]) {
+                    siftDown(heap, heapDistances, heapSize, to, distance);
+                }
+            }
+            int[] nearest = new int[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                nearest[i] = heap[0];
+                siftDown(heap, heapDistances, i, heap[i], heapDistances[i]);
+            }
+            return nearest;
+        }
+
+        /**
+         * Returns true if location a with distance aDistance is farther than location b with distance bDistance, i.e.
+         * it is ordered after b.
+         */
+        private static boolean isFarther(int a, double aDistance, int b, double bDistance) {
+            return aDistance > bDistance || aDistance == bDistance && a > b;
+        }
+
+        private static void siftUp(int[] heap, double[] heapDistances, int position, int location, double distance) {
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (!isFarther(location, distance, heap[parent], heapDistances[parent])) break;
+                heap[position] = heap[parent];
+                heapDistances[position] = heapDistances[parent];
+                position = parent;
+            }
+            heap[position] = location;
+            heapDistances[position] = distance;
+        }
+
+        /**
+         * Replaces the top of a heap of heapSize elements by location and restores the heap.
+         */
+        private static void siftDown(int[] heap, double[] heapDistances, int heapSize, int location, double distance) {
+            int position = 0;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && isFarther(heap[child + 1], heapDistances[child + 1], heap[child], heapDistances[child])) {
+                    child++;
+                }
+                if (!isFarther(heap[child], heapDistances[child], location, distance)) break;
+                heap[position] = heap[child];
+                heapDistances[position] = heapDistances[child];
+                position = child;
+            }
+            heap[position] = location;
+            heapDistances[position] = distance;
+        }
+
+        /**
+         * Adds the exact transport-time and distance of a relation. A relation added before is replaced.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param time      the time to be added
+         * @param distance  the distance to be added
+         * @return builder
+         */
+        public Builder addTransportTimeAndDistance(int fromIndex, int toIndex, double time, double distance) {
+            if (fromIndex < 0 || fromIndex >= noLocations || toIndex < 0 || toIndex >= noLocations) {
+                throw new IllegalArgumentException("relation " + fromIndex + " -> " + toIndex + " is out of bounds. there are "
+                    + noLocations + " locations.");
+            }
+            if (noRelations == froms.length) {
+                if (noRelations >= Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("cannot store more than " + (Integer.MAX_VALUE - 8) + " relations");
+                }
+                int newLength = (int) Math.min(Integer.MAX_VALUE - 8, 2L * froms.length);
+                froms = Arrays.copyOf(froms, newLength);
+                tos = Arrays.copyOf(tos, newLength);
+                distances = Arrays.copyOf(distances, newLength);
+                times = Arrays.copyOf(times, newLength);
+            }
+            froms[noRelations] = fromIndex;
+            tos[noRelations] = toIndex;
+            distances[noRelations] = distance;
+            times[noRelations] = time;
+            noRelations++;
+            return this;
+        }
+
+        /**
+         * Builds the matrix.
+         *
+         * @return matrix
+         */
+        public SparseVehicleRoutingTransportCostsMatrix build() {
+            return new SparseVehicleRoutingTransportCostsMatrix(this);
+        }
+
+    }
+
+    private final int noLocations;
+
+    private final DistanceCalculator distanceCalculator;
+
+    private final Coordinate[] coordinates;
+
+    private final double detourFactor;
+
+    private final double speed;
+
+    /**
+     * Exact relations from location i are stored at offsets[i] (inclusive) to offsets[i + 1] (exclusive), sorted by
+     * to-location.
+     */
+    private final int[] offsets;
+
+    private final int[] tos;
+
+    private final double[] distances;
+
+    private final double[] times;
+
+    private SparseVehicleRoutingTransportCostsMatrix(Builder builder) {
+        this.noLocations = builder.noLocations;
+        this.distanceCalculator = builder.distanceCalculator;
+        this.coordinates = builder.coordinates.clone();
+        //sort relations by from-location (counting sort), then by to-location and order of addition
+        int[] counts = new int[noLocations + 1];
+        for (int i = 0; i < builder.noRelations; i++) counts[builder.froms[i] + 1]++;
+        for (int i = 0; i < noLocations; i++) counts[i + 1] += counts[i];
+        long[] keys = new long[builder.noRelations];
+        int[] next = Arrays.copyOf(counts, noLocations);
+        for (int i = 0; i < builder.noRelations; i++) {
+            keys[next[builder.froms[i]]++] = ((long) builder.tos[i] << 32) | i;
+        }
+        offsets = new int[noLocations + 1];
+        int[] tos = new int[builder.noRelations];
+        double[] distances = new double[builder.noRelations];
+        double[] times = new double[builder.noRelations];
+        int noStored = 0;
+        for (int from = 0; from < noLocations; from++) {
+            offsets[from] = noStored;
+            Arrays.sort(keys, counts[from], counts[from + 1]);
+            for (int k = counts[from]; k < counts[from + 1]; k++) {
+                int to = (int) (keys[k] >>> 32);
+                int relation = (int) keys[k];
+                //the same relation added later replaces the earlier one
+                if (noStored > offsets[from] && tos[noStored - 1] == to) noStored--;
+                tos[noStored] = to;
+                distances[noStored] = builder.distances[relation];
+                times[noStored] = builder.times[relation];
+                noStored++;
+            }
+        }
+        offsets[noLocations] = noStored;
+        this.tos = Arrays.copyOf(tos, noStored);
+        this.distances = Arrays.copyOf(distances, noStored);
+        this.times = Arrays.copyOf(times, noStored);
+        this.detourFactor = Double.isNaN(builder.detourFactor) ? calibrateDetourFactor() : builder.detourFactor;
+        this.speed = Double.isNaN(builder.speed) ? calibrateSpeed() : builder.speed;
+    }
+
+    private double calibrateDetourFactor() {
+        double sumOfDistances = 0.;
+        double sumOfCrowFlyDistances = 0.;
+        for (int from = 0; from < noLocations; from++) {
+            if (coordinates[from] == null) continue;
+            for (int i = offsets[from]; i < offsets[from + 1]; i++) {
+                if (coordinates[tos[i]] == null) continue;
+                sumOfDistances += distances[i];
+                sumOfCrowFlyDistances += distanceCalculator.calculateDistance(coordinates[from], coordinates[tos[i]]);
+            }
+        }
+        if (sumOfCrowFlyDistances <= 0.) return 1.;
+        return sumOfDistances / sumOfCrowFlyDistances;
+    }
+
+    private double calibrateSpeed() {
+        double sumOfDistances = 0.;
+        double sumOfTimes = 0.;
+        for (int i = 0; i < tos.length; i++) {
+            sumOfDistances += distances[i];
+            sumOfTimes += times[i];
+        }
+        if (sumOfTimes <= 0. || sumOfDistances <= 0.) return 1.;
+        return sumOfDistances / sumOfTimes;
+    }
+
+    public double getDetourFactor() {
+        return detourFactor;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Returns the number of exactly stored relations.
+     *
+     * @return number of relations
+     */
+    public int getNoRelations() {
+        return tos.length;
+    }
+
+    /**
+     * Returns true if the relation from to to is stored exactly.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return true if stored, false if estimated
+     */
+    public boolean isExact(int fromIndex, int toIndex) {
+        return find(fromIndex, toIndex) >= 0;
+    }
+
+    private int find(int fromIndex, int toIndex) {
+        int low = offsets[fromIndex];
+        int high = offsets[fromIndex + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (tos[mid] < toIndex) low = mid + 1;
+            else if (tos[mid] > toIndex) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private double estimateDistance(int fromIndex, int toIndex, Location from, Location to) {
+        if (fromIndex == toIndex) return 0.;
+        Coordinate fromCoordinate = coordinates[fromIndex] != null || from == null ? coordinates[fromIndex] : from.getCoordinate();
+        Coordinate toCoordinate = coordinates[toIndex] != null || to == null ? coordinates[toIndex] : to.getCoordinate();
+        if (fromCoordinate == null || toCoordinate == null) {
+            throw new IllegalStateException("relation " + fromIndex + " -> " + toIndex + " is not stored and cannot be estimated "
+                + "since coordinates are missing");
+        }
+        return distanceCalculator.calculateDistance(fromCoordinate, toCoordinate) * detourFactor;
+    }
+
+    /**
+     * Returns the transport time from to to, which is exact if the relation is stored and estimated otherwise.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the transport time
+     */
+    public double getTransportTime(int fromIndex, int toIndex) {
+        int i = find(fromIndex, toIndex);
+        if (i >= 0) return times[i];
+        return estimateDistance(fromIndex, toIndex, null, null) / speed;
+    }
+
+    /**
+     * Returns the distance from to to, which is exact if the relation is stored and estimated otherwise.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the distance
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        int i = find(fromIndex, toIndex);
+        if (i >= 0) return distances[i];
+        return estimateDistance(fromIndex, toIndex, null, null);
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        int i = find(from.getIndex(), to.getIndex());
+        if (i >= 0) return times[i];
+        return estimateDistance(from.getIndex(), to.getIndex(), from, to) / speed;
+    }
+
+    @Override
+    public double getDistance(Location from, Location to, double departureTime, Vehicle vehicle) {
+        int i = find(from.getIndex(), to.getIndex());
+        if (i >= 0) return distances[i];
+        return estimateDistance(from.getIndex(), to.getIndex(), from, to);
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        int i = find(from.getIndex(), to.getIndex());
+        double distance = i >= 0 ? distances[i] : estimateDistance(from.getIndex(), to.getIndex(), from, to);
+        if (vehicle == null) return distance;
+        double time = i >= 0 ? times[i] : distance / speed;
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * distance + costParams.perTransportTimeUnit * time;
+    }
+
+}
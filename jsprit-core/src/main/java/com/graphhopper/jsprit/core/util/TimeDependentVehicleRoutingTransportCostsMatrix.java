@@ -0,0 +1,365 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+import java.util.Arrays;
+
+
+/**
+ * CostMatrix with time-dependent transport times, i.e. the transport time of a relation depends on the departure time.
+ * <p>The transport time of each relation is given by a piecewise-linear profile, i.e. by breakpoints (departureTime, transportTime).
+ * Between two breakpoints the transport time is interpolated linearly, before the first and after the last breakpoint
+ * it is constant. A relation with a single breakpoint thus has a constant transport time. Profiles need to satisfy the
+ * FIFO property, i.e. departing later never means arriving earlier. This is checked when adding a profile.
+ * <p>All profiles are stored in a few contiguous primitive arrays. Looking up a transport time is a binary search over
+ * the breakpoints of one relation. The backward transport time is the exact inverse of the forward transport time:
+ * it is the transport time of the latest departure that arrives no later than the specified arrival time.
+ * <p>Distances are not time-dependent.
+ */
+public class TimeDependentVehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts implements TransportDistance {
+
+    /**
+     * Builder that builds the matrix.
+     */
+    public static class Builder {
+
+        private final boolean isSymmetric;
+
+        private final int noLocations;
+
+        private final double[] distances;
+
+        private final int[] profileOfCell;
+
+        private int[] profileStarts = new int[16];
+
+        private int noProfiles = 0;
+
+        private double[] departureTimes = new double[64];
+
+        private double[] transportTimes = new double[64];
+
+        private int noBreakpoints = 0;
+
+        /**
+         * Creates a new builder returning the matrix-builder.
+         * <p>If you want to consider symmetric matrices, set isSymmetric to true. Then a relation and its reverse share
+         * the same profile.
+         *
+         * @param noLocations number of locations
+         * @param isSymmetric true if matrix is symmetric, false otherwise
+         * @return builder
+         */
+        public static Builder newInstance(int noLocations, boolean isSymmetric) {
+            return new Builder(noLocations, isSymmetric);
+        }
+
+        private Builder(int noLocations, boolean isSymmetric) {
+            this.isSymmetric = isSymmetric;
+            this.noLocations = noLocations;
+            long size = isSymmetric ? (long) noLocations * (noLocations + 1) / 2 : (long) noLocations * noLocations;
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("cannot store " + noLocations + " locations in a "
+                    + (isSymmetric ? "symmetric" : "asymmetric") + " matrix. it would have " + size + " cells.");
+            }
+            distances = new double[(int) size];
+            profileOfCell = new int[(int) size];
+            Arrays.fill(profileOfCell, -1);
+        }
+
+        /**
+         * Adds a transport-distance for a particular relation.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param distance  the distance to be added
+         * @return builder
+         */
+        public Builder addTransportDistance(int fromIndex, int toIndex, double distance) {
+            distances[cell(fromIndex, toIndex, noLocations, isSymmetric)] = distance;
+            return this;
+        }
+
+        /**
+         * Adds a constant transport-time for a particular relation.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param time      the time to be added
+         * @return builder
+         */
+        public Builder addTransportTime(int fromIndex, int toIndex, double time) {
+            return addTransportTimeProfile(fromIndex, toIndex, new double[]{0.}, new double[]{time});
+        }
+
+        /**
+         * Adds the transport-time profile of a particular relation. A profile added before for the same relation is
+         * replaced.
+         * <p>transportTimes[i] is the transport time when departing at departureTimes[i].
+         *
+         * @param fromIndex      from location index
+         * @param toIndex        to location index
+         * @param departureTimes departure times of the breakpoints in strictly increasing order
+         * @param transportTimes transport times of the breakpoints
+         * @return builder
+         * @throws IllegalArgumentException if the profile is empty, not sorted, has negative transport times or
+         *                                  violates the FIFO property
+         */
+        public Builder addTransportTimeProfile(int fromIndex, int toIndex, double[] departureTimes, double[] transportTimes) {
+            if (departureTimes.length != transportTimes.length) {
+                throw new IllegalArgumentException("profile of relation " + fromIndex + " -> " + toIndex
+                    + " has " + departureTimes.length + " departure times but " + transportTimes.length + " transport times");
+            }
+            if (departureTimes.length == 0) {
+                throw new IllegalArgumentException("profile of relation " + fromIndex + " -> " + toIndex + " is empty");
+            }
+            for (int i = 0; i < departureTimes.length; i++) {
+                if (transportTimes[i] < 0) {
+                    throw new IllegalArgumentException("profile of relation " + fromIndex + " -> " + toIndex
+                        + " has negative transport time " + transportTimes[i] + " at " + departureTimes[i]);
+                }
+                if (i == 0) continue;
+                if (departureTimes[i] <= departureTimes[i - 1]) {
+                    throw new IllegalArgumentException("departure times of relation " + fromIndex + " -> " + toIndex
+                        + " must be strictly increasing, but " + departureTimes[i] + " follows " + departureTimes[i - 1]);
+                }
+                if (departureTimes[i] + transportTimes[i] < departureTimes[i - 1] + transportTimes[i - 1]) {
+                    throw new IllegalArgumentException("profile of relation " + fromIndex + " -> " + toIndex
+                        + " violates FIFO. departing at " + departureTimes[i] + " arrives earlier than departing at " + departureTimes[i - 1]);
+                }
+            }
+            ensureCapacity(departureTimes.length);
+            System.arraycopy(departureTimes, 0, this.departureTimes, noBreakpoints, departureTimes.length);
+            System.arraycopy(transportTimes, 0, this.transportTimes, noBreakpoints, transportTimes.length);
+            profileStarts[noProfiles] = noBreakpoints;
+            profileOfCell[cell(fromIndex, toIndex, noLocations, isSymmetric)] = noProfiles;
+            noProfiles++;
+            noBreakpoints += departureTimes.length;
+            return this;
+        }
+
+        private void ensureCapacity(int additionalBreakpoints) {
+            if (noProfiles + 1 >= profileStarts.length) {
+                profileStarts = Arrays.copyOf(profileStarts, profileStarts.length * 2);
+            }
+            long required = (long) noBreakpoints + additionalBreakpoints;
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("cannot store more than " + (Integer.MAX_VALUE - 8) + " breakpoints");
+            }
+            if (required > departureTimes.length) {
+                int newLength = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * departureTimes.length));
+                departureTimes = Arrays.copyOf(departureTimes, newLength);
+                transportTimes = Arrays.copyOf(transportTimes, newLength);
+            }
+        }
+
+        /**
+         * Builds the matrix.
+         *
+         * @return matrix
+         */
+        public TimeDependentVehicleRoutingTransportCostsMatrix build() {
+            return new TimeDependentVehicleRoutingTransportCostsMatrix(this);
+        }
+
+    }
+
+    private final boolean isSymmetric;
+
+    private final int noLocations;
+
+    private final double[] distances;
+
+    /**
+     * Breakpoints of the relation stored at cell c are offsets[c] (inclusive) to offsets[c + 1] (exclusive).
+     */
+    private final int[] offsets;
+
+    private final double[] departureTimes;
+
+    private final double[] transportTimes;
+
+    private final double[] arrivalTimes;
+
+    private TimeDependentVehicleRoutingTransportCostsMatrix(Builder builder) {
+        this.isSymmetric = builder.isSymmetric;
+        this.noLocations = builder.noLocations;
+        this.distances = builder.distances;
+        int noCells = builder.profileOfCell.length;
+        offsets = new int[noCells + 1];
+        int noBreakpoints = 0;
+        for (int cell = 0; cell < noCells; cell++) {
+            offsets[cell] = noBreakpoints;
+            int profile = builder.profileOfCell[cell];
+            if (profile >= 0) noBreakpoints += getLength(builder, profile);
+        }
+        offsets[noCells] = noBreakpoints;
+        departureTimes = new double[noBreakpoints];
+        transportTimes = new double[noBreakpoints];
+        arrivalTimes = new double[noBreakpoints];
+        for (int cell = 0; cell < noCells; cell++) {
+            int profile = builder.profileOfCell[cell];
+            if (profile < 0) continue;
+            int start = builder.profileStarts[profile];
+            int length = getLength(builder, profile);
+            System.arraycopy(builder.departureTimes, start, departureTimes, offsets[cell], length);
+            System.arraycopy(builder.transportTimes, start, transportTimes, offsets[cell], length);
+        }
+        for (int i = 0; i < noBreakpoints; i++) {
+            arrivalTimes[i] = departureTimes[i] + transportTimes[i];
+        }
+    }
+
+    private static int getLength(Builder builder, int profile) {
+        int end = profile + 1 < builder.noProfiles ? builder.profileStarts[profile + 1] : builder.noBreakpoints;
+        return end - builder.profileStarts[profile];
+    }
+
+    private static int cell(int from, int to, int noLocations, boolean isSymmetric) {
+        if (isSymmetric) {
+            if (from < to) return (int) ((long) to * (to + 1) / 2 + from);
+            return (int) ((long) from * (from + 1) / 2 + to);
+        }
+        return from * noLocations + to;
+    }
+
+    /**
+     * Returns the number of breakpoints of all profiles.
+     *
+     * @return number of breakpoints
+     */
+    public int getNoBreakpoints() {
+        return departureTimes.length;
+    }
+
+    /**
+     * Returns the transport time from to to when departing at departureTime. Relations without profile have a
+     * transport time of 0.
+     *
+     * @param fromIndex     from location index
+     * @param toIndex       to location index
+     * @param departureTime departure time at from
+     * @return the transport time
+     */
+    public double getTransportTime(int fromIndex, int toIndex, double departureTime) {
+        int cell = cell(fromIndex, toIndex, noLocations, isSymmetric);
+        int start = offsets[cell];
+        int end = offsets[cell + 1];
+        if (start == end) return 0.;
+        if (departureTime <= departureTimes[start]) return transportTimes[start];
+        if (departureTime >= departureTimes[end - 1]) return transportTimes[end - 1];
+        int i = lastNotGreater(departureTimes, start, end - 1, departureTime);
+        double fraction = (departureTime - departureTimes[i]) / (departureTimes[i + 1] - departureTimes[i]);
+        return transportTimes[i] + fraction * (transportTimes[i + 1] - transportTimes[i]);
+    }
+
+    /**
+     * Returns the transport time from to to when arriving at to at arrivalTime, i.e. arrivalTime minus the latest
+     * departure time at from that does not arrive later than arrivalTime.
+     *
+     * @param fromIndex   from location index
+     * @param toIndex     to location index
+     * @param arrivalTime arrival time at to
+     * @return the transport time
+     */
+    public double getBackwardTransportTime(int fromIndex, int toIndex, double arrivalTime) {
+        int cell = cell(fromIndex, toIndex, noLocations, isSymmetric);
+        int start = offsets[cell];
+        int end = offsets[cell + 1];
+        if (start == end) return 0.;
+        if (arrivalTime < arrivalTimes[start]) return transportTimes[start];
+        if (arrivalTime >= arrivalTimes[end - 1]) return transportTimes[end - 1];
+        int i = lastNotGreater(arrivalTimes, start, end - 1, arrivalTime);
+        //arrivalTimes[i] <= arrivalTime < arrivalTimes[i + 1], thus the arrival function strictly increases in between
+        double fraction = (arrivalTime - arrivalTimes[i]) / (arrivalTimes[i + 1] - arrivalTimes[i]);
+        double departureTime = departureTimes[i] + fraction * (departureTimes[i + 1] - departureTimes[i]);
+        return arrivalTime - departureTime;
+    }
+
+    /**
+     * Returns the last index i in [from, to) with values[i] &lt;= key. values[from] &lt;= key is required.
+     */
+    private static int lastNotGreater(double[] values, int from, int to, double key) {
+        int low = from;
+        int high = to - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (values[mid] <= key) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        return getTransportTime(from.getIndex(), to.getIndex(), departureTime);
+    }
+
+    @Override
+    public double getBackwardTransportTime(Location from, Location to, double arrivalTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        return getBackwardTransportTime(from.getIndex(), to.getIndex(), arrivalTime);
+    }
+
+    /**
+     * Returns the distance from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the distance
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        return distances[cell(fromIndex, toIndex, noLocations, isSymmetric)];
+    }
+
+    @Override
+    public double getDistance(Location from, Location to, double departureTime, Vehicle vehicle) {
+        return getDistance(from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        if (vehicle == null) return getDistance(from.getIndex(), to.getIndex());
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * getDistance(from.getIndex(), to.getIndex())
+            + costParams.perTransportTimeUnit * getTransportTime(from.getIndex(), to.getIndex(), departureTime);
+    }
+
+    @Override
+    public double getBackwardTransportCost(Location from, Location to, double arrivalTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        if (vehicle == null) return getDistance(from.getIndex(), to.getIndex());
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * getDistance(from.getIndex(), to.getIndex())
+            + costParams.perTransportTimeUnit * getBackwardTransportTime(from.getIndex(), to.getIndex(), arrivalTime);
+    }
+
+}
@@ -17,7 +17,10 @@
  */
 package com.graphhopper.jsprit.core.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -37,61 +40,205 @@ import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl.VehicleCostPa
  * you set a particular distance, this expects distance-entries for all relations. This counts also
  * for a particular time. If the method getTransportCosts(...) is then invoked for a relation, where no distance can be found, an
  * IllegalStateException will be thrown. Thus if you want to only use distances only, do not use addTransportTime(...).
+ * <p>Location ids are mapped to indices when they are added. By default, the matrix stores the relations that were added
+ * row by row in primitive arrays and finds a relation by binary search within its row. If at least half of all
+ * relations are known, they are stored in flat arrays of size noLocations * noLocations instead;
+ * {@link Builder#setDense(boolean)} overrides this choice. Either way, a lookup neither allocates nor boxes.
+ * <p>A location id is resolved to its index once per lookup. If the location has an index (see {@link Location#getIndex()}),
+ * the resolved index is remembered for it, and later lookups skip the id.
  *
  * @author schroeder
  */
 public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts {
-    static class RelationKey {
 
-        static RelationKey newKey(String from, String to) {
-            return new RelationKey(from, to);
+    /**
+     * Relations in the order they were added to the builder.
+     */
+    static class Relations {
+
+        private int[] from = new int[16];
+
+        private int[] to = new int[16];
+
+        private double[] values = new double[16];
+
+        private int size;
+
+        void add(int fromIndex, int toIndex, double value) {
+            if (size == values.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            from[size] = fromIndex;
+            to[size] = toIndex;
+            values[size] = value;
+            size++;
         }
 
-        final String from;
-        final String to;
+        boolean isEmpty() {
+            return size == 0;
+        }
 
-        public RelationKey(String from, String to) {
-            super();
-            this.from = from;
-            this.to = to;
+        /**
+         * Sorts the relations by row and column. If a relation was added more than once, the value added last wins.
+         * <p>In a symmetric matrix, a relation and its reverse are stored once in the row of the smaller index,
+         * and the value added last in either direction wins.
+         */
+        SparseStore toSparseStore(int noLocations, boolean isSymmetric, String name, List<String> locationIds) {
+            int[] rowStart = new int[noLocations + 1];
+            for (int i = 0; i < size; i++) {
+                rowStart[row(i, isSymmetric) + 1]++;
+            }
+            for (int r = 0; r < noLocations; r++) {
+                rowStart[r + 1] += rowStart[r];
+            }
+            int[] next = Arrays.copyOf(rowStart, noLocations);
+            int[] byRow = new int[size];
+            for (int i = 0; i < size; i++) {
+                byRow[next[row(i, isSymmetric)]++] = i;
+            }
+            int[] columns = new int[size];
+            double[] rowValues = new double[size];
+            int[] compactRowStart = new int[noLocations + 1];
+            int noRelations = 0;
+            long[] keys = new long[16];
+            for (int r = 0; r < noLocations; r++) {
+                compactRowStart[r] = noRelations;
+                int rowSize = rowStart[r + 1] - rowStart[r];
+                if (rowSize == 0) continue;
+                if (keys.length < rowSize) keys = new long[Math.max(rowSize, keys.length * 2)];
+                for (int k = 0; k < rowSize; k++) {
+                    int i = byRow[rowStart[r] + k];
+                    keys[k] = ((long) column(i, isSymmetric) << 32) | k;
+                }
+                Arrays.sort(keys, 0, rowSize);
+                int k = 0;
+                while (k < rowSize) {
+                    int column = (int) (keys[k] >>> 32);
+                    boolean forwardAdded = false;
+                    boolean reverseAdded = false;
+                    int last = -1;
+                    for (; k < rowSize && (int) (keys[k] >>> 32) == column; k++) {
+                        int i = byRow[rowStart[r] + (int) keys[k]];
+                        boolean forward = from[i] == r;
+                        if (forward ? forwardAdded : reverseAdded) {
+                            Builder.log.warn(name + " from " + locationIds.get(from[i]) + " to " + locationIds.get(to[i]) + " already exists. This overrides " + name + ".");
+                        }
+                        if (forward) forwardAdded = true;
+                        else reverseAdded = true;
+                        last = i;
+                    }
+                    columns[noRelations] = column;
+                    rowValues[noRelations] = values[last];
+                    noRelations++;
+                }
+            }
+            compactRowStart[noLocations] = noRelations;
+            return new SparseStore(isSymmetric, compactRowStart, Arrays.copyOf(columns, noRelations), Arrays.copyOf(rowValues, noRelations));
+        }
+
+        private int row(int i, boolean isSymmetric) {
+            return isSymmetric ? Math.min(from[i], to[i]) : from[i];
+        }
+
+        private int column(int i, boolean isSymmetric) {
+            return isSymmetric ? Math.max(from[i], to[i]) : to[i];
         }
+    }
+
+    /**
+     * Values of the relations between location indices.
+     */
+    static abstract class Store {
 
-        /* (non-Javadoc)
-         * @see java.lang.Object#hashCode()
+        /**
+         * Returns the value of the relation from fromIndex to toIndex, or NaN if it does not exist.
          */
+        abstract double get(int fromIndex, int toIndex);
+
+    }
+
+    /**
+     * Stores the relations of each row sorted by column.
+     */
+    static class SparseStore extends Store {
+
+        private final boolean isSymmetric;
+
+        private final int[] rowStart;
+
+        private final int[] columns;
+
+        private final double[] values;
+
+        SparseStore(boolean isSymmetric, int[] rowStart, int[] columns, double[] values) {
+            this.isSymmetric = isSymmetric;
+            this.rowStart = rowStart;
+            this.columns = columns;
+            this.values = values;
+        }
+
         @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((from == null) ? 0 : from.hashCode());
-            result = prime * result + ((to == null) ? 0 : to.hashCode());
-            return result;
+        double get(int fromIndex, int toIndex) {
+            int row = fromIndex;
+            int column = toIndex;
+            if (isSymmetric && fromIndex > toIndex) {
+                row = toIndex;
+                column = fromIndex;
+            }
+            int k = Arrays.binarySearch(columns, rowStart[row], rowStart[row + 1], column);
+            return k < 0 ? Double.NaN : values[k];
         }
 
-        /* (non-Javadoc)
-         * @see java.lang.Object#equals(java.lang.Object)
+        /**
+         * Returns the number of relations this store knows, i.e. each relation between two distinct locations of a
+         * symmetric store counts twice.
          */
+        long getNoRelations() {
+            if (!isSymmetric) return columns.length;
+            long noRelations = 0;
+            for (int row = 0; row < rowStart.length - 1; row++) {
+                for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+                    noRelations += columns[k] == row ? 1 : 2;
+                }
+            }
+            return noRelations;
+        }
+
+        DenseStore toDenseStore(int noLocations) {
+            double[] matrix = new double[noLocations * noLocations];
+            Arrays.fill(matrix, Double.NaN);
+            for (int row = 0; row < noLocations; row++) {
+                for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+                    matrix[row * noLocations + columns[k]] = values[k];
+                    if (isSymmetric) matrix[columns[k] * noLocations + row] = values[k];
+                }
+            }
+            return new DenseStore(noLocations, matrix);
+        }
+
+    }
+
+    /**
+     * Stores all relations in a row-major matrix. Missing relations are NaN.
+     */
+    static class DenseStore extends Store {
+
+        private final int noLocations;
+
+        private final double[] matrix;
+
+        DenseStore(int noLocations, double[] matrix) {
+            this.noLocations = noLocations;
+            this.matrix = matrix;
+        }
+
         @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            RelationKey other = (RelationKey) obj;
-            if (from == null) {
-                if (other.from != null)
-                    return false;
-            } else if (!from.equals(other.from))
-                return false;
-            if (to == null) {
-                if (other.to != null)
-                    return false;
-            } else if (!to.equals(other.to))
-                return false;
-            return true;
+        double get(int fromIndex, int toIndex) {
+            return matrix[fromIndex * noLocations + toIndex];
         }
+
     }
 
 
@@ -105,13 +252,15 @@ public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRo
 
         private boolean isSymmetric;
 
-        private Map<RelationKey, Double> distances = new HashMap<RelationKey, Double>();
+        private Boolean dense;
+
+        private Map<String, Integer> locationIndices = new HashMap<String, Integer>();
 
-        private Map<RelationKey, Double> times = new HashMap<RelationKey, Double>();
+        private List<String> locationIds = new ArrayList<String>();
 
-        private boolean distancesSet = false;
+        private Relations distances = new Relations();
 
-        private boolean timesSet = false;
+        private Relations times = new Relations();
 
         /**
          * Creates a new builder returning the matrix-builder.
@@ -128,6 +277,20 @@ public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRo
             this.isSymmetric = isSymmetric;
         }
 
+        /**
+         * Sets whether the matrix stores distances and times in flat arrays of size noLocations * noLocations.
+         * <p>A dense matrix reads a relation from a single array cell. It pays off if (almost) all relations are
+         * added; otherwise, the sparse layout needs far less memory. By default, the matrix is dense if at least half
+         * of all relations are added and there are at most 46340 locations.
+         *
+         * @param dense true if the matrix should be dense
+         * @return builder
+         */
+        public Builder setDense(boolean dense) {
+            this.dense = dense;
+            return this;
+        }
+
         /**
          * Adds a transport-distance for a particular relation.
          *
@@ -137,16 +300,7 @@ public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRo
          * @return builder
          */
         public Builder addTransportDistance(String from, String to, double distance) {
-            RelationKey key = RelationKey.newKey(from, to);
-            if (!distancesSet) distancesSet = true;
-            if (distances.containsKey(key)) {
-                log.warn("distance from " + from + " to " + to + " already exists. This overrides distance.");
-            }
-            distances.put(key, distance);
-            if (isSymmetric) {
-                RelationKey revKey = RelationKey.newKey(to, from);
-                if (distances.containsKey(revKey)) distances.put(revKey, distance);
-            }
+            distances.add(getIndex(from), getIndex(to), distance);
             return this;
         }
 
@@ -159,34 +313,56 @@ public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRo
          * @return builder
          */
         public Builder addTransportTime(String from, String to, double time) {
-            RelationKey key = RelationKey.newKey(from, to);
-            if (!timesSet) timesSet = true;
-            if (times.containsKey(key)) {
-                log.warn("transport-time from " + from + " to " + to + " already exists. This overrides times.");
-            }
-            times.put(key, time);
-            if (isSymmetric) {
-                RelationKey revKey = RelationKey.newKey(to, from);
-                if (times.containsKey(revKey)) times.put(revKey, time);
-            }
+            times.add(getIndex(from), getIndex(to), time);
             return this;
         }
 
+        private int getIndex(String locationId) {
+            Integer index = locationIndices.get(locationId);
+            if (index == null) {
+                index = locationIndices.size();
+                locationIndices.put(locationId, index);
+                locationIds.add(locationId);
+            }
+            return index;
+        }
+
         /**
          * Builds the matrix.
          *
          * @return matrix
+         * @throws IllegalStateException if the matrix is dense and there are too many locations to store them in a dense matrix
          */
         public VehicleRoutingTransportCostsMatrix build() {
+            if (Boolean.TRUE.equals(dense) && locationIndices.size() > MAX_DENSE_LOCATIONS) {
+                throw new IllegalStateException("cannot build matrix for " + locationIndices.size() + " locations. "
+                    + "at most " + MAX_DENSE_LOCATIONS + " locations can be stored in a dense matrix.");
+            }
             return new VehicleRoutingTransportCostsMatrix(this);
         }
 
 
     }
 
-    private Map<RelationKey, Double> distances = new HashMap<RelationKey, Double>();
+    /**
+     * The largest number of locations whose relations fit into a single array.
+     */
+    static final int MAX_DENSE_LOCATIONS = 46340;
+
+    private final Map<String, Integer> locationIndices;
+
+    private final String[] locationIds;
 
-    private Map<RelationKey, Double> times = new HashMap<RelationKey, Double>();
+    private final int noLocations;
+
+    private final Store distances;
+
+    private final Store times;
+
+    /**
+     * Maps {@link Location#getIndex()} to the index of its id plus one, 0 if not yet resolved.
+     */
+    private volatile int[] indicesOfLocations = new int[0];
 
     private boolean isSymmetric;
 
@@ -196,36 +372,48 @@ public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRo
 
     private VehicleRoutingTransportCostsMatrix(Builder builder) {
         this.isSymmetric = builder.isSymmetric;
-        distances.putAll(builder.distances);
-        times.putAll(builder.times);
-        timesSet = builder.timesSet;
-        distancesSet = builder.distancesSet;
+        locationIndices = new HashMap<String, Integer>(builder.locationIndices);
+        locationIds = builder.locationIds.toArray(new String[0]);
+        noLocations = locationIndices.size();
+        timesSet = !builder.times.isEmpty();
+        distancesSet = !builder.distances.isEmpty();
+        times = timesSet ? createStore(builder, builder.times, "transport-time") : null;
+        distances = distancesSet ? createStore(builder, builder.distances, "distance") : null;
+    }
+
+    private Store createStore(Builder builder, Relations relations, String name) {
+        SparseStore store = relations.toSparseStore(noLocations, isSymmetric, name, builder.locationIds);
+        if (isDense(builder, store)) return store.toDenseStore(noLocations);
+        return store;
+    }
+
+    private boolean isDense(Builder builder, SparseStore store) {
+        if (builder.dense != null) return builder.dense;
+        if (noLocations > MAX_DENSE_LOCATIONS) return false;
+        return 2 * store.getNoRelations() >= (long) noLocations * noLocations;
+    }
+
+    /**
+     * Returns true if the distances or times are stored in a dense matrix.
+     */
+    boolean isDense() {
+        return distances instanceof DenseStore || times instanceof DenseStore;
     }
 
 
     @Override
     public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
-        return getTime(from.getId(), to.getId());
+        return getTime(from.getId(), to.getId(), indexOf(from), indexOf(to));
     }
 
 
-    private double getTime(String fromId, String toId) {
+    private double getTime(String fromId, String toId, int fromIndex, int toIndex) {
         if (fromId.equals(toId)) return 0.0;
         if (!timesSet) return 0.0;
-        RelationKey key = RelationKey.newKey(fromId, toId);
-        if (!isSymmetric) {
-            if (times.containsKey(key)) return times.get(key);
-            else
-                throw new IllegalStateException("time value for relation from " + fromId + " to " + toId + " does not exist");
-        } else {
-            Double time = times.get(key);
-            if (time == null) {
-                time = times.get(RelationKey.newKey(toId, fromId));
-            }
-            if (time != null) return time;
-            else
-                throw new IllegalStateException("time value for relation from " + fromId + " to " + toId + " does not exist");
-        }
+        double time = getValue(times, fromIndex, toIndex);
+        if (Double.isNaN(time))
+            throw new IllegalStateException("time value for relation from " + fromId + " to " + toId + " does not exist");
+        return time;
     }
 
     /**
@@ -237,29 +425,55 @@ public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRo
      * @throws IllegalStateException if distance of fromId -> toId is not found
      */
     public double getDistance(String fromId, String toId) {
+        return getDistance(fromId, toId, indexOf(fromId), indexOf(toId));
+    }
+
+    private double getDistance(String fromId, String toId, int fromIndex, int toIndex) {
         if (fromId.equals(toId)) return 0.0;
         if (!distancesSet) return 0.0;
-        RelationKey key = RelationKey.newKey(fromId, toId);
-        if (!isSymmetric) {
-            if (distances.containsKey(key)) return distances.get(key);
-            else
-                throw new IllegalStateException("distance value for relation from " + fromId + " to " + toId + " does not exist");
-        } else {
-            Double time = distances.get(key);
-            if (time == null) {
-                time = distances.get(RelationKey.newKey(toId, fromId));
+        double distance = getValue(distances, fromIndex, toIndex);
+        if (Double.isNaN(distance))
+            throw new IllegalStateException("distance value for relation from " + fromId + " to " + toId + " does not exist");
+        return distance;
+    }
+
+    private double getValue(Store store, int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex < 0) return Double.NaN;
+        return store.get(fromIndex, toIndex);
+    }
+
+    private int indexOf(String locationId) {
+        Integer index = locationIndices.get(locationId);
+        return index == null ? -1 : index;
+    }
+
+    private int indexOf(Location location) {
+        int locationIndex = location.getIndex();
+        if (locationIndex < 0) return indexOf(location.getId());
+        int[] indices = indicesOfLocations;
+        if (locationIndex < indices.length) {
+            int index = indices[locationIndex] - 1;
+            if (index >= 0 && locationIds[index].equals(location.getId())) return index;
+        }
+        int index = indexOf(location.getId());
+        if (index >= 0 && locationIndex < 2 * noLocations + 64) {
+            if (locationIndex >= indices.length) {
+                indices = Arrays.copyOf(indices, Math.min(Math.max(locationIndex + 1, 2 * indices.length), 2 * noLocations + 64));
             }
-            if (time != null) return time;
-            else
-                throw new IllegalStateException("distance value for relation from " + fromId + " to " + toId + " does not exist");
+            indices[locationIndex] = index + 1;
+            indicesOfLocations = indices;
         }
+        return index;
     }
 
     @Override
     public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
-        if (vehicle == null) return getDistance(from.getId(), to.getId());
+        int fromIndex = indexOf(from);
+        int toIndex = indexOf(to);
+        if (vehicle == null) return getDistance(from.getId(), to.getId(), fromIndex, toIndex);
         VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
-        return costParams.perDistanceUnit * getDistance(from.getId(), to.getId()) + costParams.perTransportTimeUnit * getTime(from.getId(), to.getId());
+        return costParams.perDistanceUnit * getDistance(from.getId(), to.getId(), fromIndex, toIndex)
+            + costParams.perTransportTimeUnit * getTime(from.getId(), to.getId(), fromIndex, toIndex);
     }
 
 }
@@ -23,13 +23,20 @@ import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 
 import org.junit.Test;
 
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
 import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
 import com.graphhopper.jsprit.core.algorithm.termination.PrematureAlgorithmTermination;
+import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.ServiceJob;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Solutions;
 
 public class VehicleRoutingAlgorithmTest {
 
@@ -183,4 +190,69 @@ public class VehicleRoutingAlgorithmTest {
         assertEquals(25, counter.getCountIterations());
     }
 
+    private VehicleRoutingProblem createProblem() {
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 3).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).setType(type).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle);
+        for (int i = 0; i < 12; i++) {
+            vrpBuilder.addJob(new ServiceJob.Builder("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance(i * 3 % 7, i * 5 % 11)).build());
+        }
+        return vrpBuilder.build();
+    }
+
+    private VehicleRoutingAlgorithm createSpeculativeAlgorithm(int noWorkers) {
+        return Jsprit.Builder.newInstance(createProblem())
+            .setProperty(Jsprit.Parameter.SPECULATIVE_WORKERS, String.valueOf(noWorkers)).buildAlgorithm();
+    }
+
+    @Test
+    public void whenRunningSpeculatively_iterAreExecutedCorrectly() {
+        VehicleRoutingAlgorithm algorithm = createSpeculativeAlgorithm(3);
+        algorithm.setMaxIterations(20);
+        CountIterations counter = new CountIterations();
+        algorithm.addListener(counter);
+        algorithm.searchSolutions();
+        assertEquals(20, counter.getCountIterations());
+    }
+
+    @Test
+    public void whenRunningSpeculatively_resultsShouldBeReproducible() {
+        VehicleRoutingAlgorithm first = createSpeculativeAlgorithm(3);
+        first.setMaxIterations(30);
+        VehicleRoutingAlgorithm second = createSpeculativeAlgorithm(3);
+        second.setMaxIterations(30);
+        assertEquals(Solutions.bestOf(first.searchSolutions()).getCost(), Solutions.bestOf(second.searchSolutions()).getCost(), 0.);
+    }
+
+    @Test
+    public void whenRunningSpeculativelyWithPrematureTermination_itIsExecutedCorrectly() {
+        VehicleRoutingAlgorithm algorithm = createSpeculativeAlgorithm(4);
+        algorithm.setMaxIterations(100);
+        algorithm.addTerminationCriterion(new PrematureAlgorithmTermination() {
+
+            private int nuOfIterations = 1;
+
+            @Override
+            public boolean isPrematureBreak(SearchStrategy.DiscoveredSolution discoveredSolution) {
+                if (nuOfIterations == 10) return true;
+                nuOfIterations++;
+                return false;
+            }
+
+        });
+        CountIterations counter = new CountIterations();
+        algorithm.addListener(counter);
+        algorithm.searchSolutions();
+        assertEquals(10, counter.getCountIterations());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenSpeculativeWorkerLacksStrategy_itShouldThrowException() {
+        VehicleRoutingProblem vrp = createProblem();
+        VehicleRoutingAlgorithm algorithm = Jsprit.createAlgorithm(vrp);
+        VehicleRoutingAlgorithm worker = new VehicleRoutingAlgorithm(vrp, new SearchStrategyManager());
+        algorithm.setSpeculativeWorkers(Collections.singletonList(worker));
+    }
+
 }
@@ -27,24 +27,33 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
 import com.graphhopper.jsprit.core.algorithm.SearchStrategy;
 import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
 import com.graphhopper.jsprit.core.algorithm.listener.StrategySelectedListener;
+import com.graphhopper.jsprit.core.algorithm.objectivefunction.ModularSolutionCostCalculator;
 import com.graphhopper.jsprit.core.algorithm.recreate.InsertionData;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.BeforeJobInsertionListener;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.JobInsertedListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.DynamicJobNeighborhoods;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoodsFactory;
 import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListener;
+import com.graphhopper.jsprit.core.distance.EuclideanDistanceCalculator;
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.ServiceJob;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.util.DefaultCosts;
 import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
+import com.graphhopper.jsprit.core.util.Solutions;
 
 /**
  * Created by schroeder on 06/03/15.
@@ -496,5 +505,126 @@ public class JspritTest {
         assertEquals(1, c);
     }
 
+    @Test
+    public void whenUsingSpatialNeighborhoods_itShouldAssignAllJobs() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(new ServiceJob.Builder("s" + i).setLocation(Location.newInstance(i % 5, i / 5)).build());
+        }
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoutingProblem vrp = vrpBuilder.addVehicle(v).build();
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrp)
+                        .setProperty(Jsprit.Parameter.NEIGHBORHOODS, Jsprit.Neighborhoods.SPATIAL.toString())
+                        .setProperty(Jsprit.Strategy.RADIAL_REGRET, "1.").setProperty(Jsprit.Strategy.CLUSTER_REGRET, "1.")
+                        .buildAlgorithm();
+        vra.setMaxIterations(50);
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(vra.searchSolutions());
+        assertTrue(solution.getUnassignedJobs().isEmpty());
+    }
+
+    @Test
+    public void whenSettingMaintainedNeighborhoods_itShouldUseThem() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 10; i++) {
+            vrpBuilder.addJob(new ServiceJob.Builder("s" + i).setLocation(Location.newInstance(i, 0)).build());
+        }
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoutingProblem vrp = vrpBuilder.addVehicle(v).build();
+        DynamicJobNeighborhoods neighborhoods = new JobNeighborhoodsFactory().createSpatialNeighborhoods(vrp);
+        neighborhoods.initialise();
+
+        ServiceJob newJob = new ServiceJob.Builder("new").setLocation(Location.newInstance(5, 5)).build();
+        neighborhoods.addJob(newJob);
+        VehicleRoutingProblem replanned = VehicleRoutingProblem.Builder.newInstance().addAllJobs(vrp.getJobs().values())
+                        .addJob(newJob).addVehicle(v).build();
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(replanned).setJobNeighborhoods(neighborhoods)
+                        .setProperty(Jsprit.Strategy.RADIAL_REGRET, "1.").buildAlgorithm();
+        vra.setMaxIterations(30);
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(vra.searchSolutions());
+        assertTrue(solution.getUnassignedJobs().isEmpty());
+    }
+
+    @Test
+    public void whenUsingSpatialNeighborhoods_maxCostsShouldBeInUnitOfTransportCosts() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(new ServiceJob.Builder("s" + i).setLocation(Location.newInstance(i % 5, i / 5)).build());
+        }
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoutingProblem vrp = vrpBuilder.addVehicle(v).setRoutingCost(new DefaultCosts(EuclideanDistanceCalculator.getInstance()) {
+
+            @Override
+            public double getTransportCost(Location from, Location to, double time, Driver driver, Vehicle vehicle) {
+                return 10. * super.getTransportCost(from, to, time, driver, vehicle);
+            }
+
+        }).build();
+        assertEquals(50., Jsprit.estimateMaxCosts(vrp), 0.01);
+    }
+
+    @Test
+    public void whenSettingSpatialNeighborhoods_maxCostsShouldBeInUnitOfTransportCosts() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(new ServiceJob.Builder("s" + i).setLocation(Location.newInstance(i % 5, i / 5)).build());
+        }
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoutingProblem vrp = vrpBuilder.addVehicle(v).setRoutingCost(new DefaultCosts(EuclideanDistanceCalculator.getInstance()) {
+
+            @Override
+            public double getTransportCost(Location from, Location to, double time, Driver driver, Vehicle vehicle) {
+                return 10. * super.getTransportCost(from, to, time, driver, vehicle);
+            }
+
+        }).build();
+        DynamicJobNeighborhoods neighborhoods = new JobNeighborhoodsFactory().createSpatialNeighborhoods(vrp);
+        neighborhoods.initialise();
+        final List<Double> maxCosts = new ArrayList<>();
+        Jsprit.Builder.newInstance(vrp).setJobNeighborhoods(neighborhoods).setObjectiveFunction(new ModularSolutionCostCalculator() {
+
+            @Override
+            public void beforeRun(VehicleRoutingProblem problem, double max) {
+                maxCosts.add(max);
+                super.beforeRun(problem, max);
+            }
+
+        }).buildAlgorithm();
+        assertEquals(1, maxCosts.size());
+        assertEquals(50., maxCosts.get(0), 0.01);
+    }
+
+    private VehicleRoutingProblem createProblemCountingCosts(final AtomicInteger noCostCalls) {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(new ServiceJob.Builder("s" + i).setLocation(Location.newInstance(i % 5, i / 5)).build());
+        }
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        return vrpBuilder.addVehicle(v).setRoutingCost(new DefaultCosts(EuclideanDistanceCalculator.getInstance()) {
+
+            @Override
+            public double getTransportCost(Location from, Location to, double time, Driver driver, Vehicle vehicle) {
+                noCostCalls.incrementAndGet();
+                return super.getTransportCost(from, to, time, driver, vehicle);
+            }
+
+        }).build();
+    }
+
+    @Test
+    public void whenBuildingIslandsOrSpeculativeWorkers_neighborhoodsShouldBeComputedOnce() {
+        AtomicInteger noCostCalls = new AtomicInteger();
+        VehicleRoutingProblem vrp = createProblemCountingCosts(noCostCalls);
+        Jsprit.Builder.newInstance(vrp).buildAlgorithm();
+        int noCallsOfOneAlgorithm = noCostCalls.get();
+        assertTrue(noCallsOfOneAlgorithm > 0);
+
+        noCostCalls.set(0);
+        Jsprit.Builder.newInstance(vrp).buildIslandAlgorithm(3);
+        assertEquals(noCallsOfOneAlgorithm, noCostCalls.get());
+
+        noCostCalls.set(0);
+        Jsprit.Builder.newInstance(vrp).setProperty(Jsprit.Parameter.SPECULATIVE_WORKERS, "3").buildAlgorithm();
+        assertEquals(noCallsOfOneAlgorithm, noCostCalls.get());
+    }
 
 }
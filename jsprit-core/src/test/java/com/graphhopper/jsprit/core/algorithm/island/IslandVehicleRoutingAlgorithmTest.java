@@ -0,0 +1,169 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.island;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithmFactory;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.ServiceJob;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Solutions;
+
+public class IslandVehicleRoutingAlgorithmTest {
+
+    private VehicleRoutingProblem createProblem() {
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 3).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).setType(type).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle);
+        for (int i = 0; i < 10; i++) {
+            vrpBuilder.addJob(new ServiceJob.Builder("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance(i * 3 % 7, i * 5 % 11)).build());
+        }
+        return vrpBuilder.build();
+    }
+
+    private static class CountIterations implements IterationStartsListener {
+
+        private int countIterations = 0;
+
+        @Override
+        public void informIterationStarts(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+            countIterations++;
+        }
+
+    }
+
+    @Test
+    public void whenBuildingIslandAlgorithm_eachIslandShouldBeAnIndependentAlgorithm() {
+        IslandVehicleRoutingAlgorithm algorithm = Jsprit.Builder.newInstance(createProblem()).buildIslandAlgorithm(3);
+        List<VehicleRoutingAlgorithm> islands = algorithm.getIslands();
+        assertEquals(3, islands.size());
+        assertTrue(islands.get(0) != islands.get(1));
+        assertTrue(islands.get(0).getSearchStrategyManager() != islands.get(1).getSearchStrategyManager());
+    }
+
+    @Test
+    public void whenRunningIslands_eachIslandShouldRunMaxIterations() {
+        IslandVehicleRoutingAlgorithm algorithm = Jsprit.Builder.newInstance(createProblem()).buildIslandAlgorithm(2);
+        algorithm.setMaxIterations(20);
+        List<CountIterations> counters = new ArrayList<CountIterations>();
+        for (VehicleRoutingAlgorithm island : algorithm.getIslands()) {
+            CountIterations counter = new CountIterations();
+            island.addListener(counter);
+            counters.add(counter);
+        }
+        algorithm.searchSolutions();
+        for (CountIterations counter : counters) {
+            assertEquals(20, counter.countIterations);
+        }
+    }
+
+    @Test
+    public void whenRunningIslands_bestEverShouldBeBestOfAllSolutions() {
+        IslandVehicleRoutingAlgorithm algorithm = Jsprit.Builder.newInstance(createProblem()).buildIslandAlgorithm(2);
+        algorithm.setMaxIterations(20);
+        Collection<VehicleRoutingProblemSolution> solutions = algorithm.searchSolutions();
+        assertEquals(Solutions.bestOf(solutions).getCost(), algorithm.getBestEver().getCost(), 0.01);
+        assertTrue(Solutions.bestOf(solutions).getUnassignedJobs().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenFactoryReturnsSameAlgorithmTwice_itShouldThrowException() {
+        final VehicleRoutingAlgorithm algorithm = Jsprit.createAlgorithm(createProblem());
+        IslandVehicleRoutingAlgorithm.Builder.newInstance(createProblem(), new VehicleRoutingAlgorithmFactory() {
+
+            @Override
+            public VehicleRoutingAlgorithm createAlgorithm(VehicleRoutingProblem vrp) {
+                return algorithm;
+            }
+
+        }).setNumberOfIslands(2).build();
+    }
+
+    @Test
+    public void whenOneIslandFails_theOtherIslandsShouldStop() throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        IslandVehicleRoutingAlgorithm algorithm = IslandVehicleRoutingAlgorithm.Builder.newInstance(createProblem(), new VehicleRoutingAlgorithmFactory() {
+
+            @Override
+            public VehicleRoutingAlgorithm createAlgorithm(VehicleRoutingProblem vrp) {
+                return Jsprit.createAlgorithm(vrp);
+            }
+
+        }).setNumberOfIslands(2).setExecutorService(executorService).build();
+        algorithm.setMaxIterations(Integer.MAX_VALUE);
+        algorithm.getIslands().get(0).addListener(new IterationStartsListener() {
+
+            @Override
+            public void informIterationStarts(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+                if (i == 10) throw new IllegalStateException("island fails");
+            }
+
+        });
+        boolean failed = false;
+        try {
+            algorithm.searchSolutions();
+        } catch (RuntimeException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void whenMigrating_worstSolutionShouldBeReplaced() {
+        VehicleRoutingProblemSolution good = new VehicleRoutingProblemSolution(Collections.<VehicleRoute>emptyList(), 10.);
+        VehicleRoutingProblemSolution bad = new VehicleRoutingProblemSolution(Collections.<VehicleRoute>emptyList(), 20.);
+        VehicleRoutingProblemSolution migrant = new VehicleRoutingProblemSolution(Collections.<VehicleRoute>emptyList(), 5.);
+        List<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>();
+        solutions.add(good);
+        solutions.add(bad);
+        new PeriodicBestSolutionMigration(10).migrate(migrant, solutions);
+        assertEquals(2, solutions.size());
+        assertTrue(solutions.contains(good));
+        assertTrue(solutions.contains(migrant));
+    }
+
+    @Test
+    public void whenMigrationIntervalIs10_onlyEvery10thIterationShouldMigrate() {
+        PeriodicBestSolutionMigration migration = new PeriodicBestSolutionMigration(10);
+        assertTrue(migration.isMigrationIteration(0, 10));
+        assertTrue(!migration.isMigrationIteration(0, 11));
+    }
+
+}
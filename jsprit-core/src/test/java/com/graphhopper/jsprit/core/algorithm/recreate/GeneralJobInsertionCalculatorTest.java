@@ -20,77 +20,253 @@ package com.graphhopper.jsprit.core.algorithm.recreate;
 
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.mock;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
-import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.constraint.SoftActivityConstraint;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.WaitingTimeCosts;
+import com.graphhopper.jsprit.core.problem.job.ServiceJob;
+import com.graphhopper.jsprit.core.problem.job.ShipmentJob;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.JobActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.CostFactory;
 
 /**
  * Created by schroeder on 19/11/16.
  */
 public class GeneralJobInsertionCalculatorTest {
 
-    GeneralJobInsertionCalculator.IndexedTourActivity start;
+    VehicleRoutingTransportCosts routingCosts;
 
-    GeneralJobInsertionCalculator.IndexedTourActivity act;
+    Vehicle vehicle;
 
-    GeneralJobInsertionCalculator.IndexedTourActivity end;
+    ShipmentJob shipment;
 
-    GeneralJobInsertionCalculator.IndexedTourActivity toInsert;
+    ShipmentJob shipment2;
+
+    ServiceJob service;
+
+    GeneralJobInsertionCalculator insertionCalculator;
+
+    int noEvaluations;
+
+    ConstraintManager constraintManager;
+
+    WaitingTimeCosts activityCosts;
 
     @Before
     public void doBefore() {
-        start = new GeneralJobInsertionCalculator.IndexedTourActivity(0, mock(TourActivity.class));
-        act = new GeneralJobInsertionCalculator.IndexedTourActivity(1, mock(TourActivity.class));
-        end = new GeneralJobInsertionCalculator.IndexedTourActivity(2, mock(TourActivity.class));
-        toInsert = new GeneralJobInsertionCalculator.IndexedTourActivity(3, mock(TourActivity.class));
+        routingCosts = CostFactory.createManhattanCosts();
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("t").addCapacityDimension(0, 2).setCostPerDistance(1).build();
+        vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("0,0")).setType(type).build();
+        shipment = new ShipmentJob.Builder("s").addSizeDimension(0, 1).setPickupLocation(Location.newInstance("0,10")).setDeliveryLocation(Location.newInstance("10,0")).build();
+        shipment2 = new ShipmentJob.Builder("s2").addSizeDimension(0, 1).setPickupLocation(Location.newInstance("10,10")).setDeliveryLocation(Location.newInstance("0,0")).build();
+        service = new ServiceJob.Builder("se").setLocation(Location.newInstance("0,5")).addTimeWindow(0, 10).addTimeWindow(20, 30).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addJob(shipment).addJob(shipment2).addJob(service)
+            .addVehicle(vehicle).setRoutingCost(routingCosts).build();
+        StateManager stateManager = new StateManager(vrp);
+        constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addTimeWindowConstraint();
+        constraintManager.addConstraint(new SoftActivityConstraint() {
+
+            @Override
+            public double getCosts(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+                noEvaluations++;
+                return 0;
+            }
+
+            @Override
+            public boolean hasNonNegativeCosts() {
+                return true;
+            }
+
+        });
+        activityCosts = new WaitingTimeCosts();
+        insertionCalculator = new GeneralJobInsertionCalculator(routingCosts, activityCosts,
+            new LocalActivityInsertionCostsCalculator(routingCosts, activityCosts, stateManager), constraintManager);
+    }
+
+    @Test
+    public void whenPreparingScratchForSameJobTwice_itShouldReuseActivities() {
+        GeneralJobInsertionCalculator.InsertionScratch scratch = new GeneralJobInsertionCalculator.InsertionScratch();
+        scratch.prepare(shipment.getActivityList().getAll(), Double.MAX_VALUE);
+        JobActivity pickup = scratch.acts[0];
+        JobActivity delivery = scratch.acts[1];
+        scratch.prepare(shipment.getActivityList().getAll(), Double.MAX_VALUE);
+        assertEquals(2, scratch.size);
+        assertSame(pickup, scratch.acts[0]);
+        assertSame(delivery, scratch.acts[1]);
+        assertNotSame(shipment.getActivityList().getAll().get(0), pickup);
+    }
+
+    @Test
+    public void whenPreparingScratchForOtherJob_itShouldReplaceActivities() {
+        GeneralJobInsertionCalculator.InsertionScratch scratch = new GeneralJobInsertionCalculator.InsertionScratch();
+        scratch.prepare(shipment.getActivityList().getAll(), Double.MAX_VALUE);
+        JobActivity pickup = scratch.acts[0];
+        scratch.prepare(service.getActivityList().getAll(), Double.MAX_VALUE);
+        assertEquals(1, scratch.size);
+        assertNotSame(pickup, scratch.acts[0]);
+        assertEquals(2, scratch.timeWindows[0].length);
+        assertEquals(Double.MAX_VALUE, scratch.bestCosts, 0.01);
+    }
+
+    @Test
+    public void whenInsertingShipmentTwice_itShouldReturnEqualInsertionsWithFreshActivities() {
+        VehicleRoute route = VehicleRoute.emptyRoute();
+        InsertionData iData = insertionCalculator.getInsertionData(route, shipment, vehicle, 0.0, null, Double.MAX_VALUE);
+        InsertionData iData2 = insertionCalculator.getInsertionData(route, shipment, vehicle, 0.0, null, Double.MAX_VALUE);
+        assertEquals(40.0, iData.getInsertionCost(), 0.05);
+        assertEquals(iData.getInsertionCost(), iData2.getInsertionCost(), 0.0);
+        List<InsertActivity> inserts = iData.getUnmodifiableEventsByType(InsertActivity.class);
+        List<InsertActivity> inserts2 = iData2.getUnmodifiableEventsByType(InsertActivity.class);
+        assertEquals(2, inserts.size());
+        assertEquals(0, inserts.get(0).getIndex());
+        assertEquals(0, inserts.get(1).getIndex());
+        assertTrue(inserts.get(1).getActivity() != inserts2.get(1).getActivity());
+        assertEquals(shipment.getActivityList().getAll().get(0).getIndex(), inserts.get(1).getActivity().getIndex());
+    }
+
+    @Test
+    public void whenInsertingIntoExistingRoute_itShouldReturnIndicesRelativeToExistingActivities() {
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).addPickup(shipment).addDelivery(shipment).build();
+        InsertionData iData = insertionCalculator.getInsertionData(route, shipment2, vehicle, 0.0, null, Double.MAX_VALUE);
+        assertEquals(0.0, iData.getInsertionCost(), 0.05);
+        List<InsertActivity> inserts = iData.getUnmodifiableEventsByType(InsertActivity.class);
+        assertEquals(2, inserts.get(0).getIndex());
+        assertEquals(1, inserts.get(1).getIndex());
+    }
+
+    @Test
+    public void whenServiceHasSeveralTimeWindows_insertedActivityShouldCarryTheBestOne() {
+        VehicleRoute route = VehicleRoute.emptyRoute();
+        InsertionData iData = insertionCalculator.getInsertionData(route, service, vehicle, 15.0, null, Double.MAX_VALUE);
+        JobActivity act = (JobActivity) iData.getUnmodifiableEventsByType(InsertActivity.class).get(0).getActivity();
+        assertEquals(20.0, act.getTheoreticalEarliestOperationStartTime(), 0.01);
+        assertEquals(30.0, act.getTheoreticalLatestOperationStartTime(), 0.01);
     }
 
     @Test
-    public void testSuccessor() {
-        GeneralJobInsertionCalculator.Route route = new GeneralJobInsertionCalculator.Route(Arrays.asList(start, act, end), Arrays.asList(toInsert));
-        assertEquals(start, route.getFirst());
-        assertEquals(act, route.getSuccessor(route.getFirst()));
-        assertEquals(end, route.getSuccessor(act));
-        assertEquals(null, route.getSuccessor(toInsert));
+    public void whenBestKnownCostsAreNotHigher_itShouldReturnNoInsertion() {
+        VehicleRoute route = VehicleRoute.emptyRoute();
+        InsertionData iData = insertionCalculator.getInsertionData(route, shipment, vehicle, 0.0, null, 40.0);
+        assertTrue(iData instanceof InsertionData.NoInsertionFound);
     }
 
     @Test
-    public void testPredecessor() {
-        GeneralJobInsertionCalculator.Route route = new GeneralJobInsertionCalculator.Route(Arrays.asList(start, act, end), Arrays.asList(toInsert));
-        assertEquals(null, route.getPredecessor(route.getFirst()));
-        assertEquals(route.getFirst(), route.getPredecessor(act));
-        assertEquals(act, route.getPredecessor(route.getSuccessor(act)));
-        assertEquals(null, route.getSuccessor(toInsert));
+    public void whenBestKnownCostsAreHigher_itShouldReturnCheapestInsertion() {
+        VehicleRoute route = VehicleRoute.emptyRoute();
+        InsertionData iData = insertionCalculator.getInsertionData(route, shipment, vehicle, 0.0, null, 40.1);
+        assertEquals(40.0, iData.getInsertionCost(), 0.05);
+    }
+
+    private GeneralJobInsertionCalculator createCalculatorWithNonNegativeCosts() {
+        return new GeneralJobInsertionCalculator(routingCosts, activityCosts, new ActivityInsertionCostsCalculator() {
+
+            @Override
+            public double getCosts(JobInsertionContext iContext, TourActivity prevAct, TourActivity nextAct, TourActivity newAct, double depTimeAtPrevAct) {
+                return getDistance(prevAct, newAct) + getDistance(newAct, nextAct) - getDistance(prevAct, nextAct);
+            }
+
+            private double getDistance(TourActivity from, TourActivity to) {
+                return routingCosts.getTransportCost(from.getLocation(), to.getLocation(), 0., null, null);
+            }
+
+            @Override
+            public boolean hasNonNegativeCosts() {
+                return true;
+            }
+
+        }, constraintManager);
     }
 
     @Test
-    public void insertNew() {
-        GeneralJobInsertionCalculator.Route route = new GeneralJobInsertionCalculator.Route(Arrays.asList(start, act, end), Arrays.asList(toInsert));
-        assertEquals(route.getFirst(), route.getPredecessor(act));
-        route.addAfter(toInsert, route.getFirst());
-        assertEquals(toInsert, route.getPredecessor(act));
-        assertEquals(route.getFirst(), route.getPredecessor(toInsert));
-        assertEquals(start, route.getFirst());
-        assertEquals(toInsert, route.getSuccessor(route.getFirst()));
-        assertEquals(act, route.getSuccessor(toInsert));
+    public void whenCostsAreNonNegativeAndBestKnownCostsAreLow_itShouldPrunePartialInsertions() {
+        GeneralJobInsertionCalculator calculator = createCalculatorWithNonNegativeCosts();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).addPickup(shipment2).addDelivery(shipment2).build();
+        createCalculatorWithUnboundedCosts().getInsertionData(route, shipment, vehicle, 0.0, null, Double.MAX_VALUE);
+        int noUnboundedEvaluations = noEvaluations;
+        noEvaluations = 0;
+        InsertionData iData = calculator.getInsertionData(route, shipment, vehicle, 0.0, null, 0.0);
+        assertTrue(iData instanceof InsertionData.NoInsertionFound);
+        assertTrue(noEvaluations < noUnboundedEvaluations);
     }
 
     @Test
-    public void removeAct() {
-        GeneralJobInsertionCalculator.Route route = new GeneralJobInsertionCalculator.Route(Arrays.asList(start, act, end), Arrays.asList(toInsert));
-        assertEquals(route.getFirst(), route.getPredecessor(act));
-        route.remove(act);
-        assertEquals(null, route.getPredecessor(act));
-        assertEquals(null, route.getSuccessor(act));
-        assertEquals(start, route.getFirst());
-        assertEquals(end, route.getSuccessor(start));
+    public void whenUsingDefaultActivityInsertionCostsAndBestKnownCostsAreLow_itShouldPrunePartialInsertions() {
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).addPickup(shipment2).addDelivery(shipment2).build();
+        createCalculatorWithUnboundedCosts().getInsertionData(route, shipment, vehicle, 0.0, null, 0.0);
+        int noUnboundedEvaluations = noEvaluations;
+        noEvaluations = 0;
+        InsertionData iData = insertionCalculator.getInsertionData(route, shipment, vehicle, 0.0, null, 0.0);
+        assertTrue(iData instanceof InsertionData.NoInsertionFound);
+        assertTrue(noEvaluations < noUnboundedEvaluations);
+    }
 
+    @Test
+    public void whenCostsMightBeNegative_itShouldNotPrunePartialInsertions() {
+        GeneralJobInsertionCalculator calculator = createCalculatorWithUnboundedCosts();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).addPickup(shipment2).addDelivery(shipment2).build();
+        calculator.getInsertionData(route, shipment, vehicle, 0.0, null, Double.MAX_VALUE);
+        int noUnboundedEvaluations = noEvaluations;
+        noEvaluations = 0;
+        calculator.getInsertionData(route, shipment, vehicle, 0.0, null, 0.0);
+        assertEquals(noUnboundedEvaluations, noEvaluations);
     }
 
+    private GeneralJobInsertionCalculator createCalculatorWithUnboundedCosts() {
+        return new GeneralJobInsertionCalculator(routingCosts, activityCosts, new ActivityInsertionCostsCalculator() {
+
+            @Override
+            public double getCosts(JobInsertionContext iContext, TourActivity prevAct, TourActivity nextAct, TourActivity newAct, double depTimeAtPrevAct) {
+                return routingCosts.getTransportCost(prevAct.getLocation(), newAct.getLocation(), 0., null, null);
+            }
+
+        }, constraintManager);
+    }
+
+    @Test
+    public void whenRouteHasWaitingCosts_lowerBoundShouldBeTheWaitingCostsOfTheRoute() {
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("wt").setCostPerWaitingTime(2.).build();
+        Vehicle waitingVehicle = VehicleImpl.Builder.newInstance("wv").setStartLocation(Location.newInstance("0,0")).setType(type).build();
+        ServiceJob late = new ServiceJob.Builder("late").setLocation(Location.newInstance("0,5")).addTimeWindow(50, 60).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(waitingVehicle).addService(late).build();
+        route.getActivities().get(0).setArrTime(20.);
+        LocalActivityInsertionCostsCalculator calculator = new LocalActivityInsertionCostsCalculator(routingCosts, activityCosts, new StateManager(VehicleRoutingProblem.Builder.newInstance().build()));
+        assertEquals(-60., calculator.getCostsLowerBound(new JobInsertionContext(route, service, waitingVehicle, null, 0.)), 0.01);
+        assertEquals(Double.NEGATIVE_INFINITY, calculator.getCostsLowerBound(new JobInsertionContext(route, service, vehicle, null, 0.)), 0.01);
+        assertEquals(0., calculator.getCostsLowerBound(new JobInsertionContext(VehicleRoute.emptyRoute(), service, waitingVehicle, null, 0.)), 0.01);
+    }
+
+    @Test
+    public void whenLaterActivityLowersCosts_itShouldFindCheapestInsertion() {
+        GeneralJobInsertionCalculator calculator = new GeneralJobInsertionCalculator(routingCosts, activityCosts, new ActivityInsertionCostsCalculator() {
+
+            @Override
+            public double getCosts(JobInsertionContext iContext, TourActivity prevAct, TourActivity nextAct, TourActivity newAct, double depTimeAtPrevAct) {
+                return newAct.getIndex() == shipment.getActivityList().getAll().get(0).getIndex() ? 10. : -100.;
+            }
+
+        }, constraintManager);
+        InsertionData iData = calculator.getInsertionData(VehicleRoute.emptyRoute(), shipment, vehicle, 0.0, null, 5.0);
+        assertEquals(-90.0, iData.getInsertionCost(), 0.01);
+    }
 
 }
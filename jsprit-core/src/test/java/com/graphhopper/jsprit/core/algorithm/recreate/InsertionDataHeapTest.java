@@ -0,0 +1,112 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+
+public class InsertionDataHeapTest {
+
+    private static InsertionData data(double costs) {
+        return new InsertionData(costs, 0., null, null);
+    }
+
+    private static RouteSlots slots(int nuRoutes) {
+        VehicleRoute[] routes = new VehicleRoute[nuRoutes];
+        for (int i = 0; i < nuRoutes; i++) {
+            routes[i] = VehicleRoute.emptyRoute();
+        }
+        RouteSlots slots = new RouteSlots(Arrays.asList(routes));
+        for (int i = 0; i < nuRoutes; i++) {
+            slots.setVersion(i, 0);
+        }
+        return slots;
+    }
+
+    @Test
+    public void whenPuttingAside_itShouldVisitEntriesByCostsAndOrderOfAddition() {
+        RouteSlots slots = slots(4);
+        InsertionDataHeap heap = new InsertionDataHeap(2);
+        InsertionData first = data(3.);
+        InsertionData second = data(1.);
+        InsertionData third = data(3.);
+        InsertionData fourth = data(2.);
+        heap.add(first, 0, 0);
+        heap.add(second, 1, 0);
+        heap.add(third, 2, 0);
+        heap.add(fourth, 3, 0);
+
+        InsertionData[] expected = {second, fourth, first, third};
+        for (InsertionData e : expected) {
+            Assert.assertSame(e, heap.peekInsertionData());
+            heap.putAside();
+        }
+        Assert.assertTrue(heap.isEmpty());
+        heap.restore(slots);
+        Assert.assertEquals(4, heap.size());
+        Assert.assertSame(second, heap.peekInsertionData());
+        Assert.assertEquals(1, heap.peekRouteSlot());
+    }
+
+    @Test
+    public void whenRestoring_itShouldDropOutdatedEntries() {
+        RouteSlots slots = slots(2);
+        InsertionDataHeap heap = new InsertionDataHeap();
+        heap.add(data(1.), 0, 0);
+        heap.add(data(2.), 1, 0);
+        heap.add(data(3.), 0, 0);
+        slots.setVersion(0, 1);
+        heap.putAside();
+        heap.putAside();
+        heap.restore(slots);
+        Assert.assertEquals(2, heap.size());
+        Assert.assertEquals(2., heap.peekCosts(), 0.01);
+        Assert.assertEquals(1, heap.peekRouteSlot());
+    }
+
+    @Test
+    public void whenRemovingOutdated_itShouldKeepHeapOrder() {
+        RouteSlots slots = slots(3);
+        InsertionDataHeap heap = new InsertionDataHeap();
+        for (int i = 0; i < 30; i++) {
+            heap.add(data((i * 7) % 30), i % 3, 0);
+        }
+        slots.setVersion(1, 1);
+        heap.removeOutdated(slots);
+        Assert.assertEquals(20, heap.size());
+        double last = -1;
+        while (!heap.isEmpty()) {
+            Assert.assertTrue(heap.peekRouteSlot() != 1);
+            Assert.assertTrue(heap.peekCosts() >= last);
+            last = heap.peekCosts();
+            heap.putAside();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenAddingWhileEntriesArePutAside_itShouldThrowException() {
+        InsertionDataHeap heap = new InsertionDataHeap();
+        heap.add(data(1.), 0, 0);
+        heap.putAside();
+        heap.add(data(2.), 0, 0);
+    }
+}
@@ -24,6 +24,10 @@ import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
@@ -112,6 +116,58 @@ public class RegretInsertionTest {
         assertTrue(position.isCorrect());
     }
 
+    @Test
+    public void fastRegretShouldInsertInSameSequenceAsRescoringAllJobs() {
+        Random random = new Random(42);
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        for (int i = 0; i < 40; i++) {
+            vrpBuilder.addJob(new ServiceJob.Builder("s" + i).addSizeDimension(0, 1 + random.nextInt(3))
+                            .setLocation(Location.newInstance(random.nextInt(100), random.nextInt(100))).build());
+        }
+        VehicleType small = VehicleTypeImpl.Builder.newInstance("small").addCapacityDimension(0, 10).setCostPerDistance(1).build();
+        VehicleType large = VehicleTypeImpl.Builder.newInstance("large").addCapacityDimension(0, 25).setCostPerDistance(2).setFixedCost(50).build();
+        for (int i = 0; i < 4; i++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("small" + i).setType(small).setStartLocation(Location.newInstance(0, 0)).build());
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("large" + i).setType(large).setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        VehicleRoutingProblem vrp = vrpBuilder.build();
+
+        List<String> lazilyScored = insertAndGetSequence(vrp, null);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<String> fullyScored = insertAndGetSequence(vrp, executor);
+        executor.shutdown();
+
+        assertEquals(40, lazilyScored.size());
+        assertEquals(fullyScored, lazilyScored);
+    }
+
+    private List<String> insertAndGetSequence(VehicleRoutingProblem vrp, ExecutorService executor) {
+        StateManager stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addLoadConstraint();
+        VehicleFleetManager fm = new FiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+        InsertionBuilder insertionBuilder = new InsertionBuilder(vrp, fm, stateManager, constraintManager)
+                        .setInsertionStrategy(InsertionBuilder.Strategy.REGRET).setFastRegret(true);
+        if (executor != null) {
+            insertionBuilder.setConcurrentMode(executor, 1);
+        }
+        InsertionStrategy regret = insertionBuilder.build();
+        regret.addListener(stateManager);
+        regret.addListener(new VehicleSwitched(fm));
+        final List<String> sequence = new ArrayList<>();
+        regret.addListener(new BeforeJobInsertionListener() {
+
+            @Override
+            public void informBeforeJobInsertion(Job job, InsertionData data, VehicleRoute route) {
+                sequence.add(job.getId());
+            }
+
+        });
+        regret.insertJobs(new ArrayList<VehicleRoute>(), vrp.getJobs().values());
+        return sequence;
+    }
+
     @Test
     public void solutionWithFastRegretMustBeCorrect() {
         ServiceJob s1 = new ServiceJob.Builder("s1").setLocation(Location.newInstance(0, 10)).build();
@@ -19,6 +19,7 @@
 package com.graphhopper.jsprit.core.algorithm.ruin;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
@@ -26,9 +27,11 @@ import org.junit.Test;
 
 import com.graphhopper.jsprit.core.distance.EuclideanDistanceCalculator;
 import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.ServiceJob;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.util.DefaultCosts;
 
@@ -91,4 +94,99 @@ public class DBSCANClustererTest {
         assertEquals(3, cluster.size());
 
     }
+
+    private static class CountingCosts extends DefaultCosts {
+
+        int noCalls = 0;
+
+        CountingCosts() {
+            super(EuclideanDistanceCalculator.getInstance());
+        }
+
+        @Override
+        public double getTransportCost(Location from, Location to, double time, Driver driver, Vehicle vehicle) {
+            noCalls++;
+            return super.getTransportCost(from, to, time, driver, vehicle);
+        }
+    }
+
+    @Test
+    public void whenRouteDoesNotChange_itShouldReuseDistances() {
+        ServiceJob s1 = new ServiceJob.Builder("s1").setLocation(Location.newInstance(1, 1)).build();
+        ServiceJob s2 = new ServiceJob.Builder("s2").setLocation(Location.newInstance(10, 10)).build();
+        ServiceJob s3 = new ServiceJob.Builder("s3").setLocation(Location.newInstance(9, 9)).build();
+
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoute r = VehicleRoute.Builder.newInstance(v).addService(s1).addService(s2).addService(s3).build();
+
+        CountingCosts costs = new CountingCosts();
+        DBSCANClusterer c = new DBSCANClusterer(costs);
+        c.setEpsDistance(3);
+        c.getClusters(r);
+        assertEquals(3, costs.noCalls);
+        c.getClusters(r);
+        c.getClusters(VehicleRoute.copyOf(r));
+        assertEquals(3, costs.noCalls);
+        assertEquals(1, c.getNoCachedRoutes());
+    }
+
+    @Test
+    public void whenRouteChanges_itShouldComputeNewDistances() {
+        ServiceJob s1 = new ServiceJob.Builder("s1").setLocation(Location.newInstance(1, 1)).build();
+        ServiceJob s2 = new ServiceJob.Builder("s2").setLocation(Location.newInstance(10, 10)).build();
+        ServiceJob s3 = new ServiceJob.Builder("s3").setLocation(Location.newInstance(9, 9)).build();
+
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoute r = VehicleRoute.Builder.newInstance(v).addService(s1).addService(s2).addService(s3).build();
+
+        CountingCosts costs = new CountingCosts();
+        DBSCANClusterer c = new DBSCANClusterer(costs);
+        c.setEpsDistance(3);
+        assertEquals(1, c.getClusters(r).size());
+        r.getTourActivities().removeJob(s1);
+        assertEquals(1, c.getClusters(r).size());
+        assertEquals(4, costs.noCalls);
+        assertEquals(2, c.getNoCachedRoutes());
+    }
+
+    @Test
+    public void whenCacheIsDisabled_itShouldNotCacheRoutes() {
+        ServiceJob s1 = new ServiceJob.Builder("s1").setLocation(Location.newInstance(1, 1)).build();
+        ServiceJob s2 = new ServiceJob.Builder("s2").setLocation(Location.newInstance(10, 10)).build();
+
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoute r = VehicleRoute.Builder.newInstance(v).addService(s1).addService(s2).build();
+
+        CountingCosts costs = new CountingCosts();
+        DBSCANClusterer c = new DBSCANClusterer(costs);
+        c.setMaxNoCachedRoutes(0);
+        c.setEpsDistance(3);
+        c.getClusters(r);
+        c.getClusters(r);
+        assertEquals(2, costs.noCalls);
+        assertEquals(0, c.getNoCachedRoutes());
+    }
+
+    @Test
+    public void whenMinPtsIsTwo_borderJobsShouldJoinAndIsolatedJobsShouldBeNoise() {
+        ServiceJob s0 = new ServiceJob.Builder("s0").setLocation(Location.newInstance(0, 0)).build();
+        ServiceJob s1 = new ServiceJob.Builder("s1").setLocation(Location.newInstance(1, 0)).build();
+        ServiceJob s2 = new ServiceJob.Builder("s2").setLocation(Location.newInstance(2, 0)).build();
+        ServiceJob s3 = new ServiceJob.Builder("s3").setLocation(Location.newInstance(3, 0)).build();
+        ServiceJob s4 = new ServiceJob.Builder("s4").setLocation(Location.newInstance(10, 0)).build();
+
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoute r = VehicleRoute.Builder.newInstance(v).addService(s0).addService(s1).addService(s2)
+            .addService(s3).addService(s4).build();
+
+        DBSCANClusterer c = new DBSCANClusterer(new DefaultCosts(EuclideanDistanceCalculator.getInstance()));
+        c.setMinPts(2);
+        c.setEpsDistance(1);
+        List<List<Job>> clusters = c.getClusters(r);
+        assertEquals(1, clusters.size());
+        assertEquals(4, clusters.get(0).size());
+        assertTrue(clusters.get(0).contains(s0));
+        assertTrue(clusters.get(0).contains(s3));
+        assertTrue(!clusters.get(0).contains(s4));
+    }
 }
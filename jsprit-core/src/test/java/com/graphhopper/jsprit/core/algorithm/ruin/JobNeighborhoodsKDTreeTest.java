@@ -0,0 +1,212 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.ruin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.algorithm.ruin.distance.CoordinateJobDistance;
+import com.graphhopper.jsprit.core.algorithm.ruin.distance.JobDistance;
+import com.graphhopper.jsprit.core.distance.SphericalDistanceCalculator;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.ServiceJob;
+import com.graphhopper.jsprit.core.problem.job.ShipmentJob;
+import com.graphhopper.jsprit.core.util.DefaultCosts;
+
+public class JobNeighborhoodsKDTreeTest {
+
+    private static List<Job> toList(Iterator<Job> iterator) {
+        List<Job> jobs = new ArrayList<>();
+        while (iterator.hasNext()) {
+            jobs.add(iterator.next());
+        }
+        return jobs;
+    }
+
+    @Test
+    public void whenRequestingNeighbors_theyShouldBeTheNearestInAscendingOrder() {
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            builder.addJob(new ServiceJob.Builder("j" + i).setLocation(Location.newInstance(random.nextInt(50), random.nextInt(50))).build());
+        }
+        VehicleRoutingProblem vrp = builder.build();
+        JobNeighborhoodsKDTree neighborhoods = new JobNeighborhoodsKDTree(vrp);
+        neighborhoods.initialise();
+        JobDistance jobDistance = new CoordinateJobDistance();
+        for (Job job : vrp.getJobs().values()) {
+            List<Job> neighbors = toList(neighborhoods.getNearestNeighborsIterator(30, job));
+            assertEquals(30, neighbors.size());
+            assertFalse(neighbors.contains(job));
+            List<Job> expected = new ArrayList<>(vrp.getJobs().values());
+            expected.remove(job);
+            expected.sort(Comparator.comparingDouble(other -> jobDistance.getDistance(job, other)));
+            for (int i = 0; i < neighbors.size(); i++) {
+                assertEquals(jobDistance.getDistance(job, expected.get(i)), jobDistance.getDistance(job, neighbors.get(i)), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void whenRequestingMoreNeighborsThanExisting_itShouldReturnAllOtherJobs() {
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 20; i++) {
+            builder.addJob(new ServiceJob.Builder("j" + i).setLocation(Location.newInstance(i % 3, 0)).build());
+        }
+        VehicleRoutingProblem vrp = builder.build();
+        JobNeighborhoodsKDTree neighborhoods = new JobNeighborhoodsKDTree(vrp);
+        neighborhoods.initialise();
+        List<Job> neighbors = toList(neighborhoods.getNearestNeighborsIterator(100, vrp.getJobs().get("j0")));
+        assertEquals(19, neighbors.size());
+        assertEquals(2., neighborhoods.getMaxDistance(), 0.01);
+    }
+
+    @Test
+    public void whenJobIsShipment_itsPositionShouldBeTheCentroid() {
+        ShipmentJob shipment = new ShipmentJob.Builder("sh").setPickupLocation(Location.newInstance(0, 0))
+            .setDeliveryLocation(Location.newInstance(10, 0)).build();
+        ServiceJob near = new ServiceJob.Builder("near").setLocation(Location.newInstance(5, 1)).build();
+        ServiceJob far = new ServiceJob.Builder("far").setLocation(Location.newInstance(0, 3)).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addJob(shipment).addJob(far).addJob(near).build();
+        JobNeighborhoodsKDTree neighborhoods = new JobNeighborhoodsKDTree(vrp);
+        neighborhoods.initialise();
+        Iterator<Job> iterator = neighborhoods.getNearestNeighborsIterator(2, shipment);
+        assertEquals(near, iterator.next());
+        assertEquals(far, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenLocationHasNoCoordinate_itShouldThrowException() {
+        ServiceJob service = new ServiceJob.Builder("s").setLocation(Location.newInstance("id")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addJob(service).build();
+        new JobNeighborhoodsKDTree(vrp).initialise();
+    }
+
+    private VehicleRoutingProblem northernProblem(VehicleRoutingProblem.Builder builder) {
+        return builder.addJob(new ServiceJob.Builder("a").setLocation(Location.newInstance(0., 60.)).build())
+            .addJob(new ServiceJob.Builder("east").setLocation(Location.newInstance(1.5, 60.)).build())
+            .addJob(new ServiceJob.Builder("north").setLocation(Location.newInstance(0., 61.)).build()).build();
+    }
+
+    @Test
+    public void whenCostsArePlanar_neighborsShouldBeRankedByRawCoordinates() {
+        VehicleRoutingProblem vrp = northernProblem(VehicleRoutingProblem.Builder.newInstance());
+        JobNeighborhoodsKDTree neighborhoods = new JobNeighborhoodsKDTree(vrp);
+        neighborhoods.initialise();
+        assertEquals("north", neighborhoods.getNearestNeighborsIterator(1, vrp.getJobs().get("a")).next().getId());
+    }
+
+    @Test
+    public void whenCostsAreSpherical_neighborsShouldBeRankedByDistanceOnSphere() {
+        VehicleRoutingProblem vrp = northernProblem(VehicleRoutingProblem.Builder.newInstance()
+            .setRoutingCost(new DefaultCosts(SphericalDistanceCalculator.getInstance())));
+        JobNeighborhoodsKDTree neighborhoods = new JobNeighborhoodsKDTree(vrp);
+        neighborhoods.initialise();
+        assertEquals("east", neighborhoods.getNearestNeighborsIterator(1, vrp.getJobs().get("a")).next().getId());
+    }
+
+    @Test
+    public void whenCreatedByFactory_itShouldBeKDTree() {
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().build();
+        assertTrue(new JobNeighborhoodsFactory().createSpatialNeighborhoods(vrp) instanceof JobNeighborhoodsKDTree);
+    }
+
+    @Test
+    public void whenAddingAndRemovingJobs_neighborsShouldReflectCurrentJobs() {
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        Random random = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            builder.addJob(new ServiceJob.Builder("j" + i).setLocation(Location.newInstance(random.nextInt(30), random.nextInt(30))).build());
+        }
+        VehicleRoutingProblem vrp = builder.build();
+        JobNeighborhoodsKDTree neighborhoods = new JobNeighborhoodsKDTree(vrp);
+        neighborhoods.initialise();
+        List<Job> current = new ArrayList<>(vrp.getJobs().values());
+        JobDistance jobDistance = new CoordinateJobDistance();
+        for (int step = 0; step < 400; step++) {
+            if (random.nextDouble() < 0.6 || current.size() < 3) {
+                Job job = new ServiceJob.Builder("n" + step).setLocation(Location.newInstance(random.nextInt(30), random.nextInt(30))).build();
+                assertTrue(neighborhoods.addJob(job));
+                assertFalse(neighborhoods.addJob(job));
+                current.add(job);
+            } else {
+                Job job = current.remove(random.nextInt(current.size()));
+                assertTrue(neighborhoods.removeJob(job));
+                assertFalse(neighborhoods.removeJob(job));
+                assertFalse(neighborhoods.containsJob(job));
+            }
+            assertEquals(current.size(), neighborhoods.getNoJobs());
+            Job center = current.get(random.nextInt(current.size()));
+            List<Job> neighbors = toList(neighborhoods.getNearestNeighborsIterator(10, center));
+            List<Job> expected = new ArrayList<>(current);
+            expected.remove(center);
+            expected.sort(Comparator.comparingDouble(other -> jobDistance.getDistance(center, other)));
+            assertEquals(Math.min(10, expected.size()), neighbors.size());
+            for (int i = 0; i < neighbors.size(); i++) {
+                assertTrue(current.contains(neighbors.get(i)));
+                assertEquals(jobDistance.getDistance(center, expected.get(i)), jobDistance.getDistance(center, neighbors.get(i)), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void whenAddingJobsToEmptyNeighborhoods_theyShouldBeFound() {
+        JobNeighborhoodsKDTree neighborhoods = new JobNeighborhoodsKDTree(VehicleRoutingProblem.Builder.newInstance().build());
+        neighborhoods.initialise();
+        assertEquals(0., neighborhoods.getMaxDistance(), 0.);
+        ServiceJob s1 = new ServiceJob.Builder("s1").setLocation(Location.newInstance(0, 0)).build();
+        ServiceJob s2 = new ServiceJob.Builder("s2").setLocation(Location.newInstance(3, 4)).build();
+        neighborhoods.addJob(s1);
+        neighborhoods.addJob(s2);
+        assertEquals(s2, neighborhoods.getNearestNeighborsIterator(5, s1).next());
+        assertEquals(5., neighborhoods.getMaxDistance(), 0.01);
+    }
+
+    @Test
+    public void whenAddingManyJobsToOneLeaf_itShouldSplitAndFindThem() {
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 200; i++) {
+            builder.addJob(new ServiceJob.Builder("j" + i).setLocation(Location.newInstance(10 * (i % 20), 10 * (i / 20))).build());
+        }
+        JobNeighborhoodsKDTree neighborhoods = new JobNeighborhoodsKDTree(builder.build());
+        neighborhoods.initialise();
+        List<Job> added = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Job job = new ServiceJob.Builder("n" + i).setLocation(Location.newInstance(55 + 0.01 * i, 55)).build();
+            neighborhoods.addJob(job);
+            added.add(job);
+        }
+        List<Job> neighbors = toList(neighborhoods.getNearestNeighborsIterator(59, added.get(0)));
+        for (int i = 0; i < 59; i++) {
+            assertEquals(added.get(i + 1), neighbors.get(i));
+        }
+    }
+
+}
@@ -18,11 +18,17 @@
 package com.graphhopper.jsprit.core.algorithm.ruin;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -141,5 +147,76 @@ public class JobNeighborhoodsOptimizedTest {
         assertEquals(2, services.size());
     }
 
+    @Test
+    public void whenCapacityExceedsNumberOfOtherJobs_itShouldReturnAllOtherJobs() {
+        JobNeighborhoodsOptimized jn = new JobNeighborhoodsOptimized(vrp, jobDistance, 10);
+        jn.initialise();
+        Iterator<Job> iter = jn.getNearestNeighborsIterator(10, target);
+        List<Job> jobs = new ArrayList<>();
+        while (iter.hasNext()) {
+            jobs.add(iter.next());
+        }
+        assertEquals(6, jobs.size());
+        assertEquals(6., jn.getMaxDistance(), 0.01);
+    }
+
+    @Test
+    public void whenCalculatingInParallel_neighborsShouldEqualSortedNeighbors() {
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            builder.addJob(new ServiceJob.Builder("j" + i).setLocation(Location.newInstance(random.nextInt(20), random.nextInt(20))).build());
+        }
+        VehicleRoutingProblem vrp = builder.build();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        JobNeighborhoodsOptimized parallel = new JobNeighborhoodsOptimized(vrp, jobDistance, 15, executorService, 4);
+        try {
+            parallel.initialise();
+        } finally {
+            executorService.shutdown();
+        }
+        JobNeighborhoodsOptimized sequential = new JobNeighborhoodsOptimized(vrp, jobDistance, 15);
+        sequential.initialise();
+        List<Job> all = new ArrayList<>(vrp.getJobs().values());
+        for (Job job : all) {
+            List<Job> expected = new ArrayList<>(all);
+            expected.remove(job);
+            expected.sort(Comparator.comparingDouble(other -> jobDistance.getDistance(job, other)));
+            Iterator<Job> parallelIter = parallel.getNearestNeighborsIterator(15, job);
+            Iterator<Job> sequentialIter = sequential.getNearestNeighborsIterator(15, job);
+            for (int i = 0; i < 15; i++) {
+                Job neighbor = parallelIter.next();
+                assertEquals(expected.get(i), neighbor);
+                assertEquals(neighbor, sequentialIter.next());
+            }
+            assertFalse(parallelIter.hasNext());
+        }
+        assertEquals(parallel.getMaxDistance(), sequential.getMaxDistance(), 0.);
+    }
+
+    @Test
+    public void whenNoExecutorServiceIsSpecified_itShouldCalculateDistancesInCallingThread() {
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger noCallsFromOtherThreads = new AtomicInteger();
+        JobDistance recordingDistance = new JobDistance() {
+
+            @Override
+            public double getDistance(Job i, Job j) {
+                if (Thread.currentThread() != caller) noCallsFromOtherThreads.incrementAndGet();
+                return jobDistance.getDistance(i, j);
+            }
+
+        };
+        JobNeighborhoodsOptimized jn = new JobNeighborhoodsOptimized(vrp, recordingDistance, 4);
+        jn.initialise();
+        assertEquals(0, noCallsFromOtherThreads.get());
+    }
+
+    @Test
+    public void whenCapacityIsZero_itShouldReturnNoNeighbors() {
+        JobNeighborhoodsOptimized jn = new JobNeighborhoodsOptimized(vrp, jobDistance, 0);
+        jn.initialise();
+        assertFalse(jn.getNearestNeighborsIterator(2, target).hasNext());
+    }
 
 }
@@ -21,17 +21,27 @@ package com.graphhopper.jsprit.core.algorithm.ruin;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.Test;
 
+import com.graphhopper.jsprit.core.distance.EuclideanDistanceCalculator;
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.ServiceJob;
 import com.graphhopper.jsprit.core.problem.job.ShipmentJob;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.JobActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.util.Coordinate;
 
@@ -214,5 +224,96 @@ public class RuinWorstTest {
 
     }
 
+    private static double dist(Location from, Location to) {
+        return EuclideanDistanceCalculator.getInstance().calculateDistance(from.getCoordinate(), to.getCoordinate());
+    }
+
+    private static Job bruteForceWorst(List<VehicleRoute> routes, Set<Job> removed) {
+        Job worst = null;
+        double worstSavings = Double.MIN_VALUE;
+        for (VehicleRoute route : routes) {
+            List<TourActivity> acts = new ArrayList<>();
+            acts.add(route.getStart());
+            for (TourActivity act : route.getActivities()) {
+                if (!removed.contains(((JobActivity) act).getJob())) acts.add(act);
+            }
+            acts.add(route.getEnd());
+            Map<Job, Double> savings = new LinkedHashMap<>();
+            for (int i = 1; i < acts.size() - 1; i++) {
+                double s = dist(acts.get(i - 1).getLocation(), acts.get(i).getLocation()) + dist(acts.get(i).getLocation(), acts.get(i + 1).getLocation())
+                    - dist(acts.get(i - 1).getLocation(), acts.get(i + 1).getLocation());
+                savings.merge(((JobActivity) acts.get(i)).getJob(), Math.max(0, s), Double::sum);
+            }
+            for (Map.Entry<Job, Double> e : savings.entrySet()) {
+                if (e.getValue() > worstSavings) {
+                    worstSavings = e.getValue();
+                    worst = e.getKey();
+                }
+            }
+        }
+        return worst;
+    }
+
+    @Test
+    public void whenRemovingManyJobs_itShouldRemoveInSameOrderAsRecomputingAllSavings() {
+        Random random = new Random(11);
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Job job;
+            if (i % 4 == 0) {
+                job = new ShipmentJob.Builder("sh" + i).setPickupLocation(Location.newInstance(random.nextDouble() * 100, random.nextDouble() * 100))
+                    .setDeliveryLocation(Location.newInstance(random.nextDouble() * 100, random.nextDouble() * 100)).build();
+            } else {
+                job = new ServiceJob.Builder("s" + i).setLocation(Location.newInstance(random.nextDouble() * 100, random.nextDouble() * 100)).build();
+            }
+            jobs.add(job);
+            vrpBuilder.addJob(job);
+        }
+        List<VehicleImpl> vehicles = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            VehicleImpl v = VehicleImpl.Builder.newInstance("v" + r).setStartLocation(Location.newInstance(50, 50)).build();
+            vehicles.add(v);
+            vrpBuilder.addVehicle(v);
+        }
+        VehicleRoutingProblem vrp = vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE).build();
+        List<VehicleRoute> routes = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(vehicles.get(r)).setJobActivityFactory(vrp.getJobActivityFactory());
+            for (int i = r; i < jobs.size(); i += 4) {
+                if (jobs.get(i) instanceof ShipmentJob) routeBuilder.addPickup((ShipmentJob) jobs.get(i));
+                else routeBuilder.addService((ServiceJob) jobs.get(i));
+            }
+            for (int i = r; i < jobs.size(); i += 4) {
+                if (jobs.get(i) instanceof ShipmentJob) routeBuilder.addDelivery((ShipmentJob) jobs.get(i));
+            }
+            routes.add(routeBuilder.build());
+        }
+        List<VehicleRoute> copies = new ArrayList<>();
+        for (VehicleRoute route : routes) {
+            copies.add(VehicleRoute.copyOf(route));
+        }
+        Set<Job> removed = new HashSet<>();
+        List<Job> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Job worst = bruteForceWorst(copies, removed);
+            removed.add(worst);
+            expected.add(worst);
+        }
+
+        RuinWorst worst = new RuinWorst(vrp, 40);
+        Collection<Job> unassigned = worst.ruinRoutes(routes);
+
+        assertEquals(expected, new ArrayList<>(unassigned));
+        int noActs = 0;
+        for (VehicleRoute route : routes) {
+            noActs += route.getActivities().size();
+        }
+        int noRemovedActs = 0;
+        for (Job job : expected) {
+            noRemovedActs += job instanceof ShipmentJob ? 2 : 1;
+        }
+        assertEquals(75 - noRemovedActs, noActs);
+    }
 
 }
@@ -0,0 +1,280 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.state;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.SizeDimension;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.WaitingTimeCosts;
+import com.graphhopper.jsprit.core.problem.job.DeliveryJob;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.PickupJob;
+import com.graphhopper.jsprit.core.problem.job.ServiceJob;
+import com.graphhopper.jsprit.core.problem.solution.route.RouteVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.CostFactory;
+
+/**
+ * Tests that states updated after an insertion equal the states of a complete update.
+ */
+public class IncrementalStateUpdateTest {
+
+    private VehicleRoutingProblem vrp;
+
+    private VehicleRoutingTransportCosts routingCosts;
+
+    private VehicleRoutingActivityCosts activityCosts;
+
+    private VehicleRoute route;
+
+    private ServiceJob service;
+
+    private PickupJob pickup;
+
+    private DeliveryJob delivery;
+
+    private ServiceJob lateService;
+
+    private static class SegmentRecorder implements IncrementalActivityVisitor, StateUpdater {
+
+        int resumedAt = -1;
+
+        final List<TourActivity> visited = new ArrayList<>();
+
+        @Override
+        public void begin(VehicleRoute route) {
+            visited.clear();
+        }
+
+        @Override
+        public boolean resume(VehicleRoute route, int fromIndex) {
+            resumedAt = fromIndex;
+            visited.clear();
+            return true;
+        }
+
+        @Override
+        public void visit(TourActivity activity) {
+            visited.add(activity);
+        }
+
+        @Override
+        public boolean finishIfConverged() {
+            return false;
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    private static class ReverseSegmentRecorder implements IncrementalReverseActivityVisitor, StateUpdater {
+
+        int resumedAt = -1;
+
+        final List<TourActivity> visited = new ArrayList<>();
+
+        @Override
+        public void begin(VehicleRoute route) {
+            visited.clear();
+        }
+
+        @Override
+        public boolean resume(VehicleRoute route, int fromIndex) {
+            resumedAt = fromIndex;
+            visited.clear();
+            return true;
+        }
+
+        @Override
+        public void visit(TourActivity activity) {
+            visited.add(activity);
+        }
+
+        @Override
+        public boolean finishIfConverged() {
+            return true;
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    private static class RouteAndActivityUpdater implements RouteVisitor, ActivityVisitor, StateUpdater {
+
+        int noVisitedRoutes = 0;
+
+        @Override
+        public void visit(VehicleRoute route) {
+            noVisitedRoutes++;
+        }
+
+        @Override
+        public void begin(VehicleRoute route) {
+        }
+
+        @Override
+        public void visit(TourActivity activity) {
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    @Before
+    public void doBefore() {
+        routingCosts = CostFactory.createManhattanCosts();
+        activityCosts = new WaitingTimeCosts();
+
+        service = new ServiceJob.Builder("s").addSizeDimension(0, 2).setLocation(Location.newInstance("10,0"))
+            .addRequiredSkill("a").build();
+        pickup = new PickupJob.Builder("p").addSizeDimension(0, 3).setLocation(Location.newInstance("20,0"))
+            .setTimeWindow(TimeWindow.newInstance(0, 40)).build();
+        delivery = new DeliveryJob.Builder("d").addSizeDimension(0, 4).setLocation(Location.newInstance("20,10"))
+            .setTimeWindow(TimeWindow.newInstance(50, 80)).addRequiredSkill("b").build();
+        lateService = new ServiceJob.Builder("l").addSizeDimension(0, 1).setLocation(Location.newInstance("0,10"))
+            .setTimeWindow(TimeWindow.newInstance(100, 150)).build();
+
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("t").addCapacityDimension(0, 20).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("0,0"))
+            .setType(type).build();
+        vrp = VehicleRoutingProblem.Builder.newInstance().addJob(service).addJob(pickup).addJob(delivery)
+            .addJob(lateService).addVehicle(vehicle).setRoutingCost(routingCosts).build();
+
+        route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(service).addService(lateService).build();
+    }
+
+    private StateManager createStateManager() {
+        StateManager stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        stateManager.updateSkillStates();
+        stateManager.addStateUpdater(new UpdateActivityTimes(routingCosts, activityCosts));
+        stateManager.addStateUpdater(new UpdateVariableCosts(activityCosts, routingCosts, stateManager));
+        stateManager.addStateUpdater(new UpdatePracticalTimeWindows(stateManager, routingCosts, activityCosts));
+        stateManager.addStateUpdater(new UpdateFutureWaitingTimes(stateManager, routingCosts));
+        return stateManager;
+    }
+
+    private void insert(StateManager stateManager, Job job, int index) {
+        route.getTourActivities().addActivity(index, vrp.copyAndGetActivities(job).get(0));
+        stateManager.informJobInserted(job, route, 0., 0.);
+    }
+
+    private void assertStatesEqualCompleteUpdate(StateManager stateManager) {
+        StateManager reference = createStateManager();
+        reference.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        for (TourActivity act : route.getActivities()) {
+            assertEquals(reference.getDoubleActivityState(act, InternalStates.COSTS), stateManager.getDoubleActivityState(act, InternalStates.COSTS), 0.);
+            assertEquals(reference.getSizeDimensionActivityState(act, InternalStates.LOAD), stateManager.getSizeDimensionActivityState(act, InternalStates.LOAD));
+            assertEquals(reference.getSizeDimensionActivityState(act, InternalStates.PAST_MAXLOAD), stateManager.getSizeDimensionActivityState(act, InternalStates.PAST_MAXLOAD));
+            assertEquals(reference.getSizeDimensionActivityState(act, InternalStates.FUTURE_MAXLOAD), stateManager.getSizeDimensionActivityState(act, InternalStates.FUTURE_MAXLOAD));
+            assertEquals(reference.getDoubleActivityState(act, InternalStates.LATEST_OPERATION_START_TIME), stateManager.getDoubleActivityState(act, InternalStates.LATEST_OPERATION_START_TIME), 0.);
+            assertEquals(reference.getDoubleActivityState(act, route.getVehicle(), InternalStates.FUTURE_WAITING), stateManager.getDoubleActivityState(act, route.getVehicle(), InternalStates.FUTURE_WAITING), 0.);
+        }
+        assertEquals(reference.getDoubleRouteState(route, InternalStates.COSTS), stateManager.getDoubleRouteState(route, InternalStates.COSTS), 0.);
+        assertEquals(reference.getSizeDimensionRouteState(route, InternalStates.MAXLOAD), stateManager.getSizeDimensionRouteState(route, InternalStates.MAXLOAD));
+        assertEquals(reference.getRouteState(route, InternalStates.SKILLS, Object.class), stateManager.getRouteState(route, InternalStates.SKILLS, Object.class));
+    }
+
+    @Test
+    public void whenJobIsInsertedInTheMiddle_statesShouldEqualCompleteUpdate() {
+        StateManager stateManager = createStateManager();
+        stateManager.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        insert(stateManager, pickup, 1);
+        assertStatesEqualCompleteUpdate(stateManager);
+    }
+
+    @Test
+    public void whenJobIsInsertedAtTheEnd_statesShouldEqualCompleteUpdate() {
+        StateManager stateManager = createStateManager();
+        stateManager.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        insert(stateManager, pickup, 2);
+        assertStatesEqualCompleteUpdate(stateManager);
+    }
+
+    @Test
+    public void whenJobsAreInsertedSubsequently_statesShouldEqualCompleteUpdate() {
+        StateManager stateManager = createStateManager();
+        stateManager.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        insert(stateManager, pickup, 1);
+        insert(stateManager, delivery, 0);
+        assertStatesEqualCompleteUpdate(stateManager);
+    }
+
+    @Test
+    public void whenRouteStartsLaterAfterInsertion_statesShouldEqualCompleteUpdate() {
+        StateManager stateManager = createStateManager();
+        stateManager.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        route.setVehicleAndDepartureTime(route.getVehicle(), 5.);
+        insert(stateManager, pickup, 1);
+        assertStatesEqualCompleteUpdate(stateManager);
+    }
+
+    @Test
+    public void whenJobIsInsertedAtTheEnd_onlyTheChangedSegmentShouldBeVisited() {
+        route = VehicleRoute.Builder.newInstance(route.getVehicle()).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(service).addDelivery(delivery).addService(lateService).build();
+        StateManager stateManager = createStateManager();
+        SegmentRecorder recorder = new SegmentRecorder();
+        ReverseSegmentRecorder reverseRecorder = new ReverseSegmentRecorder();
+        stateManager.addStateUpdater(recorder);
+        stateManager.addStateUpdater(reverseRecorder);
+        stateManager.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        assertEquals(-1, recorder.resumedAt);
+        assertEquals(3, recorder.visited.size());
+
+        insert(stateManager, pickup, 3);
+        List<TourActivity> acts = route.getActivities();
+        assertEquals(2, recorder.resumedAt);
+        assertEquals(Arrays.asList(acts.get(2), acts.get(3)), recorder.visited);
+        assertEquals(3, reverseRecorder.resumedAt);
+        assertEquals(Arrays.asList(acts.get(3), acts.get(2), acts.get(1)), reverseRecorder.visited);
+        assertStatesEqualCompleteUpdate(stateManager);
+    }
+
+    @Test
+    public void whenUpdaterIsRouteAndActivityVisitor_itShouldStillVisitRoutes() {
+        StateManager stateManager = createStateManager();
+        RouteAndActivityUpdater updater = new RouteAndActivityUpdater();
+        stateManager.addStateUpdater(updater);
+        stateManager.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        insert(stateManager, pickup, 1);
+        assertEquals(2, updater.noVisitedRoutes);
+    }
+
+}
@@ -365,4 +365,190 @@ public class StateManagerTest {
         }
         stateManager.putTypedInternalRouteState(route, myState, 1.);
     }
+
+    @Test
+    public void whenDoubleActivityStateIsSet_itMustBeSetCorrectly() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        DoubleStateId id = stateManager.createDoubleStateId("myState");
+        stateManager.putDoubleActivityState(activity, id, 3.5);
+        assertEquals(3.5, stateManager.getDoubleActivityState(activity, id), 0.01);
+        assertEquals(3.5, stateManager.getActivityState(activity, id, Double.class), 0.01);
+    }
+
+    @Test
+    public void whenDoubleActivityStateIsNotSet_itShouldReturnNoValue() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        DoubleStateId id = stateManager.createDoubleStateId("myState");
+        assertTrue(Double.isNaN(stateManager.getDoubleActivityState(activity, id)));
+        assertNull(stateManager.getActivityState(activity, id, Double.class));
+    }
+
+    @Test
+    public void whenDoubleActivityStateIsSetWithGenericMethod_itMustBeReadableWithTypedMethod() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        DoubleStateId id = stateManager.createDoubleStateId("myState");
+        stateManager.putActivityState(activity, id, 2.);
+        assertEquals(2., stateManager.getDoubleActivityState(activity, id), 0.01);
+    }
+
+    @Test
+    public void whenTwoVehicleDependentDoubleActivityStatesAreSet_theyMustBeSetCorrectly() {
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(4.).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleImpl vehicle2 = VehicleImpl.Builder.newInstance("v2").setStartLocation(Location.newInstance("loc")).setType(type).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle).addVehicle(vehicle2).build();
+
+        TourActivity act = mock(TourActivity.class);
+        when(act.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrp);
+        DoubleStateId id = stateManager.createDoubleStateId("vehicleParam");
+        stateManager.putDoubleActivityState(act, vehicle, id, 1.);
+        stateManager.putDoubleActivityState(act, vehicle2, id, 4.);
+
+        assertEquals(1., stateManager.getDoubleActivityState(act, vehicle, id), 0.01);
+        assertEquals(4., stateManager.getDoubleActivityState(act, vehicle2, id), 0.01);
+        assertTrue(stateManager.hasActivityState(act, vehicle, id));
+    }
+
+    @Test
+    public void whenIntActivityStateIsSetAndStateManagerClearedAfterwards_itShouldReturnNoValue() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        IntStateId id = stateManager.createIntStateId("myState");
+        stateManager.putIntActivityState(activity, id, 3);
+        assertEquals(3, stateManager.getIntActivityState(activity, id));
+        stateManager.clear();
+        assertEquals(IntStateId.NO_VALUE, stateManager.getIntActivityState(activity, id));
+        assertNull(stateManager.getActivityState(activity, id, Integer.class));
+    }
+
+    @Test
+    public void whenSizeDimensionActivityStateIsSet_itMustBeSetCorrectly() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        SizeDimensionStateId id = stateManager.createSizeDimensionStateId("myState");
+        stateManager.putSizeDimensionActivityState(activity, id, SizeDimension.of(500));
+        assertEquals(500, stateManager.getSizeDimensionActivityState(activity, id).get(0));
+    }
+
+    @Test
+    public void whenCreatingTypedStatesWithTheSameName_theyShouldBeTheSame() {
+        StateManager stateManager = new StateManager(vrpMock);
+        DoubleStateId id = stateManager.createDoubleStateId("foo-state");
+        assertTrue(id == stateManager.createDoubleStateId("foo-state"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenCreatingTypedStateWithNameOfStateOfAnotherType_itShouldThrowException() {
+        StateManager stateManager = new StateManager(vrpMock);
+        stateManager.createDoubleStateId("foo-state");
+        stateManager.createIntStateId("foo-state");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenPuttingReservedDoubleState_itShouldThrowException() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        stateManager.putDoubleActivityState(activity, InternalStates.LATEST_OPERATION_START_TIME, 1.);
+    }
+
+    @Test
+    public void whenDoubleRouteStateIsSet_itMustBeSetCorrectly() {
+        VehicleRoute route = getRoute(mock(Vehicle.class));
+        StateManager stateManager = new StateManager(vrpMock);
+        DoubleStateId id = stateManager.createDoubleStateId("myState");
+        stateManager.putDoubleRouteState(route, id, 10.);
+        assertEquals(10., stateManager.getDoubleRouteState(route, id), 0.01);
+        assertEquals(10., stateManager.getRouteState(route, id, Double.class), 0.01);
+    }
+
+    @Test
+    public void whenRouteStateIsSetAndStateManagerClearedAfterwards_itShouldReturnNull() {
+        VehicleRoute route = getRoute(mock(Vehicle.class));
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        DoubleStateId doubleId = stateManager.createDoubleStateId("myDoubleState");
+        stateManager.putRouteState(route, id, 1.);
+        stateManager.putDoubleRouteState(route, doubleId, 2.);
+        stateManager.clear();
+        assertNull(stateManager.getRouteState(route, id, Double.class));
+        assertTrue(Double.isNaN(stateManager.getDoubleRouteState(route, doubleId)));
+        assertNull(stateManager.getRouteState(route, doubleId, Double.class));
+    }
+
+    @Test
+    public void whenSlotOfClearedRouteIsReusedByAnotherRoute_itShouldNotSeeOldStates() {
+        VehicleRoute route = getRoute(mock(Vehicle.class));
+        VehicleRoute otherRoute = getRoute(mock(Vehicle.class));
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        IntStateId intId = stateManager.createIntStateId("myIntState");
+        stateManager.putRouteState(route, id, 1.);
+        stateManager.putIntRouteState(route, intId, 2);
+        stateManager.clear();
+        stateManager.putRouteState(otherRoute, stateManager.createStateId("foo"), 3.);
+        assertNull(stateManager.getRouteState(otherRoute, id, Double.class));
+        assertEquals(IntStateId.NO_VALUE, stateManager.getIntRouteState(otherRoute, intId));
+        assertNull(stateManager.getRouteState(route, id, Double.class));
+    }
+
+    @Test
+    public void whenRouteIsMemorizedAgainAfterClearing_itShouldOnlySeeNewStates() {
+        VehicleRoute route = getRoute(mock(Vehicle.class));
+        VehicleRoute otherRoute = getRoute(mock(Vehicle.class));
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        StateId otherId = stateManager.createStateId("myOtherState");
+        stateManager.putRouteState(route, id, 1.);
+        stateManager.clear();
+        stateManager.putRouteState(otherRoute, id, 2.);
+        stateManager.putRouteState(route, otherId, 3.);
+        assertNull(stateManager.getRouteState(route, id, Double.class));
+        assertEquals(3., stateManager.getRouteState(route, otherId, Double.class), 0.01);
+        assertEquals(2., stateManager.getRouteState(otherRoute, id, Double.class), 0.01);
+    }
+
+    @Test
+    public void whenTwoStateManagersMemorizeStatesOfSameRoute_theyShouldNotOverwriteEachOther() {
+        VehicleRoute route = getRoute(mock(Vehicle.class));
+        VehicleRoute otherRoute = getRoute(mock(Vehicle.class));
+        StateManager stateManager = new StateManager(vrpMock);
+        StateManager otherStateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        StateId otherId = otherStateManager.createStateId("myState");
+        stateManager.putRouteState(route, id, 1.);
+        otherStateManager.putRouteState(otherRoute, otherId, 2.);
+        otherStateManager.putRouteState(route, otherId, 3.);
+        assertEquals(1., stateManager.getRouteState(route, id, Double.class), 0.01);
+        assertEquals(2., otherStateManager.getRouteState(otherRoute, otherId, Double.class), 0.01);
+        assertEquals(3., otherStateManager.getRouteState(route, otherId, Double.class), 0.01);
+        assertNull(stateManager.getRouteState(otherRoute, id, Double.class));
+    }
+
+    @Test
+    public void whenMoreRoutesThanInitialSlotsAreMemorized_allStatesMustBeKept() {
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        SizeDimensionStateId sizeId = stateManager.createSizeDimensionStateId("mySizeState");
+        List<VehicleRoute> routes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            VehicleRoute route = getRoute(mock(Vehicle.class));
+            stateManager.putRouteState(route, id, (double) i);
+            stateManager.putSizeDimensionRouteState(route, sizeId, SizeDimension.of(i));
+            routes.add(route);
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals((double) i, stateManager.getRouteState(routes.get(i), id, Double.class), 0.01);
+            assertEquals(i, stateManager.getSizeDimensionRouteState(routes.get(i), sizeId).get(0));
+        }
+    }
 }
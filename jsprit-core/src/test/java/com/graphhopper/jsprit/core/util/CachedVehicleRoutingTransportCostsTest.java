@@ -0,0 +1,194 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.distance.EuclideanDistanceCalculator;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+public class CachedVehicleRoutingTransportCostsTest {
+
+    private static class CountingCosts extends DefaultCosts {
+
+        private final AtomicInteger noCalls = new AtomicInteger();
+
+        CountingCosts() {
+            super(EuclideanDistanceCalculator.getInstance());
+        }
+
+        @Override
+        public double getTransportTime(Location from, Location to, double time, Driver driver, Vehicle vehicle) {
+            noCalls.incrementAndGet();
+            return super.getTransportTime(from, to, time, driver, vehicle);
+        }
+
+        @Override
+        public double getTransportCost(Location from, Location to, double time, Driver driver, Vehicle vehicle) {
+            noCalls.incrementAndGet();
+            return super.getTransportCost(from, to, time, driver, vehicle);
+        }
+
+    }
+
+    private Location loc(int index) {
+        return Location.Builder.newInstance().setIndex(index).setCoordinate(Coordinate.newInstance(index, 2 * index)).build();
+    }
+
+    private List<Vehicle> vehicles() {
+        VehicleTypeImpl slow = VehicleTypeImpl.Builder.newInstance("slow").setCostPerDistance(2.).setMaxVelocity(1.).build();
+        VehicleTypeImpl fast = VehicleTypeImpl.Builder.newInstance("fast").setCostPerDistance(3.).setMaxVelocity(4.).build();
+        Vehicle v1 = VehicleImpl.Builder.newInstance("v1").setType(slow).setStartLocation(loc(0)).build();
+        Vehicle v2 = VehicleImpl.Builder.newInstance("v2").setType(fast).setStartLocation(loc(0)).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(v1).addVehicle(v2).build();
+        return new ArrayList<>(vrp.getVehicles());
+    }
+
+    private void assertSameValues(CachedVehicleRoutingTransportCosts cached, CountingCosts costs, List<Vehicle> vehicles) {
+        DefaultCosts reference = new DefaultCosts(EuclideanDistanceCalculator.getInstance());
+        for (int run = 0; run < 2; run++) {
+            for (int from = 0; from < 10; from++) {
+                for (int to = 0; to < 10; to++) {
+                    for (Vehicle vehicle : vehicles) {
+                        assertEquals(reference.getTransportTime(loc(from), loc(to), 0., null, vehicle),
+                            cached.getTransportTime(loc(from), loc(to), 0., null, vehicle), 0.);
+                        assertEquals(reference.getTransportCost(loc(from), loc(to), 0., null, vehicle),
+                            cached.getBackwardTransportCost(loc(from), loc(to), 0., null, vehicle), 0.);
+                        assertEquals(reference.getDistance(loc(from), loc(to), 0., vehicle),
+                            ((TransportDistance) cached).getDistance(loc(from), loc(to), 0., vehicle), 0.);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void whenLocationsAreKnown_itShouldComputeEachValueOnce() {
+        CountingCosts costs = new CountingCosts();
+        CachedVehicleRoutingTransportCosts cached = CachedVehicleRoutingTransportCosts.Builder.newInstance(costs)
+            .setNoLocations(10).setNoVehicleTypes(2).build();
+        assertTrue(cached.isDense());
+        List<Vehicle> vehicles = vehicles();
+        vehicles.add(null);
+        assertSameValues(cached, costs, vehicles);
+        assertEquals(10 * 10 * 3 * 2, costs.noCalls.get());
+    }
+
+    @Test
+    public void whenLocationsAreUnknown_itShouldUseHashTable() {
+        CountingCosts costs = new CountingCosts();
+        CachedVehicleRoutingTransportCosts cached = CachedVehicleRoutingTransportCosts.Builder.newInstance(costs).build();
+        assertFalse(cached.isDense());
+        List<Vehicle> vehicles = vehicles();
+        vehicles.add(null);
+        assertSameValues(cached, costs, vehicles);
+        assertEquals(10 * 10 * 3 * 2, costs.noCalls.get());
+    }
+
+    @Test
+    public void whenHashTableIsTooSmall_itShouldEvictButReturnCorrectValues() {
+        CountingCosts costs = new CountingCosts();
+        CachedVehicleRoutingTransportCosts cached = CachedVehicleRoutingTransportCosts.Builder.newInstance(costs)
+            .setCapacity(8).setConcurrencyLevel(2).build();
+        assertSameValues(cached, costs, vehicles());
+        assertTrue(costs.noCalls.get() > 10 * 10 * 2 * 2);
+    }
+
+    @Test
+    public void whenVehicleOfAnotherProblemHasSameTypeIndex_itShouldNotReturnValuesOfOtherType() {
+        CountingCosts costs = new CountingCosts();
+        CachedVehicleRoutingTransportCosts cached = CachedVehicleRoutingTransportCosts.Builder.newInstance(costs).build();
+        VehicleTypeImpl slow = VehicleTypeImpl.Builder.newInstance("slow").setCostPerDistance(2.).build();
+        VehicleTypeImpl expensive = VehicleTypeImpl.Builder.newInstance("expensive").setCostPerDistance(5.).build();
+        Vehicle v1 = VehicleImpl.Builder.newInstance("v1").setType(slow).setStartLocation(loc(0)).build();
+        Vehicle v2 = VehicleImpl.Builder.newInstance("v2").setType(expensive).setStartLocation(loc(0)).build();
+        VehicleRoutingProblem.Builder.newInstance().addVehicle(v1).build();
+        VehicleRoutingProblem.Builder.newInstance().addVehicle(v2).build();
+        assertEquals(v1.getVehicleTypeIdentifier().getIndex(), v2.getVehicleTypeIdentifier().getIndex());
+        assertEquals(2. * Math.sqrt(5.), cached.getTransportCost(loc(0), loc(1), 0., null, v1), 0.001);
+        assertEquals(5. * Math.sqrt(5.), cached.getTransportCost(loc(0), loc(1), 0., null, v2), 0.001);
+        assertEquals(5. * Math.sqrt(5.), cached.getTransportCost(loc(0), loc(1), 0., null, v2), 0.001);
+        assertEquals(3, costs.noCalls.get());
+    }
+
+    @Test
+    public void whenLocationHasNoIndex_itShouldPassThrough() {
+        CountingCosts costs = new CountingCosts();
+        CachedVehicleRoutingTransportCosts cached = CachedVehicleRoutingTransportCosts.Builder.newInstance(costs).build();
+        Location noIndex = Location.newInstance(3, 4);
+        assertEquals(5., cached.getTransportTime(Location.newInstance(0, 0), noIndex, 0., null, null), 0.001);
+        assertEquals(5., cached.getTransportTime(Location.newInstance(0, 0), noIndex, 0., null, null), 0.001);
+        assertEquals(2, costs.noCalls.get());
+    }
+
+    @Test
+    public void whenSharedAmongThreads_itShouldReturnCorrectValues() throws Exception {
+        final CountingCosts costs = new CountingCosts();
+        final CachedVehicleRoutingTransportCosts cached = CachedVehicleRoutingTransportCosts.Builder.newInstance(costs)
+            .setCapacity(64).setConcurrencyLevel(4).build();
+        final List<Vehicle> vehicles = vehicles();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        assertSameValues(cached, costs, vehicles);
+                        return null;
+                    }
+
+                }));
+            }
+            for (Future<Void> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void whenCachedCostsHaveNoDistance_itShouldNotProvideDistance() {
+        VehicleRoutingTransportCostsMatrix matrix = VehicleRoutingTransportCostsMatrix.Builder.newInstance(true).build();
+        assertFalse(CachedVehicleRoutingTransportCosts.Builder.newInstance(matrix).build() instanceof TransportDistance);
+    }
+
+    @Test
+    public void whenCachedCostsHaveDistance_itShouldProvideDistance() {
+        assertTrue(CachedVehicleRoutingTransportCosts.Builder.newInstance(new CountingCosts()).build() instanceof TransportDistance);
+    }
+
+}
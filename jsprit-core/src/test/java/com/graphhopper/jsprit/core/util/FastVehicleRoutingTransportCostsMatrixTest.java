@@ -110,5 +110,60 @@ public class FastVehicleRoutingTransportCostsMatrixTest {
         assertEquals(16., matrix.getTransportCost(loc(2), loc(1), 0.0, null, vehicle), 0.1);
     }
 
+    @Test
+    public void whenFillingSymmetricMatrix_itShouldReturnValuesOfAllRelations() {
+        FastVehicleRoutingTransportCostsMatrix.Builder matrixBuilder = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, true);
+        for (int i = 0; i < 10; i++) {
+            for (int j = i; j < 10; j++) {
+                matrixBuilder.addTransportTimeAndDistance(i, j, 100 * i + j, 10 * i + j);
+            }
+        }
+        FastVehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        for (int i = 0; i < 10; i++) {
+            for (int j = i; j < 10; j++) {
+                assertEquals(10 * i + j, matrix.getDistance(i, j), 0.01);
+                assertEquals(10 * i + j, matrix.getDistance(j, i), 0.01);
+                assertEquals(100 * i + j, matrix.getTransportTime(loc(i), loc(j), 0.0, null, null), 0.01);
+                assertEquals(100 * i + j, matrix.getTransportTime(loc(j), loc(i), 0.0, null, null), 0.01);
+            }
+        }
+    }
+
+    @Test
+    public void whenFillingAsymmetricMatrixWithFloatPrecision_itShouldReturnValuesOfAllRelations() {
+        FastVehicleRoutingTransportCostsMatrix.Builder matrixBuilder = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, false,
+            FastVehicleRoutingTransportCostsMatrix.Precision.FLOAT);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                matrixBuilder.addTransportTimeAndDistance(i, j, 100.5 * i + j, 10.25 * i + j);
+            }
+        }
+        FastVehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                assertEquals(10.25 * i + j, matrix.getDistance(i, j), 0.001);
+                assertEquals(100.5 * i + j, matrix.getTransportTime(i, j), 0.001);
+            }
+        }
+    }
+
+    @Test
+    public void whenAddingTimeAndDistanceToSymmetricMatrixWithFloatPrecision_itShouldReturnCorrectCosts() {
+        FastVehicleRoutingTransportCostsMatrix.Builder matrixBuilder = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(3, true,
+            FastVehicleRoutingTransportCostsMatrix.Precision.FLOAT);
+        matrixBuilder.addTransportDistance(2, 1, 20.);
+        matrixBuilder.addTransportTime(1, 2, 2.);
+        FastVehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        Vehicle vehicle = mock(Vehicle.class);
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(1.).setCostPerTime(2.).build();
+        when(vehicle.getType()).thenReturn(type);
+        assertEquals(24., matrix.getTransportCost(loc(1), loc(2), 0.0, null, vehicle), 0.1);
+        assertEquals(24., matrix.getTransportCost(loc(2), loc(1), 0.0, null, vehicle), 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMatrixWouldBeTooLarge_itShouldThrowException() {
+        FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(50000, false);
+    }
 
 }
@@ -19,10 +19,18 @@
 package com.graphhopper.jsprit.core.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
+import com.graphhopper.jsprit.core.distance.EuclideanDistanceCalculator;
 import com.graphhopper.jsprit.core.distance.SphericalDistanceCalculator;
+import com.graphhopper.jsprit.core.problem.Location;
 
 /**
  * Created by schroeder on 28.11.14.
@@ -44,5 +52,87 @@ public class GreatCircleDistanceCalculatorTest {
         assertEquals(600, greatCircle, 30.);
     }
 
+    private static List<Location> randomLocations(int noLocations) {
+        Random random = new Random(42);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < noLocations; i++) {
+            locations.add(Location.Builder.newInstance().setIndex(i)
+                .setCoordinate(Coordinate.newInstance(-180 + 360 * random.nextDouble(), -90 + 180 * random.nextDouble())).build());
+        }
+        return locations;
+    }
+
+    @Test
+    public void whenUsingTable_distancesShouldEqualCalculatedDistances() {
+        List<Location> locations = randomLocations(50);
+        SphericalDistanceCalculator.Table table = SphericalDistanceCalculator.newTable(locations);
+        for (Location from : locations) {
+            for (Location to : locations) {
+                double expected = SphericalDistanceCalculator.getInstance().calculateDistance(from.getCoordinate(), to.getCoordinate());
+                assertEquals(expected, table.getDistance(from.getIndex(), to.getIndex()), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void whenCalculatingOneToMany_distancesShouldEqualSingleDistances() {
+        List<Location> locations = randomLocations(20);
+        locations.add(Location.Builder.newInstance().setIndex(25).setCoordinate(Coordinate.newInstance(8.4, 49.)).build());
+        SphericalDistanceCalculator.Table table = SphericalDistanceCalculator.newTable(locations);
+        assertEquals(26, table.getNoIndices());
+        assertFalse(table.contains(22));
+        double[] all = new double[table.getNoIndices()];
+        table.getDistances(25, all);
+        assertTrue(Double.isNaN(all[22]));
+        double[] some = new double[2];
+        table.getDistances(25, new int[]{3, 7}, some);
+        assertEquals(table.getDistance(25, 3), some[0], 0.);
+        assertEquals(table.getDistance(25, 7), some[1], 0.);
+        assertEquals(table.getDistance(25, 7), all[7], 0.);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenLocationIsNotInTable_itShouldThrowException() {
+        SphericalDistanceCalculator.newTable(randomLocations(3)).getDistance(0, 3);
+    }
+
+    @Test
+    public void whenGreatCircleCostsUsePrecomputedLocations_distancesShouldNotChange() {
+        List<Location> locations = randomLocations(10);
+        GreatCircleCosts costs = new GreatCircleCosts();
+        GreatCircleCosts precomputed = new GreatCircleCosts().withPrecomputedLocations(locations.subList(0, 5));
+        for (Location from : locations) {
+            for (Location to : locations) {
+                assertEquals(costs.getDistance(from, to, 0, null), precomputed.getDistance(from, to, 0, null), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void whenDefaultCostsUsePrecomputedLocations_distancesShouldNotChange() {
+        List<Location> locations = randomLocations(10);
+        DefaultCosts costs = new DefaultCosts(SphericalDistanceCalculator.getInstance()).withDetourFactor(1.3);
+        DefaultCosts precomputed = new DefaultCosts(SphericalDistanceCalculator.getInstance()).withDetourFactor(1.3)
+            .withPrecomputedLocations(locations.subList(0, 5));
+        for (Location from : locations) {
+            for (Location to : locations) {
+                assertEquals(costs.getDistance(from, to, 0, null), precomputed.getDistance(from, to, 0, null), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void whenLocationHasIndexOfTableButOtherCoordinate_itShouldCalculateItsDistance() {
+        List<Location> locations = randomLocations(3);
+        DefaultCosts precomputed = new DefaultCosts(SphericalDistanceCalculator.getInstance()).withPrecomputedLocations(locations);
+        Location other = Location.Builder.newInstance().setIndex(1).setCoordinate(Coordinate.newInstance(8.4, 49.)).build();
+        double expected = SphericalDistanceCalculator.getInstance().calculateDistance(locations.get(0).getCoordinate(), other.getCoordinate());
+        assertEquals(expected, precomputed.getDistance(locations.get(0), other, 0, null), 1e-6);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenPrecomputingLocationsOfNonSphericalCosts_itShouldThrowException() {
+        new DefaultCosts(EuclideanDistanceCalculator.getInstance()).withPrecomputedLocations(randomLocations(3));
+    }
 
 }
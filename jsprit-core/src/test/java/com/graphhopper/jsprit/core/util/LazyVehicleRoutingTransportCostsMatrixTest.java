@@ -0,0 +1,116 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.job.DeliveryJob;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+
+public class LazyVehicleRoutingTransportCostsMatrixTest {
+
+    private static final LazyVehicleRoutingTransportCostsMatrix.RowProvider PROVIDER = new LazyVehicleRoutingTransportCostsMatrix.RowProvider() {
+
+        @Override
+        public void computeRow(int fromIndex, double[] distances, double[] times) {
+            for (int toIndex = 0; toIndex < distances.length; toIndex++) {
+                distances[toIndex] = 10. * fromIndex + toIndex;
+                times[toIndex] = 2. * distances[toIndex];
+            }
+        }
+
+    };
+
+    private Location loc(int index) {
+        return Location.Builder.newInstance().setIndex(index).build();
+    }
+
+    @Test
+    public void whenRowIsRequested_itShouldBeComputedOnce() {
+        LazyVehicleRoutingTransportCostsMatrix matrix = LazyVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, PROVIDER).build();
+        assertEquals(23., matrix.getDistance(loc(2), loc(3), 0., null), 0.);
+        assertEquals(46., matrix.getTransportTime(loc(2), loc(3), 0., null, null), 0.);
+        assertEquals(29., matrix.getTransportCost(loc(2), loc(9), 0., null, null), 0.);
+        assertEquals(32., matrix.getDistance(3, 2), 0.);
+        assertEquals(2, matrix.getNoComputedRows());
+    }
+
+    @Test
+    public void whenCacheIsFull_itShouldEvictRowThatWasNotUsedRecently() {
+        LazyVehicleRoutingTransportCostsMatrix matrix = LazyVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, PROVIDER)
+            .setMaxNoRows(2).build();
+        matrix.getDistance(0, 1);
+        matrix.getDistance(1, 1);
+        matrix.getDistance(0, 2);
+        matrix.getDistance(2, 1);
+        assertEquals(3, matrix.getNoComputedRows());
+        assertEquals(2, matrix.getNoCachedRows());
+        assertEquals(5., matrix.getDistance(0, 5), 0.);
+        assertEquals(3, matrix.getNoComputedRows());
+        assertEquals(15., matrix.getDistance(1, 5), 0.);
+        assertEquals(4, matrix.getNoComputedRows());
+    }
+
+    @Test
+    public void whenMatrixIsSymmetric_itShouldUseRowOfToLocation() {
+        LazyVehicleRoutingTransportCostsMatrix matrix = LazyVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, PROVIDER)
+            .setSymmetric(true).build();
+        assertEquals(54., matrix.getDistance(5, 4), 0.);
+        assertEquals(54., matrix.getDistance(4, 5), 0.);
+        assertEquals(1, matrix.getNoComputedRows());
+    }
+
+    @Test
+    public void whenRuinEnds_itShouldPrefetchRowsOfUnassignedJobs() {
+        LazyVehicleRoutingTransportCostsMatrix matrix = LazyVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, PROVIDER).build();
+        Job d1 = new DeliveryJob.Builder("d1").setLocation(loc(3)).build();
+        Job d2 = new DeliveryJob.Builder("d2").setLocation(loc(7)).build();
+        matrix.ruinEnds(Collections.<VehicleRoute>emptyList(), Arrays.asList(d1, d2));
+        assertEquals(2, matrix.getNoComputedRows());
+        assertEquals(71., matrix.getDistance(7, 1), 0.);
+        assertEquals(2, matrix.getNoComputedRows());
+    }
+
+    @Test
+    public void whenManyRowsAreRequested_itShouldNotCacheMoreThanMaxNoRows() {
+        LazyVehicleRoutingTransportCostsMatrix matrix = LazyVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, PROVIDER)
+            .setMaxNoRows(3).build();
+        for (int run = 0; run < 3; run++) {
+            for (int from = 0; from < 10; from++) {
+                assertEquals(10. * from + 1, matrix.getDistance(from, 1), 0.);
+                assertTrue(matrix.getNoCachedRows() <= 3);
+            }
+        }
+        assertEquals(3, matrix.getNoCachedRows());
+        assertEquals(30, matrix.getNoComputedRows());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenIndexExceedsNoLocations_itShouldThrowException() {
+        LazyVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, PROVIDER).build().getDistance(10, 1);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.FastVehicleRoutingTransportCostsMatrix.Precision;
+
+public class MappedVehicleRoutingTransportCostsMatrixTest {
+
+    private File file;
+
+    @Before
+    public void doBefore() throws IOException {
+        file = File.createTempFile("matrix", ".bin");
+    }
+
+    @After
+    public void doAfter() {
+        file.delete();
+    }
+
+    private Location loc(int index) {
+        return Location.Builder.newInstance().setIndex(index).build();
+    }
+
+    private void writeMatrix(int noLocations, boolean isSymmetric, Precision precision, int chunkBits) throws IOException {
+        try (MappedVehicleRoutingTransportCostsMatrix.Writer writer = new MappedVehicleRoutingTransportCostsMatrix.Writer(file, noLocations, isSymmetric, precision, chunkBits)) {
+            for (int i = 0; i < noLocations; i++) {
+                for (int j = isSymmetric ? i : 0; j < noLocations; j++) {
+                    writer.addTransportTimeAndDistance(i, j, 100.5 * i + j, 10.25 * i + j);
+                }
+            }
+        }
+    }
+
+    private void assertMatrix(MappedVehicleRoutingTransportCostsMatrix matrix, int noLocations, boolean isSymmetric) {
+        assertEquals(noLocations, matrix.getNoLocations());
+        assertEquals(isSymmetric, matrix.isSymmetric());
+        for (int i = 0; i < noLocations; i++) {
+            for (int j = isSymmetric ? i : 0; j < noLocations; j++) {
+                assertEquals(10.25 * i + j, matrix.getDistance(i, j), 0.001);
+                assertEquals(100.5 * i + j, matrix.getTransportTime(loc(i), loc(j), 0.0, null, null), 0.001);
+                if (isSymmetric) {
+                    assertEquals(10.25 * i + j, matrix.getDistance(loc(j), loc(i), 0.0, null), 0.001);
+                    assertEquals(100.5 * i + j, matrix.getTransportTime(j, i), 0.001);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void whenWritingAsymmetricMatrix_itShouldReadAllValues() throws IOException {
+        writeMatrix(7, false, Precision.DOUBLE, MappedVehicleRoutingTransportCostsMatrix.DEFAULT_CHUNK_BITS);
+        assertEquals(MappedVehicleRoutingTransportCostsMatrix.HEADER_SIZE + 2 * 49 * 8, file.length());
+        assertMatrix(MappedVehicleRoutingTransportCostsMatrix.open(file), 7, false);
+    }
+
+    @Test
+    public void whenWritingSymmetricFloatMatrix_itShouldReadAllValues() throws IOException {
+        writeMatrix(7, true, Precision.FLOAT, MappedVehicleRoutingTransportCostsMatrix.DEFAULT_CHUNK_BITS);
+        assertEquals(MappedVehicleRoutingTransportCostsMatrix.HEADER_SIZE + 2 * 28 * 4, file.length());
+        assertMatrix(MappedVehicleRoutingTransportCostsMatrix.open(file), 7, true);
+    }
+
+    @Test
+    public void whenMappingInSmallChunks_itShouldReadAllValues() throws IOException {
+        writeMatrix(9, false, Precision.DOUBLE, 5);
+        assertMatrix(MappedVehicleRoutingTransportCostsMatrix.open(file, 4), 9, false);
+        writeMatrix(9, true, Precision.FLOAT, 4);
+        assertMatrix(MappedVehicleRoutingTransportCostsMatrix.open(file, 3), 9, true);
+    }
+
+    @Test
+    public void whenCalculatingCosts_itShouldConsiderDistanceAndTime() throws IOException {
+        try (MappedVehicleRoutingTransportCostsMatrix.Writer writer = MappedVehicleRoutingTransportCostsMatrix.Writer.newInstance(file, 3, true, Precision.DOUBLE)) {
+            writer.addTransportDistance(2, 1, 20.);
+            writer.addTransportTime(1, 2, 2.);
+        }
+        MappedVehicleRoutingTransportCostsMatrix matrix = MappedVehicleRoutingTransportCostsMatrix.open(file);
+        Vehicle vehicle = mock(Vehicle.class);
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(1.).setCostPerTime(2.).build();
+        when(vehicle.getType()).thenReturn(type);
+        assertEquals(24., matrix.getTransportCost(loc(1), loc(2), 0.0, null, vehicle), 0.1);
+        assertEquals(24., matrix.getTransportCost(loc(2), loc(1), 0.0, null, vehicle), 0.1);
+        assertEquals(20., matrix.getTransportCost(loc(2), loc(1), 0.0, null, null), 0.1);
+    }
+
+    @Test
+    public void whenFileIsNoMatrixFile_itShouldThrowException() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[64]);
+        }
+        try {
+            MappedVehicleRoutingTransportCostsMatrix.open(file);
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("is not a matrix file"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenFileIsTruncated_itShouldThrowException() throws IOException {
+        writeMatrix(5, false, Precision.DOUBLE, MappedVehicleRoutingTransportCostsMatrix.DEFAULT_CHUNK_BITS);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 8);
+        }
+        MappedVehicleRoutingTransportCostsMatrix.open(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenAddingRelationWithIndexOutOfBounds_itShouldThrowException() throws IOException {
+        try (MappedVehicleRoutingTransportCostsMatrix.Writer writer = MappedVehicleRoutingTransportCostsMatrix.Writer.newInstance(file, 3, false, Precision.DOUBLE)) {
+            writer.addTransportDistance(0, 3, 1.);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenAddingRelationWithNegativeIndexToSymmetricMatrix_itShouldThrowException() throws IOException {
+        try (MappedVehicleRoutingTransportCostsMatrix.Writer writer = MappedVehicleRoutingTransportCostsMatrix.Writer.newInstance(file, 3, true, Precision.DOUBLE)) {
+            writer.addTransportTime(-1, 2, 1.);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenRequestingDistanceOfLocationWithoutIndex_itShouldThrowException() throws IOException {
+        writeMatrix(3, false, Precision.DOUBLE, MappedVehicleRoutingTransportCostsMatrix.DEFAULT_CHUNK_BITS);
+        MappedVehicleRoutingTransportCostsMatrix matrix = MappedVehicleRoutingTransportCostsMatrix.open(file);
+        matrix.getDistance(Location.newInstance("loc"), loc(1), 0.0, null);
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.algorithm.state.StateId;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.algorithm.state.VehicleDependentTraveledDistance;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.DeliveryJob;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+public class MultiProfileVehicleRoutingTransportCostsMatrixTest {
+
+    private static final int VAN = 0;
+
+    private static final int BIKE = 1;
+
+    private Location loc(int index) {
+        return Location.Builder.newInstance().setIndex(index).build();
+    }
+
+    private MultiProfileVehicleRoutingTransportCostsMatrix matrix(boolean isSymmetric) {
+        MultiProfileVehicleRoutingTransportCostsMatrix.Builder builder = MultiProfileVehicleRoutingTransportCostsMatrix.Builder
+            .newInstance(3, 2, isSymmetric).assignVehicleType("bike", BIKE);
+        for (int from = 0; from < 3; from++) {
+            for (int to = 0; to < 3; to++) {
+                if (from == to) continue;
+                builder.addTransportTimeAndDistance(VAN, from, to, 10. * (from + to), 100. * (from + to));
+                builder.addTransportTimeAndDistance(BIKE, from, to, 20. * (from + to), 50. * (from + to));
+            }
+        }
+        return builder.build();
+    }
+
+    private Vehicle vehicle(String id, String typeId) {
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance(typeId).setCostPerDistance(1.).setCostPerTransportTime(2.).build();
+        return VehicleImpl.Builder.newInstance(id).setType(type).setStartLocation(loc(0)).build();
+    }
+
+    @Test
+    public void whenVehicleTypeIsAssigned_itShouldUseItsProfile() {
+        MultiProfileVehicleRoutingTransportCostsMatrix matrix = matrix(false);
+        Vehicle van = vehicle("van", "van");
+        Vehicle bike = vehicle("bike", "bike");
+        assertEquals(VAN, matrix.getProfile(van));
+        assertEquals(BIKE, matrix.getProfile(bike));
+        assertEquals(VAN, matrix.getProfile(null));
+        assertEquals(30., matrix.getTransportTime(loc(1), loc(2), 0., null, van), 0.);
+        assertEquals(60., matrix.getTransportTime(loc(1), loc(2), 0., null, bike), 0.);
+        assertEquals(300., matrix.getDistance(loc(1), loc(2), 0., van), 0.);
+        assertEquals(150., matrix.getDistance(loc(1), loc(2), 0., bike), 0.);
+        assertEquals(300. + 2. * 30., matrix.getTransportCost(loc(1), loc(2), 0., null, van), 0.);
+        assertEquals(150. + 2. * 60., matrix.getTransportCost(loc(1), loc(2), 0., null, bike), 0.);
+        assertEquals(300., matrix.getTransportCost(loc(1), loc(2), 0., null, null), 0.);
+    }
+
+    @Test
+    public void whenMatrixIsSymmetric_itShouldReturnSameValuesInBothDirections() {
+        MultiProfileVehicleRoutingTransportCostsMatrix matrix = matrix(true);
+        assertEquals(20., matrix.getTransportTime(BIKE, 0, 1), 0.);
+        assertEquals(20., matrix.getTransportTime(BIKE, 1, 0), 0.);
+        assertEquals(100., matrix.getDistance(VAN, 0, 1), 0.);
+        assertEquals(100., matrix.getDistance(VAN, 1, 0), 0.);
+    }
+
+    @Test
+    public void whenVehiclesBelongToProblem_itShouldResolveProfilesByTypeIndex() {
+        MultiProfileVehicleRoutingTransportCostsMatrix matrix = matrix(false);
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance()
+            .addVehicle(vehicle("van", "van")).addVehicle(vehicle("bike", "bike")).addVehicle(vehicle("bike2", "bike")).build();
+        for (int run = 0; run < 2; run++) {
+            for (Vehicle v : vrp.getVehicles()) {
+                assertEquals(v.getType().getTypeId().equals("bike") ? BIKE : VAN, matrix.getProfile(v));
+            }
+        }
+    }
+
+    @Test
+    public void whenVehicleOfAnotherProblemHasSameTypeIndex_itShouldResolveItsOwnProfile() {
+        MultiProfileVehicleRoutingTransportCostsMatrix matrix = matrix(false);
+        Vehicle bike = vehicle("bike", "bike");
+        Vehicle van = vehicle("van", "van");
+        VehicleRoutingProblem.Builder.newInstance().addVehicle(bike).build();
+        VehicleRoutingProblem.Builder.newInstance().addVehicle(van).build();
+        assertEquals(bike.getVehicleTypeIdentifier().getIndex(), van.getVehicleTypeIdentifier().getIndex());
+        assertEquals(BIKE, matrix.getProfile(bike));
+        assertEquals(VAN, matrix.getProfile(van));
+        assertEquals(BIKE, matrix.getProfile(bike));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenAssigningUnknownProfile_itShouldThrowException() {
+        MultiProfileVehicleRoutingTransportCostsMatrix.Builder.newInstance(3, 2, false).assignVehicleType("truck", 2);
+    }
+
+    @Test
+    public void vehicleDependentStates_itShouldUseProfileOfEachVehicle() {
+        MultiProfileVehicleRoutingTransportCostsMatrix matrix = matrix(false);
+        Vehicle van = vehicle("van", "van");
+        Vehicle bike = vehicle("bike", "bike");
+        DeliveryJob d1 = new DeliveryJob.Builder("d1").setLocation(loc(1)).build();
+        DeliveryJob d2 = new DeliveryJob.Builder("d2").setLocation(loc(2)).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setRoutingCost(matrix)
+            .addVehicle(van).addVehicle(bike).addJob(d1).addJob(d2).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(van).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addDelivery(d1).addDelivery(d2).build();
+        StateManager stateManager = new StateManager(vrp);
+        StateId distanceId = stateManager.createStateId("distance");
+        stateManager.addStateUpdater(new VehicleDependentTraveledDistance(matrix, stateManager, distanceId, Arrays.asList(van, bike)));
+        stateManager.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        assertEquals(100. + 300. + 200., stateManager.getRouteState(route, van, distanceId, Double.class), 0.);
+        assertEquals(50. + 150. + 100., stateManager.getRouteState(route, bike, distanceId, Double.class), 0.);
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.distance.EuclideanDistanceCalculator;
+import com.graphhopper.jsprit.core.problem.Location;
+
+public class SparseVehicleRoutingTransportCostsMatrixTest {
+
+    private SparseVehicleRoutingTransportCostsMatrix.Builder lineBuilder(int noLocations) {
+        SparseVehicleRoutingTransportCostsMatrix.Builder builder = SparseVehicleRoutingTransportCostsMatrix.Builder
+            .newInstance(noLocations, EuclideanDistanceCalculator.getInstance());
+        for (int i = 0; i < noLocations; i++) builder.setCoordinate(i, Coordinate.newInstance(10. * i, 0.));
+        return builder;
+    }
+
+    private Location loc(int index) {
+        return Location.Builder.newInstance().setIndex(index).build();
+    }
+
+    @Test
+    public void nearestLocations_itShouldBeSortedByCrowFlyDistance() {
+        SparseVehicleRoutingTransportCostsMatrix.Builder builder = lineBuilder(10);
+        assertArrayEquals(new int[]{4, 6, 3}, builder.getNearestLocations(5, 3));
+        assertArrayEquals(new int[]{1, 2}, builder.getNearestLocations(0, 2));
+    }
+
+    @Test
+    public void whenRequestingNearestLocations_itShouldReturnSameLocationsAsSortingAllLocations() {
+        Random random = new Random(4711);
+        int noLocations = 200;
+        SparseVehicleRoutingTransportCostsMatrix.Builder builder = SparseVehicleRoutingTransportCostsMatrix.Builder
+            .newInstance(noLocations, EuclideanDistanceCalculator.getInstance());
+        Coordinate[] coordinates = new Coordinate[noLocations];
+        for (int i = 0; i < noLocations; i++) {
+            //few distinct coordinates to get ties
+            coordinates[i] = Coordinate.newInstance(random.nextInt(10), random.nextInt(10));
+            builder.setCoordinate(i, coordinates[i]);
+        }
+        for (int from = 0; from < noLocations; from += 7) {
+            final Coordinate center = coordinates[from];
+            List<Integer> sorted = new ArrayList<>();
+            for (int to = 0; to < noLocations; to++) {
+                if (to != from) sorted.add(to);
+            }
+            Collections.sort(sorted, new Comparator<Integer>() {
+
+                @Override
+                public int compare(Integer a, Integer b) {
+                    int result = Double.compare(EuclideanDistanceCalculator.getInstance().calculateDistance(center, coordinates[a]),
+                        EuclideanDistanceCalculator.getInstance().calculateDistance(center, coordinates[b]));
+                    return result != 0 ? result : Integer.compare(a, b);
+                }
+
+            });
+            for (int k : new int[]{1, 5, 30, noLocations}) {
+                int[] expected = new int[Math.min(k, noLocations - 1)];
+                for (int i = 0; i < expected.length; i++) expected[i] = sorted.get(i);
+                assertArrayEquals(expected, builder.getNearestLocations(from, k));
+            }
+        }
+    }
+
+    @Test
+    public void whenRelationIsStored_itShouldReturnExactValues() {
+        SparseVehicleRoutingTransportCostsMatrix matrix = lineBuilder(10)
+            .addTransportTimeAndDistance(5, 4, 7., 13.)
+            .addTransportTimeAndDistance(5, 6, 8., 14.)
+            .addTransportTimeAndDistance(5, 4, 6., 12.)
+            .build();
+        assertEquals(2, matrix.getNoRelations());
+        assertTrue(matrix.isExact(5, 4));
+        assertFalse(matrix.isExact(4, 5));
+        assertEquals(12., matrix.getDistance(5, 4), 0.);
+        assertEquals(6., matrix.getTransportTime(loc(5), loc(4), 0., null, null), 0.);
+        assertEquals(14., matrix.getDistance(loc(5), loc(6), 0., null), 0.);
+    }
+
+    @Test
+    public void whenRelationIsNotStored_itShouldEstimateWithCalibratedFactors() {
+        SparseVehicleRoutingTransportCostsMatrix matrix = lineBuilder(10)
+            .addTransportTimeAndDistance(0, 1, 5., 12.)
+            .addTransportTimeAndDistance(1, 2, 7., 18.)
+            .build();
+        assertEquals(1.5, matrix.getDetourFactor(), 0.0001);
+        assertEquals(2.5, matrix.getSpeed(), 0.0001);
+        assertEquals(90. * 1.5, matrix.getDistance(0, 9), 0.0001);
+        assertEquals(90. * 1.5 / 2.5, matrix.getTransportTime(9, 0), 0.0001);
+        assertEquals(0., matrix.getDistance(3, 3), 0.);
+    }
+
+    @Test
+    public void whenFactorsAreSet_itShouldEstimateWithThem() {
+        SparseVehicleRoutingTransportCostsMatrix matrix = lineBuilder(10).setDetourFactor(2.).setSpeed(4.)
+            .addTransportTimeAndDistance(0, 1, 5., 12.)
+            .build();
+        assertEquals(40., matrix.getDistance(1, 3), 0.0001);
+        assertEquals(10., matrix.getTransportTime(1, 3), 0.0001);
+        assertEquals(40., matrix.getTransportCost(loc(1), loc(3), 0., null, null), 0.0001);
+    }
+
+    @Test
+    public void whenCoordinateIsOnlyKnownByLocation_itShouldUseIt() {
+        SparseVehicleRoutingTransportCostsMatrix matrix = SparseVehicleRoutingTransportCostsMatrix.Builder
+            .newInstance(2, EuclideanDistanceCalculator.getInstance()).build();
+        Location from = Location.Builder.newInstance().setIndex(0).setCoordinate(Coordinate.newInstance(0, 0)).build();
+        Location to = Location.Builder.newInstance().setIndex(1).setCoordinate(Coordinate.newInstance(3, 4)).build();
+        assertEquals(5., matrix.getDistance(from, to, 0., null), 0.0001);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenCoordinateIsMissing_itShouldThrowException() {
+        SparseVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, EuclideanDistanceCalculator.getInstance()).build()
+            .getDistance(0, 1);
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+public class TimeDependentVehicleRoutingTransportCostsMatrixTest {
+
+    private TimeDependentVehicleRoutingTransportCostsMatrix rushHourMatrix() {
+        return TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(3, false)
+            .addTransportTimeProfile(0, 1, new double[]{100., 200., 300.}, new double[]{10., 60., 10.})
+            .addTransportTime(1, 0, 5.)
+            .addTransportDistance(0, 1, 50.)
+            .build();
+    }
+
+    private Location loc(int index) {
+        return Location.Builder.newInstance().setIndex(index).build();
+    }
+
+    @Test
+    public void whenDepartingBetweenBreakpoints_itShouldInterpolate() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = rushHourMatrix();
+        assertEquals(10., matrix.getTransportTime(loc(0), loc(1), 100., null, null), 0.001);
+        assertEquals(35., matrix.getTransportTime(loc(0), loc(1), 150., null, null), 0.001);
+        assertEquals(60., matrix.getTransportTime(loc(0), loc(1), 200., null, null), 0.001);
+        assertEquals(35., matrix.getTransportTime(loc(0), loc(1), 250., null, null), 0.001);
+    }
+
+    @Test
+    public void whenDepartingOutsideProfile_itShouldReturnTimeOfClosestBreakpoint() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = rushHourMatrix();
+        assertEquals(10., matrix.getTransportTime(loc(0), loc(1), 0., null, null), 0.001);
+        assertEquals(10., matrix.getTransportTime(loc(0), loc(1), 1000., null, null), 0.001);
+        assertEquals(5., matrix.getTransportTime(loc(1), loc(0), 150., null, null), 0.001);
+        assertEquals(0., matrix.getTransportTime(loc(1), loc(2), 150., null, null), 0.001);
+    }
+
+    @Test
+    public void backwardTransportTime_itShouldBeInverseOfForwardTransportTime() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = rushHourMatrix();
+        for (double departure = 0.; departure < 400.; departure += 7.5) {
+            double time = matrix.getTransportTime(0, 1, departure);
+            assertEquals(time, matrix.getBackwardTransportTime(loc(0), loc(1), departure + time, null, null), 0.001);
+        }
+    }
+
+    @Test
+    public void backwardTransportTime_itShouldBeInverseOfRandomProfiles() {
+        Random random = new Random(4711);
+        TimeDependentVehicleRoutingTransportCostsMatrix.Builder builder = TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, false);
+        for (int from = 0; from < 10; from++) {
+            for (int to = 0; to < 10; to++) {
+                int k = 1 + random.nextInt(8);
+                double[] departureTimes = new double[k];
+                double[] transportTimes = new double[k];
+                for (int i = 0; i < k; i++) {
+                    departureTimes[i] = i == 0 ? random.nextDouble() * 100. : departureTimes[i - 1] + 1. + random.nextDouble() * 100.;
+                    double minTime = i == 0 ? 0. : Math.max(0., transportTimes[i - 1] - (departureTimes[i] - departureTimes[i - 1]) * 0.9);
+                    transportTimes[i] = minTime + random.nextDouble() * 50.;
+                }
+                builder.addTransportTimeProfile(from, to, departureTimes, transportTimes);
+            }
+        }
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = builder.build();
+        for (int run = 0; run < 1000; run++) {
+            int from = random.nextInt(10);
+            int to = random.nextInt(10);
+            double departure = random.nextDouble() * 1000.;
+            double time = matrix.getTransportTime(from, to, departure);
+            assertEquals(time, matrix.getBackwardTransportTime(from, to, departure + time), 0.0001);
+        }
+    }
+
+    @Test
+    public void whenArrivalIsConstant_backwardTransportTimeShouldReturnLatestDeparture() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, false)
+            .addTransportTimeProfile(0, 1, new double[]{0., 10., 20.}, new double[]{30., 20., 20.})
+            .build();
+        assertEquals(20., matrix.getBackwardTransportTime(0, 1, 30.), 0.001);
+        assertEquals(20., matrix.getBackwardTransportTime(0, 1, 35.), 0.001);
+        assertEquals(30., matrix.getBackwardTransportTime(0, 1, 29.), 0.001);
+    }
+
+    @Test
+    public void whenMatrixIsSymmetric_reverseRelationShouldShareProfile() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(3, true)
+            .addTransportTimeProfile(2, 1, new double[]{0., 100.}, new double[]{10., 20.})
+            .build();
+        assertEquals(15., matrix.getTransportTime(1, 2, 50.), 0.001);
+        assertEquals(15., matrix.getTransportTime(2, 1, 50.), 0.001);
+    }
+
+    @Test
+    public void whenProfileIsReplaced_itShouldUseLastProfile() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, false)
+            .addTransportTimeProfile(0, 1, new double[]{0., 100.}, new double[]{10., 20.})
+            .addTransportTime(0, 1, 3.)
+            .build();
+        assertEquals(3., matrix.getTransportTime(0, 1, 50.), 0.001);
+        assertEquals(1, matrix.getNoBreakpoints());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenProfileViolatesFIFO_itShouldThrowException() {
+        TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, false)
+            .addTransportTimeProfile(0, 1, new double[]{0., 10.}, new double[]{30., 15.});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenDepartureTimesAreNotIncreasing_itShouldThrowException() {
+        TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, false)
+            .addTransportTimeProfile(0, 1, new double[]{10., 10.}, new double[]{30., 30.});
+    }
+
+    @Test
+    public void transportCosts_itShouldDependOnDepartureTime() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = rushHourMatrix();
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(1.).setCostPerTransportTime(2.).build();
+        Vehicle vehicle = VehicleImpl.Builder.newInstance("v").setType(type).setStartLocation(loc(0)).build();
+        assertEquals(50. + 2. * 35., matrix.getTransportCost(loc(0), loc(1), 150., null, vehicle), 0.001);
+        assertEquals(50. + 2. * 60., matrix.getBackwardTransportCost(loc(0), loc(1), 260., null, vehicle), 0.001);
+    }
+
+}
@@ -18,6 +18,8 @@
 package com.graphhopper.jsprit.core.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -259,4 +261,98 @@ public class VehicleRoutingTransportCostsMatrixTest {
         assertEquals(1., matrix.getTransportCost(loc("to"), loc("from"), 0.0, null, vehicle), 0.1);
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void whenRequestingRelationOfUnknownLocation_itShouldThrowException() {
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(true);
+        matrixBuilder.addTransportDistance("1", "2", 2.);
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        matrix.getDistance("1", "3");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenRequestingRelationBetweenKnownLocationsThatDoesNotExist_itShouldThrowException() {
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(true);
+        matrixBuilder.addTransportDistance("1", "2", 2.);
+        matrixBuilder.addTransportDistance("3", "4", 2.);
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        matrix.getDistance("1", "3");
+    }
+
+    @Test
+    public void whenAddingFullAsymmetricMatrix_itShouldReturnAllValues() {
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(false);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                matrixBuilder.addTransportDistance("l" + i, "l" + j, 10 * i + j);
+                matrixBuilder.addTransportTime("l" + i, "l" + j, 100 * i + j);
+            }
+        }
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                if (i == j) continue;
+                assertEquals(10 * i + j, matrix.getDistance("l" + i, "l" + j), 0.01);
+                assertEquals(100 * i + j, matrix.getTransportTime(loc("l" + i), loc("l" + j), 0.0, null, null), 0.01);
+            }
+        }
+    }
+
+    @Test
+    public void whenMatrixIsDense_itShouldReturnSameValuesAsSparseMatrix() {
+        VehicleRoutingTransportCostsMatrix.Builder sparseBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(true).setDense(false);
+        VehicleRoutingTransportCostsMatrix.Builder denseBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(true).setDense(true);
+        for (VehicleRoutingTransportCostsMatrix.Builder matrixBuilder : new VehicleRoutingTransportCostsMatrix.Builder[]{sparseBuilder, denseBuilder}) {
+            matrixBuilder.addTransportDistance("l0", "l1", 1.);
+            matrixBuilder.addTransportDistance("l2", "l1", 2.);
+            matrixBuilder.addTransportDistance("l1", "l2", 3.);
+            matrixBuilder.addTransportDistance("l0", "l2", 4.);
+        }
+        VehicleRoutingTransportCostsMatrix sparse = sparseBuilder.build();
+        VehicleRoutingTransportCostsMatrix dense = denseBuilder.build();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(sparse.getDistance("l" + i, "l" + j), dense.getDistance("l" + i, "l" + j), 0.01);
+            }
+        }
+        assertEquals(3., dense.getDistance("l2", "l1"), 0.01);
+        assertEquals(4., dense.getDistance("l2", "l0"), 0.01);
+    }
+
+    @Test
+    public void whenAtLeastHalfOfTheRelationsAreKnown_matrixShouldBeDense() {
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(true);
+        matrixBuilder.addTransportDistance("l0", "l1", 1.);
+        matrixBuilder.addTransportDistance("l0", "l2", 2.);
+        matrixBuilder.addTransportDistance("l2", "l1", 3.);
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        assertTrue(matrix.isDense());
+        assertEquals(3., matrix.getDistance("l1", "l2"), 0.01);
+    }
+
+    @Test
+    public void whenLessThanHalfOfTheRelationsAreKnown_matrixShouldBeSparse() {
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(false);
+        for (int i = 0; i < 10; i++) {
+            matrixBuilder.addTransportDistance("l" + i, "l" + ((i + 1) % 10), 1.);
+        }
+        assertFalse(matrixBuilder.build().isDense());
+        assertTrue(matrixBuilder.setDense(true).build().isDense());
+    }
+
+    @Test
+    public void whenLocationsHaveIndices_itShouldStillResolveTheirIds() {
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(false);
+        matrixBuilder.addTransportDistance("a", "b", 1.);
+        matrixBuilder.addTransportDistance("b", "a", 2.);
+        matrixBuilder.addTransportDistance("c", "a", 3.);
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        Location a = Location.Builder.newInstance().setId("a").setIndex(5).build();
+        Location b = Location.Builder.newInstance().setId("b").setIndex(0).build();
+        Location c = Location.Builder.newInstance().setId("c").setIndex(5).build();
+        assertEquals(1., matrix.getTransportCost(a, b, 0.0, null, null), 0.01);
+        assertEquals(2., matrix.getTransportCost(b, a, 0.0, null, null), 0.01);
+        assertEquals(3., matrix.getTransportCost(c, a, 0.0, null, null), 0.01);
+        assertEquals(1., matrix.getTransportCost(a, b, 0.0, null, null), 0.01);
+    }
+
 }
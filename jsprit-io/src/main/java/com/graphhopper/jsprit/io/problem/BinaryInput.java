@@ -0,0 +1,91 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.io.problem;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads what {@link BinaryOutput} writes from a channel through a buffer.
+ */
+final class BinaryInput {
+
+    private final ReadableByteChannel channel;
+
+    private final ByteBuffer buffer;
+
+    BinaryInput(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        buffer.flip();
+    }
+
+    private void ensure(int noBytes) throws IOException {
+        if (buffer.remaining() >= noBytes) return;
+        buffer.compact();
+        try {
+            while (buffer.position() < noBytes) {
+                if (channel.read(buffer) < 0) throw new EOFException("unexpected end of input");
+            }
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    int readByte() throws IOException {
+        ensure(1);
+        return buffer.get();
+    }
+
+    boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    int readInt() throws IOException {
+        ensure(4);
+        return buffer.getInt();
+    }
+
+    double readDouble() throws IOException {
+        ensure(8);
+        return buffer.getDouble();
+    }
+
+    float readFloat() throws IOException {
+        ensure(4);
+        return buffer.getFloat();
+    }
+
+    String readString() throws IOException {
+        int length = readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            ensure(1);
+            int chunk = Math.min(buffer.remaining(), length - offset);
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
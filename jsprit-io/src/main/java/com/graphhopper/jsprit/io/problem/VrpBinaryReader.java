@@ -0,0 +1,288 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.io.problem;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem.FleetSize;
+import com.graphhopper.jsprit.core.problem.job.AbstractJob;
+import com.graphhopper.jsprit.core.problem.job.AbstractSingleActivityJob;
+import com.graphhopper.jsprit.core.problem.job.Break;
+import com.graphhopper.jsprit.core.problem.job.DeliveryJob;
+import com.graphhopper.jsprit.core.problem.job.PickupJob;
+import com.graphhopper.jsprit.core.problem.job.ServiceJob;
+import com.graphhopper.jsprit.core.problem.job.ShipmentJob;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Coordinate;
+import com.graphhopper.jsprit.core.util.FastVehicleRoutingTransportCostsMatrix;
+
+/**
+ * Reads a {@link VehicleRoutingProblem} that has been written by {@link VrpBinaryWriter}.
+ * <p>Like {@link VrpXMLReader}, jobs that are part of initial routes are not added as jobs to the problem. If the
+ * file contains a transport costs matrix, it is set as routing costs.
+ */
+public class VrpBinaryReader {
+
+    private static Logger logger = LoggerFactory.getLogger(VrpBinaryReader.class);
+
+    private final VehicleRoutingProblem.Builder vrpBuilder;
+
+    private final Map<String, VehicleType> types = new HashMap<>();
+
+    private final Map<String, Vehicle> vehicles = new HashMap<>();
+
+    private final Map<String, AbstractJob> jobs = new HashMap<>();
+
+    public VrpBinaryReader(VehicleRoutingProblem.Builder vrpBuilder) {
+        this.vrpBuilder = vrpBuilder;
+    }
+
+    public void read(String filename) {
+        logger.debug("read vrp: {}", filename);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            read(channel);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the problem from a channel. The channel is not closed.
+     *
+     * @param channel the channel to read from
+     * @throws IOException if reading fails
+     * @throws IllegalArgumentException if the input is not in a supported format
+     */
+    public void read(ReadableByteChannel channel) throws IOException {
+        BinaryInput in = new BinaryInput(channel, VrpBinaryWriter.BUFFER_SIZE);
+        int magic = in.readInt();
+        if (magic != VrpBinaryWriter.MAGIC) {
+            throw new IllegalArgumentException("input is not a binary vehicle routing problem. magic number is "
+                    + Integer.toHexString(magic) + " instead of " + Integer.toHexString(VrpBinaryWriter.MAGIC));
+        }
+        int version = in.readInt();
+        if (version != VrpBinaryWriter.VERSION) {
+            throw new IllegalArgumentException("cannot read version " + version + " of binary vehicle routing problem. "
+                    + "supported version is " + VrpBinaryWriter.VERSION);
+        }
+        vrpBuilder.setFleetSize(FleetSize.valueOf(in.readString()));
+        readTypes(in);
+        readVehicles(in);
+        readJobs(in);
+        Set<String> jobsInRoutes = readInitialRoutes(in);
+        for (AbstractJob job : jobs.values()) {
+            if (!jobsInRoutes.contains(job.getId())) vrpBuilder.addJob(job);
+        }
+        readMatrix(in);
+    }
+
+    private void readTypes(BinaryInput in) throws IOException {
+        int noTypes = in.readInt();
+        for (int i = 0; i < noTypes; i++) {
+            VehicleTypeImpl.Builder typeBuilder = VehicleTypeImpl.Builder.newInstance(in.readString());
+            String profile = in.readString();
+            if (profile != null) typeBuilder.setProfile(profile);
+            int noDimensions = in.readInt();
+            for (int d = 0; d < noDimensions; d++) {
+                typeBuilder.addCapacityDimension(d, in.readInt());
+            }
+            typeBuilder.setFixedCost(in.readDouble());
+            typeBuilder.setCostPerDistance(in.readDouble());
+            typeBuilder.setCostPerTransportTime(in.readDouble());
+            typeBuilder.setCostPerServiceTime(in.readDouble());
+            typeBuilder.setCostPerWaitingTime(in.readDouble());
+            typeBuilder.setMaxVelocity(in.readDouble());
+            VehicleType type = typeBuilder.build();
+            types.put(type.getTypeId(), type);
+        }
+    }
+
+    private void readVehicles(BinaryInput in) throws IOException {
+        int noVehicles = in.readInt();
+        for (int i = 0; i < noVehicles; i++) {
+            VehicleImpl.Builder builder = VehicleImpl.Builder.newInstance(in.readString());
+            String typeId = in.readString();
+            VehicleType type = types.get(typeId);
+            if (type == null) throw new IllegalStateException("vehicle type " + typeId + " is missing");
+            builder.setType(type);
+            builder.setStartLocation(readLocation(in));
+            builder.setEndLocation(readLocation(in));
+            builder.setEarliestStart(in.readDouble());
+            builder.setLatestArrival(in.readDouble());
+            builder.setReturnToDepot(in.readBoolean());
+            int noSkills = in.readInt();
+            for (int s = 0; s < noSkills; s++) {
+                builder.addSkill(in.readString());
+            }
+            if (in.readBoolean()) {
+                Break.Builder breakBuilder = new Break.Builder(in.readString());
+                breakBuilder.setServiceTime(in.readDouble());
+                readTimeWindows(in, breakBuilder);
+                builder.setBreak(breakBuilder.build());
+            }
+            VehicleImpl vehicle = builder.build();
+            vrpBuilder.addVehicle(vehicle);
+            vehicles.put(vehicle.getId(), vehicle);
+        }
+    }
+
+    private void readJobs(BinaryInput in) throws IOException {
+        int noJobs = in.readInt();
+        for (int i = 0; i < noJobs; i++) {
+            int kind = in.readByte();
+            AbstractJob job;
+            if (kind == VrpBinaryWriter.SHIPMENT) {
+                job = readShipment(in);
+            } else if (kind == VrpBinaryWriter.PICKUP) {
+                job = readService(in, new PickupJob.Builder(in.readString()));
+            } else if (kind == VrpBinaryWriter.DELIVERY) {
+                job = readService(in, new DeliveryJob.Builder(in.readString()));
+            } else if (kind == VrpBinaryWriter.SERVICE) {
+                job = readService(in, new ServiceJob.Builder(in.readString()));
+            } else {
+                throw new IllegalStateException("unknown job kind " + kind);
+            }
+            jobs.put(job.getId(), job);
+        }
+    }
+
+    private AbstractSingleActivityJob<?> readService(BinaryInput in, AbstractSingleActivityJob.BuilderBase<?, ?> builder) throws IOException {
+        readJobBase(in, builder);
+        builder.setLocation(readLocation(in));
+        builder.setServiceTime(in.readDouble());
+        readTimeWindows(in, builder);
+        return (AbstractSingleActivityJob<?>) builder.build();
+    }
+
+    private ShipmentJob readShipment(BinaryInput in) throws IOException {
+        ShipmentJob.Builder builder = new ShipmentJob.Builder(in.readString());
+        readJobBase(in, builder);
+        builder.setPickupLocation(readLocation(in));
+        builder.setPickupServiceTime(in.readDouble());
+        int noPickupTimeWindows = in.readInt();
+        for (int t = 0; t < noPickupTimeWindows; t++) {
+            builder.addPickupTimeWindow(TimeWindow.newInstance(in.readDouble(), in.readDouble()));
+        }
+        builder.setDeliveryLocation(readLocation(in));
+        builder.setDeliveryServiceTime(in.readDouble());
+        int noDeliveryTimeWindows = in.readInt();
+        for (int t = 0; t < noDeliveryTimeWindows; t++) {
+            builder.addDeliveryTimeWindow(TimeWindow.newInstance(in.readDouble(), in.readDouble()));
+        }
+        return builder.build();
+    }
+
+    private static void readJobBase(BinaryInput in, AbstractJob.JobBuilder<?, ?> builder) throws IOException {
+        String name = in.readString();
+        if (name != null) builder.setName(name);
+        builder.setPriority(in.readInt());
+        int noSkills = in.readInt();
+        for (int s = 0; s < noSkills; s++) {
+            builder.addRequiredSkill(in.readString());
+        }
+        int noDimensions = in.readInt();
+        for (int d = 0; d < noDimensions; d++) {
+            builder.addSizeDimension(d, in.readInt());
+        }
+    }
+
+    private Set<String> readInitialRoutes(BinaryInput in) throws IOException {
+        Set<String> jobsInRoutes = new HashSet<>();
+        int noRoutes = in.readInt();
+        for (int i = 0; i < noRoutes; i++) {
+            String vehicleId = in.readString();
+            Vehicle vehicle = vehicles.get(vehicleId);
+            if (vehicle == null) throw new IllegalStateException("vehicle " + vehicleId + " of initial route is missing");
+            VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(vehicle);
+            routeBuilder.setDepartureTime(in.readDouble());
+            int noActivities = in.readInt();
+            for (int a = 0; a < noActivities; a++) {
+                boolean isBreak = in.readBoolean();
+                String jobId = in.readString();
+                int activityIndex = in.readInt();
+                AbstractJob job = isBreak ? vehicle.getBreak() : jobs.get(jobId);
+                if (job == null || !job.getId().equals(jobId)) {
+                    throw new IllegalStateException("job " + jobId + " of initial route of vehicle " + vehicleId + " is missing");
+                }
+                routeBuilder.addActivity(job, activityIndex);
+                jobsInRoutes.add(jobId);
+            }
+            vrpBuilder.addInitialVehicleRoute(routeBuilder.build());
+        }
+        return jobsInRoutes;
+    }
+
+    private void readMatrix(BinaryInput in) throws IOException {
+        if (!in.readBoolean()) return;
+        int noLocations = in.readInt();
+        boolean isSymmetric = in.readBoolean();
+        boolean isFloat = in.readBoolean();
+        FastVehicleRoutingTransportCostsMatrix.Builder matrixBuilder = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(noLocations,
+                isSymmetric, isFloat ? FastVehicleRoutingTransportCostsMatrix.Precision.FLOAT : FastVehicleRoutingTransportCostsMatrix.Precision.DOUBLE);
+        for (int from = 0; from < noLocations; from++) {
+            for (int to = 0; to < (isSymmetric ? from + 1 : noLocations); to++) {
+                if (isFloat) {
+                    matrixBuilder.addTransportDistance(from, to, in.readFloat());
+                    matrixBuilder.addTransportTime(from, to, in.readFloat());
+                } else {
+                    matrixBuilder.addTransportDistance(from, to, in.readDouble());
+                    matrixBuilder.addTransportTime(from, to, in.readDouble());
+                }
+            }
+        }
+        vrpBuilder.setRoutingCost(matrixBuilder.build());
+    }
+
+    private static Location readLocation(BinaryInput in) throws IOException {
+        int flags = in.readByte();
+        Location.Builder builder = Location.Builder.newInstance();
+        if ((flags & VrpBinaryWriter.LOCATION_ID) != 0) builder.setId(in.readString());
+        if ((flags & VrpBinaryWriter.LOCATION_COORDINATE) != 0) {
+            builder.setCoordinate(Coordinate.newInstance(in.readDouble(), in.readDouble()));
+        }
+        if ((flags & VrpBinaryWriter.LOCATION_INDEX) != 0) builder.setIndex(in.readInt());
+        if ((flags & VrpBinaryWriter.LOCATION_NAME) != 0) builder.setName(in.readString());
+        return builder.build();
+    }
+
+    private static void readTimeWindows(BinaryInput in, AbstractSingleActivityJob.BuilderBase<?, ?> builder) throws IOException {
+        int noTimeWindows = in.readInt();
+        for (int t = 0; t < noTimeWindows; t++) {
+            builder.addTimeWindow(TimeWindow.newInstance(in.readDouble(), in.readDouble()));
+        }
+    }
+
+}
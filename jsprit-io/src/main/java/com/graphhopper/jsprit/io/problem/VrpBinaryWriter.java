@@ -0,0 +1,287 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.io.problem;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.SizeDimension;
+import com.graphhopper.jsprit.core.problem.Skills;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.AbstractSingleActivityJob;
+import com.graphhopper.jsprit.core.problem.job.Break;
+import com.graphhopper.jsprit.core.problem.job.DeliveryJob;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.PickupJob;
+import com.graphhopper.jsprit.core.problem.job.ShipmentJob;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.JobActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.util.FastVehicleRoutingTransportCostsMatrix;
+
+/**
+ * Writes a {@link VehicleRoutingProblem} in a compact binary format that {@link VrpBinaryReader} reads.
+ * <p>It covers what {@link VrpXMLWriter} writes except solutions, i.e. fleet size, vehicle types, vehicles, services,
+ * pickups, deliveries, shipments and initial routes. Additionally, it writes the transport costs if they are a
+ * {@link FastVehicleRoutingTransportCostsMatrix}.
+ * <p>The file starts with the magic number 0x4A535052 and the format version. All values are big-endian.
+ */
+public class VrpBinaryWriter {
+
+    static final int MAGIC = 0x4A535052;
+
+    static final int VERSION = 1;
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    static final int LOCATION_ID = 1;
+
+    static final int LOCATION_COORDINATE = 2;
+
+    static final int LOCATION_INDEX = 4;
+
+    static final int LOCATION_NAME = 8;
+
+    static final int SERVICE = 0;
+
+    static final int PICKUP = 1;
+
+    static final int DELIVERY = 2;
+
+    static final int SHIPMENT = 3;
+
+    private static Logger log = LoggerFactory.getLogger(VrpBinaryWriter.class);
+
+    private final VehicleRoutingProblem vrp;
+
+    public VrpBinaryWriter(VehicleRoutingProblem vrp) {
+        this.vrp = vrp;
+    }
+
+    public void write(String filename) {
+        log.info("write vrp: " + filename);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(channel);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the problem to a channel. The channel is not closed.
+     *
+     * @param channel the channel to write to
+     * @throws IOException if writing fails
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        BinaryOutput out = new BinaryOutput(channel, BUFFER_SIZE);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeString(vrp.getFleetSize().name());
+        writeTypes(out);
+        writeVehicles(out);
+        writeJobs(out);
+        writeInitialRoutes(out);
+        writeMatrix(out);
+        out.flush();
+    }
+
+    private void writeTypes(BinaryOutput out) throws IOException {
+        Collection<VehicleType> types = vrp.getTypes();
+        out.writeInt(types.size());
+        for (VehicleType type : types) {
+            out.writeString(type.getTypeId());
+            out.writeString(type.getProfile());
+            writeSize(out, type.getCapacityDimensions());
+            out.writeDouble(type.getVehicleCostParams().fix);
+            out.writeDouble(type.getVehicleCostParams().perDistanceUnit);
+            out.writeDouble(type.getVehicleCostParams().perTransportTimeUnit);
+            out.writeDouble(type.getVehicleCostParams().perServiceTimeUnit);
+            out.writeDouble(type.getVehicleCostParams().perWaitingTimeUnit);
+            out.writeDouble(type.getMaxVelocity());
+        }
+    }
+
+    private void writeVehicles(BinaryOutput out) throws IOException {
+        Collection<Vehicle> vehicles = vrp.getVehicles();
+        out.writeInt(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            out.writeString(vehicle.getId());
+            out.writeString(vehicle.getType().getTypeId());
+            writeLocation(out, vehicle.getStartLocation());
+            writeLocation(out, vehicle.getEndLocation());
+            out.writeDouble(vehicle.getEarliestDeparture());
+            out.writeDouble(vehicle.getLatestArrival());
+            out.writeBoolean(vehicle.isReturnToDepot());
+            writeSkills(out, vehicle.getSkills());
+            Break aBreak = vehicle.getBreak();
+            out.writeBoolean(aBreak != null);
+            if (aBreak != null) {
+                out.writeString(aBreak.getId());
+                out.writeDouble(aBreak.getActivity().getOperationTime());
+                writeTimeWindows(out, aBreak.getTimeWindows());
+            }
+        }
+    }
+
+    private void writeJobs(BinaryOutput out) throws IOException {
+        Map<String, Job> jobs = new LinkedHashMap<>(vrp.getJobs());
+        for (VehicleRoute route : vrp.getInitialVehicleRoutes()) {
+            for (Job job : route.getTourActivities().getJobs()) {
+                if (!(job instanceof Break)) jobs.put(job.getId(), job);
+            }
+        }
+        out.writeInt(jobs.size());
+        for (Job job : jobs.values()) {
+            if (job instanceof ShipmentJob) {
+                writeShipment(out, (ShipmentJob) job);
+            } else if (job instanceof AbstractSingleActivityJob && !(job instanceof Break)) {
+                writeService(out, (AbstractSingleActivityJob<?>) job);
+            } else {
+                throw new IllegalStateException("cannot write job " + job.getId() + " since its type " + job.getClass().getName()
+                        + " is not supported. use services, pickups, deliveries or shipments.");
+            }
+        }
+    }
+
+    private void writeService(BinaryOutput out, AbstractSingleActivityJob<?> service) throws IOException {
+        out.writeByte(service instanceof PickupJob ? PICKUP : service instanceof DeliveryJob ? DELIVERY : SERVICE);
+        writeJobBase(out, service);
+        writeSize(out, service.getActivity().getLoadChange().abs());
+        writeLocation(out, service.getActivity().getLocation());
+        out.writeDouble(service.getActivity().getOperationTime());
+        writeTimeWindows(out, service.getTimeWindows());
+    }
+
+    private void writeShipment(BinaryOutput out, ShipmentJob shipment) throws IOException {
+        out.writeByte(SHIPMENT);
+        writeJobBase(out, shipment);
+        writeSize(out, shipment.getPickupActivity().getLoadChange().abs());
+        writeLocation(out, shipment.getPickupActivity().getLocation());
+        out.writeDouble(shipment.getPickupActivity().getOperationTime());
+        writeTimeWindows(out, shipment.getPickupActivity().getTimeWindows());
+        writeLocation(out, shipment.getDeliveryActivity().getLocation());
+        out.writeDouble(shipment.getDeliveryActivity().getOperationTime());
+        writeTimeWindows(out, shipment.getDeliveryActivity().getTimeWindows());
+    }
+
+    private void writeJobBase(BinaryOutput out, Job job) throws IOException {
+        out.writeString(job.getId());
+        out.writeString(job.getName());
+        out.writeInt(job.getPriority());
+        writeSkills(out, job.getRequiredSkills());
+    }
+
+    private void writeInitialRoutes(BinaryOutput out) throws IOException {
+        Collection<VehicleRoute> routes = vrp.getInitialVehicleRoutes();
+        out.writeInt(routes.size());
+        for (VehicleRoute route : routes) {
+            out.writeString(route.getVehicle().getId());
+            out.writeDouble(route.getDepartureTime());
+            out.writeInt(route.getActivities().size());
+            for (TourActivity act : route.getActivities()) {
+                if (!(act instanceof JobActivity)) {
+                    throw new IllegalStateException("cannot write activity " + act.getName() + " of initial route since it does not belong to a job");
+                }
+                JobActivity jobActivity = (JobActivity) act;
+                out.writeBoolean(jobActivity.getJob() instanceof Break);
+                out.writeString(jobActivity.getJob().getId());
+                out.writeInt(jobActivity.getOrderNumber() - 1);
+            }
+        }
+    }
+
+    private void writeMatrix(BinaryOutput out) throws IOException {
+        if (!(vrp.getTransportCosts() instanceof FastVehicleRoutingTransportCostsMatrix)) {
+            out.writeBoolean(false);
+            return;
+        }
+        FastVehicleRoutingTransportCostsMatrix matrix = (FastVehicleRoutingTransportCostsMatrix) vrp.getTransportCosts();
+        out.writeBoolean(true);
+        int noLocations = matrix.getNoLocations();
+        boolean isSymmetric = matrix.isSymmetric();
+        boolean isFloat = matrix.getPrecision() == FastVehicleRoutingTransportCostsMatrix.Precision.FLOAT;
+        out.writeInt(noLocations);
+        out.writeBoolean(isSymmetric);
+        out.writeBoolean(isFloat);
+        for (int from = 0; from < noLocations; from++) {
+            for (int to = 0; to < (isSymmetric ? from + 1 : noLocations); to++) {
+                if (isFloat) {
+                    out.writeFloat((float) matrix.getDistance(from, to));
+                    out.writeFloat((float) matrix.getTransportTime(from, to));
+                } else {
+                    out.writeDouble(matrix.getDistance(from, to));
+                    out.writeDouble(matrix.getTransportTime(from, to));
+                }
+            }
+        }
+    }
+
+    private static void writeLocation(BinaryOutput out, Location location) throws IOException {
+        int flags = 0;
+        if (location.getId() != null) flags |= LOCATION_ID;
+        if (location.getCoordinate() != null) flags |= LOCATION_COORDINATE;
+        if (location.getIndex() != Location.NO_INDEX) flags |= LOCATION_INDEX;
+        if (location.getName() != null) flags |= LOCATION_NAME;
+        out.writeByte(flags);
+        if (location.getId() != null) out.writeString(location.getId());
+        if (location.getCoordinate() != null) {
+            out.writeDouble(location.getCoordinate().getX());
+            out.writeDouble(location.getCoordinate().getY());
+        }
+        if (location.getIndex() != Location.NO_INDEX) out.writeInt(location.getIndex());
+        if (location.getName() != null) out.writeString(location.getName());
+    }
+
+    private static void writeSize(BinaryOutput out, SizeDimension size) throws IOException {
+        out.writeInt(size.getNuOfDimensions());
+        for (int i = 0; i < size.getNuOfDimensions(); i++) {
+            out.writeInt(size.get(i));
+        }
+    }
+
+    private static void writeSkills(BinaryOutput out, Skills skills) throws IOException {
+        out.writeInt(skills.values().size());
+        for (String skill : skills.values()) {
+            out.writeString(skill);
+        }
+    }
+
+    private static void writeTimeWindows(BinaryOutput out, Collection<TimeWindow> timeWindows) throws IOException {
+        out.writeInt(timeWindows.size());
+        for (TimeWindow timeWindow : timeWindows) {
+            out.writeDouble(timeWindow.getStart());
+            out.writeDouble(timeWindow.getEnd());
+        }
+    }
+
+}
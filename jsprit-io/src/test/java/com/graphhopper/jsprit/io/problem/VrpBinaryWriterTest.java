@@ -0,0 +1,214 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.io.problem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Break;
+import com.graphhopper.jsprit.core.problem.job.DeliveryJob;
+import com.graphhopper.jsprit.core.problem.job.PickupJob;
+import com.graphhopper.jsprit.core.problem.job.ServiceJob;
+import com.graphhopper.jsprit.core.problem.job.ShipmentJob;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.JobActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Coordinate;
+import com.graphhopper.jsprit.core.util.FastVehicleRoutingTransportCostsMatrix;
+
+public class VrpBinaryWriterTest {
+
+    private static VehicleRoutingProblem.Builder roundTrip(VehicleRoutingProblem vrp) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VrpBinaryWriter(vrp).write(Channels.newChannel(out));
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        new VrpBinaryReader(builder).read(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        return builder;
+    }
+
+    private static Location loc(String id, int index) {
+        return Location.Builder.newInstance().setId(id).setIndex(index).setCoordinate(Coordinate.newInstance(index, 2 * index)).build();
+    }
+
+    @Test
+    public void whenWritingFleet_itShouldBeReadCorrectly() throws IOException {
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 20).addCapacityDimension(1, 5)
+            .setFixedCost(100).setCostPerDistance(1.5).setCostPerTransportTime(2.5).setCostPerServiceTime(3.5)
+            .setCostPerWaitingTime(0.5).setProfile("truck").build();
+        Break aBreak = new Break.Builder("break").setServiceTime(30).addTimeWindow(TimeWindow.newInstance(100, 200)).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setType(type).setStartLocation(loc("depot", 0))
+            .setEndLocation(loc("end", 1)).setEarliestStart(10).setLatestArrival(1000).addSkill("cooling").setBreak(aBreak).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(vehicle).build();
+
+        VehicleRoutingProblem read = roundTrip(vrp).build();
+
+        assertEquals(VehicleRoutingProblem.FleetSize.FINITE, read.getFleetSize());
+        assertEquals(1, read.getVehicles().size());
+        Vehicle v = read.getVehicles().iterator().next();
+        assertEquals("v", v.getId());
+        assertEquals("depot", v.getStartLocation().getId());
+        assertEquals(1, v.getEndLocation().getIndex());
+        assertEquals(1., v.getEndLocation().getCoordinate().getX(), 0.01);
+        assertEquals(10., v.getEarliestDeparture(), 0.01);
+        assertEquals(1000., v.getLatestArrival(), 0.01);
+        assertTrue(v.getSkills().containsSkill("cooling"));
+        assertEquals("break", v.getBreak().getId());
+        assertEquals(30., v.getBreak().getActivity().getOperationTime(), 0.01);
+        assertEquals(100., v.getBreak().getTimeWindows().iterator().next().getStart(), 0.01);
+        VehicleType t = v.getType();
+        assertEquals("type", t.getTypeId());
+        assertEquals("truck", t.getProfile());
+        assertEquals(5, t.getCapacityDimensions().get(1));
+        assertEquals(100., t.getVehicleCostParams().fix, 0.01);
+        assertEquals(1.5, t.getVehicleCostParams().perDistanceUnit, 0.01);
+        assertEquals(2.5, t.getVehicleCostParams().perTransportTimeUnit, 0.01);
+        assertEquals(3.5, t.getVehicleCostParams().perServiceTimeUnit, 0.01);
+        assertEquals(0.5, t.getVehicleCostParams().perWaitingTimeUnit, 0.01);
+    }
+
+    @Test
+    public void whenWritingJobs_itShouldBeReadCorrectly() throws IOException {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(loc("depot", 0)).build();
+        ServiceJob service = new ServiceJob.Builder("s").setName("service").setLocation(loc("l1", 1)).setServiceTime(10)
+            .addSizeDimension(0, 2).addTimeWindow(TimeWindow.newInstance(0, 50)).addTimeWindow(TimeWindow.newInstance(100, 150))
+            .addRequiredSkill("drill").setPriority(1).build();
+        PickupJob pickup = new PickupJob.Builder("p").setLocation(loc("l2", 2)).addSizeDimension(0, 3).build();
+        DeliveryJob delivery = new DeliveryJob.Builder("d").setLocation(loc("l3", 3)).addSizeDimension(0, 4).build();
+        ShipmentJob shipment = new ShipmentJob.Builder("sh").setPickupLocation(loc("l4", 4)).setPickupServiceTime(5)
+            .addPickupTimeWindow(TimeWindow.newInstance(10, 20)).setDeliveryLocation(loc("l5", 5)).setDeliveryServiceTime(6)
+            .addDeliveryTimeWindow(TimeWindow.newInstance(30, 40)).addSizeDimension(0, 1).addSizeDimension(1, 7).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .addJob(service).addJob(pickup).addJob(delivery).addJob(shipment).build();
+
+        VehicleRoutingProblem read = roundTrip(vrp).build();
+
+        assertEquals(4, read.getJobs().size());
+        ServiceJob s = (ServiceJob) read.getJobs().get("s");
+        assertEquals("service", s.getName());
+        assertEquals(1, s.getPriority());
+        assertEquals(10., s.getActivity().getOperationTime(), 0.01);
+        assertEquals(2, s.getActivity().getLoadChange().get(0));
+        assertEquals(2, s.getTimeWindows().size());
+        assertTrue(s.getRequiredSkills().containsSkill("drill"));
+        assertEquals(1, s.getActivity().getLocation().getIndex());
+        assertTrue(read.getJobs().get("p") instanceof PickupJob);
+        assertEquals(3, ((PickupJob) read.getJobs().get("p")).getActivity().getLoadChange().abs().get(0));
+        assertTrue(read.getJobs().get("d") instanceof DeliveryJob);
+        assertEquals(4, ((DeliveryJob) read.getJobs().get("d")).getActivity().getLoadChange().abs().get(0));
+        ShipmentJob sh = (ShipmentJob) read.getJobs().get("sh");
+        assertEquals("l4", sh.getPickupActivity().getLocation().getId());
+        assertEquals(5., sh.getPickupActivity().getOperationTime(), 0.01);
+        assertEquals(20., sh.getPickupActivity().getTimeWindows().iterator().next().getEnd(), 0.01);
+        assertEquals("l5", sh.getDeliveryActivity().getLocation().getId());
+        assertEquals(6., sh.getDeliveryActivity().getOperationTime(), 0.01);
+        assertEquals(30., sh.getDeliveryActivity().getTimeWindows().iterator().next().getStart(), 0.01);
+        assertEquals(7, sh.getPickupActivity().getLoadChange().get(1));
+    }
+
+    @Test
+    public void whenWritingInitialRoutes_itShouldBeReadCorrectly() throws IOException {
+        Break aBreak = new Break.Builder("break").setServiceTime(30).addTimeWindow(TimeWindow.newInstance(0, 200)).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(loc("depot", 0)).setBreak(aBreak).build();
+        ServiceJob s1 = new ServiceJob.Builder("s1").setLocation(loc("l1", 1)).build();
+        ServiceJob s2 = new ServiceJob.Builder("s2").setLocation(loc("l2", 2)).build();
+        ShipmentJob shipment = new ShipmentJob.Builder("sh").setPickupLocation(loc("l3", 3)).setDeliveryLocation(loc("l4", 4)).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).setDepartureTime(5).addPickup(shipment).addService(s1)
+            .addBreak(aBreak).addDelivery(shipment).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(vehicle).addJob(s2)
+            .addInitialVehicleRoute(route).build();
+
+        VehicleRoutingProblem read = roundTrip(vrp).build();
+
+        assertEquals(1, read.getJobs().size());
+        assertTrue(read.getJobs().containsKey("s2"));
+        assertEquals(1, read.getInitialVehicleRoutes().size());
+        VehicleRoute readRoute = read.getInitialVehicleRoutes().iterator().next();
+        assertEquals("v", readRoute.getVehicle().getId());
+        assertEquals(5., readRoute.getDepartureTime(), 0.01);
+        assertEquals(4, readRoute.getActivities().size());
+        String[] jobIds = {"sh", "s1", "break", "sh"};
+        for (int i = 0; i < jobIds.length; i++) {
+            assertEquals(jobIds[i], ((JobActivity) readRoute.getActivities().get(i)).getJob().getId());
+        }
+        assertEquals(1, ((JobActivity) readRoute.getActivities().get(0)).getOrderNumber());
+        assertEquals(2, ((JobActivity) readRoute.getActivities().get(3)).getOrderNumber());
+    }
+
+    @Test
+    public void whenWritingMatrix_itShouldBeReadCorrectly() throws IOException {
+        FastVehicleRoutingTransportCostsMatrix.Builder matrixBuilder = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(3, false,
+            FastVehicleRoutingTransportCostsMatrix.Precision.FLOAT);
+        for (int from = 0; from < 3; from++) {
+            for (int to = 0; to < 3; to++) {
+                matrixBuilder.addTransportTimeAndDistance(from, to, from * 10 + to, from * 100 + to);
+            }
+        }
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(loc("depot", 0)).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .setRoutingCost(matrixBuilder.build()).build();
+
+        VehicleRoutingProblem read = roundTrip(vrp).build();
+
+        assertTrue(read.getTransportCosts() instanceof FastVehicleRoutingTransportCostsMatrix);
+        FastVehicleRoutingTransportCostsMatrix matrix = (FastVehicleRoutingTransportCostsMatrix) read.getTransportCosts();
+        assertEquals(3, matrix.getNoLocations());
+        assertFalse(matrix.isSymmetric());
+        assertEquals(FastVehicleRoutingTransportCostsMatrix.Precision.FLOAT, matrix.getPrecision());
+        assertEquals(12., matrix.getTransportTime(1, 2), 0.01);
+        assertEquals(201., matrix.getDistance(2, 1), 0.01);
+    }
+
+    @Test
+    public void whenWritingSymmetricMatrix_itShouldBeReadCorrectly() throws IOException {
+        FastVehicleRoutingTransportCostsMatrix.Builder matrixBuilder = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(3, true);
+        matrixBuilder.addTransportTimeAndDistance(0, 2, 5.25, 7.5);
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(loc("depot", 0)).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .setRoutingCost(matrixBuilder.build()).build();
+
+        FastVehicleRoutingTransportCostsMatrix matrix = (FastVehicleRoutingTransportCostsMatrix) roundTrip(vrp).build().getTransportCosts();
+
+        assertTrue(matrix.isSymmetric());
+        assertEquals(FastVehicleRoutingTransportCostsMatrix.Precision.DOUBLE, matrix.getPrecision());
+        assertEquals(5.25, matrix.getTransportTime(2, 0), 0.);
+        assertEquals(7.5, matrix.getDistance(0, 2), 0.);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenReadingInputWithoutMagicNumber_itShouldThrowException() throws IOException {
+        byte[] bytes = {1, 2, 3, 4, 0, 0, 0, 1};
+        new VrpBinaryReader(VehicleRoutingProblem.Builder.newInstance()).read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+}